@@ -0,0 +1,67 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sets the {@link SimEvent#fuzzyScheduler} weights of the events taken from a
+ * future queue in one batch: each event is raised once for every other event of
+ * the batch equal to it (in the sense of {@link SimEvent#equals(Object)}),
+ * whatever the other pending events. Equal events have the same destination,
+ * and a batch holds the same events of an entity whatever the engine running
+ * the simulation, so the conservative engine gives the same weights as the
+ * sequential one.
+ *
+ * @see CloudSim#setBatchFuzzyWeights(boolean)
+ */
+class BatchFuzzySchedulerWeights extends FuzzySchedulerIndex {
+
+	/** The number of events of the batch equal to each one. */
+	private final Map<SimEvent, int[]> counts = new HashMap<SimEvent, int[]>();
+
+	@Override
+	void add(SimEvent event) {
+	}
+
+	@Override
+	void raise(SimEvent event) {
+	}
+
+	@Override
+	void remove(SimEvent event) {
+	}
+
+	@Override
+	void weigh(List<SimEvent> batch, int size) {
+		if (size < 2) {
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			SimEvent event = batch.get(i);
+			int[] count = counts.get(event);
+			if (count == null) {
+				count = new int[1];
+				counts.put(event, count);
+			}
+			count[0]++;
+		}
+		for (int i = 0; i < size; i++) {
+			SimEvent event = batch.get(i);
+			int raises = counts.get(event)[0] - 1;
+			if (raises > 0) {
+				event.fuzzyScheduler += STEP * raises;
+			}
+		}
+		counts.clear();
+	}
+
+}
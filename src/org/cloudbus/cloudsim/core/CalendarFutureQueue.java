@@ -0,0 +1,330 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Future queue engine implementing the calendar queue of R. Brown, "Calendar
+ * queues: a fast O(1) priority queue implementation for the simulation event
+ * set problem", CACM 31(10), 1988.
+ * <p>
+ * The events are hashed by queue time into an array of buckets ("days") of a
+ * fixed width; each bucket is a list sorted by (queue time, serial) that is
+ * linked through the events themselves, so no node is allocated per event. The number of
+ * buckets doubles or halves with the queue size and the bucket width is then
+ * re-estimated from the events closest to the head of the queue.
+ *
+ * @see FutureQueue
+ */
+public class CalendarFutureQueue extends FutureQueue {
+
+	/** The minimum number of buckets. */
+	private static final int MIN_BUCKETS = 2;
+
+	/** The number of events sampled when the bucket width is re-estimated. */
+	private static final int SAMPLE_SIZE = 25;
+
+	/** The first event of each bucket. */
+	private SimEvent[] heads;
+
+	/** The last event of each bucket. */
+	private SimEvent[] tails;
+
+	/** The number of buckets minus one; the number of buckets is a power of 2. */
+	private int mask;
+
+	/** The width of a bucket, in simulation time. */
+	private double width = 1.0;
+
+	/** The virtual (not wrapped) index of the bucket being served. */
+	private long current = 0;
+
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/** The size above which the number of buckets is doubled. */
+	private int growThreshold;
+
+	/** The size below which the number of buckets is halved. */
+	private int shrinkThreshold;
+
+	public CalendarFutureQueue() {
+		allocate(MIN_BUCKETS);
+	}
+
+	@Override
+	protected void insert(SimEvent newEvent) {
+		long bucket = virtualBucket(newEvent.queueTime);
+		if (size == 0 || bucket < current) {
+			current = bucket;
+		}
+		link(newEvent, bucket);
+		if (++size > growThreshold) {
+			resize(heads.length << 1);
+		}
+	}
+
+	@Override
+	protected SimEvent pollFirst() {
+		int bucket = locate();
+		if (bucket < 0) {
+			return null;
+		}
+		SimEvent first = heads[bucket];
+		heads[bucket] = first.queueNext;
+		if (heads[bucket] == null) {
+			tails[bucket] = null;
+		}
+		first.queueNext = null;
+		if (--size < shrinkThreshold) {
+			resize(heads.length >> 1);
+		}
+		return first;
+	}
+
+	@Override
+	protected boolean delete(SimEvent event) {
+		int bucket = (int) (virtualBucket(event.queueTime) & mask);
+		SimEvent previous = null;
+		for (SimEvent ev = heads[bucket]; ev != null; previous = ev, ev = ev.queueNext) {
+			if (ev == event) {
+				if (previous == null) {
+					heads[bucket] = ev.queueNext;
+				} else {
+					previous.queueNext = ev.queueNext;
+				}
+				if (tails[bucket] == ev) {
+					tails[bucket] = previous;
+				}
+				ev.queueNext = null;
+				if (--size < shrinkThreshold) {
+					resize(heads.length >> 1);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected SimEvent peekFirst() {
+		int bucket = locate();
+		return bucket < 0 ? null : heads[bucket];
+	}
+
+	@Override
+	protected Iterator<SimEvent> storedIterator() {
+		return new Iterator<SimEvent>() {
+
+			private int bucket = -1;
+
+			private SimEvent next = advance(null);
+
+			private SimEvent advance(SimEvent ev) {
+				if (ev != null && ev.queueNext != null) {
+					return ev.queueNext;
+				}
+				while (++bucket < heads.length) {
+					if (heads[bucket] != null) {
+						return heads[bucket];
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				SimEvent ev = next;
+				next = advance(ev);
+				return ev;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	protected int storedSize() {
+		return size;
+	}
+
+	@Override
+	protected void deleteAll() {
+		allocate(MIN_BUCKETS);
+		size = 0;
+		current = 0;
+	}
+
+	/**
+	 * Finds the bucket holding the first event, moving the calendar forward to
+	 * it.
+	 *
+	 * @return the bucket, or -1 if the queue is empty
+	 */
+	private int locate() {
+		if (size == 0) {
+			return -1;
+		}
+		// one year of buckets from the current day
+		for (int i = 0; i < heads.length; i++, current++) {
+			SimEvent head = heads[(int) (current & mask)];
+			if (head != null && virtualBucket(head.queueTime) <= current) {
+				return (int) (current & mask);
+			}
+		}
+		// sparse calendar: direct search for the earliest event
+		SimEvent first = null;
+		for (SimEvent head : heads) {
+			if (head != null && (first == null || precedes(head, first))) {
+				first = head;
+			}
+		}
+		current = virtualBucket(first.queueTime);
+		return (int) (current & mask);
+	}
+
+	/**
+	 * Inserts an event into its bucket, keeping the bucket sorted.
+	 */
+	private void link(SimEvent event, long bucket) {
+		int index = (int) (bucket & mask);
+		SimEvent tail = tails[index];
+		if (tail == null) {
+			heads[index] = event;
+			tails[index] = event;
+			event.queueNext = null;
+		} else if (!precedes(event, tail)) {
+			// common case: the event goes after every event of the day
+			tail.queueNext = event;
+			tails[index] = event;
+			event.queueNext = null;
+		} else {
+			SimEvent previous = null;
+			SimEvent ev = heads[index];
+			while (!precedes(event, ev)) {
+				previous = ev;
+				ev = ev.queueNext;
+			}
+			event.queueNext = ev;
+			if (previous == null) {
+				heads[index] = event;
+			} else {
+				previous.queueNext = event;
+			}
+		}
+	}
+
+	private long virtualBucket(double time) {
+		return (long) (time / width);
+	}
+
+	private void allocate(int buckets) {
+		heads = new SimEvent[buckets];
+		tails = new SimEvent[buckets];
+		mask = buckets - 1;
+		growThreshold = buckets << 1;
+		shrinkThreshold = buckets > MIN_BUCKETS ? (buckets >> 1) - 2 : -1;
+	}
+
+	/**
+	 * Changes the number of buckets, re-estimating the bucket width.
+	 *
+	 * @param buckets the new number of buckets, a power of 2
+	 */
+	private void resize(int buckets) {
+		SimEvent[] events = new SimEvent[size];
+		int count = 0;
+		for (SimEvent head : heads) {
+			SimEvent ev = head;
+			while (ev != null) {
+				SimEvent next = ev.queueNext;
+				events[count++] = ev;
+				ev = next;
+			}
+		}
+
+		width = estimateWidth(events);
+		allocate(buckets);
+		current = Long.MAX_VALUE;
+		for (SimEvent ev : events) {
+			long bucket = virtualBucket(ev.queueTime);
+			if (bucket < current) {
+				current = bucket;
+			}
+			link(ev, bucket);
+		}
+		if (count == 0) {
+			current = 0;
+		}
+	}
+
+	/**
+	 * Estimates the bucket width as three times the average separation of the
+	 * events closest to the head of the queue, ignoring separations larger than
+	 * twice the average as in Brown's paper.
+	 */
+	private double estimateWidth(SimEvent[] events) {
+		int samples = Math.min(SAMPLE_SIZE, events.length);
+		if (samples < 2) {
+			return width;
+		}
+		// the smallest times, kept sorted by insertion
+		double[] sample = new double[samples];
+		int filled = 0;
+		for (SimEvent ev : events) {
+			double time = ev.queueTime;
+			if (filled == samples && time >= sample[samples - 1]) {
+				continue;
+			}
+			int i = filled < samples ? filled++ : samples - 1;
+			while (i > 0 && sample[i - 1] > time) {
+				sample[i] = sample[i - 1];
+				i--;
+			}
+			sample[i] = time;
+		}
+
+		double total = 0;
+		int separations = 0;
+		for (int i = 1; i < samples; i++) {
+			if (sample[i] > sample[i - 1]) {
+				total += sample[i] - sample[i - 1];
+				separations++;
+			}
+		}
+		if (separations == 0) {
+			return width;
+		}
+		double average = total / separations;
+		total = 0;
+		separations = 0;
+		for (int i = 1; i < samples; i++) {
+			double separation = sample[i] - sample[i - 1];
+			if (separation > 0 && separation <= 2 * average) {
+				total += separation;
+				separations++;
+			}
+		}
+		return 3 * total / separations;
+	}
+
+}
@@ -9,13 +9,13 @@
 package org.cloudbus.cloudsim.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -37,39 +37,20 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  */
 public class CloudSim {
 
-	private static int count;
-
 	/** The Constant CLOUDSIM_VERSION_STRING. */
 	private static final String CLOUDSIM_VERSION_STRING = "3.0";
 
-	/** The id of CIS entity. */
-	private static int cisId = -1;
-
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
-
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
-
 	/** The Constant NOT_FOUND. */
 	private static final int NOT_FOUND = -1;
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
+	/** The context of the threads that are not bound to one. */
+	private static final SimulationContext defaultContext = new SimulationContext();
 
-	/** The calendar. */
-	private static Calendar calendar = null;
+	/** The context bound to each thread, if any. */
+	private static final ThreadLocal<SimulationContext> threadContext = new ThreadLocal<SimulationContext>();
 
-	/** The termination time. */
-	private static double terminateAt = -1;
-
-	/**
-	 * The minimal time between events. Events within shorter periods after the last
-	 * event are discarded.
-	 */
-	private static double minTimeBetweenEvents = 0.1;
+	/** Whether a thread has ever been bound to a context. */
+	private static volatile boolean threadContexts = false;
 
 	/**
 	 * Initialises all the common attributes.
@@ -84,21 +65,22 @@ public class CloudSim {
 	 * @post $none
 	 */
 	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser) throws Exception {
+		SimulationContext c = context();
 		initialize();
 		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+		c.traceFlag = _traceFlag;
 
 		// Set the current Wall clock time as the starting time of
 		// simulation
 		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+			c.calendar = Calendar.getInstance();
 		} else {
-			calendar = _calendar;
+			c.calendar = _calendar;
 		}
 
 		// creates a CloudSimShutdown object
 		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+		c.shutdownId = shutdown.getId();
 	}
 
 	/**
@@ -126,14 +108,15 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
+		SimulationContext c = context();
 		try {
 			initCommonVariable(cal, traceFlag, numUser);
 
 			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
+			c.cis = new CloudInformationService("CloudInformationService");
 
 			// set all the above entity IDs
-			cisId = cis.getId();
+			c.cisId = c.cis.getId();
 		} catch (IllegalArgumentException s) {
 			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
 			Log.printLine(s.getMessage());
@@ -172,13 +155,43 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+		SimulationContext c = context();
 		if (periodBetweenEvents <= 0) {
 			throw new IllegalArgumentException(
 					"The minimal time between events should be positive, but is:" + periodBetweenEvents);
 		}
 
 		init(numUser, cal, traceFlag);
-		minTimeBetweenEvents = periodBetweenEvents;
+		c.minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Initialises CloudSim parameters to run the simulation with the conservative
+	 * parallel engine. This method should be called before creating any entities.
+	 * <p>
+	 * The entities are split into logical processes by the given partition when
+	 * the simulation starts. The logical processes run concurrently within
+	 * windows as long as the lookahead of the partition, so with a parallelism
+	 * above 1 the entities of different logical processes must not share mutable
+	 * state other than through events. Pausing the simulation and adding entities
+	 * while it runs are not supported, and an entity can only cancel the events it
+	 * sent to its own logical process.
+	 * 
+	 * @param numUser     the number of User Entities created
+	 * @param cal         starting time for this simulation. If it is <tt>null</tt>,
+	 *                    then the time will be taken from
+	 *                    <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag   <tt>true</tt> if CloudSim trace need to be written
+	 * @param partition   the partition of the entities into logical processes, or
+	 *                    <tt>null</tt> to use the sequential engine
+	 * @param parallelism the number of threads running the logical processes
+	 * @see #init(int, Calendar, boolean)
+	 * @see #setConservativeEngine(SimEntityPartition, int)
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, SimEntityPartition partition,
+			int parallelism) {
+		setConservativeEngine(partition, parallelism);
+		init(numUser, cal, traceFlag);
 	}
 
 	/**
@@ -198,16 +211,17 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static double startSimulation() throws NullPointerException {
+		SimulationContext c = context();
 		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
 		try {
 			double clock = run();
 
 			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
+			c.cisId = -1;
+			c.shutdownId = -1;
+			c.cis = null;
+			c.calendar = null;
+			c.traceFlag = false;
 
 			return clock;
 		} catch (IllegalArgumentException e) {
@@ -245,7 +259,8 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
+		SimulationContext c = context();
+		c.running = false;
 		printMessage("Simulation: Reached termination time.");
 		return true;
 	}
@@ -258,10 +273,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
+		SimulationContext c = context();
+		if (time <= c.clock) {
 			return false;
 		} else {
-			terminateAt = time;
+			c.terminateAt = time;
 		}
 		return true;
 	}
@@ -273,7 +289,8 @@ public class CloudSim {
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-		return minTimeBetweenEvents;
+		SimulationContext c = context();
+		return c.minTimeBetweenEvents;
 	}
 
 	/**
@@ -287,10 +304,11 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
+		SimulationContext c = context();
 		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
+		Calendar clone = c.calendar;
+		if (c.calendar != null) {
+			clone = (Calendar) c.calendar.clone();
 		}
 
 		return clone;
@@ -304,7 +322,8 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		SimulationContext c = context();
+		return c.cisId;
 	}
 
 	/**
@@ -317,59 +336,333 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
+		SimulationContext c = context();
+		if (c.cis == null) {
 			return null;
 		}
 
-		return cis.getList();
+		return c.cis.getList();
 	}
 
 	// ======== SIMULATION METHODS ===============//
 
-	/** The entities. */
-	private static List<SimEntity> entities;
+	/**
+	 * Gets the context the static methods of this class work on in the calling
+	 * thread.
+	 */
+	static SimulationContext context() {
+		if (threadContexts) {
+			SimulationContext context = threadContext.get();
+			if (context != null) {
+				return context;
+			}
+		}
+		return defaultContext;
+	}
 
-	/** The future event queue. */
-	protected static FutureQueue future;
+	/**
+	 * Gets the simulation context of the calling thread.
+	 * 
+	 * @return the context bound to the thread, or the default context
+	 */
+	public static SimulationContext getContext() {
+		return context();
+	}
 
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
+	/**
+	 * Binds a simulation context to the calling thread. The simulations created
+	 * and run by the thread afterwards are isolated from the ones of the other
+	 * threads, so several simulations can run concurrently in one JVM.
+	 * 
+	 * @param context the context, or <tt>null</tt> to go back to the default
+	 *                context
+	 */
+	public static void setContext(SimulationContext context) {
+		if (context == null) {
+			threadContext.remove();
+		} else {
+			threadContexts = true;
+			threadContext.set(context);
+		}
+	}
 
-	/** The simulation clock. */
-	private static double clock;
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should
+	 * be called at the start of the simulation.
+	 */
+	protected static void initialize() {
+		SimulationContext c = context();
+		Log.printLine("Initialising...");
+		c.entities = new ArrayList<SimEntity>();
+		c.entitiesByName = new LinkedHashMap<String, SimEntity>();
+		c.future = FutureQueue.create(c.futureQueueType);
+		c.future.setPriorityScheduling(c.priorityScheduling, c.priorityWindow);
+		c.future.setTrace(c.futureQueueTrace);
+		c.fuzzyScheduler = FuzzySchedulerIndex.create(c.batchFuzzyWeights);
+		c.sendOrder = new SendOrder();
+		c.deferred = new DeferredQueue();
+		c.eventPool.clear();
+		c.numProcessedEvents = 0;
+		c.numTicks = 0;
+		c.runStartNanos = 0;
+		c.runEndNanos = 0;
+		c.waitPredicates = new HashMap<Integer, Predicate>();
+		c.clock = 0;
+		c.running = false;
+		c.conservative = null;
+	}
 
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
+	/**
+	 * Sets the engine used by the future event queue. This method should be
+	 * called before {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param type one of {@link FutureQueue#TREE_SET}, {@link FutureQueue#CALENDAR},
+	 *             {@link FutureQueue#LADDER} or
+	 *             {@link FutureQueue#QUATERNARY_HEAP}
+	 */
+	public static void setFutureQueueType(int type) {
+		SimulationContext c = context();
+		FutureQueue.create(type); // validates the type
+		c.futureQueueType = type;
+	}
 
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
+	/**
+	 * Gets the engine used by the future event queue.
+	 * 
+	 * @return the future queue type
+	 */
+	public static int getFutureQueueType() {
+		SimulationContext c = context();
+		return c.futureQueueType;
+	}
 
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
+	/**
+	 * Records the operations on the future event queue of the next simulations
+	 * into the given trace. This method should be called before
+	 * {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param trace the trace, or <tt>null</tt> to stop recording
+	 */
+	public static void setFutureQueueTrace(FutureQueueTrace trace) {
+		SimulationContext c = context();
+		c.futureQueueTrace = trace;
+	}
 
-	/** The paused. */
-	private static boolean paused = false;
+	/**
+	 * Runs the next simulations with the conservative parallel engine, or with the
+	 * sequential one if the partition is <tt>null</tt>. This method should be
+	 * called before {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param partition   the partition of the entities into logical processes, or
+	 *                    <tt>null</tt>
+	 * @param parallelism the number of threads running the logical processes
+	 * @see #init(int, Calendar, boolean, SimEntityPartition, int)
+	 */
+	public static void setConservativeEngine(SimEntityPartition partition, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism should be positive, but is:" + parallelism);
+		}
+		SimulationContext c = context();
+		c.partition = partition;
+		c.parallelism = parallelism;
+	}
 
-	/** The pause at. */
-	private static long pauseAt = -1;
+	/**
+	 * Gets the partition used by the conservative parallel engine.
+	 * 
+	 * @return the partition, or <tt>null</tt> if the sequential engine is used
+	 */
+	public static SimEntityPartition getSimEntityPartition() {
+		SimulationContext c = context();
+		return c.partition;
+	}
 
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
+	/**
+	 * Enables or disables event pooling. When enabled, the events are recycled
+	 * once the destination entity has processed them, so an entity must not keep
+	 * a reference to an event after its <tt>processEvent</tt> returns. Events
+	 * removed through {@link #cancel(int, Predicate)} are never recycled.
+	 * 
+	 * @param pooling true to recycle the processed events
+	 */
+	public static void setEventPooling(boolean pooling) {
+		SimulationContext c = context();
+		c.eventPooling = pooling;
+	}
 
 	/**
-	 * Initialise the simulation for stand alone simulations. This function should
-	 * be called at the start of the simulation.
+	 * Checks if event pooling is enabled.
+	 * 
+	 * @return true if the processed events are recycled
 	 */
-	protected static void initialize() {
-		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+	public static boolean isEventPooling() {
+		SimulationContext c = context();
+		return c.eventPooling;
+	}
+
+	/**
+	 * Enables or disables priority scheduling of the future events. This method
+	 * should be called before {@link #init(int, Calendar, boolean)}.
+	 * <p>
+	 * When enabled, events with a positive priority are ordered as if they had
+	 * been scheduled <tt>window</tt> earlier, and events with the same time are
+	 * ordered by decreasing priority. An event can thus be delayed by higher
+	 * priority events by at most <tt>window</tt> of simulation time; the entities
+	 * then receive it with the clock already past its event time. With a window
+	 * of 0, priorities only break ties between events scheduled at the same
+	 * time. Priority scheduling is disabled by default, so the events go in
+	 * (time, insertion) order whatever their priority.
+	 * 
+	 * @param enabled true to order the events by priority
+	 * @param window  the priority inversion window, in simulation time
+	 * @see FutureQueue#setPriorityScheduling(boolean, double)
+	 */
+	public static void setPriorityScheduling(boolean enabled, double window) {
+		SimulationContext c = context();
+		if (window < 0 || Double.isNaN(window)) {
+			throw new IllegalArgumentException("Priority window can't be negative.");
+		}
+		c.priorityScheduling = enabled;
+		c.priorityWindow = window;
+	}
+
+	/**
+	 * Checks if priority scheduling of the future events is enabled.
+	 * 
+	 * @return true if the events are ordered by priority
+	 */
+	public static boolean isPriorityScheduling() {
+		SimulationContext c = context();
+		return c.priorityScheduling;
+	}
+
+	/**
+	 * Gets the priority inversion window.
+	 * 
+	 * @return the window, in simulation time
+	 */
+	public static double getPriorityWindow() {
+		SimulationContext c = context();
+		return c.priorityWindow;
+	}
+
+	/**
+	 * Enables or disables batch fuzzy weights. This method should be called
+	 * before {@link #init(int, Calendar, boolean)}.
+	 * <p>
+	 * By default, the {@link SimEvent#fuzzyScheduler} weight of an event is
+	 * raised whenever an equal event is the next one to be processed while it is
+	 * pending, which depends on all the pending events of the simulation. When
+	 * enabled, the weight of an event only counts the equal events processed in
+	 * the same batch, so it does not depend on the events of the other entities
+	 * and the conservative engine gives the same weights as the sequential one.
+	 * This changes the weights the fuzzy energy update policy sees, so it is
+	 * disabled by default.
+	 * 
+	 * @param enabled true to only count the equal events of the same batch
+	 */
+	public static void setBatchFuzzyWeights(boolean enabled) {
+		SimulationContext c = context();
+		c.batchFuzzyWeights = enabled;
+	}
+
+	/**
+	 * Checks if batch fuzzy weights are enabled.
+	 * 
+	 * @return true if the weights only count the equal events of the same batch
+	 */
+	public static boolean isBatchFuzzyWeights() {
+		SimulationContext c = context();
+		return c.batchFuzzyWeights;
+	}
+
+	/**
+	 * Gets the number of events reused from the pool in the current simulation.
+	 * 
+	 * @return the number of reused events
+	 * @see #setEventPooling(boolean)
+	 */
+	public static long getNumReusedEvents() {
+		SimulationContext c = context();
+		return c.eventPool.getReused();
+	}
+
+	/**
+	 * Gets the number of events allocated by the pool in the current simulation.
+	 * 
+	 * @return the number of allocated events
+	 * @see #setEventPooling(boolean)
+	 */
+	public static long getNumPooledEventsCreated() {
+		SimulationContext c = context();
+		return c.eventPool.getCreated();
+	}
+
+	/**
+	 * Adds an observer of the events of the next simulations.
+	 * 
+	 * @param observer the observer
+	 */
+	public static void addEventObserver(SimEventObserver observer) {
+		SimulationContext c = context();
+		SimEventObserver[] copy = Arrays.copyOf(c.observers, c.observers.length + 1);
+		copy[c.observers.length] = observer;
+		c.observers = copy;
+	}
+
+	/**
+	 * Removes an observer of the events.
+	 * 
+	 * @param observer the observer
+	 */
+	public static void removeEventObserver(SimEventObserver observer) {
+		SimulationContext c = context();
+		List<SimEventObserver> list = new ArrayList<SimEventObserver>(Arrays.asList(c.observers));
+		list.remove(observer);
+		c.observers = list.toArray(new SimEventObserver[list.size()]);
+	}
+
+	/**
+	 * Gets the number of events processed by the simulation so far.
+	 * 
+	 * @return the number of events
+	 */
+	public static long getNumProcessedEvents() {
+		SimulationContext c = context();
+		return c.numProcessedEvents;
+	}
+
+	/**
+	 * Gets the number of simulation ticks so far. Each tick processes the events
+	 * scheduled at the same time.
+	 * 
+	 * @return the number of ticks
+	 */
+	public static long getNumTicks() {
+		SimulationContext c = context();
+		return c.numTicks;
+	}
+
+	/**
+	 * Gets the average number of events processed per simulation tick.
+	 * 
+	 * @return the average batch size
+	 */
+	public static double getAverageBatchSize() {
+		SimulationContext c = context();
+		return c.numTicks == 0 ? 0 : (double) c.numProcessedEvents / c.numTicks;
+	}
+
+	/**
+	 * Gets the number of events processed per second of wall clock time.
+	 * 
+	 * @return the event rate
+	 */
+	public static double getEventsPerSecond() {
+		SimulationContext c = context();
+		long end = c.runEndNanos > 0 ? c.runEndNanos : System.nanoTime();
+		return c.runStartNanos == 0 || end == c.runStartNanos ? 0
+				: c.numProcessedEvents / ((end - c.runStartNanos) / 1000000000.0);
 	}
 
 	// The two standard predicates
@@ -388,7 +681,8 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		SimulationContext c = context();
+		return c.conservative == null ? c.clock : c.conservative.clock();
 	}
 
 	/**
@@ -397,7 +691,8 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		SimulationContext c = context();
+		return c.entities.size();
 	}
 
 	/**
@@ -407,7 +702,8 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		SimulationContext c = context();
+		return c.entities.get(id);
 	}
 
 	/**
@@ -417,7 +713,8 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		SimulationContext c = context();
+		return c.entitiesByName.get(name);
 	}
 
 	/**
@@ -427,7 +724,8 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
+		SimulationContext c = context();
+		SimEntity obj = c.entitiesByName.get(name);
 		if (obj == null) {
 			return NOT_FOUND;
 		} else {
@@ -474,10 +772,11 @@ public class CloudSim {
 	 * @return the entity iterator
 	 */
 	public static List<SimEntity> getEntityList() {
+		SimulationContext c = context();
 		// create a new list to prevent the user from changing
 		// the list of entities used by Simulation
 		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
+		list.addAll(c.entities);
 		return list;
 	}
 
@@ -491,17 +790,21 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	public static void addEntity(SimEntity e) {
+		SimulationContext c = context();
 		SimEvent evt;
-		if (running) {
+		if (c.running && c.conservative != null) {
+			throw new IllegalStateException("Entities can't be added while the conservative engine runs.");
+		}
+		if (c.running) {
 			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
+			evt = newEvent(SimEvent.CREATE, c.clock, 1, 0, 0, e, 0);
+			addFutureEvent(evt);
 		}
 		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
+			int id = c.entities.size();
 			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
+			c.entities.add(e);
+			c.entitiesByName.put(e.getName(), e);
 		}
 	}
 
@@ -527,91 +830,85 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
+		SimulationContext c = context();
 		SimEntity ent;
 		boolean queue_empty;
 
-		int entities_size = entities.size();
+		int entities_size = c.entities.size();
 //aquiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiii
 		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
+			ent = c.entities.get(i);
 			if (ent.getState() == SimEntity.RUNNABLE) {
+				c.sendOrder.setRunning(ent);
 				ent.run();
 			}
 		}
-
-		List<SimEvent> list = new ArrayList<>(future.getSortedSet());
-
-		// future.remove(list.get(0));
-
-//		for (int i = 0; i < list.size(); i++) {
-//			int contador = 0;
-//			SimEvent event = list.get(i);
-//			for (int j = 0; j < list.size(); j++) {
-//				if (event.equals(list.get(j))) {
-//					contador++;
-//				}
-//				if (contador > 1) {
-//					future.remove(event);
-//					count++;
-//				}
-//			}
-//
-//			if (contador > 1) {
-//				break;
-//			}
-//
-//		}
+		c.sendOrder.setRunning(null);
 
 		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-
-			Iterator<SimEvent> fit = future.iterator();// mudar a ordem das prioridades
+		if (c.future.size() > 0) {
 			queue_empty = false;
 
-			SimEvent first = fit.next();
+			// all the events at the head time are taken in one go
+			int size = pollBatch(c.future, c.fuzzyScheduler, c.batch);
+			c.fuzzyScheduler.weigh(c.batch, size);
+			c.sendOrder.batchPolled(c.batch.get(0));
 
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-
-			// um buffer comparando as prioridades dos eventos, evitando a execução
-			// desnecessária de eventos
-			// pular eventos de monitoramento posssivelmente desnecessarios, reduzindo o
-			// consumo energetico.
-
-			// se tem mais dados daquele sensor coletado na fila, se utiliza o último
-			// descarta os anteriores
-
-			for (SimEvent next : future.getSortedSet()) {
-				future.getSortedSet().stream().filter(evt -> evt.equals(next)).forEach(evt -> {
-// FUZZY &&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&
-					evt.fuzzyScheduler += 0.1;
-				});
-
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);// aaaaaa
-					toRemove.add(next);
-				} else {
-					break;
-				}
+			for (int i = 0; i < size; i++) {
+				processEvent(c.batch.get(i));
 			}
+			c.batch.clear();
 
-			future.removeAll(toRemove);
+			c.numProcessedEvents += size;
+			c.numTicks++;
 
 		} else {
 			queue_empty = true;
-			running = false;
+			c.running = false;
 			printMessage("Simulation: No more future events");
 		}
 
 		return queue_empty;
 	}
 
+	/**
+	 * Takes the events at the head time out of a future queue and updates their
+	 * fuzzy scheduler weights.
+	 * 
+	 * @param queue the future queue
+	 * @param index the fuzzy scheduler weights of the queue
+	 * @param batch the list where the events are appended
+	 * @return the number of events
+	 */
+	static int pollBatch(FutureQueue queue, FuzzySchedulerIndex index, List<SimEvent> batch) {
+		int size = queue.pollBatch(batch);
+
+		// FUZZY &&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&&
+		// um buffer comparando as prioridades dos eventos, evitando a execução
+		// desnecessária de eventos
+		// pular eventos de monitoramento posssivelmente desnecessarios, reduzindo o
+		// consumo energetico.
+
+		// se tem mais dados daquele sensor coletado na fila, se utiliza o último
+		// descarta os anteriores
+
+		// the first event leaves before the weights are raised; the rest of the
+		// batch and the next pending event raise the weight of the events equal
+		// to them, including the batch itself
+		index.remove(batch.get(0));
+		for (int i = 1; i < size; i++) {
+			index.raise(batch.get(i));
+		}
+		SimEvent next = queue.peek();
+		if (next != null) {
+			index.raise(next);
+		}
+		for (int i = 1; i < size; i++) {
+			index.remove(batch.get(i));
+		}
+		return size;
+	}
+
 	/**
 	 * Internal method used to stop the simulation. This method should <b>not</b> be
 	 * used directly.
@@ -627,9 +924,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext c = context();
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, clock() + delay, src, -1, -1, null, 0);
+		addFutureEvent(e);
+		c.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -639,9 +937,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext c = context();
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, clock() + delay, src, -1, -1, null, 0);
+		addFutureEvent(e);
+		c.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -655,19 +954,20 @@ public class CloudSim {
 	 */
 
 	public static void send(int src, int dest, double delay, int tag, Object data, int priority) {
-		count++;
+		SimulationContext c = context();
+		c.count++;
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data, priority);
+		SimEvent e = newEvent(SimEvent.SEND, arrivalTime(src, dest, delay), src, dest, tag, data, priority);
 
 		boolean duplicados = false;
 
 		// AAAAAAAAAAAAAAAAAAAAAAAAAAAA
 		// lugar onde da para remover eventos iguais (sem dar pau)
 
-		future.addEvent(e);
+		addFutureEvent(e);
 
 		// cancel(e.getSource(), new PredicateAny());
 
@@ -680,8 +980,41 @@ public class CloudSim {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		SimEvent e = newEvent(SimEvent.SEND, arrivalTime(src, dest, delay), src, dest, tag, data, 0);
+		addFutureEvent(e);
+	}
+
+	/**
+	 * Used to send an event that leaves its source later than now, e.g. when it
+	 * waits for a link to be free. The event is delivered at
+	 * <tt>sendTime + delay</tt>, exactly as if it had been sent at
+	 * <tt>sendTime</tt>.
+	 * 
+	 * @param src      the src
+	 * @param dest     the dest
+	 * @param sendTime the time the event leaves the source, not before now
+	 * @param delay    the delay after sendTime
+	 * @param tag      the tag
+	 * @param data     the data
+	 * @param priority the priority
+	 */
+	public static void sendLater(int src, int dest, double sendTime, double delay, int tag, Object data,
+			int priority) {
+		SimulationContext c = context();
+		c.count++;
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if (sendTime < clock()) {
+			throw new IllegalArgumentException("Send time can't be in the past.");
+		}
+
+		double time = sendTime + delay;
+		if (c.conservative != null) {
+			time = c.conservative.arrivalTime(src, dest, time);
+		}
+		SimEvent e = newEvent(SimEvent.SEND, time, src, dest, tag, data, priority);
+		addFutureEvent(e);
 	}
 
 	/**
@@ -694,12 +1027,119 @@ public class CloudSim {
 	 * @param data  the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext c = context();
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, arrivalTime(src, dest, delay), src, dest, tag, data, 0);
+		if (c.conservative != null) {
+			// the queue of the logical process may already hold earlier events
+			c.conservative.schedule(e);
+		} else {
+			c.future.addEventFirst(e);
+			c.fuzzyScheduler.add(e);
+		}
+		for (SimEventObserver observer : c.observers) {
+			observer.eventScheduled(e);
+		}
+	}
+
+	/**
+	 * Used to arm a timer: sends an event from an entity to itself. The event is
+	 * delivered exactly as if sent with
+	 * {@link #send(int, int, double, int, Object, int)}, but the timer events due
+	 * at the same time share one entry of the future queue (see
+	 * {@link FutureQueue#addTimerEvent(SimEvent)}), so the entities re-arming a
+	 * timer every period do not make the queue grow. With the conservative
+	 * engine, the event is scheduled as any other.
+	 * 
+	 * @param src      the entity arming the timer
+	 * @param delay    the delay
+	 * @param tag      the tag
+	 * @param data     the data
+	 * @param priority the priority
+	 */
+	public static void sendTimer(int src, double delay, int tag, Object data, int priority) {
+		SimulationContext c = context();
+		c.count++;
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		SimEvent e = newEvent(SimEvent.SEND, arrivalTime(src, src, delay), src, src, tag, data, priority);
+		if (c.conservative != null) {
+			c.conservative.schedule(e);
+		} else {
+			c.future.addTimerEvent(e);
+			c.fuzzyScheduler.add(e);
+		}
+		for (SimEventObserver observer : c.observers) {
+			observer.eventScheduled(e);
+		}
+	}
+
+	/**
+	 * Returns the time at which an event sent now with the given delay is
+	 * delivered.
+	 */
+	private static double arrivalTime(int src, int dest, double delay) {
+		SimulationContext c = context();
+		double time = clock() + delay;
+		return c.conservative == null ? time : c.conservative.arrivalTime(src, dest, time);
+	}
+
+	/**
+	 * Creates an event, taking it from the pool when event pooling is enabled.
+	 */
+	private static SimEvent newEvent(int evtype, double time, int src, int dest, int tag, Object data,
+			int priority) {
+		SimulationContext c = context();
+		SimEvent e;
+		if (c.eventPooling && c.conservative == null) {
+			e = c.eventPool.acquire(evtype, time, src, dest, tag, data, priority);
+		} else if (evtype == SimEvent.HOLD_DONE) {
+			e = new SimEvent(evtype, time, src);
+		} else {
+			e = new SimEvent(evtype, time, src, dest, tag, data, priority);
+		}
+		e.sendTime = clock();
+		if (c.conservative == null) {
+			c.sendOrder.stamp(e);
+		} else {
+			c.conservative.stamp(e);
+		}
+		return e;
+	}
+
+	/**
+	 * Gives back an event that has been processed, when event pooling is enabled.
+	 * 
+	 * @param e the event
+	 */
+	static void releaseEvent(SimEvent e) {
+		SimulationContext c = context();
+		if (c.eventPooling && c.conservative == null) {
+			c.eventPool.release(e);
+		}
+	}
+
+	/**
+	 * Adds an event to the future event queue.
+	 * 
+	 * @param e the event
+	 */
+	private static void addFutureEvent(SimEvent e) {
+		SimulationContext c = context();
+		if (c.conservative != null) {
+			c.conservative.schedule(e);
+		} else {
+			c.future.addEvent(e);
+			c.fuzzyScheduler.add(e);
+		}
+		for (SimEventObserver observer : c.observers) {
+			observer.eventScheduled(e);
+		}
 	}
 
 	/**
@@ -711,10 +1151,11 @@ public class CloudSim {
 	 * @param p   the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
+		SimulationContext c = context();
+		c.entities.get(src).setState(SimEntity.WAITING);
 		if (p != SIM_ANY) {
 			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
+			c.waitPredicates.put(src, p);
 		}
 	}
 
@@ -727,16 +1168,7 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return deferredOf(d).count(d, p);
 	}
 
 	/**
@@ -747,18 +1179,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return deferredOf(src).removeFirst(src, p);
 	}
 
 	/**
@@ -769,15 +1190,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return deferredOf(src).findFirst(src, p);
 	}
 
 	/**
@@ -788,16 +1201,18 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
+		SimulationContext c = context();
+		if (c.conservative != null) {
+			SimEvent ev = c.conservative.futureOf(src).removeFirstMatch(src, p);
+			if (ev != null) {
+				c.conservative.fuzzySchedulerOf(src).remove(ev);
 			}
+			return ev;
+		}
+		SimEvent ev = c.future.removeFirstMatch(src, p);
+		if (ev != null) {
+			c.fuzzyScheduler.remove(ev);
 		}
-
 		return ev;
 	}
 
@@ -810,16 +1225,22 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
+		SimulationContext c = context();
+		FutureQueue queue = c.conservative == null ? c.future : c.conservative.futureOf(src);
+		FuzzySchedulerIndex index = c.conservative == null ? c.fuzzyScheduler : c.conservative.fuzzySchedulerOf(src);
+		List<SimEvent> cancelled = queue.removeAllMatches(src, p);
+		for (SimEvent ev : cancelled) {
+			index.remove(ev);
 		}
-		return previousSize < future.size();
+		return !cancelled.isEmpty();
+	}
+
+	/**
+	 * Gets the deferred queue holding the events of an entity.
+	 */
+	private static DeferredQueue deferredOf(int entityId) {
+		SimulationContext c = context();
+		return c.conservative == null ? c.deferred : c.conservative.deferredOf(entityId);
 	}
 
 	//
@@ -832,15 +1253,29 @@ public class CloudSim {
 	 * @param e the e
 	 */
 	private static void processEvent(SimEvent e) {
-		int dest, src;
-		SimEntity dest_ent;
+		SimulationContext c = context();
 		// Update the system's clock
-		if (e.eventTime() < clock) {
+		if (e.eventTime() >= c.clock) {
+			c.clock = e.eventTime();
+		} else if (!c.priorityScheduling || e.eventTime() < c.clock - c.priorityWindow) {
+			// with priority scheduling, higher priority events scheduled up to the
+			// priority window later may have moved the clock past this event, but
+			// no further
 			throw new IllegalArgumentException("Past event detected.");
 		}
-		clock = e.eventTime();
+		deliver(e, c.deferred);
+	}
 
-		// Ok now process it
+	/**
+	 * Hands an event taken from a future queue over to its destination.
+	 * 
+	 * @param e        the event
+	 * @param deferred the deferred queue of the destination
+	 */
+	static void deliver(SimEvent e, DeferredQueue deferred) {
+		SimulationContext c = context();
+		int dest, src;
+		SimEntity dest_ent;
 		switch (e.getType()) {
 		case SimEvent.ENULL:
 			throw new IllegalArgumentException("Event has a null type.");
@@ -848,6 +1283,7 @@ public class CloudSim {
 		case SimEvent.CREATE:
 			SimEntity newe = (SimEntity) e.getData();
 			addEntityDynamically(newe);
+			releaseEvent(e);
 			break;
 
 		case SimEvent.SEND:
@@ -856,15 +1292,19 @@ public class CloudSim {
 			if (dest < 0) {
 				throw new IllegalArgumentException("Attempt to send to a null entity detected.");
 			} else {
+				for (SimEventObserver observer : c.observers) {
+					observer.eventDispatched(e);
+				}
 				int tag = e.getTag();
-				dest_ent = entities.get(dest);
+				dest_ent = c.entities.get(dest);
 				if (dest_ent.getState() == SimEntity.WAITING) {
 					Integer destObj = Integer.valueOf(dest);
-					Predicate p = waitPredicates.get(destObj);
+					Predicate p = c.waitPredicates.get(destObj);
 					if ((p == null) || (tag == 9999) || (p.match(e))) {
-						dest_ent.setEventBuffer((SimEvent) e.clone());
+						// the event has left the future queue, so no copy is needed
+						dest_ent.setEventBuffer(e);
 						dest_ent.setState(SimEntity.RUNNABLE);
-						waitPredicates.remove(destObj);
+						c.waitPredicates.remove(destObj);
 					} else {
 						deferred.addEvent(e);
 					}
@@ -880,8 +1320,9 @@ public class CloudSim {
 			if (src < 0) {
 				throw new IllegalArgumentException("Null entity holding.");
 			} else {
-				entities.get(src).setState(SimEntity.RUNNABLE);
+				c.entities.get(src).setState(SimEntity.RUNNABLE);
 			}
+			releaseEvent(e);
 			break;
 
 		default:
@@ -894,11 +1335,15 @@ public class CloudSim {
 	 * be used by user simulations.
 	 */
 	public static void runStart() {
-		running = true;
+		SimulationContext c = context();
+		c.running = true;
+		c.runStartNanos = System.nanoTime();
 		// Start all the entities
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : c.entities) {
+			c.sendOrder.setRunning(ent);
 			ent.startEntity();
 		}
+		c.sendOrder.setRunning(null);
 
 		printMessage("Entities started.");
 	}
@@ -910,7 +1355,8 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		SimulationContext c = context();
+		return c.running;
 	}
 
 	/**
@@ -919,8 +1365,9 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		SimulationContext c = context();
+		c.paused = true;
+		return c.paused;
 	}
 
 	/**
@@ -930,10 +1377,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
+		SimulationContext c = context();
+		if (time <= c.clock) {
 			return false;
 		} else {
-			pauseAt = time;
+			c.pauseAt = time;
 		}
 		return true;
 	}
@@ -945,13 +1393,14 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
+		SimulationContext c = context();
+		c.paused = false;
 
-		if (pauseAt <= clock) {
-			pauseAt = -1;
+		if (c.pauseAt <= c.clock) {
+			c.pauseAt = -1;
 		}
 
-		return !paused;
+		return !c.paused;
 	}
 
 	/**
@@ -961,29 +1410,33 @@ public class CloudSim {
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
+		SimulationContext c = context();
+		if (c.partition != null) {
+			return runConservative();
+		}
+		if (!c.running) {
 			runStart();
 		}
 		while (true) {
-			if (runClockTick() || abruptTerminate) {
+			if (runClockTick() || c.abruptTerminate) {
 				break;
 			}
 
 			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
+			if (c.terminateAt > 0.0 && c.clock >= c.terminateAt) {
 				terminateSimulation();
-				clock = terminateAt;
+				c.clock = c.terminateAt;
 				break;
 			}
 
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next().eventTime())
-							|| future.size() == 0 && pauseAt <= clock)) {
+			if (c.pauseAt != -1
+					&& ((c.future.size() > 0 && c.clock <= c.pauseAt && c.pauseAt <= c.future.peek().eventTime())
+							|| c.future.size() == 0 && c.pauseAt <= c.clock)) {
 				pauseSimulation();
-				clock = pauseAt;
+				c.clock = c.pauseAt;
 			}
 
-			while (paused) {
+			while (c.paused) {
 				try {
 					Thread.sleep(100);
 				} catch (InterruptedException e) {
@@ -992,7 +1445,58 @@ public class CloudSim {
 			}
 		}
 
-		double clock = clock();
+		c.runEndNanos = System.nanoTime();
+		double clock = c.clock;
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Runs the simulation with the conservative parallel engine.
+	 * 
+	 * @return the last clock value
+	 */
+	private static double runConservative() {
+		SimulationContext c = context();
+		c.conservative = new ConservativeEngine(c.partition, c.entities, c.futureQueueType, c.parallelism);
+		c.waitPredicates = Collections.synchronizedMap(c.waitPredicates);
+		// the events scheduled before the run go to the logical processes
+		while (c.future.size() > 0) {
+			SimEvent e = c.future.poll();
+			c.fuzzyScheduler.remove(e);
+			c.conservative.schedule(e);
+		}
+		printMessage("Conservative engine: " + c.conservative.getNumLogicalProcesses() + " logical processes, lookahead "
+				+ c.conservative.getLookahead() + ", " + c.parallelism + " threads");
+		if (!c.running) {
+			runStart();
+		}
+		while (c.running && !c.abruptTerminate) {
+			if (!c.conservative.runWindow(c.terminateAt)) {
+				c.running = false;
+				printMessage("Simulation: No more future events");
+				break;
+			}
+			c.clock = c.conservative.clock();
+			c.numProcessedEvents += c.conservative.takeProcessedEvents();
+			c.numTicks += c.conservative.takeTicks();
+
+			if (c.terminateAt > 0.0 && c.clock >= c.terminateAt) {
+				terminateSimulation();
+				c.clock = c.terminateAt;
+				break;
+			}
+		}
+		c.conservative.runEntities();
+		c.numProcessedEvents += c.conservative.takeProcessedEvents();
+		printMessage("Conservative engine: " + c.conservative.getNumWindows() + " windows");
+		c.conservative.shutdown();
+
+		c.runEndNanos = System.nanoTime();
+		double clock = c.clock;
 
 		finishSimulation();
 		runStop();
@@ -1005,39 +1509,44 @@ public class CloudSim {
 	 * <b>not</b> be used in user simulations.
 	 */
 	public static void finishSimulation() {
+		SimulationContext c = context();
 		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
+		if (!c.abruptTerminate) {
+			for (SimEntity ent : c.entities) {
 				if (ent.getState() != SimEntity.FINISHED) {
 					ent.run();
 				}
 			}
 		}
 
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : c.entities) {
 			ent.shutdownEntity();
 		}
 
 		// reset all static variables
 		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		c.entities = null;
+		c.entitiesByName = null;
+		c.future = null;
+		c.fuzzyScheduler = null;
+		c.sendOrder = null;
+		c.deferred = null;
+		c.conservative = null;
+		c.clock = 0L;
+		c.running = false;
+
+		c.waitPredicates = null;
+		c.paused = false;
+		c.pauseAt = -1;
+		c.abruptTerminate = false;
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
+		SimulationContext c = context();
+		c.abruptTerminate = true;
 	}
 
 	/**
@@ -1055,7 +1564,8 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		SimulationContext c = context();
+		return c.paused;
 	}
 
 }
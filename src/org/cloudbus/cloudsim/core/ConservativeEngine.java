@@ -0,0 +1,454 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Conservative parallel execution of a simulation, in the style of YAWNS
+ * (Nicol, "The cost of conservative synchronization in parallel discrete event
+ * simulations", JACM 40(2), 1993).
+ * <p>
+ * Each logical process of a {@link SimEntityPartition} has its own future
+ * queue, deferred queue and clock. The simulation advances in windows starting
+ * at the earliest pending event and as long as the lookahead of the partition:
+ * no event sent during a window can reach another logical process before the
+ * window ends, so the logical processes run the events of a window
+ * independently, on a fork-join pool. The events sent between logical
+ * processes go through lock-free mailboxes and are moved into the future
+ * queues between windows.
+ * <p>
+ * Logical process 0 runs each window after the others, so the events sent to
+ * it can have any delay. Any other event sent to another logical process with
+ * less delay than the lookahead would break the guarantee, and fails.
+ * <p>
+ * The events are stamped with the position at which the sequential engine adds
+ * them to its future queue (see {@link SendOrder}), and each logical process
+ * processes the events due at the same time in that order, so each entity gets
+ * the same events in the same order as with the sequential engine, as long as
+ * the entities of different logical processes share no mutable state. The
+ * default fuzzy scheduler weights depend on the pending events of the whole
+ * simulation, so they only match with batch fuzzy weights (see
+ * {@link CloudSim#setBatchFuzzyWeights(boolean)}).
+ *
+ * @see CloudSim#init(int, java.util.Calendar, boolean, SimEntityPartition, int)
+ */
+class ConservativeEngine {
+
+	/** The logical processes. */
+	private final LogicalProcess[] processes;
+
+	/** The logical process of each entity, by entity id. */
+	private final LogicalProcess[] processOfEntity;
+
+	/** The lookahead of the partition. */
+	private final double lookahead;
+
+	/** The pool running the windows, or null to run them on the caller thread. */
+	private final ForkJoinPool pool;
+
+	/** The context of the simulation, bound to the threads of the pool. */
+	private final SimulationContext context = CloudSim.context();
+
+	/** The logical process run by the current thread, if any. */
+	private final ThreadLocal<LogicalProcess> current = new ThreadLocal<LogicalProcess>();
+
+	/** The end of the current window. */
+	private volatile double windowEnd;
+
+	/** The time of the last processed events. */
+	private double clock;
+
+	/** The number of windows run. */
+	private long windows;
+
+	ConservativeEngine(SimEntityPartition partition, List<SimEntity> entities, int futureQueueType,
+			int parallelism) {
+		partition.partition(entities);
+		int numProcesses = partition.getNumPartitions();
+		processes = new LogicalProcess[numProcesses];
+		for (int i = 0; i < numProcesses; i++) {
+			processes[i] = new LogicalProcess(futureQueueType);
+		}
+		processOfEntity = new LogicalProcess[entities.size()];
+		for (SimEntity entity : entities) {
+			int process = partition.getPartition(entity.getId());
+			if (process < 0 || process >= numProcesses) {
+				throw new IllegalArgumentException("Entity " + entity.getName() + " is in logical process " + process
+						+ ", out of " + numProcesses);
+			}
+			processOfEntity[entity.getId()] = processes[process];
+			processes[process].entities.add(entity);
+		}
+		lookahead = partition.getLookahead();
+		if (!(lookahead >= 0)) {
+			throw new IllegalArgumentException("The lookahead can't be negative.");
+		}
+		pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+	}
+
+	/**
+	 * Returns the clock of the logical process run by the current thread, or the
+	 * time of the last window outside of the windows.
+	 */
+	double clock() {
+		LogicalProcess process = current.get();
+		return process != null ? process.clock : clock;
+	}
+
+	/**
+	 * Checks that an event sent now between two entities can be delivered at the
+	 * given time, which has to be past the current window when it goes to another
+	 * logical process than 0.
+	 *
+	 * @return the time
+	 * @throws IllegalStateException if the event is sent with less delay than the
+	 *                               lookahead
+	 */
+	double arrivalTime(int src, int dest, double time) {
+		LogicalProcess source = current.get();
+		if (source == null || dest < 0 || time >= windowEnd) {
+			return time;
+		}
+		LogicalProcess target = processOfEntity[dest];
+		if (target == source || target == processes[0]) {
+			return time;
+		}
+		throw new IllegalStateException("Entity " + CloudSim.getEntityName(src) + " sent an event to "
+				+ CloudSim.getEntityName(dest) + ", in another logical process, with a delay of "
+				+ (time - source.clock) + ", below the lookahead " + lookahead);
+	}
+
+	/**
+	 * Stamps an event being sent with its position in the sequential order, from
+	 * the logical process run by the current thread, if any.
+	 */
+	void stamp(SimEvent e) {
+		LogicalProcess process = current.get();
+		(process != null ? process.sendOrder : context.sendOrder).stamp(e);
+	}
+
+	/**
+	 * Schedules an event in the logical process it belongs to.
+	 */
+	void schedule(SimEvent e) {
+		LogicalProcess target = processOf(e);
+		LogicalProcess source = current.get();
+		if (source == null || source == target) {
+			target.add(e);
+		} else {
+			target.mailbox.add(e);
+		}
+	}
+
+	/**
+	 * Runs the next window.
+	 *
+	 * @param terminateAt the time at which the simulation ends, or a negative value
+	 * @return false if there are no more events
+	 */
+	boolean runWindow(double terminateAt) {
+		double start = Double.POSITIVE_INFINITY;
+		for (LogicalProcess process : processes) {
+			process.drainMailbox();
+			SimEvent head = process.queue.peek();
+			if (head != null) {
+				start = Math.min(start, head.queueTime);
+			}
+		}
+		if (start == Double.POSITIVE_INFINITY) {
+			return false;
+		}
+		// with no lookahead, a window only holds the events at its start time; the
+		// last window also takes the events at the termination time, as the
+		// sequential engine does
+		boolean inclusive = lookahead == 0;
+		double end = start + lookahead;
+		if (terminateAt > 0 && end > terminateAt) {
+			end = Math.max(start, terminateAt);
+			inclusive = true;
+		}
+		windowEnd = end;
+
+		List<LogicalProcess> ready = new ArrayList<LogicalProcess>();
+		for (int i = 1; i < processes.length; i++) {
+			if (processes[i].hasWork(end, inclusive)) {
+				ready.add(processes[i]);
+			}
+		}
+		if (pool == null || ready.size() == 1) {
+			for (LogicalProcess process : ready) {
+				process.advance(end, inclusive);
+			}
+		} else if (!ready.isEmpty()) {
+			pool.invoke(new Window(ready, end, inclusive));
+		}
+		// logical process 0 gets the events the others sent it during the window
+		LogicalProcess first = processes[0];
+		first.drainMailbox();
+		if (first.hasWork(end, inclusive)) {
+			first.advance(end, inclusive);
+			ready.add(first);
+		}
+
+		for (LogicalProcess process : ready) {
+			clock = Math.max(clock, process.clock);
+		}
+		windows++;
+		return true;
+	}
+
+	/**
+	 * Runs the entities that are still runnable, on the caller thread.
+	 */
+	void runEntities() {
+		for (LogicalProcess process : processes) {
+			process.runEntities();
+		}
+	}
+
+	void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	DeferredQueue deferredOf(int entityId) {
+		return processOfEntity[entityId].deferred;
+	}
+
+	FutureQueue futureOf(int entityId) {
+		return processOfEntity[entityId].queue;
+	}
+
+	FuzzySchedulerIndex fuzzySchedulerOf(int entityId) {
+		return processOfEntity[entityId].fuzzyScheduler;
+	}
+
+	/**
+	 * Returns and resets the number of events processed since the last call.
+	 */
+	long takeProcessedEvents() {
+		long events = 0;
+		for (LogicalProcess process : processes) {
+			events += process.events;
+			process.events = 0;
+		}
+		return events;
+	}
+
+	/**
+	 * Returns and resets the number of batches processed since the last call.
+	 */
+	long takeTicks() {
+		long ticks = 0;
+		for (LogicalProcess process : processes) {
+			ticks += process.ticks;
+			process.ticks = 0;
+		}
+		return ticks;
+	}
+
+	int getNumLogicalProcesses() {
+		return processes.length;
+	}
+
+	double getLookahead() {
+		return lookahead;
+	}
+
+	long getNumWindows() {
+		return windows;
+	}
+
+	private LogicalProcess processOf(SimEvent e) {
+		switch (e.getType()) {
+		case SimEvent.HOLD_DONE:
+			return processOfEntity[e.getSource()];
+		case SimEvent.CREATE:
+			return processes[0];
+		default:
+			return processOfEntity[e.getDestination()];
+		}
+	}
+
+	/**
+	 * The state of a logical process.
+	 */
+	private final class LogicalProcess {
+
+		private final FutureQueue queue;
+
+		private final FuzzySchedulerIndex fuzzyScheduler;
+
+		private final DeferredQueue deferred = new DeferredQueue();
+
+		private final SendOrder sendOrder = new SendOrder();
+
+		private final ConcurrentLinkedQueue<SimEvent> mailbox = new ConcurrentLinkedQueue<SimEvent>();
+
+		/** The entities of the logical process, in id order. */
+		private final List<SimEntity> entities = new ArrayList<SimEntity>();
+
+		private final List<SimEvent> batch = new ArrayList<SimEvent>();
+
+		private double clock;
+
+		private long events;
+
+		private long ticks;
+
+		LogicalProcess(int futureQueueType) {
+			queue = FutureQueue.create(futureQueueType);
+			queue.setPriorityScheduling(CloudSim.isPriorityScheduling(), CloudSim.getPriorityWindow());
+			fuzzyScheduler = FuzzySchedulerIndex.create(CloudSim.isBatchFuzzyWeights());
+		}
+
+		void add(SimEvent e) {
+			queue.addEvent(e);
+			fuzzyScheduler.add(e);
+		}
+
+		void drainMailbox() {
+			SimEvent e;
+			while ((e = mailbox.poll()) != null) {
+				add(e);
+			}
+		}
+
+		boolean hasWork(double end, boolean inclusive) {
+			SimEvent head = queue.peek();
+			return head != null && (head.queueTime < end || inclusive && head.queueTime <= end);
+		}
+
+		/**
+		 * Processes the events of the logical process up to the end of the window,
+		 * as {@link CloudSim#runClockTick()} does for the whole simulation.
+		 */
+		void advance(double end, boolean inclusive) {
+			boolean bind = CloudSim.context() != context;
+			if (bind) {
+				CloudSim.setContext(context);
+			}
+			current.set(this);
+			try {
+				while (true) {
+					runEntities();
+					if (!hasWork(end, inclusive)) {
+						break;
+					}
+					int size = CloudSim.pollBatch(queue, fuzzyScheduler, batch);
+					if (size > 1) {
+						size = sortBatch(size);
+					}
+					fuzzyScheduler.weigh(batch, size);
+					sendOrder.batchPolled(batch.get(0));
+					for (int i = 0; i < size; i++) {
+						SimEvent e = batch.get(i);
+						clock = Math.max(clock, e.eventTime());
+						CloudSim.deliver(e, deferred);
+					}
+					batch.clear();
+					events += size;
+					ticks++;
+				}
+			} finally {
+				current.remove();
+				if (bind) {
+					CloudSim.setContext(null);
+				}
+			}
+		}
+
+		/**
+		 * Puts the events of a batch in the order of the sequential engine. Logical
+		 * process 0 can get events sent at the time of the batch, which the
+		 * sequential engine processes in a later batch; they go back to the queue.
+		 *
+		 * @return the number of events left in the batch
+		 */
+		private int sortBatch(int size) {
+			Collections.sort(batch, SendOrder.BATCH_ORDER);
+			int depth = SendOrder.depth(batch.get(0));
+			int end = 1;
+			while (end < size && SendOrder.depth(batch.get(end)) == depth) {
+				end++;
+			}
+			if (end < size) {
+				List<SimEvent> later = batch.subList(end, size);
+				for (SimEvent e : later) {
+					if (e.getSerial() == 0) {
+						queue.addEventFirst(e);
+						fuzzyScheduler.add(e);
+					} else {
+						add(e);
+					}
+				}
+				later.clear();
+			}
+			return end;
+		}
+
+		void runEntities() {
+			for (int i = 0; i < entities.size(); i++) {
+				SimEntity entity = entities.get(i);
+				if (entity.getState() == SimEntity.RUNNABLE) {
+					sendOrder.setRunning(entity);
+					entity.run();
+				}
+			}
+			sendOrder.setRunning(null);
+		}
+
+	}
+
+	/**
+	 * Runs the logical processes of a window in parallel.
+	 */
+	private static final class Window extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<LogicalProcess> processes;
+
+		private final double end;
+
+		private final boolean inclusive;
+
+		Window(List<LogicalProcess> processes, double end, boolean inclusive) {
+			this.processes = processes;
+			this.end = end;
+			this.inclusive = inclusive;
+		}
+
+		@Override
+		protected void compute() {
+			List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(processes.size());
+			for (final LogicalProcess process : processes) {
+				tasks.add(new RecursiveAction() {
+
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						process.advance(end, inclusive);
+					}
+				});
+			}
+			invokeAll(tasks);
+		}
+
+	}
+
+}
@@ -8,14 +8,22 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 
 /**
  * This class implements the deferred event queue used by {@link Simulation}.
- * The event queue uses a linked list to store the events.
+ * The events are kept in one bucket per destination entity, so that an entity
+ * looking for its next event only goes through its own events. Each bucket is a
+ * list sorted by time that is linked through the events themselves; events
+ * arriving in time order are appended in constant time.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
@@ -24,11 +32,26 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** Orders the events of different buckets when the whole queue is iterated. */
+	private static final Comparator<SimEvent> ORDER = new Comparator<SimEvent>() {
+		@Override
+		public int compare(SimEvent a, SimEvent b) {
+			int result = Double.compare(a.eventTime(), b.eventTime());
+			return result != 0 ? result : Long.compare(a.getSerial(), b.getSerial());
+		}
+	};
+
+	/** The first event of each bucket, indexed by destination entity id. */
+	private SimEvent[] heads = new SimEvent[16];
+
+	/** The last event of each bucket. */
+	private SimEvent[] tails = new SimEvent[16];
+
+	/** The number of events of each bucket. */
+	private int[] counts = new int[16];
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The number of events in the queue. */
+	private int size = 0;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the
@@ -37,36 +60,126 @@ public class DeferredQueue {
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		int destination = newEvent.getDestination();
+		ensureCapacity(destination);
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
+		SimEvent tail = tails[destination];
+		if (tail == null) {
+			heads[destination] = newEvent;
+			tails[destination] = newEvent;
+			newEvent.queueNext = null;
+		} else if (eventTime >= tail.eventTime()) {
+			tail.queueNext = newEvent;
+			tails[destination] = newEvent;
+			newEvent.queueNext = null;
+		} else {
+			SimEvent previous = null;
+			SimEvent event = heads[destination];
+			while (event.eventTime() <= eventTime) {
+				previous = event;
+				event = event.queueNext;
+			}
+			newEvent.queueNext = event;
+			if (previous == null) {
+				heads[destination] = newEvent;
+			} else {
+				previous.queueNext = newEvent;
+			}
 		}
+		counts[destination]++;
+		size++;
+	}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
+	/**
+	 * Counts the events for an entity matching a predicate.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(int destination, Predicate p) {
+		if (destination < 0 || destination >= heads.length) {
+			return 0;
+		}
+		if (p instanceof PredicateAny) {
+			return counts[destination];
+		}
+		int count = 0;
+		for (SimEvent event = heads[destination]; event != null; event = event.queueNext) {
+			if (p.match(event)) {
+				count++;
 			}
 		}
+		return count;
+	}
 
-		list.add(newEvent);
+	/**
+	 * Finds the first event for an entity matching a predicate.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the event, or null if none matches
+	 */
+	public SimEvent findFirst(int destination, Predicate p) {
+		if (destination < 0 || destination >= heads.length) {
+			return null;
+		}
+		for (SimEvent event = heads[destination]; event != null; event = event.queueNext) {
+			if (p.match(event)) {
+				return event;
+			}
+		}
+		return null;
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
+	 * Removes the first event for an entity matching a predicate.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the removed event, or null if none matches
+	 */
+	public SimEvent removeFirst(int destination, Predicate p) {
+		if (destination < 0 || destination >= heads.length) {
+			return null;
+		}
+		SimEvent previous = null;
+		for (SimEvent event = heads[destination]; event != null; previous = event, event = event.queueNext) {
+			if (p.match(event)) {
+				if (previous == null) {
+					heads[destination] = event.queueNext;
+				} else {
+					previous.queueNext = event.queueNext;
+				}
+				if (tails[destination] == event) {
+					tails[destination] = previous;
+				}
+				event.queueNext = null;
+				counts[destination]--;
+				size--;
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an iterator to a snapshot of the events in the queue, in temporal
+	 * order.
 	 * 
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		List<SimEvent> events = new ArrayList<SimEvent>(size);
+		for (SimEvent head : heads) {
+			for (SimEvent event = head; event != null; event = event.queueNext) {
+				events.add(event);
+			}
+		}
+		Collections.sort(events, ORDER);
+		return Collections.unmodifiableList(events).iterator();
 	}
 
 	/**
@@ -75,14 +188,27 @@ public class DeferredQueue {
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		Arrays.fill(heads, null);
+		Arrays.fill(tails, null);
+		Arrays.fill(counts, 0);
+		size = 0;
+	}
+
+	private void ensureCapacity(int destination) {
+		if (destination < heads.length) {
+			return;
+		}
+		int length = Math.max(heads.length << 1, destination + 1);
+		heads = Arrays.copyOf(heads, length);
+		tails = Arrays.copyOf(tails, length);
+		counts = Arrays.copyOf(counts, length);
 	}
 
-}
\ No newline at end of file
+}
@@ -8,99 +8,432 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The
- * event queue uses a {@link TreeSet} in order to store the events.
- * 
+ * This class defines the future event queue used by {@link Simulation}. The
+ * storage of the events is delegated to an engine (a subclass of this class),
+ * so that the data structure can be chosen per simulation with
+ * {@link CloudSim#setFutureQueueType(int)}.
+ * <p>
+ * Every engine must deliver the events ordered by (queue time, serial), where
+ * both keys are assigned by this class when the event is added. The queue time
+ * is the event time, unless priority scheduling is enabled (see
+ * {@link #setPriorityScheduling(boolean, double)}). Iteration order of
+ * {@link #iterator()} is engine dependent.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see java.util.TreeSet
  */
-public class FutureQueue {
+public abstract class FutureQueue {
+
+	/**
+	 * Engine backed by a {@link java.util.TreeSet}. This is the default; the
+	 * other engines only pay off on large queues.
+	 */
+	public static final int TREE_SET = 0;
+
+	/** Engine backed by a calendar queue. */
+	public static final int CALENDAR = 1;
+
+	/** Engine backed by a ladder queue. */
+	public static final int LADDER = 2;
+
+	/** Engine backed by a 4-ary heap with primitive keys. */
+	public static final int QUATERNARY_HEAP = 3;
+
+	/** The number of low bits of a serial holding the insertion sequence. */
+	static final int SEQUENCE_BITS = 44;
+
+	/** The serial; 0 is left to the events added first. */
+	private long serial = 1;
+
+	/** Whether the events are ordered by priority. */
+	private boolean priorityScheduling = false;
+
+	/** How much earlier prioritised events are ordered, in simulation time. */
+	private double priorityWindow = 0;
+
+	/** The trace where the operations on this queue are recorded, if any. */
+	private FutureQueueTrace trace;
 
-	/** The sorted set. */
-	private final NavigableSet<SimEvent> sortedSet = new TreeSet<SimEvent>(); // arvore rubro negra
-//tree do java
-	/** The serial. */
-	private long serial = 0;
+	/** The events of the queue by source entity and tag. */
+	private final PendingEventIndex pending = new PendingEventIndex();
+
+	/** The timer events, kept out of the engine. */
+	private final TimerWheel timers = new TimerWheel();
+
+	/**
+	 * Creates a new, empty future queue using the given engine.
+	 *
+	 * @param type one of {@link #TREE_SET}, {@link #CALENDAR}, {@link #LADDER} or
+	 *             {@link #QUATERNARY_HEAP}
+	 * @return the queue
+	 */
+	public static FutureQueue create(int type) {
+		switch (type) {
+		case TREE_SET:
+			return new TreeSetFutureQueue();
+		case CALENDAR:
+			return new CalendarFutureQueue();
+		case LADDER:
+			return new LadderFutureQueue();
+		case QUATERNARY_HEAP:
+			return new QuaternaryHeapFutureQueue();
+		default:
+			throw new IllegalArgumentException("Unknown future queue type: " + type);
+		}
+	}
 
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the
 	 * temporal order of the events in the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
-
-		// System.out.println(newEvent);
-
-		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
-	}
-
-	public NavigableSet<SimEvent> getSortedSet() {
-		return sortedSet;
+		assignKeys(newEvent, serial++);
+		if (trace != null) {
+			trace.recordAdd(newEvent, false, priorityScheduling);
+		}
+		insert(newEvent);
+		pending.add(newEvent);
 	}
 
 	/**
 	 * Add a new event to the head of the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEventFirst(SimEvent newEvent) {
+		assignKeys(newEvent, 0);
 		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		if (trace != null) {
+			trace.recordAdd(newEvent, true, priorityScheduling);
+		}
+		insert(newEvent);
+		pending.add(newEvent);
 	}
 
 	/**
-	 * Returns an iterator to the queue.
-	 * 
-	 * @return the iterator
+	 * Add the event of a periodic timer to the queue. The event is ordered as if
+	 * added with {@link #addEvent(SimEvent)}, but it is held by a timing wheel
+	 * instead of the engine: the timer events due at the same time share one entry
+	 * of the wheel, so the size of the engine does not grow with the number of
+	 * periodic sources.
+	 *
+	 * @param newEvent The event to be put in the queue.
 	 */
-	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+	public void addTimerEvent(SimEvent newEvent) {
+		assignKeys(newEvent, serial++);
+		if (trace != null) {
+			trace.recordAdd(newEvent, false, priorityScheduling);
+		}
+		timers.add(newEvent);
+		pending.add(newEvent);
 	}
 
 	/**
-	 * Returns the size of this event queue.
-	 * 
-	 * @return the size
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
 	 */
-	public int size() {
-		return sortedSet.size();
+	public SimEvent poll() {
+		SimEvent first;
+		if (timers.size() == 0) {
+			first = pollFirst();
+		} else {
+			SimEvent stored = peekFirst();
+			SimEvent timer = timers.peek();
+			first = stored == null || precedes(timer, stored) ? timers.poll() : pollFirst();
+		}
+		if (first != null) {
+			pending.remove(first);
+			if (trace != null) {
+				trace.recordPoll(first);
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Removes the first event of the queue together with all the events having the
+	 * same queue time, in queue order.
+	 *
+	 * @param batch the list where the removed events are appended
+	 * @return the number of removed events
+	 */
+	public int pollBatch(List<SimEvent> batch) {
+		SimEvent first = poll();
+		if (first == null) {
+			return 0;
+		}
+		batch.add(first);
+		int count = 1;
+		SimEvent next;
+		while ((next = peek()) != null && next.queueTime == first.queueTime) {
+			batch.add(poll());
+			count++;
+		}
+		return count;
 	}
 
 	/**
 	 * Removes the event from the queue.
-	 * 
+	 *
 	 * @param event the event
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		boolean removed = event.timerGroup != null ? timers.remove(event) : delete(event);
+		if (removed) {
+			pending.remove(event);
+			if (trace != null) {
+				trace.recordRemove(event);
+			}
+		}
+		return removed;
 	}
 
 	/**
 	 * Removes all the events from the queue.
-	 * 
+	 *
 	 * @param events the events
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
+	}
+
+	/**
+	 * Removes the first event, in queue order, sent by the given entity
+	 * and matching the predicate. Only the events of the entity are looked at.
+	 *
+	 * @param src the source entity
+	 * @param p   the predicate
+	 * @return the removed event, or <tt>null</tt> if none matches
+	 */
+	public SimEvent removeFirstMatch(int src, Predicate p) {
+		List<SimEvent> matches = new ArrayList<SimEvent>();
+		pending.collect(src, p, matches);
+		SimEvent first = null;
+		for (SimEvent ev : matches) {
+			if (first == null || precedes(ev, first)) {
+				first = ev;
+			}
+		}
+		if (first != null) {
+			remove(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the events sent by the given entity and matching the predicate.
+	 * Only the events of the entity are looked at, and with a
+	 * {@link org.cloudbus.cloudsim.core.predicates.PredicateType} only those
+	 * with the given tags, so the cost does not depend on the size of the queue
+	 * beyond the removals themselves.
+	 *
+	 * @param src the source entity
+	 * @param p   the predicate
+	 * @return the removed events, in no particular order
+	 */
+	public List<SimEvent> removeAllMatches(int src, Predicate p) {
+		List<SimEvent> matches = new ArrayList<SimEvent>();
+		pending.collect(src, p, matches);
+		for (SimEvent ev : matches) {
+			remove(ev);
+		}
+		return matches;
+	}
+
+	/**
+	 * Enables or disables priority scheduling. This method should be called while
+	 * the queue is empty.
+	 * <p>
+	 * When enabled, the events with a positive priority are ordered as if they had
+	 * been scheduled <tt>window</tt> earlier, and the events with the same queue
+	 * time are ordered by decreasing priority before insertion order. An event
+	 * can therefore be overtaken by higher priority events scheduled up to
+	 * <tt>window</tt> after it, but never by more; with a window of 0, priorities
+	 * only break ties between events scheduled at the same time. The order only
+	 * depends on simulation time, so runs are repeatable.
+	 *
+	 * @param enabled true to order the events by priority
+	 * @param window  the priority inversion window, in simulation time
+	 */
+	public void setPriorityScheduling(boolean enabled, double window) {
+		if (window < 0 || Double.isNaN(window)) {
+			throw new IllegalArgumentException("Priority window can't be negative.");
+		}
+		priorityScheduling = enabled;
+		priorityWindow = window;
+	}
+
+	/**
+	 * Checks if priority scheduling is enabled.
+	 *
+	 * @return true if the events are ordered by priority
+	 */
+	public boolean isPriorityScheduling() {
+		return priorityScheduling;
+	}
+
+	/**
+	 * Gets the priority inversion window.
+	 *
+	 * @return the window, in simulation time
+	 */
+	public double getPriorityWindow() {
+		return priorityWindow;
+	}
+
+	/**
+	 * Sets the queue time and the serial of an event about to be added.
+	 */
+	private void assignKeys(SimEvent event, long sequence) {
+		if (!priorityScheduling) {
+			event.queueTime = event.eventTime();
+			event.setSerial(sequence);
+			return;
+		}
+		int priority = event.getPriority();
+		event.queueTime = priority > 0 ? event.eventTime() - priorityWindow : event.eventTime();
+		// higher priorities get lower ranks, so they go first among equal queue times
+		long rank = Short.MAX_VALUE - Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, priority));
+		event.setSerial((rank << SEQUENCE_BITS) | sequence);
+	}
+
+	/**
+	 * Sets the trace where the operations on this queue are recorded.
+	 *
+	 * @param trace the trace, or <tt>null</tt> to stop recording
+	 */
+	public void setTrace(FutureQueueTrace trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * Checks whether an event comes before another one in the queue order.
+	 *
+	 * @param a the first event
+	 * @param b the second event
+	 * @return true if <tt>a</tt> is dequeued before <tt>b</tt>
+	 */
+	protected boolean precedes(SimEvent a, SimEvent b) {
+		return a.queueTime < b.queueTime || (a.queueTime == b.queueTime && a.getSerial() < b.getSerial());
+	}
+
+	/**
+	 * Stores a new event in the engine.
+	 *
+	 * @param newEvent the event, whose serial has already been set
+	 */
+	protected abstract void insert(SimEvent newEvent);
+
+	/**
+	 * Removes and returns the first event stored in the engine.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	protected abstract SimEvent pollFirst();
+
+	/**
+	 * Removes an arbitrary event from the engine.
+	 *
+	 * @param event the event
+	 * @return true, if the event was in the queue
+	 */
+	protected abstract boolean delete(SimEvent event);
+
+	/**
+	 * Removes all the events stored in the engine.
+	 */
+	protected abstract void deleteAll();
+
+	/**
+	 * Returns the first event stored in the engine without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the engine is empty
+	 */
+	protected abstract SimEvent peekFirst();
+
+	/**
+	 * Returns an iterator to the events stored in the engine, in engine dependent
+	 * order.
+	 *
+	 * @return the iterator
+	 */
+	protected abstract Iterator<SimEvent> storedIterator();
+
+	/**
+	 * Returns the number of events stored in the engine.
+	 *
+	 * @return the number of events
+	 */
+	protected abstract int storedSize();
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent peek() {
+		SimEvent stored = peekFirst();
+		if (timers.size() == 0) {
+			return stored;
+		}
+		SimEvent timer = timers.peek();
+		return stored == null || precedes(timer, stored) ? timer : stored;
+	}
+
+	/**
+	 * Returns an iterator to the queue. The iteration order depends on the engine
+	 * and the iterator does not support removal.
+	 *
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator() {
+		if (timers.size() == 0) {
+			return storedIterator();
+		}
+		List<SimEvent> events = new ArrayList<SimEvent>(size());
+		for (Iterator<SimEvent> it = storedIterator(); it.hasNext();) {
+			events.add(it.next());
+		}
+		timers.collect(events);
+		return Collections.unmodifiableList(events).iterator();
+	}
+
+	/**
+	 * Returns the size of this event queue.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return storedSize() + timers.size();
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		pending.clear();
+		timers.clear();
+		deleteAll();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,182 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Records the operations performed on a {@link FutureQueue} during a
+ * simulation, so that they can be replayed later against any engine. Only the
+ * queue times, the priorities and the identity of the events are kept.
+ *
+ * @see CloudSim#setFutureQueueTrace(FutureQueueTrace)
+ */
+public class FutureQueueTrace {
+
+	private static final byte ADD = 0;
+
+	private static final byte ADD_FIRST = 1;
+
+	private static final byte POLL = 2;
+
+	private static final byte REMOVE = 3;
+
+	/** The operation codes. */
+	private byte[] operations = new byte[1024];
+
+	/** The queue time of each add operation, or the event ordinal otherwise. */
+	private double[] arguments = new double[1024];
+
+	/** The event priority of each add operation. */
+	private int[] priorities = new int[1024];
+
+	/** Whether the events were added with priority scheduling. */
+	private boolean priorityScheduling = false;
+
+	/** The number of recorded operations. */
+	private int length = 0;
+
+	/** The number of recorded add operations. */
+	private int events = 0;
+
+	/** The ordinal of the events currently in the recorded queue. */
+	private final Map<SimEvent, Integer> pending = new IdentityHashMap<SimEvent, Integer>();
+
+	/**
+	 * Creates the trace of the classic hold model: the queue is filled with
+	 * <tt>size</tt> events, then each of the <tt>holds</tt> operations polls the
+	 * first event and adds one at the time of that event plus an exponentially
+	 * distributed increment, so the queue keeps its size. The queue is emptied at
+	 * the end.
+	 *
+	 * @param size  the number of events in the queue
+	 * @param holds the number of poll and add pairs
+	 * @param seed  the seed of the increments
+	 * @return the trace
+	 */
+	public static FutureQueueTrace holdModel(int size, int holds, long seed) {
+		FutureQueueTrace trace = new FutureQueueTrace();
+		Random random = new Random(seed);
+		PriorityQueue<Double> times = new PriorityQueue<Double>();
+		for (int i = 0; i < size; i++) {
+			double time = -Math.log(1 - random.nextDouble());
+			times.add(time);
+			trace.append(ADD, time);
+			trace.events++;
+		}
+		for (int i = 0; i < holds; i++) {
+			double time = times.poll() - Math.log(1 - random.nextDouble());
+			trace.append(POLL, 0);
+			times.add(time);
+			trace.append(ADD, time);
+			trace.events++;
+		}
+		for (int i = 0; i < size; i++) {
+			trace.append(POLL, 0);
+		}
+		return trace;
+	}
+
+	void recordAdd(SimEvent event, boolean first, boolean prioritized) {
+		pending.put(event, events++);
+		priorityScheduling |= prioritized;
+		append(first ? ADD_FIRST : ADD, event.queueTime);
+		priorities[length - 1] = event.getPriority();
+	}
+
+	void recordPoll(SimEvent event) {
+		Integer ordinal = pending.remove(event);
+		if (ordinal != null) {
+			append(POLL, ordinal);
+		}
+	}
+
+	void recordRemove(SimEvent event) {
+		Integer ordinal = pending.remove(event);
+		if (ordinal != null) {
+			append(REMOVE, ordinal);
+		}
+	}
+
+	private void append(byte operation, double argument) {
+		if (length == operations.length) {
+			operations = Arrays.copyOf(operations, length << 1);
+			arguments = Arrays.copyOf(arguments, length << 1);
+			priorities = Arrays.copyOf(priorities, length << 1);
+		}
+		operations[length] = operation;
+		arguments[length++] = argument;
+	}
+
+	/**
+	 * Returns the number of recorded operations.
+	 *
+	 * @return the number of operations
+	 */
+	public int size() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of events added to the queue.
+	 *
+	 * @return the number of events
+	 */
+	public int getNumEvents() {
+		return events;
+	}
+
+	/**
+	 * Replays the recorded operations against a queue. The polls are replayed as
+	 * polls on the given queue, so the returned checksum of the dequeue order is
+	 * the same for every engine honouring the (queue time, serial) ordering
+	 * contract. The recorded queue times already include the priority window, so
+	 * the queue is replayed with a window of 0.
+	 *
+	 * @param queue an empty queue
+	 * @return a checksum of the order in which the events were dequeued
+	 */
+	public long replay(FutureQueue queue) {
+		SimEvent[] replayed = new SimEvent[events];
+		long checksum = 0;
+		int added = 0;
+		queue.setPriorityScheduling(priorityScheduling, 0);
+		for (int i = 0; i < length; i++) {
+			switch (operations[i]) {
+			case ADD:
+			case ADD_FIRST:
+				SimEvent event = new SimEvent(SimEvent.SEND, arguments[i], 0, 0, 0, null, priorities[i]);
+				replayed[added++] = event;
+				if (operations[i] == ADD) {
+					queue.addEvent(event);
+				} else {
+					queue.addEventFirst(event);
+				}
+				break;
+			case POLL:
+				SimEvent first = queue.poll();
+				long key = first == null ? -1 : first.getSerial() ^ Double.doubleToLongBits(first.eventTime());
+				checksum = 31 * checksum + key;
+				break;
+			case REMOVE:
+				queue.remove(replayed[(int) arguments[i]]);
+				break;
+			default:
+				break;
+			}
+		}
+		queue.clear();
+		return checksum;
+	}
+
+}
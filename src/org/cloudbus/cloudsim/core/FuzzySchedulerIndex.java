@@ -0,0 +1,165 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the {@link SimEvent#fuzzyScheduler} weights of the pending events
+ * incrementally. Raising the weight of every pending event equal (in the sense
+ * of {@link SimEvent#equals(Object)}) to a given one only increments a counter
+ * shared by those events; each event collects the increments that happened
+ * while it was pending when it leaves the index.
+ */
+class FuzzySchedulerIndex {
+
+	/** The amount added to the weight of an event per raise. */
+	static final double STEP = 0.1;
+
+	/** The events that are equal to each other share a group. */
+	private final Map<Group, Group> groups = new HashMap<Group, Group>();
+
+	/** Reusable key used to look groups up. */
+	private final Group probe = new Group();
+
+	/**
+	 * Creates the weights of a future queue.
+	 *
+	 * @param batchLocal true to only count the equal events of the same batch
+	 * @return the weights
+	 * @see CloudSim#setBatchFuzzyWeights(boolean)
+	 */
+	static FuzzySchedulerIndex create(boolean batchLocal) {
+		return batchLocal ? new BatchFuzzySchedulerWeights() : new FuzzySchedulerIndex();
+	}
+
+	/**
+	 * Starts tracking a pending event.
+	 *
+	 * @param event the event
+	 */
+	void add(SimEvent event) {
+		probe.set(event);
+		Group group = groups.get(probe);
+		probe.data = null;
+		if (group == null) {
+			group = new Group();
+			group.set(event);
+			groups.put(group, group);
+		}
+		group.pending++;
+		event.fuzzyGroup = group;
+		event.fuzzyBase = group.raises;
+	}
+
+	/**
+	 * Raises the weight of all the pending events equal to the given one.
+	 *
+	 * @param event the event, which must be tracked
+	 */
+	void raise(SimEvent event) {
+		if (event.fuzzyGroup != null) {
+			event.fuzzyGroup.raises++;
+		}
+	}
+
+	/**
+	 * Stops tracking an event, adding to its weight the raises of its group
+	 * since it was added.
+	 *
+	 * @param event the event
+	 */
+	void remove(SimEvent event) {
+		Group group = event.fuzzyGroup;
+		if (group == null) {
+			return;
+		}
+		long raises = group.raises - event.fuzzyBase;
+		if (raises > 0) {
+			event.fuzzyScheduler += STEP * raises;
+		}
+		event.fuzzyGroup = null;
+		if (--group.pending == 0) {
+			groups.remove(group);
+		}
+	}
+
+	/**
+	 * Sets the weights of the events of a batch, once it is in processing order.
+	 * The index has raised them as they left it, so this does nothing.
+	 *
+	 * @param batch the events taken at the same queue time
+	 * @param size  the number of events of the batch
+	 */
+	void weigh(List<SimEvent> batch, int size) {
+	}
+
+	/**
+	 * Returns the number of groups of equal pending events.
+	 *
+	 * @return the number of groups
+	 */
+	int size() {
+		return groups.size();
+	}
+
+	/**
+	 * The fields compared by {@link SimEvent#equals(Object)}, the number of
+	 * pending events having them and the number of raises so far.
+	 */
+	static final class Group {
+
+		private Object data;
+
+		private int source;
+
+		private int destination;
+
+		private int type;
+
+		private int priority;
+
+		private int hash;
+
+		private int pending;
+
+		private long raises;
+
+		private void set(SimEvent event) {
+			data = event.getData();
+			source = event.getSource();
+			destination = event.getDestination();
+			type = event.getType();
+			priority = event.getPriority();
+			hash = event.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Group)) {
+				return false;
+			}
+			Group other = (Group) obj;
+			return hash == other.hash && source == other.source && destination == other.destination
+					&& type == other.type && priority == other.priority
+					&& (data == null ? other.data == null : data.equals(other.data));
+		}
+	}
+
+}
@@ -0,0 +1,424 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Future queue engine implementing the ladder queue of W. T. Tang, R. S. M. Goh
+ * and I. L.-J. Thng, "Ladder queue: an O(1) priority queue structure for
+ * large-scale discrete event simulation", ACM TOMACS 15(3), 2005.
+ * <p>
+ * Far future events are appended unsorted to <i>top</i>. When the near future
+ * runs out, top is spread over the buckets of a <i>rung</i>; a bucket holding
+ * too many events is spread again over a finer rung, and the first bucket small
+ * enough is sorted into <i>bottom</i>, from which the events are dequeued. All
+ * the lists are linked through the events themselves.
+ *
+ * @see FutureQueue
+ */
+public class LadderFutureQueue extends FutureQueue {
+
+	/** The maximum number of rungs. */
+	private static final int MAX_RUNGS = 8;
+
+	/** Buckets with more events than this are spread over a new rung. */
+	private static final int THRESHOLD = 50;
+
+	/** Orders the events of a bucket when they are sorted into bottom. */
+	private static final Comparator<SimEvent> ORDER = new Comparator<SimEvent>() {
+		@Override
+		public int compare(SimEvent a, SimEvent b) {
+			int result = Double.compare(a.queueTime, b.queueTime);
+			return result != 0 ? result : Long.compare(a.getSerial(), b.getSerial());
+		}
+	};
+
+	/** The unsorted list of far future events. */
+	private SimEvent top;
+
+	private int topCount;
+
+	private double topMin = Double.POSITIVE_INFINITY;
+
+	private double topMax = Double.NEGATIVE_INFINITY;
+
+	/** Events at or after this time go to top. */
+	private double topStart = Double.NEGATIVE_INFINITY;
+
+	/** The buckets of each rung. */
+	private final SimEvent[][] buckets = new SimEvent[MAX_RUNGS][];
+
+	/** The number of events in each bucket of each rung. */
+	private final int[][] bucketCounts = new int[MAX_RUNGS][];
+
+	/** The start time of each rung. */
+	private final double[] rungStart = new double[MAX_RUNGS];
+
+	/** The bucket width of each rung. */
+	private final double[] rungWidth = new double[MAX_RUNGS];
+
+	/** The first bucket of each rung that has not been drained yet. */
+	private final int[] rungCurrent = new int[MAX_RUNGS];
+
+	/** The number of rungs in use. */
+	private int rungs;
+
+	/** The sorted list of near future events. */
+	private SimEvent bottom;
+
+	private SimEvent bottomTail;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	@Override
+	protected void insert(SimEvent newEvent) {
+		size++;
+		double time = newEvent.queueTime;
+		if (time >= topStart) {
+			newEvent.queueNext = top;
+			top = newEvent;
+			topCount++;
+			topMin = Math.min(topMin, time);
+			topMax = Math.max(topMax, time);
+			return;
+		}
+		for (int x = 0; x < rungs; x++) {
+			long bucket = bucketOf(x, time);
+			if (bucket >= rungCurrent[x]) {
+				int index = (int) Math.min(bucket, buckets[x].length - 1);
+				newEvent.queueNext = buckets[x][index];
+				buckets[x][index] = newEvent;
+				bucketCounts[x][index]++;
+				return;
+			}
+		}
+		insertIntoBottom(newEvent);
+	}
+
+	@Override
+	protected SimEvent pollFirst() {
+		if (bottom == null && !refill()) {
+			return null;
+		}
+		SimEvent first = bottom;
+		bottom = first.queueNext;
+		if (bottom == null) {
+			bottomTail = null;
+		}
+		first.queueNext = null;
+		size--;
+		return first;
+	}
+
+	@Override
+	protected boolean delete(SimEvent event) {
+		double time = event.queueTime;
+		if (time >= topStart) {
+			if (unlinkFromTop(event)) {
+				return true;
+			}
+		} else {
+			for (int x = 0; x < rungs; x++) {
+				long bucket = bucketOf(x, time);
+				if (bucket >= rungCurrent[x]) {
+					if (unlinkFromBucket(x, (int) Math.min(bucket, buckets[x].length - 1), event)) {
+						return true;
+					}
+					break;
+				}
+			}
+			if (unlinkFromBottom(event)) {
+				return true;
+			}
+		}
+		// rounding at a bucket boundary may have placed the event elsewhere
+		if (unlinkFromTop(event) || unlinkFromBottom(event)) {
+			return true;
+		}
+		for (int x = 0; x < rungs; x++) {
+			for (int b = rungCurrent[x]; b < buckets[x].length; b++) {
+				if (unlinkFromBucket(x, b, event)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected SimEvent peekFirst() {
+		if (bottom == null && !refill()) {
+			return null;
+		}
+		return bottom;
+	}
+
+	/**
+	 * Returns an iterator over a snapshot of the queue.
+	 */
+	@Override
+	protected Iterator<SimEvent> storedIterator() {
+		List<SimEvent> events = new ArrayList<SimEvent>(size);
+		for (SimEvent ev = top; ev != null; ev = ev.queueNext) {
+			events.add(ev);
+		}
+		for (int x = 0; x < rungs; x++) {
+			for (int b = rungCurrent[x]; b < buckets[x].length; b++) {
+				for (SimEvent ev = buckets[x][b]; ev != null; ev = ev.queueNext) {
+					events.add(ev);
+				}
+			}
+		}
+		for (SimEvent ev = bottom; ev != null; ev = ev.queueNext) {
+			events.add(ev);
+		}
+		return new Iterator<SimEvent>() {
+
+			private final Iterator<SimEvent> iterator = events.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	protected int storedSize() {
+		return size;
+	}
+
+	@Override
+	protected void deleteAll() {
+		top = null;
+		topCount = 0;
+		topMin = Double.POSITIVE_INFINITY;
+		topMax = Double.NEGATIVE_INFINITY;
+		topStart = Double.NEGATIVE_INFINITY;
+		for (int x = 0; x < rungs; x++) {
+			buckets[x] = null;
+			bucketCounts[x] = null;
+		}
+		rungs = 0;
+		bottom = null;
+		bottomTail = null;
+		size = 0;
+	}
+
+	/**
+	 * Fills bottom with the next bucket of the ladder, creating rungs from top
+	 * or from crowded buckets as needed.
+	 *
+	 * @return false if the queue is empty
+	 */
+	private boolean refill() {
+		while (bottom == null) {
+			if (rungs == 0) {
+				if (topCount == 0) {
+					return false;
+				}
+				transferTop();
+				continue;
+			}
+			int x = rungs - 1;
+			int[] counts = bucketCounts[x];
+			while (rungCurrent[x] < counts.length && counts[rungCurrent[x]] == 0) {
+				rungCurrent[x]++;
+			}
+			if (rungCurrent[x] == counts.length) {
+				buckets[x] = null;
+				bucketCounts[x] = null;
+				rungs--;
+				continue;
+			}
+			int b = rungCurrent[x]++;
+			SimEvent list = buckets[x][b];
+			int count = counts[b];
+			buckets[x][b] = null;
+			counts[b] = 0;
+			double childWidth = rungWidth[x] / count;
+			double childStart = rungStart[x] + b * rungWidth[x];
+			if (count > THRESHOLD && rungs < MAX_RUNGS && childStart + childWidth > childStart && !sameTime(list)) {
+				spawnRung(list, count, childStart, childWidth);
+			} else {
+				sortIntoBottom(list, count);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Spreads the events of top over a new first rung.
+	 */
+	private void transferTop() {
+		SimEvent list = top;
+		int count = topCount;
+		double min = topMin;
+		double max = topMax;
+		top = null;
+		topCount = 0;
+		topMin = Double.POSITIVE_INFINITY;
+		topMax = Double.NEGATIVE_INFINITY;
+
+		double width = (max - min) / count;
+		if (count <= THRESHOLD || !(min + width > min)) {
+			topStart = Math.nextUp(max);
+			sortIntoBottom(list, count);
+			return;
+		}
+		topStart = min + (count + 1) * width;
+		spawnRung(list, count, min, width);
+	}
+
+	/**
+	 * Creates a new rung below the existing ones and spreads the events over it.
+	 */
+	private void spawnRung(SimEvent list, int count, double start, double width) {
+		int x = rungs++;
+		buckets[x] = new SimEvent[count + 1];
+		bucketCounts[x] = new int[count + 1];
+		rungStart[x] = start;
+		rungWidth[x] = width;
+		rungCurrent[x] = 0;
+		int last = count;
+		SimEvent ev = list;
+		while (ev != null) {
+			SimEvent next = ev.queueNext;
+			int index = (int) Math.max(0, Math.min(bucketOf(x, ev.queueTime), last));
+			ev.queueNext = buckets[x][index];
+			buckets[x][index] = ev;
+			bucketCounts[x][index]++;
+			ev = next;
+		}
+	}
+
+	private void sortIntoBottom(SimEvent list, int count) {
+		SimEvent[] events = new SimEvent[count];
+		int n = 0;
+		for (SimEvent ev = list; ev != null; ev = ev.queueNext) {
+			events[n++] = ev;
+		}
+		Arrays.sort(events, 0, n, ORDER);
+		for (int i = 0; i < n; i++) {
+			insertIntoBottom(events[i]);
+		}
+	}
+
+	private void insertIntoBottom(SimEvent event) {
+		if (bottomTail == null) {
+			bottom = event;
+			bottomTail = event;
+			event.queueNext = null;
+		} else if (!precedes(event, bottomTail)) {
+			bottomTail.queueNext = event;
+			bottomTail = event;
+			event.queueNext = null;
+		} else {
+			SimEvent previous = null;
+			SimEvent ev = bottom;
+			while (!precedes(event, ev)) {
+				previous = ev;
+				ev = ev.queueNext;
+			}
+			event.queueNext = ev;
+			if (previous == null) {
+				bottom = event;
+			} else {
+				previous.queueNext = event;
+			}
+		}
+	}
+
+	private boolean unlinkFromTop(SimEvent event) {
+		SimEvent previous = null;
+		for (SimEvent ev = top; ev != null; previous = ev, ev = ev.queueNext) {
+			if (ev == event) {
+				if (previous == null) {
+					top = ev.queueNext;
+				} else {
+					previous.queueNext = ev.queueNext;
+				}
+				ev.queueNext = null;
+				topCount--;
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean unlinkFromBucket(int x, int b, SimEvent event) {
+		SimEvent previous = null;
+		for (SimEvent ev = buckets[x][b]; ev != null; previous = ev, ev = ev.queueNext) {
+			if (ev == event) {
+				if (previous == null) {
+					buckets[x][b] = ev.queueNext;
+				} else {
+					previous.queueNext = ev.queueNext;
+				}
+				ev.queueNext = null;
+				bucketCounts[x][b]--;
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean unlinkFromBottom(SimEvent event) {
+		SimEvent previous = null;
+		for (SimEvent ev = bottom; ev != null; previous = ev, ev = ev.queueNext) {
+			if (ev == event) {
+				if (previous == null) {
+					bottom = ev.queueNext;
+				} else {
+					previous.queueNext = ev.queueNext;
+				}
+				if (bottomTail == ev) {
+					bottomTail = previous;
+				}
+				ev.queueNext = null;
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long bucketOf(int x, double time) {
+		double offset = (time - rungStart[x]) / rungWidth[x];
+		return offset < 0 ? -1 : (long) offset;
+	}
+
+	private static boolean sameTime(SimEvent list) {
+		for (SimEvent ev = list.queueNext; ev != null; ev = ev.queueNext) {
+			if (ev.queueTime != list.queueTime) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
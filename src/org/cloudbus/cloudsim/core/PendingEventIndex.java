@@ -0,0 +1,159 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * Indexes the events of a {@link FutureQueue} by source entity and tag, so the
+ * events an entity cancels are found without scanning the whole queue. Each
+ * event knows the bucket holding it and its position there, so adding and
+ * removing an event take constant time.
+ */
+class PendingEventIndex {
+
+	/**
+	 * The pending events with the same source and tag, in no particular order.
+	 */
+	static final class Bucket {
+
+		final int tag;
+
+		SimEvent[] events = new SimEvent[4];
+
+		int size;
+
+		Bucket(int tag) {
+			this.tag = tag;
+		}
+	}
+
+	/** The buckets of each source entity, at index source + 1. */
+	private Bucket[][] buckets = new Bucket[64][];
+
+	/**
+	 * Starts tracking a pending event.
+	 *
+	 * @param event the event
+	 */
+	void add(SimEvent event) {
+		Bucket bucket = bucketOf(event.getSource(), event.getTag());
+		if (bucket.size == bucket.events.length) {
+			bucket.events = Arrays.copyOf(bucket.events, bucket.size << 1);
+		}
+		event.indexBucket = bucket;
+		event.indexPosition = bucket.size;
+		bucket.events[bucket.size++] = event;
+	}
+
+	/**
+	 * Stops tracking an event, if tracked.
+	 *
+	 * @param event the event
+	 */
+	void remove(SimEvent event) {
+		Bucket bucket = event.indexBucket;
+		if (bucket == null) {
+			return;
+		}
+		int last = --bucket.size;
+		SimEvent moved = bucket.events[last];
+		bucket.events[event.indexPosition] = moved;
+		moved.indexPosition = event.indexPosition;
+		bucket.events[last] = null;
+		event.indexBucket = null;
+	}
+
+	/**
+	 * Appends the pending events sent by an entity and matching a predicate.
+	 *
+	 * @param src     the source entity
+	 * @param p       the predicate
+	 * @param matches the list where the events are appended
+	 */
+	void collect(int src, Predicate p, List<SimEvent> matches) {
+		Bucket[] sourceBuckets = bucketsOf(src);
+		if (sourceBuckets == null) {
+			return;
+		}
+		// a type predicate matches all the events of a bucket or none
+		boolean byTag = p instanceof PredicateType;
+		for (Bucket bucket : sourceBuckets) {
+			if (bucket == null) {
+				break;
+			}
+			if (bucket.size == 0 || (byTag && !p.match(bucket.events[0]))) {
+				continue;
+			}
+			for (int i = 0; i < bucket.size; i++) {
+				SimEvent ev = bucket.events[i];
+				if (ev.getSource() == src && (byTag || p.match(ev))) {
+					matches.add(ev);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops tracking all the events.
+	 */
+	void clear() {
+		for (Bucket[] sourceBuckets : buckets) {
+			if (sourceBuckets == null) {
+				continue;
+			}
+			for (Bucket bucket : sourceBuckets) {
+				if (bucket == null) {
+					break;
+				}
+				for (int i = 0; i < bucket.size; i++) {
+					bucket.events[i].indexBucket = null;
+					bucket.events[i] = null;
+				}
+				bucket.size = 0;
+			}
+		}
+	}
+
+	private Bucket[] bucketsOf(int src) {
+		int slot = Math.max(0, src + 1);
+		return slot < buckets.length ? buckets[slot] : null;
+	}
+
+	private Bucket bucketOf(int src, int tag) {
+		// the events of unknown sources share a slot and are told apart by source
+		int slot = Math.max(0, src + 1);
+		if (slot >= buckets.length) {
+			buckets = Arrays.copyOf(buckets, Math.max(slot + 1, buckets.length << 1));
+		}
+		Bucket[] sourceBuckets = buckets[slot];
+		if (sourceBuckets == null) {
+			sourceBuckets = new Bucket[2];
+			buckets[slot] = sourceBuckets;
+		}
+		int i = 0;
+		for (; i < sourceBuckets.length && sourceBuckets[i] != null; i++) {
+			if (sourceBuckets[i].tag == tag) {
+				return sourceBuckets[i];
+			}
+		}
+		if (i == sourceBuckets.length) {
+			sourceBuckets = Arrays.copyOf(sourceBuckets, i << 1);
+			buckets[slot] = sourceBuckets;
+		}
+		Bucket bucket = new Bucket(tag);
+		sourceBuckets[i] = bucket;
+		return bucket;
+	}
+
+}
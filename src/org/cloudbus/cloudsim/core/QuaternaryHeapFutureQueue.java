@@ -0,0 +1,197 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Future queue engine backed by an implicit 4-ary min-heap. The (queue time,
+ * serial) keys are kept in primitive arrays parallel to the event array, so
+ * sifting never dereferences the events, and each event remembers its slot in
+ * the heap so that it can be removed in O(log n).
+ *
+ * @see FutureQueue
+ */
+public class QuaternaryHeapFutureQueue extends FutureQueue {
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The event queue times, in heap order. */
+	private double[] times = new double[INITIAL_CAPACITY];
+
+	/** The event serials, in heap order. */
+	private long[] serials = new long[INITIAL_CAPACITY];
+
+	/** The events, in heap order. */
+	private SimEvent[] events = new SimEvent[INITIAL_CAPACITY];
+
+	/** The number of events in the heap. */
+	private int size = 0;
+
+	@Override
+	protected void insert(SimEvent newEvent) {
+		if (size == events.length) {
+			int capacity = events.length << 1;
+			times = Arrays.copyOf(times, capacity);
+			serials = Arrays.copyOf(serials, capacity);
+			events = Arrays.copyOf(events, capacity);
+		}
+		siftUp(size++, newEvent.queueTime, newEvent.getSerial(), newEvent);
+	}
+
+	@Override
+	protected SimEvent pollFirst() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = events[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	protected boolean delete(SimEvent event) {
+		int index = event.queueIndex;
+		if (index < 0 || index >= size || events[index] != event) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	protected SimEvent peekFirst() {
+		return size == 0 ? null : events[0];
+	}
+
+	@Override
+	protected Iterator<SimEvent> storedIterator() {
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return events[next++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	protected int storedSize() {
+		return size;
+	}
+
+	@Override
+	protected void deleteAll() {
+		for (int i = 0; i < size; i++) {
+			events[i].queueIndex = -1;
+			events[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Removes the event stored at the given slot.
+	 *
+	 * @param index the slot
+	 */
+	private void removeAt(int index) {
+		events[index].queueIndex = -1;
+		int last = --size;
+		if (index == last) {
+			events[last] = null;
+			return;
+		}
+		double time = times[last];
+		long serial = serials[last];
+		SimEvent event = events[last];
+		events[last] = null;
+		if (index > 0 && less(time, serial, times[(index - 1) >>> 2], serials[(index - 1) >>> 2])) {
+			siftUp(index, time, serial, event);
+		} else {
+			siftDown(index, time, serial, event);
+		}
+	}
+
+	/**
+	 * Moves a key up from the given slot until the heap order is restored.
+	 */
+	private void siftUp(int index, double time, long serial, SimEvent event) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 2;
+			if (!less(time, serial, times[parent], serials[parent])) {
+				break;
+			}
+			move(parent, index);
+			index = parent;
+		}
+		place(index, time, serial, event);
+	}
+
+	/**
+	 * Moves a key down from the given slot until the heap order is restored.
+	 */
+	private void siftDown(int index, double time, long serial, SimEvent event) {
+		while (true) {
+			int firstChild = (index << 2) + 1;
+			if (firstChild >= size) {
+				break;
+			}
+			int min = firstChild;
+			int end = Math.min(firstChild + 4, size);
+			for (int child = firstChild + 1; child < end; child++) {
+				if (less(times[child], serials[child], times[min], serials[min])) {
+					min = child;
+				}
+			}
+			if (!less(times[min], serials[min], time, serial)) {
+				break;
+			}
+			move(min, index);
+			index = min;
+		}
+		place(index, time, serial, event);
+	}
+
+	private void move(int from, int to) {
+		times[to] = times[from];
+		serials[to] = serials[from];
+		events[to] = events[from];
+		events[to].queueIndex = to;
+	}
+
+	private void place(int index, double time, long serial, SimEvent event) {
+		times[index] = time;
+		serials[index] = serial;
+		events[index] = event;
+		event.queueIndex = index;
+	}
+
+	private static boolean less(double time1, long serial1, double time2, long serial2) {
+		return time1 < time2 || (time1 == time2 && serial1 < serial2);
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Comparator;
+
+/**
+ * Stamps the events with the position at which the sequential engine adds them
+ * to the future queue, so that the conservative engine can process the events
+ * due at the same time in the same order.
+ * <p>
+ * The sequential engine processes the events due at the same time in the order
+ * they were added, and each tick first runs the entities in id order, then
+ * takes the next batch of events out of the queue. An event is therefore added
+ * after all the events sent in an earlier tick, and among those sent in the
+ * same tick, after those sent by the entities running before its sender and
+ * those its sender sent before. A tick is identified by the time of the batch
+ * it follows and the depth of that batch among the batches of the same time,
+ * which is 0 unless its events were sent at that very time.
+ */
+class SendOrder {
+
+	/**
+	 * The order in which the conservative engine processes the events of a
+	 * batch: by priority when priority scheduling is enabled, then by depth, the
+	 * events added first before the others, then by send time, depth at send
+	 * time, sending entity and order of sending.
+	 */
+	static final Comparator<SimEvent> BATCH_ORDER = new Comparator<SimEvent>() {
+
+		@Override
+		public int compare(SimEvent a, SimEvent b) {
+			long rankA = a.getSerial() >>> FutureQueue.SEQUENCE_BITS;
+			long rankB = b.getSerial() >>> FutureQueue.SEQUENCE_BITS;
+			if (rankA != rankB) {
+				return rankA < rankB ? -1 : 1;
+			}
+			int depthA = depth(a);
+			int depthB = depth(b);
+			if (depthA != depthB) {
+				return depthA < depthB ? -1 : 1;
+			}
+			boolean firstA = a.getSerial() == 0;
+			if (firstA != (b.getSerial() == 0)) {
+				return firstA ? -1 : 1;
+			}
+			if (a.sendTime != b.sendTime) {
+				return a.sendTime < b.sendTime ? -1 : 1;
+			}
+			if (a.sendDepth != b.sendDepth) {
+				return a.sendDepth < b.sendDepth ? -1 : 1;
+			}
+			if (a.sender != b.sender) {
+				return a.sender < b.sender ? -1 : 1;
+			}
+			return Long.compare(a.senderSequence, b.senderSequence);
+		}
+	};
+
+	/** The time of the last batch, -1 before the first one. */
+	private double batchTime = -1;
+
+	/** The depth of the last batch. */
+	private int batchDepth = -1;
+
+	/** The entity running, if any. */
+	private SimEntity running;
+
+	/** The number of events sent while no entity was running. */
+	private long sentOutsideEntities;
+
+	/**
+	 * Returns the depth of the batch an event is processed in, among the batches
+	 * of its time.
+	 */
+	static int depth(SimEvent e) {
+		return e.eventTime() == e.sendTime ? e.sendDepth + 1 : 0;
+	}
+
+	/**
+	 * Stamps an event being sent; its send time must be set.
+	 */
+	void stamp(SimEvent e) {
+		e.sendDepth = e.sendTime == batchTime ? batchDepth : -1;
+		if (running == null) {
+			e.sender = -1;
+			e.senderSequence = sentOutsideEntities++;
+		} else {
+			e.sender = running.getId();
+			e.senderSequence = running.sentEvents++;
+		}
+	}
+
+	/**
+	 * Records that a batch has been taken out of the future queue.
+	 *
+	 * @param first the first event of the batch
+	 */
+	void batchPolled(SimEvent first) {
+		batchTime = first.eventTime();
+		batchDepth = depth(first);
+	}
+
+	/**
+	 * Sets the entity running, or null when none is.
+	 */
+	void setRunning(SimEntity entity) {
+		running = entity;
+	}
+
+}
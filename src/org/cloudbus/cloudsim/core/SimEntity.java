@@ -45,6 +45,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The number of events sent while the entity was running. */
+	long sentEvents;
+
 	protected int priority;
 
 	/**
@@ -423,6 +426,7 @@ public abstract class SimEntity implements Cloneable {
 
 		while (ev != null) {
 			processEvent(ev);
+			CloudSim.releaseEvent(ev);
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -586,6 +590,91 @@ public abstract class SimEntity implements Cloneable {
 		send(entityId, delay, cloudSimTag, null);
 	}
 
+	/**
+	 * Sends an event/message to another entity as if it was sent at a later time,
+	 * e.g. once a link is done with the messages sent before it.
+	 * 
+	 * @param sendTime    the time the event leaves this entity, not before the
+	 *                    current simulation time
+	 * @param entityId    the id number of the destination entity
+	 * @param delay       how long after sendTime the event should be delivered.
+	 *                    If delay is a negative number, then it will be changed to
+	 *                    0
+	 * @param cloudSimTag an user-defined number representing the type of an
+	 *                    event/message
+	 * @param data        A reference to data to be sent with the event
+	 * @see CloudSim#sendLater(int, int, double, double, int, Object, int)
+	 */
+	protected void sendLater(double sendTime, int entityId, double delay, int cloudSimTag, Object data) {
+		if (entityId < 0) {
+			return;
+		}
+
+		if (delay < 0) {
+			delay = 0;
+		}
+
+		if (Double.isInfinite(delay) || Double.isInfinite(sendTime)) {
+			throw new IllegalArgumentException("The specified delay is infinite value");
+		}
+
+		if (entityId != getId()) {// does not delay self messages
+			delay += getNetworkDelay(getId(), entityId);
+		}
+
+		if (!CloudSim.running()) {
+			return;
+		}
+
+		CloudSim.sendLater(id, entityId, sendTime, delay, cloudSimTag, data, priority);
+	}
+
+	/**
+	 * Arms a timer: sends an event/message to this entity after a delay. The
+	 * event is delivered as if sent with {@link #send(int, double, int, Object)},
+	 * but it waits in the timing wheel of the future queue, where the timers due
+	 * at the same time share one entry. Entities re-arming a timer every period
+	 * should use this method.
+	 * 
+	 * @param delay       how long from the current simulation time the event should
+	 *                    be sent. If delay is a negative number, then it will be
+	 *                    changed to 0
+	 * @param cloudSimTag an user-defined number representing the type of an
+	 *                    event/message
+	 * @param data        A reference to data to be sent with the event
+	 * @see CloudSim#sendTimer(int, double, int, Object, int)
+	 */
+	protected void sendTimer(double delay, int cloudSimTag, Object data) {
+		if (delay < 0) {
+			delay = 0;
+		}
+
+		if (Double.isInfinite(delay)) {
+			throw new IllegalArgumentException("The specified delay is infinite value");
+		}
+
+		if (!CloudSim.running()) {
+			return;
+		}
+
+		CloudSim.sendTimer(id, delay, cloudSimTag, data, priority);
+	}
+
+	/**
+	 * Arms a timer: sends an event/message with no data to this entity after a
+	 * delay.
+	 * 
+	 * @param delay       how long from the current simulation time the event should
+	 *                    be sent. If delay is a negative number, then it will be
+	 *                    changed to 0
+	 * @param cloudSimTag an user-defined number representing the type of an
+	 *                    event/message
+	 * @see #sendTimer(double, int, Object)
+	 */
+	protected void sendTimer(double delay, int cloudSimTag) {
+		sendTimer(delay, cloudSimTag, null);
+	}
+
 	/**
 	 * Sends an event/message to another entity by <tt>delaying</tt> the simulation
 	 * time from the current time, with a tag representing the event type.
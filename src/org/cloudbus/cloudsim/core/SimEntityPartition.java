@@ -0,0 +1,54 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.List;
+
+/**
+ * A partition of the simulation entities into logical processes, used by the
+ * conservative parallel engine. Every event sent from one logical process to
+ * another must be scheduled at least {@link #getLookahead()} in the future,
+ * except the events sent to logical process 0, which can have any delay.
+ *
+ * @see CloudSim#init(int, java.util.Calendar, boolean, SimEntityPartition, int)
+ */
+public interface SimEntityPartition {
+
+	/**
+	 * Partitions the entities. This method is called when the simulation starts,
+	 * once all the entities have been created.
+	 *
+	 * @param entities the entities of the simulation
+	 */
+	void partition(List<? extends SimEntity> entities);
+
+	/**
+	 * Returns the number of logical processes.
+	 *
+	 * @return the number of logical processes
+	 */
+	int getNumPartitions();
+
+	/**
+	 * Returns the logical process of an entity, between 0 and
+	 * {@link #getNumPartitions()} - 1.
+	 *
+	 * @param entityId the id of the entity
+	 * @return the logical process
+	 */
+	int getPartition(int entityId);
+
+	/**
+	 * Returns the minimum delay of the events sent between logical processes.
+	 *
+	 * @return the lookahead, in simulation time
+	 */
+	double getLookahead();
+
+}
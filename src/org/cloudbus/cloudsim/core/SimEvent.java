@@ -21,14 +21,26 @@ import java.util.Comparator;
 public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<SimEvent> {
 
 	/** internal event type **/
-	private final int etype;
+	private int etype;
 
 	/** time at which event should occur **/
-	private final double time;
+	private double time;
 
 	/** time that the event was removed from the queue for service **/
 	private double endWaitingTime;
 
+	/** time at which the event was sent, -1 if unknown **/
+	double sendTime = -1;
+
+	/** depth of the last batch of the send time when the event was sent (see SendOrder) **/
+	int sendDepth = -1;
+
+	/** id of the entity running when the event was sent, -1 if none **/
+	int sender = -1;
+
+	/** number of the event among those sent while its sender was running **/
+	long senderSequence = -1;
+
 	/** id of entity who scheduled event **/
 	private int entSrc;
 
@@ -36,13 +48,37 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 	private int entDst;
 
 	/** the user defined type of the event **/
-	private final int tag;
+	private int tag;
 
 	/** any data the event is carrying **/
-	private final Object data;
+	private Object data;
 
 	private long serial = -1;
 
+	/** time by which the future queue orders this event **/
+	double queueTime;
+
+	/** next event in the future or deferred queue list holding this event, if any **/
+	SimEvent queueNext;
+
+	/** slot of this event in the future queue heap, if any **/
+	int queueIndex = -1;
+
+	/** the events with the same source and tag, while this event is pending **/
+	PendingEventIndex.Bucket indexBucket;
+
+	/** slot of this event in its pending event bucket **/
+	int indexPosition;
+
+	/** the timer group holding this event, while it waits in the timer wheel **/
+	TimerWheel.Group timerGroup;
+
+	/** the pending events equal to this one, while this event is pending **/
+	FuzzySchedulerIndex.Group fuzzyGroup;
+
+	/** raises of the fuzzy scheduler group when this event was scheduled **/
+	long fuzzyBase;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -53,8 +89,6 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 
 	public static final int CREATE = 3;
 
-	private long startTime;
-
 	private int priority;
 
 	public boolean Processed;
@@ -73,7 +107,23 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 		tag = -1;
 		data = null;
 
-		this.startTime = System.nanoTime();
+		queueTime = time;
+	}
+
+	/**
+	 * Reinitialises an event that is not scheduled, e.g. to hand the items
+	 * delivered together by an event one after the other to code expecting an
+	 * event per item, without allocating an event for each.
+	 *
+	 * @param evtype the event type
+	 * @param time   the event time
+	 * @param src    the source entity
+	 * @param dest   the destination entity
+	 * @param tag    the tag
+	 * @param edata  the data
+	 */
+	public void reuse(int evtype, double time, int src, int dest, int tag, Object edata) {
+		reset(evtype, time, src, dest, tag, edata, 0);
 	}
 
 	// ------------------- PACKAGE LEVEL METHODS --------------------------
@@ -85,7 +135,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 		this.tag = tag;
 		data = edata;
 
-		this.startTime = System.nanoTime();
+		queueTime = time;
 	}
 
 	SimEvent(int evtype, double time, int src, int dest, int tag, Object edata, int priority) {
@@ -97,7 +147,42 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 		data = edata;
 		this.priority = priority;
 
-		this.startTime = System.nanoTime();
+		queueTime = time;
+	}
+
+	/**
+	 * Reinitialises a recycled event, as the constructor with the same arguments
+	 * would.
+	 */
+	void reset(int evtype, double time, int src, int dest, int tag, Object edata, int priority) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = -1.0;
+		sendTime = -1;
+		sendDepth = -1;
+		sender = -1;
+		senderSequence = -1;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		this.priority = priority;
+		serial = -1;
+		Processed = false;
+		fuzzyScheduler = 0;
+		queueTime = time;
+	}
+
+	/**
+	 * Drops the references held by an event that goes back to the pool.
+	 */
+	void recycle() {
+		data = null;
+		queueNext = null;
+		queueIndex = -1;
+		timerGroup = null;
+		fuzzyGroup = null;
+		fuzzyBase = 0;
 	}
 
 	@Override
@@ -157,12 +242,17 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 		entDst = -1;
 		tag = -1;
 		data = null;
+		queueTime = time;
 	}
 
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	protected long getSerial() {
+		return serial;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
@@ -190,36 +280,20 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 	// ------------------- PUBLIC METHODS --------------------------
 
 	/**
+	 * Compares the events by the order of the future queue: the queue time and
+	 * then the serial. Both are assigned by {@link FutureQueue} when the event is
+	 * added, and encode the event priority when priority scheduling is enabled.
+	 * 
 	 * @see Comparable#compareTo(Object)
+	 * @see CloudSim#setPriorityScheduling(boolean, double)
 	 */
 	@Override
-	/*
-	 * public int compareTo(SimEvent event) {//metodo que define a prioridade do
-	 * processamento if (event == null) { return 1; } else if (time < event.time) {
-	 * return -1; } else if (time > event.time) { return 1; } else if (serial <
-	 * event.serial) { return -1; } else if (this == event) { return 0; } else {
-	 * return 1; } }
-	 */
-
-	public int compareTo(SimEvent event) {// metodo que define a prioridade do processamento
-
+	public int compareTo(SimEvent event) {
 		if (event == null) {
 			return 1;
-		}
-
-		else if ((this.priority > event.priority) && ((this.startTime - event.startTime) < 10)) {// se a prioridade dp
-																									// evento que chega
-																									// é mais alta que o
-																									// evento atual,
-																									// processa o evento
-																									// novo
-			// System.out.println(this.startTime - event.startTime);
-			return -1;
-		}
-		// 100 nano segundos, será que é um valor aceitavel?
-		else if (time < event.time) {
+		} else if (queueTime < event.queueTime) {
 			return -1;
-		} else if (time > event.time) {
+		} else if (queueTime > event.queueTime) {
 			return 1;
 		} else if (serial < event.serial) {
 			return -1;
@@ -267,6 +341,17 @@ public class SimEvent implements Cloneable, Comparable<SimEvent>, Comparator<Sim
 		return endWaitingTime;
 	}
 
+	/**
+	 * Get the simulation time at which this event was sent, i.e. the clock when
+	 * the kernel scheduled it.
+	 * 
+	 * @return The simulation time, or -1 if the event was not scheduled by the
+	 *         kernel
+	 */
+	public double sendTime() {
+		return sendTime;
+	}
+
 	/**
 	 * Get the user-defined tag of this event
 	 * 
@@ -0,0 +1,35 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Receives the events flowing through the simulation kernel, for profiling and
+ * tracing. The observers must not modify the events.
+ *
+ * @see CloudSim#addEventObserver(SimEventObserver)
+ */
+public interface SimEventObserver {
+
+	/**
+	 * Called when an event is added to the future queue. {@link CloudSim#clock()}
+	 * is the time at which the event was scheduled.
+	 *
+	 * @param event the event
+	 */
+	void eventScheduled(SimEvent event);
+
+	/**
+	 * Called when the kernel takes an event sent to an entity out of the future
+	 * queue, before the entity processes it.
+	 *
+	 * @param event the event
+	 */
+	void eventDispatched(SimEvent event);
+
+}
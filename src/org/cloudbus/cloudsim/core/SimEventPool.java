@@ -0,0 +1,80 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+
+/**
+ * A bounded stack of processed events that can be reused by
+ * {@link CloudSim} instead of allocating new ones.
+ *
+ * @see CloudSim#setEventPooling(boolean)
+ */
+class SimEventPool {
+
+	/** The maximum number of idle events kept. */
+	private static final int MAX_SIZE = 1 << 16;
+
+	private SimEvent[] events = new SimEvent[256];
+
+	private int size = 0;
+
+	/** The number of events allocated by the pool. */
+	private long created = 0;
+
+	/** The number of events handed out again after being released. */
+	private long reused = 0;
+
+	/**
+	 * Gets an event, reusing a released one if possible.
+	 */
+	SimEvent acquire(int evtype, double time, int src, int dest, int tag, Object edata, int priority) {
+		SimEvent event;
+		if (size > 0) {
+			event = events[--size];
+			events[size] = null;
+			reused++;
+		} else {
+			event = new SimEvent();
+			created++;
+		}
+		event.reset(evtype, time, src, dest, tag, edata, priority);
+		return event;
+	}
+
+	/**
+	 * Gives back an event nobody refers to anymore.
+	 */
+	void release(SimEvent event) {
+		event.recycle();
+		if (size == events.length) {
+			if (size == MAX_SIZE) {
+				return;
+			}
+			events = Arrays.copyOf(events, Math.min(size << 1, MAX_SIZE));
+		}
+		events[size++] = event;
+	}
+
+	long getCreated() {
+		return created;
+	}
+
+	long getReused() {
+		return reused;
+	}
+
+	void clear() {
+		events = new SimEvent[256];
+		size = 0;
+		created = 0;
+		reused = 0;
+	}
+
+}
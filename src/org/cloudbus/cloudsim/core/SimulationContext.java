@@ -0,0 +1,286 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * The state of a simulation kernel. The static methods of {@link CloudSim} work
+ * on the context bound to the calling thread, or on a default context shared by
+ * the threads that have none, so several simulations can run concurrently in
+ * one JVM as long as each runs on its own thread with its own context.
+ * <p>
+ * Besides the kernel state, a context holds one instance per class of the
+ * per-simulation singletons of the layers above the kernel (see
+ * {@link #getAttribute(Class)}) and the random number generators of the
+ * simulation: a shared one, and one stream per entity derived from the seed and
+ * the entity id, which does not depend on the order in which the entities draw
+ * numbers (see {@link #getRandomStream(int)}).
+ *
+ * @see CloudSim#setContext(SimulationContext)
+ */
+public class SimulationContext {
+
+	// settings, kept across simulations run in the context
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/**
+	 * The minimal time between events. Events within shorter periods after the last
+	 * event are discarded.
+	 */
+	double minTimeBetweenEvents = 0.1;
+
+	/** The engine used by the future event queue. */
+	int futureQueueType = FutureQueue.TREE_SET;
+
+	/** The trace where the future queue operations are recorded, if any. */
+	FutureQueueTrace futureQueueTrace = null;
+
+	/** The partition of the entities for the conservative engine, if any. */
+	SimEntityPartition partition = null;
+
+	/** The number of threads of the conservative engine. */
+	int parallelism = 1;
+
+	/** The observers of the events, which outlive the simulations. */
+	SimEventObserver[] observers = new SimEventObserver[0];
+
+	/** Whether the future events are ordered by priority. */
+	boolean priorityScheduling = false;
+
+	/** The priority inversion window, in simulation time. */
+	double priorityWindow = 0;
+
+	/** Whether processed events are recycled. */
+	boolean eventPooling = false;
+
+	/** Whether the fuzzy scheduler weights only count the events of a batch. */
+	boolean batchFuzzyWeights = false;
+
+	// state of the current simulation
+
+	int count;
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	FutureQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/** The conservative engine running the simulation, if any. */
+	ConservativeEngine conservative = null;
+
+	/** The processed events available for reuse. */
+	final SimEventPool eventPool = new SimEventPool();
+
+	/** The fuzzy scheduler weights of the events in the future queue. */
+	FuzzySchedulerIndex fuzzyScheduler;
+
+	/** The position of the events sent outside of the logical processes. */
+	SendOrder sendOrder;
+
+	/** The events taken from the future queue in the current tick. */
+	final List<SimEvent> batch = new ArrayList<SimEvent>();
+
+	/** The number of events taken from the future queue. */
+	long numProcessedEvents;
+
+	/** The number of simulation ticks. */
+	long numTicks;
+
+	/** The wall clock time when the simulation started running, in ns. */
+	long runStartNanos;
+
+	/** The wall clock time when the simulation stopped running, in ns. */
+	long runEndNanos;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	// The predicates used in entity wait methods
+	/** The wait predicates. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	// outside of the kernel
+
+	/** The per-simulation singletons, by class. */
+	private final ConcurrentHashMap<Class<?>, Object> attributes = new ConcurrentHashMap<Class<?>, Object>();
+
+	/** The seed of the random number generators. */
+	private long seed;
+
+	/** The random number generator of the simulations. */
+	private Random random;
+
+	/** The random number streams of the entities, by entity id. */
+	private final ConcurrentHashMap<Integer, SplittableRandom> randomStreams = new ConcurrentHashMap<Integer, SplittableRandom>();
+
+	/**
+	 * Creates a context with the default settings and a random seed, which can be
+	 * read with {@link #getSeed()} to reproduce the simulations.
+	 */
+	public SimulationContext() {
+		setSeed(new Random().nextLong());
+	}
+
+	/**
+	 * Creates a context with the same settings as another one: termination time,
+	 * minimal time between events, future queue type, priority scheduling, event
+	 * pooling and batch fuzzy weights. The trace, the partition and the observers are not copied.
+	 *
+	 * @param settings the context to copy the settings from
+	 * @param seed     the seed of the random number generator
+	 */
+	public SimulationContext(SimulationContext settings, long seed) {
+		terminateAt = settings.terminateAt;
+		minTimeBetweenEvents = settings.minTimeBetweenEvents;
+		futureQueueType = settings.futureQueueType;
+		priorityScheduling = settings.priorityScheduling;
+		priorityWindow = settings.priorityWindow;
+		eventPooling = settings.eventPooling;
+		batchFuzzyWeights = settings.batchFuzzyWeights;
+		setSeed(seed);
+	}
+
+	/**
+	 * Gets the instance of a class kept in this context.
+	 *
+	 * @param type the class
+	 * @return the instance, or <tt>null</tt> if there is none
+	 */
+	public <T> T getAttribute(Class<T> type) {
+		return type.cast(attributes.get(type));
+	}
+
+	/**
+	 * Keeps an instance of a class in this context, unless there is one already.
+	 *
+	 * @param type     the class
+	 * @param instance the instance
+	 * @return the instance kept in the context
+	 */
+	public <T> T putAttributeIfAbsent(Class<T> type, T instance) {
+		Object previous = attributes.putIfAbsent(type, instance);
+		return previous == null ? instance : type.cast(previous);
+	}
+
+	/**
+	 * Removes the instance of a class kept in this context.
+	 *
+	 * @param type the class
+	 */
+	public void removeAttribute(Class<?> type) {
+		attributes.remove(type);
+	}
+
+	/**
+	 * Gets the random number generator of the simulations run in this context.
+	 *
+	 * @return the random number generator
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Gets the random number stream of an entity. The stream is derived from the
+	 * seed of this context and the id of the entity only, so an entity draws the
+	 * same numbers whatever the other entities draw, and whichever thread runs it.
+	 * A stream must only be used by the thread running its entity.
+	 *
+	 * @param entityId the id of the entity
+	 * @return the random number stream of the entity
+	 */
+	public SplittableRandom getRandomStream(int entityId) {
+		SplittableRandom stream = randomStreams.get(entityId);
+		if (stream == null) {
+			stream = new SplittableRandom(mix(seed + 0x9E3779B97F4A7C15L * (entityId + 1L)));
+			SplittableRandom previous = randomStreams.putIfAbsent(entityId, stream);
+			if (previous != null) {
+				stream = previous;
+			}
+		}
+		return stream;
+	}
+
+	/**
+	 * Gets the seed of the random number generators of this context.
+	 *
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Reseeds the random number generators of this context. The entity streams
+	 * handed out so far are forgotten.
+	 *
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		random = new Random(seed);
+		randomStreams.clear();
+	}
+
+	/**
+	 * Scrambles the bits of a seed (the finalizer of MurmurHash3), so that the
+	 * streams of consecutive entity ids are unrelated.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+
+}
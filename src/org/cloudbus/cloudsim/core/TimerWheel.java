@@ -0,0 +1,494 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel holding the timer events of a {@link FutureQueue}
+ * (see {@link CloudSim#sendTimer(int, double, int, Object, int)}) apart from
+ * its engine. The events due at the same queue time with the same priority rank
+ * share a group, so all the sources firing with a common period take a single
+ * entry, whatever their number, and the members of a group are delivered one
+ * after the other in serial order.
+ * <p>
+ * Time is cut in ticks of {@link #RESOLUTION}. Each of the {@link #LEVELS}
+ * levels has 64 slots, a slot covering the 64 slots of the level below; the
+ * groups of the current tick are kept in a small heap, and the groups too far
+ * for the last level in an overflow list. When the current tick is over, the
+ * next occupied slot is found from the occupancy mask of each level and its
+ * groups cascade down, so advancing does not depend on the gap between ticks.
+ */
+class TimerWheel {
+
+	/**
+	 * The timer events due at the same queue time and with the same priority rank,
+	 * in serial order.
+	 */
+	static final class Group {
+
+		double queueTime;
+
+		long rank;
+
+		long tick;
+
+		SimEvent[] events = new SimEvent[4];
+
+		/** The position of the first pending event. */
+		int first;
+
+		int size;
+
+		/** {@link #CURRENT}, {@link #OVERFLOW} or the level holding the group. */
+		int level;
+
+		int slot;
+
+		int heapIndex;
+
+		/** The next group in the same slot or in the overflow list. */
+		Group next;
+	}
+
+	/** The width of a tick, in simulation time. */
+	static final double RESOLUTION = 1.0;
+
+	static final int LEVELS = 4;
+
+	private static final int SLOT_BITS = 6;
+
+	private static final int MASK = (1 << SLOT_BITS) - 1;
+
+	private static final int CURRENT = -1;
+
+	private static final int OVERFLOW = LEVELS;
+
+	private static final long MAX_TICK = Long.MAX_VALUE >>> 2;
+
+	private final Group[][] slots = new Group[LEVELS][1 << SLOT_BITS];
+
+	/** The occupied slots of each level, one bit per slot. */
+	private final long[] occupied = new long[LEVELS];
+
+	private Group overflow;
+
+	/** The groups of the current tick, as a heap ordered by (queue time, rank). */
+	private Group[] current = new Group[8];
+
+	private int currentSize;
+
+	/** The current tick. */
+	private long cursor;
+
+	/** The groups by (queue time, rank), with open addressing. */
+	private Group[] table = new Group[16];
+
+	private int groups;
+
+	/** The free groups, linked by their next field. */
+	private Group spare;
+
+	/** The number of events. */
+	private int size;
+
+	/**
+	 * Adds an event whose keys have been assigned, after the events of its group.
+	 *
+	 * @param event the event
+	 */
+	void add(SimEvent event) {
+		long rank = event.getSerial() >>> FutureQueue.SEQUENCE_BITS;
+		Group group = find(event.queueTime, rank);
+		if (group == null) {
+			group = newGroup(event.queueTime, rank);
+			tableAdd(group);
+			place(group);
+		}
+		int end = group.first + group.size;
+		if (end == group.events.length) {
+			if (group.first > 0) {
+				System.arraycopy(group.events, group.first, group.events, 0, group.size);
+				Arrays.fill(group.events, group.size, end, null);
+				group.first = 0;
+			} else {
+				group.events = Arrays.copyOf(group.events, end << 1);
+			}
+		}
+		group.events[group.first + group.size++] = event;
+		event.timerGroup = group;
+		size++;
+	}
+
+	/**
+	 * Returns the first event, in (queue time, serial) order, without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the wheel is empty
+	 */
+	SimEvent peek() {
+		if (size == 0) {
+			return null;
+		}
+		advance();
+		Group group = current[0];
+		return group.events[group.first];
+	}
+
+	/**
+	 * Removes and returns the first event, in (queue time, serial) order.
+	 *
+	 * @return the first event, or <tt>null</tt> if the wheel is empty
+	 */
+	SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		advance();
+		Group group = current[0];
+		SimEvent event = group.events[group.first];
+		group.events[group.first++] = null;
+		group.size--;
+		size--;
+		event.timerGroup = null;
+		if (group.size == 0) {
+			retire(group);
+		}
+		return event;
+	}
+
+	/**
+	 * Removes an event, if it is in the wheel.
+	 *
+	 * @param event the event
+	 * @return true if the event was in the wheel
+	 */
+	boolean remove(SimEvent event) {
+		Group group = event.timerGroup;
+		if (group == null) {
+			return false;
+		}
+		int end = group.first + group.size;
+		int i = group.first;
+		while (group.events[i] != event) {
+			i++;
+		}
+		System.arraycopy(group.events, i + 1, group.events, i, end - i - 1);
+		group.events[end - 1] = null;
+		group.size--;
+		size--;
+		event.timerGroup = null;
+		if (group.size == 0) {
+			retire(group);
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the events of the wheel, in no particular order.
+	 *
+	 * @param events the list where the events are appended
+	 */
+	void collect(List<SimEvent> events) {
+		for (int i = 0; i < currentSize; i++) {
+			collect(current[i], events);
+		}
+		for (Group[] level : slots) {
+			for (Group group : level) {
+				for (; group != null; group = group.next) {
+					collect(group, events);
+				}
+			}
+		}
+		for (Group group = overflow; group != null; group = group.next) {
+			collect(group, events);
+		}
+	}
+
+	private static void collect(Group group, List<SimEvent> events) {
+		for (int i = group.first; i < group.first + group.size; i++) {
+			events.add(group.events[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of events.
+	 *
+	 * @return the size
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all the events.
+	 */
+	void clear() {
+		for (Group group : table) {
+			if (group != null) {
+				for (int i = group.first; i < group.first + group.size; i++) {
+					group.events[i].timerGroup = null;
+				}
+			}
+		}
+		for (Group[] level : slots) {
+			Arrays.fill(level, null);
+		}
+		Arrays.fill(occupied, 0);
+		Arrays.fill(current, null);
+		Arrays.fill(table, null);
+		overflow = null;
+		currentSize = 0;
+		groups = 0;
+		size = 0;
+		cursor = 0;
+	}
+
+	/**
+	 * Makes sure the groups of the first occupied tick are in the current heap.
+	 */
+	private void advance() {
+		while (currentSize == 0) {
+			if (!cascade()) {
+				// only the overflow is left: jump to its first tick
+				Group list = overflow;
+				overflow = null;
+				long first = MAX_TICK;
+				for (Group group = list; group != null; group = group.next) {
+					first = Math.min(first, group.tick);
+				}
+				cursor = first;
+				placeAll(list);
+			}
+		}
+	}
+
+	/**
+	 * Moves the cursor to the next occupied slot of the lowest level having one,
+	 * and spreads the groups of the slot over the levels below.
+	 *
+	 * @return false if all the levels are empty
+	 */
+	private boolean cascade() {
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = SLOT_BITS * level;
+			int digit = (int) (cursor >>> shift) & MASK;
+			// the slot of the cursor is always empty, the later ones are not behind it
+			long later = occupied[level] & (-2L << digit);
+			if (later != 0) {
+				int slot = Long.numberOfTrailingZeros(later);
+				cursor = (cursor >>> (shift + SLOT_BITS) << (shift + SLOT_BITS)) | ((long) slot << shift);
+				Group list = slots[level][slot];
+				slots[level][slot] = null;
+				occupied[level] &= ~(1L << slot);
+				placeAll(list);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void placeAll(Group list) {
+		while (list != null) {
+			Group next = list.next;
+			place(list);
+			list = next;
+		}
+	}
+
+	/**
+	 * Puts a group in the current heap, in the lowest level whose slots share the
+	 * cursor's higher digits, or in the overflow list.
+	 */
+	private void place(Group group) {
+		long tick = Math.max(group.tick, cursor);
+		if (tick == cursor) {
+			heapAdd(group);
+			return;
+		}
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = SLOT_BITS * (level + 1);
+			if ((tick >>> shift) == (cursor >>> shift)) {
+				int slot = (int) (tick >>> (shift - SLOT_BITS)) & MASK;
+				group.level = level;
+				group.slot = slot;
+				group.next = slots[level][slot];
+				slots[level][slot] = group;
+				occupied[level] |= 1L << slot;
+				return;
+			}
+		}
+		group.level = OVERFLOW;
+		group.next = overflow;
+		overflow = group;
+	}
+
+	/**
+	 * Takes an empty group out of the wheel and keeps it for reuse.
+	 */
+	private void retire(Group group) {
+		if (group.level == CURRENT) {
+			heapRemove(group.heapIndex);
+		} else if (group.level == OVERFLOW) {
+			overflow = unlink(overflow, group);
+		} else {
+			Group list = unlink(slots[group.level][group.slot], group);
+			slots[group.level][group.slot] = list;
+			if (list == null) {
+				occupied[group.level] &= ~(1L << group.slot);
+			}
+		}
+		tableRemove(group);
+		group.first = 0;
+		group.next = spare;
+		spare = group;
+	}
+
+	private static Group unlink(Group list, Group group) {
+		if (list == group) {
+			return group.next;
+		}
+		Group previous = list;
+		while (previous.next != group) {
+			previous = previous.next;
+		}
+		previous.next = group.next;
+		return list;
+	}
+
+	private Group newGroup(double queueTime, long rank) {
+		Group group = spare;
+		if (group == null) {
+			group = new Group();
+		} else {
+			spare = group.next;
+		}
+		group.queueTime = queueTime;
+		group.rank = rank;
+		double tick = Math.floor(queueTime / RESOLUTION);
+		group.tick = tick > 0 ? (long) Math.min(tick, MAX_TICK) : 0;
+		group.next = null;
+		return group;
+	}
+
+	private static boolean precedes(Group a, Group b) {
+		return a.queueTime < b.queueTime || (a.queueTime == b.queueTime && a.rank < b.rank);
+	}
+
+	private void heapAdd(Group group) {
+		if (currentSize == current.length) {
+			current = Arrays.copyOf(current, currentSize << 1);
+		}
+		group.level = CURRENT;
+		siftUp(currentSize++, group);
+	}
+
+	private void heapRemove(int index) {
+		Group last = current[--currentSize];
+		current[currentSize] = null;
+		if (index < currentSize) {
+			siftDown(index, last);
+			if (current[index] == last) {
+				siftUp(index, last);
+			}
+		}
+	}
+
+	private void siftUp(int index, Group group) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!precedes(group, current[parent])) {
+				break;
+			}
+			current[index] = current[parent];
+			current[index].heapIndex = index;
+			index = parent;
+		}
+		current[index] = group;
+		group.heapIndex = index;
+	}
+
+	private void siftDown(int index, Group group) {
+		int half = currentSize >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < currentSize && precedes(current[child + 1], current[child])) {
+				child++;
+			}
+			if (!precedes(current[child], group)) {
+				break;
+			}
+			current[index] = current[child];
+			current[index].heapIndex = index;
+			index = child;
+		}
+		current[index] = group;
+		group.heapIndex = index;
+	}
+
+	private static int hash(double queueTime, long rank) {
+		// 0.0 and -0.0 are the same queue time
+		long h = (Double.doubleToLongBits(queueTime + 0.0) ^ rank) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private Group find(double queueTime, long rank) {
+		int mask = table.length - 1;
+		for (int i = hash(queueTime, rank) & mask; table[i] != null; i = (i + 1) & mask) {
+			Group group = table[i];
+			if (group.queueTime == queueTime && group.rank == rank) {
+				return group;
+			}
+		}
+		return null;
+	}
+
+	private void tableAdd(Group group) {
+		if (2 * (groups + 1) > table.length) {
+			Group[] old = table;
+			table = new Group[old.length << 1];
+			for (Group moved : old) {
+				if (moved != null) {
+					tableInsert(moved);
+				}
+			}
+		}
+		tableInsert(group);
+		groups++;
+	}
+
+	private void tableInsert(Group group) {
+		int mask = table.length - 1;
+		int i = hash(group.queueTime, group.rank) & mask;
+		while (table[i] != null) {
+			i = (i + 1) & mask;
+		}
+		table[i] = group;
+	}
+
+	private void tableRemove(Group group) {
+		int mask = table.length - 1;
+		int hole = hash(group.queueTime, group.rank) & mask;
+		while (table[hole] != group) {
+			hole = (hole + 1) & mask;
+		}
+		table[hole] = null;
+		groups--;
+		// shift back the groups of the probe sequence that can take the hole
+		for (int i = (hole + 1) & mask; table[i] != null; i = (i + 1) & mask) {
+			int ideal = hash(table[i].queueTime, table[i].rank) & mask;
+			if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+				table[hole] = table[i];
+				table[i] = null;
+				hole = i;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * Future queue engine that uses a {@link TreeSet} in order to store the events.
+ * The events are ordered by {@link SimEvent#compareTo(SimEvent)}. This is the
+ * original CloudSim implementation and the default engine.
+ *
+ * @author Marcos Dias de Assuncao
+ * @since CloudSim Toolkit 1.0
+ * @see FutureQueue
+ */
+public class TreeSetFutureQueue extends FutureQueue {
+
+	/** The sorted set. */
+	private final NavigableSet<SimEvent> sortedSet = new TreeSet<SimEvent>(); // arvore rubro negra
+
+	/**
+	 * Returns a read-only view of the events, in the order they are dequeued.
+	 *
+	 * @return the sorted set
+	 */
+	public NavigableSet<SimEvent> getSortedSet() {
+		return Collections.unmodifiableNavigableSet(sortedSet);
+	}
+
+	@Override
+	protected void insert(SimEvent newEvent) {
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	protected SimEvent pollFirst() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	protected boolean delete(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public SimEvent removeFirstMatch(int src, Predicate p) {
+		for (SimEvent ev : sortedSet) {
+			if (ev.getSource() == src && p.match(ev)) {
+				remove(ev);
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected boolean precedes(SimEvent a, SimEvent b) {
+		return a.compareTo(b) < 0;
+	}
+
+	@Override
+	protected SimEvent peekFirst() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	protected Iterator<SimEvent> storedIterator() {
+		return getSortedSet().iterator();
+	}
+
+	@Override
+	protected int storedSize() {
+		return sortedSet.size();
+	}
+
+	@Override
+	protected void deleteAll() {
+		sortedSet.clear();
+	}
+
+}
@@ -159,9 +159,12 @@ public class PowerDatacenter extends Datacenter {
 		double minTime = Double.MAX_VALUE;
 		double timeDiff = currentTime - getLastProcessTime();
 		double timeFrameDatacenterEnergy = 0.0;
+		boolean logging = !Log.isDisabled();
 
-		Log.printLine("\n\n--------------------------------------------------------------\n\n");
-		Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
+		if (logging) {
+			Log.printLine("\n\n--------------------------------------------------------------\n\n");
+			Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
+		}
 
 		for (PowerHost host : this.<PowerHost>getHostList()) {
 			Log.printLine();
@@ -171,13 +174,15 @@ public class PowerDatacenter extends Datacenter {
 				minTime = time;
 			}
 
-			Log.formatLine("%.2f: [Host #%d] utilization is %.2f%%", currentTime, host.getId(),
-					host.getUtilizationOfCpu() * 100);
+			if (logging)
+				Log.formatLine("%.2f: [Host #%d] utilization is %.2f%%", currentTime, host.getId(),
+						host.getUtilizationOfCpu() * 100);
 		}
 
 		if (timeDiff > 0) {
-			Log.formatLine("\nEnergy consumption for the last time frame from %.2f to %.2f:", getLastProcessTime(),
-					currentTime);
+			if (logging)
+				Log.formatLine("\nEnergy consumption for the last time frame from %.2f to %.2f:", getLastProcessTime(),
+						currentTime);
 
 			for (PowerHost host : this.<PowerHost>getHostList()) {
 				double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
@@ -186,13 +191,16 @@ public class PowerDatacenter extends Datacenter {
 						utilizationOfCpu, timeDiff);
 				timeFrameDatacenterEnergy += timeFrameHostEnergy;
 
-				Log.printLine();
-				Log.formatLine("%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%", currentTime,
-						host.getId(), getLastProcessTime(), previousUtilizationOfCpu * 100, utilizationOfCpu * 100);
-				Log.formatLine("%.2f: [Host #%d] energy is %.2f W*sec", currentTime, host.getId(), timeFrameHostEnergy);
+				if (logging) {
+					Log.printLine();
+					Log.formatLine("%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%", currentTime,
+							host.getId(), getLastProcessTime(), previousUtilizationOfCpu * 100, utilizationOfCpu * 100);
+					Log.formatLine("%.2f: [Host #%d] energy is %.2f W*sec", currentTime, host.getId(), timeFrameHostEnergy);
+				}
 			}
 
-			Log.formatLine("\n%.2f: Data center's energy is %.2f W*sec\n", currentTime, timeFrameDatacenterEnergy);
+			if (logging)
+				Log.formatLine("\n%.2f: Data center's energy is %.2f W*sec\n", currentTime, timeFrameDatacenterEnergy);
 		}
 
 		setPower(getPower() + timeFrameDatacenterEnergy);
@@ -10,6 +10,7 @@ package org.cloudbus.cloudsim.sdn;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -43,6 +44,8 @@ public class Channel {
 	private final int chId;
 	private final double requestedBandwidth;	// Requested by user
 	
+	int completionIndex = -1;	// Position in the FlowCompletionQueue of the NOS, -1 if not there
+	
 	public Channel(int chId, int srcId, int dstId, List<Node> nodes, List<Link> links, double bandwidth) {
 		this.chId = chId;
 		this.srcId = srcId;
@@ -81,6 +84,16 @@ public class Channel {
 		nodes.get(nodes.size()-1).updateNetworkUtilization();
 	}
 	
+	/**
+	 * Adds to a set the channels going through the links of this channel in the
+	 * same direction, this one included if it is still on them.
+	 */
+	void collectChannelsSharingLinks(Set<Channel> channels) {
+		for(int i=0; i<nodes.size()-1; i++) {
+			channels.addAll(links.get(i).getChannels(nodes.get(i)));
+		}
+	}
+	
 	private double getLowestSharedBandwidth() {
 		// Get the lowest bandwidth along links in the channel
 		double lowestSharedBw = Double.POSITIVE_INFINITY;
@@ -294,6 +307,13 @@ public class Channel {
 		inTransmission.remove(transmission);
 	}
 
+	/**
+	 * @return true if some package finished its transmission since the last call to getArrivedPackages.
+	 */
+	public boolean hasArrivedPackages(){
+		return !completed.isEmpty();
+	}
+
 	/**
 	 * @return list of Packages whose transmission finished, or empty
 	 *         list if no package arrived.
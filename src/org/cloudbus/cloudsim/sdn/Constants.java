@@ -23,6 +23,7 @@ public class Constants {
 	public static final int SDN_INTERNAL_PACKAGE_PROCESS = SDN_BASE + 2; 
 	public static final int REQUEST_SUBMIT = SDN_BASE + 10;
 	public static final int REQUEST_COMPLETED = SDN_BASE + 11;
+	public static final int REQUEST_STREAM_READ = SDN_BASE + 12;	// Broker -> Broker.
 	public static final int APPLICATION_SUBMIT = SDN_BASE + 20;	// Broker -> Datacenter.
 	public static final int APPLICATION_SUBMIT_ACK = SDN_BASE + 21;
 }
@@ -0,0 +1,148 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of the channels with transmissions in progress, keyed
+ * by the time the next transmission of each channel completes. Each channel
+ * knows its position in the heap, so its key can be changed or the channel
+ * removed in O(log channels). Channels due at the same time come out in the
+ * order their key was set.
+ */
+class FlowCompletionQueue {
+
+	private Channel[] channels = new Channel[16];
+	private double[] times = new double[16];
+	private long[] serials = new long[16];
+	private int size;
+	private long nextSerial;
+
+	/**
+	 * Sets the time the next transmission of a channel completes, adding the
+	 * channel to the queue if needed. A channel completing nothing, i.e. with an
+	 * infinite time, is removed.
+	 */
+	public void schedule(Channel channel, double time) {
+		if (time == Double.POSITIVE_INFINITY) {
+			remove(channel);
+			return;
+		}
+		int index = channel.completionIndex;
+		if (index == -1) {
+			if (size == channels.length) {
+				int length = size << 1;
+				channels = Arrays.copyOf(channels, length);
+				times = Arrays.copyOf(times, length);
+				serials = Arrays.copyOf(serials, length);
+			}
+			index = size++;
+		} else if (times[index] == time) {
+			return;
+		}
+		set(index, channel, time, nextSerial++);
+		if (!siftUp(index))
+			siftDown(channel.completionIndex);
+	}
+
+	public void remove(Channel channel) {
+		int index = channel.completionIndex;
+		if (index == -1)
+			return;
+		channel.completionIndex = -1;
+		int last = --size;
+		if (index != last) {
+			set(index, channels[last], times[last], serials[last]);
+			if (!siftUp(index))
+				siftDown(index);
+		}
+		channels[last] = null;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the earliest completion time, or Double.POSITIVE_INFINITY if the
+	 * queue is empty.
+	 */
+	public double peekTime() {
+		return size == 0 ? Double.POSITIVE_INFINITY : times[0];
+	}
+
+	/**
+	 * Removes and returns the channel completing first.
+	 */
+	public Channel poll() {
+		if (size == 0)
+			return null;
+		Channel first = channels[0];
+		remove(first);
+		return first;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			channels[i].completionIndex = -1;
+			channels[i] = null;
+		}
+		size = 0;
+	}
+
+	private boolean siftUp(int index) {
+		int start = index;
+		Channel channel = channels[index];
+		double time = times[index];
+		long serial = serials[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!precedes(time, serial, times[parent], serials[parent]))
+				break;
+			set(index, channels[parent], times[parent], serials[parent]);
+			index = parent;
+		}
+		set(index, channel, time, serial);
+		return index != start;
+	}
+
+	private void siftDown(int index) {
+		Channel channel = channels[index];
+		double time = times[index];
+		long serial = serials[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = (index << 1) + 1;
+			int right = child + 1;
+			if (right < size && precedes(times[right], serials[right], times[child], serials[child]))
+				child = right;
+			if (!precedes(times[child], serials[child], time, serial))
+				break;
+			set(index, channels[child], times[child], serials[child]);
+			index = child;
+		}
+		set(index, channel, time, serial);
+	}
+
+	private void set(int index, Channel channel, double time, long serial) {
+		channels[index] = channel;
+		times[index] = time;
+		serials[index] = serial;
+		channel.completionIndex = index;
+	}
+
+	private static boolean precedes(double time, long serial, double otherTime, long otherSerial) {
+		return time < otherTime || (time == otherTime && serial < otherSerial);
+	}
+}
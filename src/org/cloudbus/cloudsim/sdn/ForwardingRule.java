@@ -8,14 +8,8 @@
 
 package org.cloudbus.cloudsim.sdn;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.cloudbus.cloudsim.Log;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 
 /**
  * ForwardingRule class is to represent a forwarding table in each switch.
@@ -27,10 +21,10 @@ import com.google.common.collect.Table;
  */
 public class ForwardingRule {
 	
-	Table<Integer, Integer, Map<Integer,Node>> table;
+	PackedKeyTable<Node> table;
 
 	public ForwardingRule(){
-		this.table = HashBasedTable.create();
+		this.table = new PackedKeyTable<Node>();
 	}
 	
 	public void clear(){
@@ -38,58 +32,40 @@ public class ForwardingRule {
 	}
 	
 	public void addRule(int src, int dest, int flowId, Node to){
-		Map<Integer, Node> map = table.get(src, dest);
-		if(map == null)
-			map = new HashMap<Integer, Node>();
-		map.put(flowId, to);
-		table.put(src, dest, map);
+		table.put(src, dest, flowId, to);
 	}
 	
 	public void removeRule(int src, int dest, int flowId){
-		Map<Integer, Node> map = table.get(src, dest);
-		map.remove(flowId);
-		if(map.isEmpty())
-			table.remove(src, dest);
-		else
-			table.put(src, dest, map);
+		table.remove(src, dest, flowId);
 	}
 
 	public Node getRoute(int src, int dest, int flowId) {
-		Map<Integer, Node> map = table.get(src, dest);
-		if(map==null)
-			return null;
-		
-		return map.get(flowId);
+		return table.get(src, dest, flowId);
 	}
 	
-	public void printForwardingTable(String thisNode) {
-		for(Integer rowK:table.rowKeySet()) {
-			Map<Integer, Map<Integer,Node>> row = table.row(rowK);
-			for(Integer colK: row.keySet()) {
-				Map<Integer, Node> nodes = row.get(colK);
-				
-				for(Integer flowId:nodes.keySet()) {
-					Node node = nodes.get(flowId);
-					if(node instanceof SDNHost) {
-						Log.printLine(thisNode + ": "+
-								NetworkOperatingSystem.debugVmIdName.get(rowK) + "->" + 
-								NetworkOperatingSystem.debugVmIdName.get(colK) + "->"+"(flow:"+flowId+")" + 
-								((SDNHost) node).getName());
-					}
-					else if(node instanceof Switch) {
-						Log.printLine(thisNode + ": "+
-								NetworkOperatingSystem.debugVmIdName.get(rowK) + "->" + 
-								NetworkOperatingSystem.debugVmIdName.get(colK) + "->"+"(flow:"+flowId+")" + 
-								((Switch) node).getName());
-					}
-					else {
-						Log.printLine(thisNode + ": "+
-								NetworkOperatingSystem.debugVmIdName.get(rowK) + "->" + 
-								NetworkOperatingSystem.debugVmIdName.get(colK) + "->"+"(flow:"+flowId+")" + 
-								node.getAddress());
-					}
+	public void printForwardingTable(final String thisNode) {
+		table.forEach(new PackedKeyTable.EntryVisitor<Node>() {
+			@Override
+			public void visit(int rowK, int colK, int flowId, Node node) {
+				if(node instanceof SDNHost) {
+					Log.printLine(thisNode + ": "+
+							NetworkOperatingSystem.debugVmIdName.get(rowK) + "->" + 
+							NetworkOperatingSystem.debugVmIdName.get(colK) + "->"+"(flow:"+flowId+")" + 
+							((SDNHost) node).getName());
+				}
+				else if(node instanceof Switch) {
+					Log.printLine(thisNode + ": "+
+							NetworkOperatingSystem.debugVmIdName.get(rowK) + "->" + 
+							NetworkOperatingSystem.debugVmIdName.get(colK) + "->"+"(flow:"+flowId+")" + 
+							((Switch) node).getName());
+				}
+				else {
+					Log.printLine(thisNode + ": "+
+							NetworkOperatingSystem.debugVmIdName.get(rowK) + "->" + 
+							NetworkOperatingSystem.debugVmIdName.get(colK) + "->"+"(flow:"+flowId+")" + 
+							node.getAddress());
 				}
 			}
-		}
+		});
 	}
 }
@@ -32,6 +32,10 @@ public class Link {
 	private List<Channel> upChannels;
 	private List<Channel> downChannels;
 	
+	// Dedicated channels among the above, in the same order
+	private List<Channel> upDedicatedChannels;
+	private List<Channel> downDedicatedChannels;
+	
 	public Link(Node highOrder, Node lowOrder, double latency, double bw) {
 		this.highOrder = highOrder;
 		this.lowOrder = lowOrder;
@@ -40,6 +44,8 @@ public class Link {
 		
 		this.upChannels = new ArrayList<Channel>();
 		this.downChannels = new ArrayList<Channel>();
+		this.upDedicatedChannels = new ArrayList<Channel>();
+		this.downDedicatedChannels = new ArrayList<Channel>();
 	}
 	
 	public Link(Node highOrder, Node lowOrder, double latency, double upBW, double downBW) {
@@ -94,7 +100,7 @@ public class Link {
 		return latency;
 	}
 	
-	private List<Channel> getChannels(Node from) {
+	List<Channel> getChannels(Node from) {
 		List<Channel> channels;
 		if(isUplink(from)) {
 			channels = this.upChannels;
@@ -106,6 +112,15 @@ public class Link {
 		return channels;
 	}
 	
+	private List<Channel> getDedicatedChannels(Node from) {
+		if(isUplink(from)) {
+			return this.upDedicatedChannels;
+		}
+		else {
+			return this.downDedicatedChannels;
+		}
+	}
+	
 	public double getDedicatedChannelAdjustFactor(Node from) {
 		double factor = 1.0;
 		double totalRequested = getRequestedBandwidthForDedicatedChannels(from);
@@ -119,14 +134,22 @@ public class Link {
 	
 	public boolean addChannel(Node from, Channel ch) {
 		getChannels(from).add(ch);
+		if(ch.getChId() != -1) {
+			// chId == -1 : default channel
+			getDedicatedChannels(from).add(ch);
+		}
 		return true;
 	}
 	
 	public boolean removeChannel(Channel ch) {
 		boolean ret = this.upChannels.remove(ch);
-		if(!ret) {
+		if(ret) {
+			this.upDedicatedChannels.remove(ch);
+		}
+		else {
 			// the channel is down link
 			ret = this.downChannels.remove(ch);
+			this.downDedicatedChannels.remove(ch);
 		}
 		return ret;
 	}
@@ -134,26 +157,40 @@ public class Link {
 	public double getAllocatedBandwidthForDedicatedChannels(Node from) {
 		
 		double bw=0;
-		for(Channel ch: getChannels(from)) {
-			if(ch.getChId() != -1) {
-				// chId == -1 : default channel
-				bw += ch.getAllocatedBandwidth();
-			}
+		for(Channel ch: getDedicatedChannels(from)) {
+			bw += ch.getAllocatedBandwidth();
 		}
 		return bw;
 	}
 
 	public double getRequestedBandwidthForDedicatedChannels(Node from) {
 		
+		double bw=0;
+		for(Channel ch: getDedicatedChannels(from)) {
+			bw += ch.getRequestedBandwidth();
+		}
+		return bw;
+	}
+	
+	/**
+	 * Returns the bandwidth allocated to all the channels going through this link
+	 * from the given node.
+	 */
+	public double getAllocatedBandwidth(Node from) {
 		double bw=0;
 		for(Channel ch: getChannels(from)) {
-			if(ch.getChId() != -1) {
-				// chId == -1 : default channel
-				bw += ch.getRequestedBandwidth();
-			}
+			bw += ch.getAllocatedBandwidth();
 		}
 		return bw;
 	}
+	
+	/**
+	 * Returns the fraction of the bandwidth of this link from the given node that
+	 * is allocated to channels.
+	 */
+	public double getUtilization(Node from) {
+		return getAllocatedBandwidth(from) / getBw(from);
+	}
 
 	public int getChannelCount(Node from) {
 		List<Channel> channels =  getChannels(from);
@@ -161,14 +198,7 @@ public class Link {
 	}
 	
 	public int getDedicatedChannelCount(Node from) {
-		int num=0;
-		for(Channel ch: getChannels(from)) {
-			if(ch.getChId() != -1) {
-				// chId == -1 : default channel
-				num ++;
-			}
-		}
-		return num;
+		return getDedicatedChannels(from).size();
 	}
 	
 	public int getSharedChannelCount(Node from) {
@@ -16,9 +16,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Host;
@@ -55,9 +57,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	String physicalTopologyFileName; 
 	protected PhysicalTopology topology;
 	//Hashtable<Integer,SDNHost> vmHostTable;
-	Hashtable<Package,Node> pkgTable;
 	
-	Hashtable<String, Channel> channelTable;
+	PackedKeyTable<Channel> channelTable;	// Source VM : Destination VM : Flow -> Channel
 
 	List<Host> hosts;
 	protected List<SDNHost> sdnhosts;
@@ -80,6 +81,19 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	public static int resolutionPlaces = 5;
 	public static int timeUnit = 1;	// 1: sec, 1000: msec
 	
+	/**
+	 * If true, a channel is brought up to date only when its transmissions or its
+	 * bandwidth change, and the next completion is taken from a heap of the
+	 * channels keyed by completion time, so a package costs O(log channels)
+	 * instead of an update of every channel. The progress of each channel is then
+	 * rounded once per change rather than once per network event, so completion
+	 * times can differ slightly from the default.
+	 */
+	public static boolean eventDrivenFlows = false;
+	
+	private FlowCompletionQueue completionQueue = new FlowCompletionQueue();
+	private double timerTime = Double.POSITIVE_INFINITY;	// Time of the pending SDN_INTERNAL_PACKAGE_PROCESS, with eventDrivenFlows
+	
 
 
 
@@ -96,8 +110,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		
 		this.physicalTopologyFileName = fileName;
 		
-		this.pkgTable = new Hashtable<Package, Node>();
-		this.channelTable = new Hashtable<String, Channel>();
+		this.channelTable = new PackedKeyTable<Channel>();
 		
 		initPhysicalTopology();
 	}
@@ -151,12 +164,12 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		for(Vm vm:this.vmList) {
 			Channel ch = this.findChannel(vm.getId(), destroyedVm.getId(), -1);
 			if(ch != null) {
-				this.removeChannel(getKey(vm.getId(), destroyedVm.getId(), -1));
+				this.removeChannel(vm.getId(), destroyedVm.getId(), -1);
 			}
 
 			ch = this.findChannel(destroyedVm.getId(), vm.getId(), -1);
 			if(ch != null) {
-				this.removeChannel(getKey(destroyedVm.getId(), vm.getId(), -1));
+				this.removeChannel(destroyedVm.getId(), vm.getId(), -1);
 			}
 
 		}
@@ -177,9 +190,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			return;
 		}
 		
-		updatePackageProcessing();
-		
-		pkgTable.put(pkg,sender);
+		if(!eventDrivenFlows)
+			updatePackageProcessing();
 		
 		Channel channel=findChannel(src, dst, flowId);
 		if(channel == null) {
@@ -192,6 +204,10 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			}
 			addChannel(src, dst, flowId, channel);
 		}
+		else if(eventDrivenFlows) {
+			// the share of each transmission is about to change
+			channel.updatePackageProcessing();
+		}
 		
 		double eft = channel.addTransmission(new Transmission(pkg));
 		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPackageToChannel ("+channel
@@ -199,17 +215,82 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 				NetworkOperatingSystem.debugVmIdName.get(src) + "->"+
 				NetworkOperatingSystem.debugVmIdName.get(dst) + ", flow ="+flowId + " / eft="+eft);
 
+		if(eventDrivenFlows)
+			scheduleCompletion(channel);
 		sendInternalEvent();
 	}
 	
 
 	private void internalPackageProcess() {
+		if(eventDrivenFlows) {
+			processDueChannels();
+			return;
+		}
 		if(updatePackageProcessing()) {
 			sendInternalEvent();
 		}
 	}
 	
+	/**
+	 * Brings the channels due now up to date, forwards their completed packages and
+	 * removes the channels left idle.
+	 */
+	private void processDueChannels() {
+		timerTime = Double.POSITIVE_INFINITY;
+		double now = CloudSim.clock();
+		List<Channel> dueChannels = new ArrayList<Channel>();
+		while(completionQueue.peekTime() <= now)
+			dueChannels.add(completionQueue.poll());
+		
+		for(Channel ch:dueChannels)
+			ch.updatePackageProcessing();
+		processCompletePackages(dueChannels);
+		
+		for(Channel ch:dueChannels) {
+			if(ch.getActiveTransmissionNum() == 0)
+				removeChannel(ch.getSrcId(), ch.getDstId(), ch.getChId());
+			else
+				scheduleCompletion(ch);
+		}
+		armTimer();
+	}
+	
+	/**
+	 * Puts a channel in the completion queue at the time its next transmission
+	 * completes, counted from the last update of the channel; a channel holding
+	 * completed packages is due now.
+	 */
+	private void scheduleCompletion(Channel ch) {
+		double time;
+		if(ch.hasArrivedPackages())
+			time = CloudSim.clock();
+		else if(ch.getActiveTransmissionNum() == 0)
+			time = Double.POSITIVE_INFINITY;
+		else
+			time = ch.getLastUpdateTime() + ch.nextFinishTime();
+		completionQueue.schedule(ch, time);
+	}
+	
+	/**
+	 * Keeps a single SDN_INTERNAL_PACKAGE_PROCESS pending, at the earliest
+	 * completion time, moving it only when that time changes.
+	 */
+	private void armTimer() {
+		double time = completionQueue.peekTime();
+		if(time == timerTime)
+			return;
+		if(timerTime != Double.POSITIVE_INFINITY)
+			CloudSim.cancelAll(getId(), new PredicateType(Constants.SDN_INTERNAL_PACKAGE_PROCESS));
+		timerTime = time;
+		if(time != Double.POSITIVE_INFINITY)
+			send(this.getId(), Math.max(0, time - CloudSim.clock()), Constants.SDN_INTERNAL_PACKAGE_PROCESS);
+	}
+	
 	private void sendInternalEvent() {
+		if(eventDrivenFlows) {
+			armTimer();
+			return;
+		}
 		CloudSim.cancelAll(getId(), new PredicateType(Constants.SDN_INTERNAL_PACKAGE_PROCESS));
 		
 		if(channelTable.size() != 0) {
@@ -223,7 +304,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	
 	private double nextFinishTime() {
 		double earliestEft = Double.POSITIVE_INFINITY;
-		for(Channel ch:channelTable.values()){
+		for(Channel ch:channelTable){
 			
 			double eft = ch.nextFinishTime();
 			if (eft<earliestEft){
@@ -243,7 +324,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		
 		LinkedList<Channel> completeChannels = new LinkedList<Channel>();
 		
-		for(Channel ch:channelTable.values()){
+		for(Channel ch:channelTable){
 			boolean isCompleted = ch.updatePackageProcessing();
 			needSendEvent = needSendEvent || isCompleted;
 			//completeChannels.add(ch.getArrivedPackages());
@@ -265,9 +346,6 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			
 			for (Transmission tr:ch.getArrivedPackages()){
 				Package pkg = tr.getPackage();
-				//Node sender = pkgTable.remove(pkg);
-				//Node nextHop = sender.getRoute(pkg.getOrigin(),pkg.getDestination(),pkg.getFlowId());
-				
 				Log.printLine(CloudSim.clock() + ": " + getName() + ": Package completed: "+pkg +". Send to destination:"+dest);
 				sendNow(dest.getAddress(),Constants.SDN_PACKAGE,pkg);
 			}
@@ -282,41 +360,59 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 	
 	private Channel findChannel(int from, int to, int channelId) {
-		// check if there is a pre-configured channel for this application
-		Channel channel=channelTable.get(getKey(from,to, channelId));
-
-		if (channel == null) {
-			//there is no channel for specific flow, find the default channel for this link
-			channel=channelTable.get(getKey(from,to));
-		}
-		return channel;
+		// check if there is a pre-configured channel for this application.
+		// Channels are always added with their flow, so a flow without a channel
+		// gets its own one rather than the default channel of the VMs.
+		return channelTable.get(from, to, channelId);
 	}
 	
 	private void addChannel(int src, int dst, int chId, Channel ch) {
 		//System.err.println("NOS.addChannel:"+getKey(src, dst, chId));
-		this.channelTable.put(getKey(src, dst, chId), ch);
+		this.channelTable.put(src, dst, chId, ch);
 		ch.initialize();
-		adjustAllChannels();
+		adjustChannelsSharingLinks(ch);
 	}
 	
-	private Channel removeChannel(String key) {
-		//System.err.println("NOS.removeChannel:"+key);
-		Channel ch = this.channelTable.remove(key);
+	private Channel removeChannel(int src, int dst, int chId) {
+		//System.err.println("NOS.removeChannel:"+getKey(src, dst, chId));
+		Channel ch = this.channelTable.remove(src, dst, chId);
+		if(eventDrivenFlows)
+			completionQueue.remove(ch);
 		ch.terminate();
-		adjustAllChannels();
+		adjustChannelsSharingLinks(ch);
 		return ch;
 	}
 	
-	private void adjustAllChannels() {
-		for(Channel ch:this.channelTable.values()) {
+	/**
+	 * Adjusts the bandwidth of the channels that a channel added or removed can
+	 * affect, to the values adjusting every channel would give. The bandwidth of
+	 * a dedicated channel only depends on the channels on its links, and the
+	 * bandwidth of a shared channel on those channels and on the bandwidth of
+	 * the dedicated ones: so the dedicated channels sharing a link with the
+	 * changed channel are adjusted first, then the shared channels sharing a link
+	 * with it or with a dedicated channel whose bandwidth changed.
+	 */
+	private void adjustChannelsSharingLinks(Channel changed) {
+		Set<Channel> neighbours = new LinkedHashSet<Channel>();
+		changed.collectChannelsSharingLinks(neighbours);
+		
+		Set<Channel> sharedCandidates = new LinkedHashSet<Channel>(neighbours);
+		for(Channel ch:neighbours) {
+			double previousBandwidth = ch.getAllocatedBandwidth();
 			if(ch.adjustDedicatedBandwidthAlongLink()) {
 				// Channel BW is changed. send event.
+				if(eventDrivenFlows)
+					scheduleCompletion(ch);
+				if(ch.getAllocatedBandwidth() != previousBandwidth)
+					ch.collectChannelsSharingLinks(sharedCandidates);
 			}
 		}
 		
-		for(Channel ch:this.channelTable.values()) {
+		for(Channel ch:sharedCandidates) {
 			if(ch.adjustSharedBandwidthAlongLink()) {
 				// Channel BW is changed. send event.
+				if(eventDrivenFlows)
+					scheduleCompletion(ch);
 			}
 		}
 	}
@@ -370,26 +466,21 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 	
 	private void updateChannel() {
-		List<String> removeCh = new ArrayList<String>();  
-		for(String key:this.channelTable.keySet()) {
-			Channel ch = this.channelTable.get(key);
+		List<Channel> removeCh = new ArrayList<Channel>();  
+		for(Channel ch:this.channelTable) {
 			if(ch.getActiveTransmissionNum() == 0) {
 				// No more job in channel. Delete
-				removeCh.add(key);
+				removeCh.add(ch);
 			}
 		}
 		
-		for(String key:removeCh) {
-			removeChannel(key);
+		for(Channel ch:removeCh) {
+			removeChannel(ch.getSrcId(), ch.getDstId(), ch.getChId());
 		}
 	}
 	
-	private String getKey(int origin, int destination) {
-		return origin+"-"+destination;
-	}
-	
 	private String getKey(int origin, int destination, int appId) {
-		return getKey(origin,destination)+"-"+appId;
+		return origin+"-"+destination+"-"+appId;
 	}
 
 
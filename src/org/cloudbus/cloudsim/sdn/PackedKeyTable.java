@@ -0,0 +1,217 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Map from (source, destination, id) keys of primitive ints, such as the VMs
+ * and the flow of a channel or a forwarding rule. The source and destination
+ * are packed into a long and kept with the id in primitive arrays, and the
+ * entries are found by open addressing, so that a lookup creates no object.
+ * The values are iterated in the order their key was first added.
+ * <p>
+ * Removed entries are left as holes and squeezed out when the entry arrays are
+ * full, so values can be removed, but not added, while iterating.
+ */
+class PackedKeyTable<V> implements Iterable<V> {
+
+	private static final int EMPTY = -1;
+
+	/**
+	 * Receives the entries of a table, in order.
+	 */
+	interface EntryVisitor<V> {
+		void visit(int src, int dst, int id, V value);
+	}
+
+	// Entry of each slot, or EMPTY; linear probing from the hash of the key
+	private int[] slots;
+	private int mask;
+
+	// Entries in the order they were added; the value is null once removed
+	private long[] pairs;
+	private int[] ids;
+	private Object[] values;
+	private int entries;
+	private int size;
+
+	public PackedKeyTable() {
+		allocate(8);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public V get(int src, int dst, int id) {
+		int entry = slots[slotOf(pack(src, dst), id)];
+		return entry == EMPTY ? null : value(entry);
+	}
+
+	/**
+	 * Maps a key to a value, and returns the value it was mapped to before, or
+	 * null.
+	 */
+	public V put(int src, int dst, int id, V value) {
+		if(value == null)
+			throw new IllegalArgumentException("PackedKeyTable.put(): null value");
+		long pair = pack(src, dst);
+		int slot = slotOf(pair, id);
+		int entry = slots[slot];
+		if(entry != EMPTY) {
+			V previous = value(entry);
+			values[entry] = value;
+			return previous;
+		}
+		if(entries == values.length) {
+			// squeeze out the removed entries, and grow if still more than half full
+			allocate(size * 2 >= values.length ? values.length * 2 : values.length);
+			slot = slotOf(pair, id);
+		}
+		entry = entries++;
+		pairs[entry] = pair;
+		ids[entry] = id;
+		values[entry] = value;
+		slots[slot] = entry;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Removes the value of a key, and returns it, or null if there was none.
+	 */
+	public V remove(int src, int dst, int id) {
+		int slot = slotOf(pack(src, dst), id);
+		int entry = slots[slot];
+		if(entry == EMPTY)
+			return null;
+		V previous = value(entry);
+		values[entry] = null;
+		size--;
+
+		// shift back the entries that probed past the freed slot
+		int hole = slot;
+		for(int next = (slot + 1) & mask; slots[next] != EMPTY; next = (next + 1) & mask) {
+			int home = hash(pairs[slots[next]], ids[slots[next]]);
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				slots[hole] = slots[next];
+				hole = next;
+			}
+		}
+		slots[hole] = EMPTY;
+		return previous;
+	}
+
+	public void clear() {
+		Arrays.fill(slots, EMPTY);
+		Arrays.fill(values, 0, entries, null);
+		entries = 0;
+		size = 0;
+	}
+
+	public void forEach(EntryVisitor<V> visitor) {
+		for(int i = 0; i < entries; i++) {
+			if(values[i] != null)
+				visitor.visit((int) (pairs[i] >>> 32), (int) pairs[i], ids[i], value(i));
+		}
+	}
+
+	@Override
+	public Iterator<V> iterator() {
+		return new Iterator<V>() {
+			private int next = skipRemoved(0);
+
+			@Override
+			public boolean hasNext() {
+				return next < entries;
+			}
+
+			@Override
+			public V next() {
+				if(next >= entries)
+					throw new NoSuchElementException();
+				V value = value(next);
+				next = skipRemoved(next + 1);
+				return value;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private int skipRemoved(int entry) {
+		while(entry < entries && values[entry] == null)
+			entry++;
+		return entry;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(int entry) {
+		return (V) values[entry];
+	}
+
+	/**
+	 * Returns the slot of a key, or the empty slot where it would go.
+	 */
+	private int slotOf(long pair, int id) {
+		int slot = hash(pair, id);
+		while(true) {
+			int entry = slots[slot];
+			if(entry == EMPTY || (pairs[entry] == pair && ids[entry] == id))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private int hash(long pair, int id) {
+		long h = (pair ^ ((long) id << 16)) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Moves the entries left into arrays with room for the given number of them.
+	 */
+	private void allocate(int capacity) {
+		long[] oldPairs = pairs;
+		int[] oldIds = ids;
+		Object[] oldValues = values;
+		int oldEntries = entries;
+
+		pairs = new long[capacity];
+		ids = new int[capacity];
+		values = new Object[capacity];
+		slots = new int[capacity * 2];
+		Arrays.fill(slots, EMPTY);
+		mask = slots.length - 1;
+		entries = 0;
+		for(int i = 0; i < oldEntries; i++) {
+			if(oldValues[i] == null)
+				continue;
+			pairs[entries] = oldPairs[i];
+			ids[entries] = oldIds[i];
+			values[entries] = oldValues[i];
+			slots[slotOf(oldPairs[i], oldIds[i])] = entries;
+			entries++;
+		}
+	}
+
+	private static long pack(int src, int dst) {
+		return ((long) src << 32) | (dst & 0xFFFFFFFFL);
+	}
+}
@@ -13,10 +13,8 @@ import java.util.Hashtable;
 
 import org.cloudbus.cloudsim.network.datacenter.AggregateSwitch;
 
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Table;
 
 
 /**
@@ -29,17 +27,17 @@ import com.google.common.collect.Table;
 public class PhysicalTopology {
 	
 	Hashtable<Integer,Node> nodesTable;	// Address -> Node
-	Table<Integer, Integer, Link> links; 	// From : To -> Link
+	PackedKeyTable<Link> links; 	// From : To : 0 -> Link
 	Multimap<Node,Link> nodeLinks;	// Node -> all Links
 
 	public PhysicalTopology() {
 		nodesTable = new Hashtable<Integer,Node>();
 		nodeLinks = HashMultimap.create();
-		links = HashBasedTable.create();
+		links = new PackedKeyTable<Link>();
 	}
 	
 	public Link getLink(int from, int to) {
-		return links.get(from, to);
+		return links.get(from, to, 0);
 	}
 	public Node getNode(int id) {
 		return nodesTable.get(id);
@@ -140,7 +138,7 @@ public class PhysicalTopology {
 			throw new IllegalArgumentException("Unknown node on link:"+nodesTable.get(from).getAddress()+"->"+nodesTable.get(to).getAddress());
 		}
 		
-		if (links.contains(fromNode.getAddress(), toNode.getAddress())){
+		if (links.get(fromNode.getAddress(), toNode.getAddress(), 0) != null){
 			throw new IllegalArgumentException("Link added twice:"+fromNode.getAddress()+"->"+toNode.getAddress());
 		}
 		
@@ -167,8 +165,8 @@ public class PhysicalTopology {
 		Link l = new Link(fromNode, toNode, latency, bw);
 		
 		// Two way links (From -> to, To -> from)
-		links.put(from, to, l);
-		links.put(to, from, l);
+		links.put(from, to, 0, l);
+		links.put(to, from, 0, l);
 		
 		nodeLinks.put(fromNode, l);
 		nodeLinks.put(toNode, l);
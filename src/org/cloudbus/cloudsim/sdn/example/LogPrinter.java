@@ -126,12 +126,9 @@ public class LogPrinter {
 	
 	private static double startTime, finishTime;
 	public static void printWorkloadList(List<Workload> wls) {
-		int[] appIdNum = new int[SDNBroker.appId];
-		double[] appIdTime = new double[SDNBroker.appId];
-		double[] appIdStartTime = new double[SDNBroker.appId];
-		double[] appIdFinishTime = new double[SDNBroker.appId];
+		WorkloadStatistics statistics = new WorkloadStatistics(SDNBroker.appId);
 		
-		double serveTime, totalTime = 0;
+		double serveTime;
 
 		Log.printLine();
 		Log.printLine("========== DETAILED RESPONSE TIME OF WORKLOADS ===========");
@@ -151,28 +148,52 @@ public class LogPrinter {
 			
 			serveTime= (finishTime - startTime);
 			Log.print(String.format(fFloat, serveTime));
-			totalTime += serveTime;
 			
-			appIdNum[wl.appId] ++;	//How many workloads in this app.
-			appIdTime[wl.appId] += serveTime;
-			if(appIdStartTime[wl.appId] <=0) {
-				appIdStartTime[wl.appId] = wl.time;
-			}
-			appIdFinishTime[wl.appId] = wl.time;
+			statistics.addResponse(wl.appId, serveTime);
+			statistics.addRequest(wl.appId, wl.time);
 			Log.printLine();
 		}
 
+		printWorkloadStatistics(statistics);
+	}
+	
+	public static void printWorkloadStatistics(WorkloadStatistics statistics) {
 		Log.printLine("========== AVERAGE RESULT OF WORKLOADS ===========");
-		for(int i=0; i<SDNBroker.appId; i++) {
-			Log.printLine("App Id ("+i+"): "+appIdNum[i]+" requests, Start=" + appIdStartTime[i]+
-					", Finish="+appIdFinishTime[i]+", Rate="+(double)appIdNum[i]/(appIdFinishTime[i] - appIdStartTime[i])+
-					" req/sec, Response time=" + appIdTime[i]/appIdNum[i]);
+		for(int i=0; i<statistics.getAppNum(); i++) {
+			int appIdNum = statistics.getRequestNum(i);
+			double appIdStartTime = statistics.getStartTime(i);
+			double appIdFinishTime = statistics.getFinishTime(i);
+			Log.printLine("App Id ("+i+"): "+appIdNum+" requests, Start=" + appIdStartTime+
+					", Finish="+appIdFinishTime+", Rate="+(double)appIdNum/(appIdFinishTime - appIdStartTime)+
+					" req/sec, Response time=" + statistics.getTotalResponseTime(i)/appIdNum);
 		}
 		
 		//printGroupStatistics(WORKLOAD_GROUP_PRIORITY, appIdNum, appIdTime);
 		
-		Log.printLine("Average Response Time:"+(totalTime / wls.size()));
-		
+		Log.printLine("Average Response Time:"+statistics.getAverageResponseTime());
+	}
+	
+	/**
+	 * Returns the time from the start of the first processing of a completed
+	 * request to the end of its last processing, as printed by printWorkloadList.
+	 */
+	public static double getResponseTime(Request req) {
+		startTime = finishTime = -1;
+		addProcessingTimes(req);
+		return finishTime - startTime;
+	}
+	
+	private static void addProcessingTimes(Request req) {
+		for(Activity act:req.getRemovedActivities()) {
+			if(act instanceof Transmission) {
+				addProcessingTimes(((Transmission)act).getPackage().getPayload());
+			}
+			else {
+				Processing pr=(Processing)act;
+				if(startTime == -1) startTime = pr.getCloudlet().getExecStartTime();
+				finishTime=pr.getCloudlet().getFinishTime();
+			}
+		}
 	}
 
 	private static void printRequestTitle(Request req) {
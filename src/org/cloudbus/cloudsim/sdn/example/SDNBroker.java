@@ -8,7 +8,9 @@
 package org.cloudbus.cloudsim.sdn.example;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.Log;
@@ -19,7 +21,9 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.sdn.Constants;
+import org.cloudbus.cloudsim.sdn.Request;
 import org.cloudbus.cloudsim.sdn.SDNDatacenter;
+import org.cloudbus.cloudsim.sdn.Transmission;
 
 /**
  * Broker class for CloudSimSDN example. This class represents a broker (Service Provider)
@@ -30,6 +34,19 @@ import org.cloudbus.cloudsim.sdn.SDNDatacenter;
  */
 public class SDNBroker extends SimEntity {
 
+	/**
+	 * If set, each workload file is read while the simulation runs, a window of
+	 * requests at a time, rather than read whole and submitted at start. Only the
+	 * requests not completed yet are kept: getCloudletReceivedList() and
+	 * getWorkloads() stay empty, and the results are in getWorkloadStatistics().
+	 * The requests of a file must be in time order; a request earlier than the
+	 * ones before it is submitted late.
+	 */
+	public static boolean streamWorkloads = false;
+	
+	/** Requests of each streamed file submitted ahead of the simulation clock */
+	public static int streamWindow = 1000;
+	
 	private SDNDatacenter datacenter = null;
 	private String applicationFileName = null;
 	private List<String> workloadFileNames=null;
@@ -37,11 +54,15 @@ public class SDNBroker extends SimEntity {
 	private List<Cloudlet> cloudletList;
 	private List<Workload> workloads;
 	
+	private WorkloadStatistics statistics;
+	private Map<Request, Workload> pendingWorkloads;	// Streamed workloads, by their last request
+	
 	public SDNBroker(String name) throws Exception {
 		super(name);
 		this.workloadFileNames = new ArrayList<String>();
 		this.cloudletList = new ArrayList<Cloudlet>();
 		this.workloads = new ArrayList<Workload>();
+		this.pendingWorkloads = new IdentityHashMap<Request, Workload>();
 	}
 	
 	@Override
@@ -72,6 +93,7 @@ public class SDNBroker extends SimEntity {
 			case CloudSimTags.VM_CREATE_ACK: 	processVmCreate(ev);			break;
 			case Constants.APPLICATION_SUBMIT_ACK: 		applicationSubmitCompleted(ev); break;
 			case Constants.REQUEST_COMPLETED:	requestCompleted(ev); break;
+			case Constants.REQUEST_STREAM_READ:	readRequests((RequestStream) ev.getData()); break;
 			default: System.out.println("Unknown event received by "+super.getName()+". Tag:"+ev.getTag());
 		}
 	}
@@ -80,7 +102,10 @@ public class SDNBroker extends SimEntity {
 	}
 	
 	private void requestCompleted(SimEvent ev) {
-		
+		Workload wl = this.pendingWorkloads.remove(ev.getData());
+		if(wl != null) {
+			this.statistics.addResponse(wl.appId, LogPrinter.getResponseTime(wl.request));
+		}
 	}
 	
 	public List<Cloudlet> getCloudletReceivedList() {
@@ -90,6 +115,9 @@ public class SDNBroker extends SimEntity {
 	public static int appId = 0;
 	
 	private void applicationSubmitCompleted(SimEvent ev) {
+		if(streamWorkloads)
+			this.statistics = new WorkloadStatistics(SDNBroker.appId + this.workloadFileNames.size());
+		
 		for(String workloadFileName:this.workloadFileNames) {
 			scheduleRequest(workloadFileName);
 			SDNBroker.appId++;
@@ -98,7 +126,12 @@ public class SDNBroker extends SimEntity {
 	
 	private void scheduleRequest(String workloadFile) {
 		WorkloadParser rp = new WorkloadParser(workloadFile, this.getId(), new UtilizationModelFull(), 
-				this.datacenter.getVmNameIdTable(), this.datacenter.getFlowNameIdTable());
+				this.datacenter.getVmNameIdTable(), this.datacenter.getFlowNameIdTable(), streamWorkloads);
+		
+		if(streamWorkloads) {
+			readRequests(new RequestStream(rp, SDNBroker.appId, CloudSim.clock()));
+			return;
+		}
 		
 		for(Workload wl: rp.getWorkloads()) {
 			send(this.datacenter.getId(), wl.time, Constants.REQUEST_SUBMIT, wl.request);
@@ -112,6 +145,61 @@ public class SDNBroker extends SimEntity {
 	public List<Workload> getWorkloads() {
 		return this.workloads;
 	}
+	
+	/**
+	 * Returns the results of the streamed workloads, or null if the workloads
+	 * are not streamed.
+	 */
+	public WorkloadStatistics getWorkloadStatistics() {
+		return this.statistics;
+	}
+	
+	/**
+	 * Workload file being streamed.
+	 */
+	private static class RequestStream {
+		final WorkloadParser parser;
+		final int appId;
+		final double startTime;	// The request times of the file start from it
+		
+		RequestStream(WorkloadParser parser, int appId, double startTime) {
+			this.parser = parser;
+			this.appId = appId;
+			this.startTime = startTime;
+		}
+	}
+	
+	/**
+	 * Submits the next window of requests of a streamed file, and reads the
+	 * following window when the last of them is submitted.
+	 */
+	private void readRequests(RequestStream stream) {
+		double lastSendTime = CloudSim.clock();
+		int num = 0;
+		Workload wl;
+		while(num < streamWindow && (wl = stream.parser.nextWorkload()) != null) {
+			wl.appId = stream.appId;
+			this.statistics.addRequest(wl.appId, wl.time);
+			this.pendingWorkloads.put(getLastRequest(wl.request), wl);
+			
+			// Sent as if at the start of the file, like the requests of files read whole
+			double sendTime = Math.max(stream.startTime + wl.time, CloudSim.clock());
+			sendLater(sendTime, this.datacenter.getId(), 0, Constants.REQUEST_SUBMIT, wl.request);
+			lastSendTime = Math.max(lastSendTime, sendTime);
+			num++;
+		}
+		
+		if(num == streamWindow)
+			sendLater(lastSendTime, this.getId(), 0, Constants.REQUEST_STREAM_READ, stream);
+	}
+	
+	private static Request getLastRequest(Request req) {
+		Transmission tr;
+		while((tr = req.getNextTransmission()) != null) {
+			req = tr.getPackage().getPayload();
+		}
+		return req;
+	}
 	/*
 	private static int reqId=0; 
 	private void scheduleRequestTest() {
@@ -172,8 +172,13 @@ public class SDNExample {
 			if(SDNExample.logEnabled) 
 				LogPrinter.printCloudletList(newList);
 			
-			List<Workload> wls = broker.getWorkloads();
-			LogPrinter.printWorkloadList(wls);
+			if(SDNBroker.streamWorkloads) {
+				LogPrinter.printWorkloadStatistics(broker.getWorkloadStatistics());
+			}
+			else {
+				List<Workload> wls = broker.getWorkloads();
+				LogPrinter.printWorkloadList(wls);
+			}
 			//*/
 			
 			// Print hosts' and switches' total utilization.
@@ -8,9 +8,10 @@
 package org.cloudbus.cloudsim.sdn.example;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -31,6 +32,10 @@ import org.cloudbus.cloudsim.sdn.Transmission;
  *                         vm_name(2), pkt_size(2), cloudlet_len(2),
  *                         ...
  * 
+ * The file is either parsed whole when the parser is created, or streamed: its
+ * workloads are then read one at a time by {@link #nextWorkload()} and no list
+ * of them or of their cloudlets is kept.
+ * 
  * @author Jungmin Son
  * @since CloudSimSDN 1.0
  */
@@ -46,16 +51,30 @@ public class WorkloadParser {
 	private List<Workload> workloads;
 	private List<Cloudlet> lastCloudlets;
 	private List<Cloudlet> allCloudlets;
+	private final boolean streaming;
+	private BufferedReader reader;	// open until the last workload is read
+	
+	// Characters read ahead from the file at once
+	private static final int READ_AHEAD = 64 * 1024;
 	
 	public WorkloadParser(String file, int userId, UtilizationModel cloudletUtilModel, 
 			Map<String, Integer> vmNameIdMap, Map<String, Integer> flowNameIdMap) {
+		this(file, userId, cloudletUtilModel, vmNameIdMap, flowNameIdMap, false);
+	}
+	
+	public WorkloadParser(String file, int userId, UtilizationModel cloudletUtilModel, 
+			Map<String, Integer> vmNameIdMap, Map<String, Integer> flowNameIdMap, boolean streaming) {
 		this.file = file;
 		this.userId = userId;
 		this.utilizationModel = cloudletUtilModel;
 		this.vmNames = vmNameIdMap;
 		this.flowNames = flowNameIdMap;
+		this.streaming = streaming;
 		
-		startParsing();
+		if(streaming)
+			openFile();
+		else
+			startParsing();
 	}
 	
 	public List<Workload> getWorkloads() {
@@ -105,7 +124,8 @@ public class WorkloadParser {
 
 		Request req = new Request(reqId++, userId);
 		Cloudlet cl = generateCloudlet(fromVmId, (int) cloudletLen);
-		this.allCloudlets.add(cl);
+		if(!streaming)
+			this.allCloudlets.add(cl);
 		
 		Processing proc = new Processing(cl);
 		req.addActivity(proc);
@@ -130,7 +150,8 @@ public class WorkloadParser {
 			req.addActivity(trans);
 		} else {
 			// this is the last request.
-			this.lastCloudlets.add(cl);
+			if(!streaming)
+				this.lastCloudlets.add(cl);
 		}
 		return req;
 	}
@@ -140,48 +161,73 @@ public class WorkloadParser {
 		this.lastCloudlets = new ArrayList<Cloudlet>();
 		this.allCloudlets = new ArrayList<Cloudlet>();
 		
-		BufferedReader br = null;
+		openFile();
+		
+		Workload tr;
+		while((tr = nextWorkload()) != null) {
+			workloads.add(tr);
+		}
+	}
+	
+	private void openFile() {
 		try {
-			br = new BufferedReader(new FileReader(file));
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
+			reader = new BufferedReader(new InputStreamReader(Files.newInputStream(Paths.get(file))), READ_AHEAD);
+			
+			@SuppressWarnings("unused")
+			String head=reader.readLine();
+			//System.out.println("Headline: "+ head);
+		} catch (IOException e) {
 			e.printStackTrace();
+			close();
 		}
+	}
+	
+	/**
+	 * Reads the next workload of the file.
+	 * 
+	 * @return the workload, or null at the end of the file
+	 */
+	public Workload nextWorkload() {
+		if(reader == null)
+			return null;
 		
-		String line;
+		String line = null;
 		try {
-			@SuppressWarnings("unused")
-			String head=br.readLine();
-			//System.out.println("Headline: "+ head);
-			
-			while ((line = br.readLine()) != null) {
-				//System.out.println("parsing:"+line);
-				
-				Workload tr = new Workload();
-				
-				String[] splitLine = line.split(",");
-				Queue<String> lineitems = new LinkedList<String>(Arrays.asList(splitLine));
-				
-				tr.time = Double.parseDouble(lineitems.poll());
-				
-				String vmName = lineitems.poll();
-				tr.submitVmId = getVmId(vmName);
-				
-				tr.submitPktSize = Integer.parseInt(lineitems.poll());
-				
-				tr.request = parseRequest(tr.submitVmId, lineitems);
-				
-				workloads.add(tr);
-			}
+			line = reader.readLine();
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
+		if(line == null) {
+			close();
+			return null;
+		}
+		//System.out.println("parsing:"+line);
+		
+		Workload tr = new Workload();
+		
+		String[] splitLine = line.split(",");
+		Queue<String> lineitems = new LinkedList<String>(Arrays.asList(splitLine));
+		
+		tr.time = Double.parseDouble(lineitems.poll());
+		
+		String vmName = lineitems.poll();
+		tr.submitVmId = getVmId(vmName);
+		
+		tr.submitPktSize = Integer.parseInt(lineitems.poll());
+		
+		tr.request = parseRequest(tr.submitVmId, lineitems);
+		
+		return tr;
+	}
+	
+	private void close() {
+		if(reader == null)
+			return;
 		try {
-			br.close();
+			reader.close();
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
+		reader = null;
 	}
 }
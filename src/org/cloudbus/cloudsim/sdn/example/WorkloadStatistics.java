@@ -0,0 +1,79 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.example;
+
+/**
+ * Number of requests, response times and request times of the workloads of
+ * each application, from which the average results are printed.
+ *
+ * @see LogPrinter#printWorkloadStatistics(WorkloadStatistics)
+ */
+public class WorkloadStatistics {
+	private final int[] appIdNum;
+	private final double[] appIdTime;
+	private final double[] appIdStartTime;
+	private final double[] appIdFinishTime;
+	private double totalTime = 0;
+	private int workloadNum = 0;
+
+	public WorkloadStatistics(int appNum) {
+		this.appIdNum = new int[appNum];
+		this.appIdTime = new double[appNum];
+		this.appIdStartTime = new double[appNum];
+		this.appIdFinishTime = new double[appNum];
+	}
+
+	/**
+	 * Records the request time of a workload. The workloads of an application
+	 * must be recorded in the order of its file.
+	 */
+	public void addRequest(int appId, double time) {
+		if(appIdStartTime[appId] <=0) {
+			appIdStartTime[appId] = time;
+		}
+		appIdFinishTime[appId] = time;
+	}
+
+	/**
+	 * Records the response time of a completed workload.
+	 */
+	public void addResponse(int appId, double serveTime) {
+		totalTime += serveTime;
+		appIdNum[appId] ++;	//How many workloads in this app.
+		appIdTime[appId] += serveTime;
+		workloadNum++;
+	}
+
+	public int getAppNum() {
+		return appIdNum.length;
+	}
+
+	public int getRequestNum(int appId) {
+		return appIdNum[appId];
+	}
+
+	public double getTotalResponseTime(int appId) {
+		return appIdTime[appId];
+	}
+
+	public double getStartTime(int appId) {
+		return appIdStartTime[appId];
+	}
+
+	public double getFinishTime(int appId) {
+		return appIdFinishTime[appId];
+	}
+
+	public double getAverageResponseTime() {
+		return totalTime / workloadNum;
+	}
+
+	public int getWorkloadNum() {
+		return workloadNum;
+	}
+}
@@ -99,7 +99,44 @@ public class PhysicalTopologyGenerator {
 			}
 		}
 	}
-	
+
+	/**
+	 * Creates a k-ary fat tree: (k/2)^2 core switches, and k pods of k/2
+	 * aggregation and k/2 edge switches, each edge switch serving k/2 hosts.
+	 * The aggregation switch j of every pod is linked to the core switches
+	 * j*k/2 to (j+1)*k/2-1.
+	 */
+	public void createFatTreeTopology(HostSpec hostSpec, long swIops, long swBw, int k, double latency) {
+		if(k < 2 || k % 2 != 0)
+			throw new IllegalArgumentException("Fat tree arity must be even: "+k);
+		int half = k/2;
+
+		SwitchSpec[] cores = new SwitchSpec[half*half];
+		for(int c=0; c<cores.length; c++) {
+			cores[c] = addSwitch("c"+c, "core", swBw, swIops);
+		}
+
+		for(int p=0; p<k; p++) {
+			SwitchSpec[] aggs = new SwitchSpec[half];
+			for(int j=0; j<half; j++) {
+				aggs[j] = addSwitch("a_"+p+"_"+j, "aggregate", swBw, swIops);
+				for(int c=j*half; c<(j+1)*half; c++) {
+					addLink(cores[c], aggs[j], latency);
+				}
+			}
+			for(int i=0; i<half; i++) {
+				SwitchSpec e = addSwitch("e_"+p+"_"+i, "edge", swBw, swIops);
+				for(int j=0; j<half; j++) {
+					addLink(aggs[j], e, latency);
+				}
+				for(int h=0; h<half; h++) {
+					String hostname = "h_" + p + "_" + i + "_" + h;
+					addLink(e, addHost(hostname, hostSpec), latency);
+				}
+			}
+		}
+	}
+
 	private List<HostSpec> hosts = new ArrayList<HostSpec>();
 	private List<SwitchSpec> switches = new ArrayList<SwitchSpec>();
 	private List<LinkSpec> links = new ArrayList<LinkSpec>();
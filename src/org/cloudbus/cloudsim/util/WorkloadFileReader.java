@@ -2,20 +2,32 @@
  * Title:        CloudSim Toolkit
  * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
  * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
- *
+ * 
  * Copyright (c) 2009-2012, The University of Melbourne, Australia
  */
 
 package org.cloudbus.cloudsim.util;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -35,7 +47,8 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * class <tt>each with a unique 
  *      	 entity name</tt>.
  * <li>If size of the trace file is huge or contains lots of traces please increase the JVM heap
- * size accordingly by using <tt>java -Xmx</tt> option when running the simulation.
+ * size accordingly by using <tt>java -Xmx</tt> option when running the simulation, or go through
+ * the jobs with {@link #iterateWorkload()}, which creates them only as they are needed.
  * <li>The default job file size for sending to and receiving from a resource is
  * {@link gridsim.net.Link#DEFAULT_MTU}. However, you can specify the file size by using
  * {@link #setGridletFileSize(int)}.
@@ -45,6 +58,10 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * processor runs job #1 for 100 seconds, if the processors have the same specification.
  * </ul>
  * <p>
+ * An ASCII text file is memory-mapped and split at line boundaries into chunks that are parsed
+ * in parallel by {@link #getThreads()} threads, while zip and gz files are parsed as they are
+ * decompressed. The fields are read straight from the bytes of each line, without creating strings.
+ * <p>
  * By default, this class follows the standard workload format as specified in <a
  * href="http://www.cs.huji.ac.il/labs/parallel/workload/">
  * http://www.cs.huji.ac.il/labs/parallel/workload/</a> <br>
@@ -96,7 +113,13 @@ public class WorkloadFileReader implements WorkloadModel {
 	// comment
 	private static final int IRRELEVANT = -1; // irrelevant number
 
-	private String[] fieldArray = null; // a temp array storing all the fields
+	private int threads = Runtime.getRuntime().availableProcessors(); // threads parsing a text file
+
+	private static final int WINDOW_SIZE = 1 << 26; // bytes of a file mapped at a time
+
+	private static final int MIN_CHUNK_SIZE = 1 << 22; // bytes of a text file parsed by a thread
+
+	private static final int BUFFER_SIZE = 1 << 16; // bytes decompressed at a time
 
 	/**
 	 * Create a new {@link WorkloadFileReader} object.
@@ -139,9 +162,6 @@ public class WorkloadFileReader implements WorkloadModel {
 		if (jobs == null) {
 			jobs = new ArrayList<Cloudlet>();
 
-			// create a temp array
-			fieldArray = new String[MAX_FIELD];
-
 			try {
 				if (file.getName().endsWith(".gz")) {
 					readGZIPFile(file);
@@ -158,6 +178,21 @@ public class WorkloadFileReader implements WorkloadModel {
 		return jobs;
 	}
 
+	/**
+	 * Reads the jobs from the file one at the time, as they are requested from the returned
+	 * iterator, so that the jobs need not be held in memory all together. The jobs are the same as
+	 * the ones of {@link #generateWorkload()}, in the same order. The iterator releases the file
+	 * once all jobs are read, or when it is closed.
+	 * 
+	 * @return an iterator over the jobs of the file
+	 * @throws IOException if the file cannot be opened
+	 * @throws IllegalStateException wrapping the {@link IOException} of an error reading the file
+	 *         while iterating
+	 */
+	public WorkloadIterator iterateWorkload() throws IOException {
+		return new WorkloadIterator();
+	}
+
 	/**
 	 * Identifies the start of a comment line.
 	 * 
@@ -246,150 +281,82 @@ public class WorkloadFileReader implements WorkloadModel {
 		return true;
 	}
 
+	/**
+	 * Gets the number of threads parsing an ASCII text file.
+	 * 
+	 * @return the number of threads, by default the number of available processors
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads parsing an ASCII text file. This method should be called before
+	 * {@link #generateWorkload()}.
+	 * 
+	 * @param threads the number of threads
+	 * @throws IllegalArgumentException if the number of threads is not positive
+	 * @pre threads > 0
+	 * @post $none
+	 */
+	public void setThreads(final int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Invalid number of threads.");
+		}
+		this.threads = threads;
+	}
+
 	// ------------------- PRIVATE METHODS -------------------
 
 	/**
-	 * Creates a Gridlet with the given information and adds to the list
+	 * Creates a Gridlet with the given information
 	 * 
 	 * @param id a Gridlet ID
-	 * @param submitTime Gridlet's submit time
 	 * @param runTime Gridlet's run time
 	 * @param numProc number of processors
-	 * @param reqRunTime user estimated run time
-	 * @param userID user id
-	 * @param groupID user's group id
+	 * @return the Gridlet
 	 * @pre id >= 0
-	 * @pre submitTime >= 0
 	 * @pre runTime >= 0
 	 * @pre numProc > 0
 	 * @post $none
 	 */
-	private void createJob(
-			final int id,
-			final long submitTime,
-			final int runTime,
-			final int numProc,
-			final int reqRunTime,
-			final int userID,
-			final int groupID) {
+	private Cloudlet createJob(final int id, final int runTime, final int numProc) {
 		// create the cloudlet
 		final int len = runTime * rating;
 		UtilizationModel utilizationModel = new UtilizationModelFull();
-		final Cloudlet wgl = new Cloudlet(
-				id,
-				len,
-				numProc,
-				0,
-				0,
-				utilizationModel,
-				utilizationModel,
-				utilizationModel);
-		jobs.add(wgl);
+		return new Cloudlet(id, len, numProc, 0, 0, utilizationModel, utilizationModel, utilizationModel);
 	}
 
 	/**
-	 * Extracts relevant information from a given array
+	 * Creates a tokenizer of the lines of the file, with the fields and comment set so far.
 	 * 
-	 * @param array an array of String
-	 * @param line a line number
-	 * @pre array != null
-	 * @pre line > 0
+	 * @return the tokenizer
 	 */
-	private void extractField(final String[] array, final int line) {
-		try {
-			Integer obj = null;
-
-			// get the job number
-			int id = 0;
-			if (JOB_NUM == IRRELEVANT) {
-				id = jobs.size() + 1;
-			} else {
-				obj = new Integer(array[JOB_NUM].trim());
-				id = obj.intValue();
-			}
-
-			// get the submit time
-			final Long l = new Long(array[SUBMIT_TIME].trim());
-			final long submitTime = l.intValue();
-
-			// get the user estimated run time
-			obj = new Integer(array[REQ_RUN_TIME].trim());
-			final int reqRunTime = obj.intValue();
-
-			// if the required run time field is ignored, then use
-			// the actual run time
-			obj = new Integer(array[RUN_TIME].trim());
-			int runTime = obj.intValue();
-
-			final int userID = new Integer(array[USER_ID].trim()).intValue();
-			final int groupID = new Integer(array[GROUP_ID].trim()).intValue();
-
-			// according to the SWF manual, runtime of 0 is possible due
-			// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
-			if (runTime <= 0) {
-				runTime = 1; // change to 1 second
-			}
-
-			// get the number of allocated processors
-			obj = new Integer(array[REQ_NUM_PROC].trim());
-			int numProc = obj.intValue();
-
-			// if the required num of allocated processors field is ignored
-			// or zero, then use the actual field
-			if (numProc == IRRELEVANT || numProc == 0) {
-				obj = new Integer(array[NUM_PROC].trim());
-				numProc = obj.intValue();
-			}
-
-			// finally, check if the num of PEs required is valid or not
-			if (numProc <= 0) {
-				numProc = 1;
-			}
-			createJob(id, submitTime, runTime, numProc, reqRunTime, userID, groupID);
-		} catch (final Exception e) {
-
-		}
+	private FieldTokenizer newTokenizer() {
+		return new FieldTokenizer(
+				COMMENT.getBytes(Charset.defaultCharset()),
+				MAX_FIELD,
+				new int[] { JOB_NUM, SUBMIT_TIME, REQ_RUN_TIME, RUN_TIME, USER_ID, GROUP_ID,
+						REQ_NUM_PROC, NUM_PROC });
 	}
 
 	/**
-	 * Breaks a line of string into many fields.
+	 * Reads the jobs of a scanner, numbering them after the ones read so far if the job number is
+	 * irrelevant.
 	 * 
-	 * @param line a line of string
-	 * @param lineNum a line number
-	 * @pre line != null
-	 * @pre lineNum > 0
-	 * @post $none
+	 * @param scanner a scanner of the lines of a file
+	 * @param tokenizer a tokenizer of the lines
+	 * @throws IOException if the there was any error reading the file
 	 */
-	private void parseValue(final String line, final int lineNum) {
-		// skip a comment line
-		if (line.startsWith(COMMENT)) {
-			return;
-		}
-
-		final String[] sp = line.split("\\s+"); // split the fields based on a
-		// space
-		int len = 0; // length of a string
-		int index = 0; // the index of an array
-
-		// check for each field in the array
-		for (final String elem : sp) {
-			len = elem.length(); // get the length of a string
-
-			// if it is empty then ignore
-			if (len == 0) {
-				continue;
-			}
-			fieldArray[index] = elem;
-			index++;
-		}
-
-		if (index == MAX_FIELD) {
-			extractField(fieldArray, lineNum);
+	private void readJobs(final LineScanner scanner, final FieldTokenizer tokenizer) throws IOException {
+		while (scanner.next(tokenizer)) {
+			final int id = JOB_NUM == IRRELEVANT ? jobs.size() + 1 : tokenizer.id;
+			jobs.add(createJob(id, tokenizer.runTime, tokenizer.numProc));
 		}
 	}
 
 	/**
-	 * Reads a text file one line at the time
+	 * Reads a text file, parsing its chunks in parallel
 	 * 
 	 * @param fl a file name
 	 * @return <code>true</code> if successful, <code>false</code> otherwise.
@@ -397,27 +364,156 @@ public class WorkloadFileReader implements WorkloadModel {
 	 * @throws FileNotFoundException if the file was not found
 	 */
 	private boolean readFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
+		final FileInputStream in = new FileInputStream(fl);
 		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(fl)));
-
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
+			final FileChannel channel = in.getChannel();
+			final long[] bounds = splitLines(channel);
+			final int chunks = bounds.length - 1;
+			if (chunks == 1 || threads == 1) {
+				final FieldTokenizer tokenizer = newTokenizer();
+				for (int i = 0; i < chunks; i++) {
+					readJobs(new MappedLineScanner(channel, bounds[i], bounds[i + 1]), tokenizer);
+				}
+				return true;
 			}
 
-			reader.close();
-			success = true;
+			final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks));
+			try {
+				// parse the chunks into fields, then number and create their jobs
+				final List<Callable<JobFields>> parsers = new ArrayList<Callable<JobFields>>();
+				for (int i = 0; i < chunks; i++) {
+					final long start = bounds[i];
+					final long end = bounds[i + 1];
+					parsers.add(new Callable<JobFields>() {
+
+						@Override
+						public JobFields call() throws IOException {
+							final JobFields fields = new JobFields();
+							final LineScanner scanner = new MappedLineScanner(channel, start, end);
+							final FieldTokenizer tokenizer = newTokenizer();
+							while (scanner.next(tokenizer)) {
+								fields.add(tokenizer);
+							}
+							return fields;
+						}
+					});
+				}
+				final List<JobFields> parsed = getAll(executor.invokeAll(parsers));
+
+				int total = 0;
+				for (final JobFields fields : parsed) {
+					total += fields.size;
+				}
+				final Cloudlet[] created = new Cloudlet[total];
+				final List<Callable<Void>> creators = new ArrayList<Callable<Void>>();
+				int offset = 0;
+				for (final JobFields fields : parsed) {
+					final int first = offset;
+					creators.add(new Callable<Void>() {
+
+						@Override
+						public Void call() {
+							for (int i = 0; i < fields.size; i++) {
+								final int id = JOB_NUM == IRRELEVANT ? first + i + 1 : fields.ids[i];
+								created[first + i] = createJob(id, fields.runTimes[i], fields.numProcs[i]);
+							}
+							return null;
+						}
+					});
+					offset += fields.size;
+				}
+				getAll(executor.invokeAll(creators));
+				jobs.addAll(Arrays.asList(created));
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				executor.shutdownNow();
+			}
 		} finally {
-			if (reader != null) {
-				reader.close();
+			in.close();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Splits a file into chunks of at least {@link #MIN_CHUNK_SIZE} bytes, enough to keep the
+	 * threads busy, each ending at the end of a line.
+	 * 
+	 * @param channel the channel of the file
+	 * @return the position of the start of each chunk, followed by the size of the file
+	 * @throws IOException if the there was any error reading the file
+	 */
+	private long[] splitLines(final FileChannel channel) throws IOException {
+		final long size = channel.size();
+		final long chunkSize = Math.min(WINDOW_SIZE, Math.max(MIN_CHUNK_SIZE, size / (threads * 4L)));
+		final ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+		final List<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+
+		long position = chunkSize;
+		while (position < size) {
+			// start the next chunk after the first line end from the byte before it
+			long end = -1;
+			long scanned = position - 1;
+			while (end < 0 && scanned < size) {
+				buffer.clear();
+				final int read = channel.read(buffer, scanned);
+				if (read < 0) {
+					break;
+				}
+				for (int i = 0; i < read; i++) {
+					if (LineScanner.isLineEnd(buffer.get(i))) {
+						end = scanned + i + 1;
+						break;
+					}
+				}
+				scanned += read;
+			}
+			if (end < 0 || end >= size) {
+				break;
 			}
+			bounds.add(end);
+			position = end + chunkSize;
 		}
 
-		return success;
+		final long[] result = new long[bounds.size() + 1];
+		for (int i = 0; i < bounds.size(); i++) {
+			result[i] = bounds.get(i);
+		}
+		result[bounds.size()] = size;
+		return result;
+	}
+
+	/**
+	 * Gets the results of tasks, rethrowing the {@link IOException} or unchecked exception a task
+	 * failed with.
+	 * 
+	 * @param futures the futures of the tasks
+	 * @return the results of the tasks, in order
+	 * @throws IOException if a task failed reading the file
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static <T> List<T> getAll(final List<Future<T>> futures) throws IOException,
+			InterruptedException {
+		final List<T> results = new ArrayList<T>(futures.size());
+		for (final Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+		return results;
 	}
 
 	/**
@@ -429,27 +525,14 @@ public class WorkloadFileReader implements WorkloadModel {
 	 * @throws FileNotFoundException if the file was not found
 	 */
 	private boolean readGZIPFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
+		final InputStream in = new GZIPInputStream(new FileInputStream(fl), BUFFER_SIZE);
 		try {
-			reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(fl))));
-
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
-			}
-
-			reader.close();
-			success = true;
+			readJobs(new StreamLineScanner(in), newTokenizer());
 		} finally {
-			if (reader != null) {
-				reader.close();
-			}
+			in.close();
 		}
 
-		return success;
+		return true;
 	}
 
 	/**
@@ -463,7 +546,7 @@ public class WorkloadFileReader implements WorkloadModel {
 		boolean success = false;
 		ZipFile zipFile = null;
 		try {
-			BufferedReader reader = null;
+			final FieldTokenizer tokenizer = newTokenizer();
 
 			// ZipFile offers an Enumeration of all the files in the file
 			zipFile = new ZipFile(fl);
@@ -472,16 +555,12 @@ public class WorkloadFileReader implements WorkloadModel {
 				success = false; // reset the value again
 				final ZipEntry zipEntry = e.nextElement();
 
-				reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipEntry)));
-
-				// read one line at the time
-				int line = 1;
-				while (reader.ready()) {
-					parseValue(reader.readLine(), line);
-					line++;
+				final InputStream in = zipFile.getInputStream(zipEntry);
+				try {
+					readJobs(new StreamLineScanner(in), tokenizer);
+				} finally {
+					in.close();
 				}
-
-				reader.close();
 				success = true;
 			}
 		} finally {
@@ -492,4 +571,453 @@ public class WorkloadFileReader implements WorkloadModel {
 
 		return success;
 	}
+
+	/**
+	 * Iterator over the jobs of the file, which reads the next job only when it is requested.
+	 * 
+	 * @see WorkloadFileReader#iterateWorkload()
+	 */
+	public class WorkloadIterator implements Iterator<Cloudlet>, Closeable {
+
+		private final FieldTokenizer tokenizer = newTokenizer();
+
+		private final boolean numbered = JOB_NUM != IRRELEVANT;
+
+		private Closeable source; // the open file, or null once released
+
+		private Enumeration<? extends ZipEntry> entries; // the entries left of a zip file
+
+		private LineScanner scanner; // the lines left of the file or zip entry
+
+		private Cloudlet next;
+
+		private int count; // number of jobs returned so far
+
+		private WorkloadIterator() throws IOException {
+			if (file.getName().endsWith(".gz")) {
+				final InputStream in = new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE);
+				source = in;
+				scanner = new StreamLineScanner(in);
+			} else if (file.getName().endsWith(".zip")) {
+				final ZipFile zipFile = new ZipFile(file);
+				source = zipFile;
+				entries = zipFile.entries();
+			} else {
+				final FileInputStream in = new FileInputStream(file);
+				source = in;
+				scanner = new MappedLineScanner(in.getChannel(), 0, in.getChannel().size());
+			}
+			next = read();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Cloudlet next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			final Cloudlet job = next;
+			count++;
+			try {
+				next = read();
+			} catch (final IOException e) {
+				next = null;
+				closeQuietly();
+				throw new IllegalStateException("Error reading workload trace " + file, e);
+			}
+			return job;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Releases the file, after which no more jobs are returned.
+		 */
+		@Override
+		public void close() throws IOException {
+			next = null;
+			scanner = null;
+			entries = null;
+			if (source != null) {
+				final Closeable closing = source;
+				source = null;
+				closing.close();
+			}
+		}
+
+		/**
+		 * Reads the job after the ones returned so far.
+		 *
+		 * @return the job, or <code>null</code> if there are no more jobs, after releasing the file
+		 * @throws IOException if the there was any error reading the file
+		 */
+		private Cloudlet read() throws IOException {
+			while (source != null) {
+				if (scanner != null && scanner.next(tokenizer)) {
+					final int id = numbered ? tokenizer.id : count + 1;
+					return createJob(id, tokenizer.runTime, tokenizer.numProc);
+				}
+				if (entries != null && entries.hasMoreElements()) {
+					final ZipFile zipFile = (ZipFile) source;
+					scanner = new StreamLineScanner(zipFile.getInputStream(entries.nextElement()));
+				} else {
+					close();
+				}
+			}
+			return null;
+		}
+
+		private void closeQuietly() {
+			try {
+				close();
+			} catch (final IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * The fields of the jobs parsed from a chunk of a file, before the jobs are created.
+	 */
+	private static final class JobFields {
+
+		private int[] ids = new int[1 << 10];
+
+		private int[] runTimes = new int[ids.length];
+
+		private int[] numProcs = new int[ids.length];
+
+		private int size;
+
+		private void add(final FieldTokenizer tokenizer) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				runTimes = Arrays.copyOf(runTimes, size * 2);
+				numProcs = Arrays.copyOf(numProcs, size * 2);
+			}
+			ids[size] = tokenizer.id;
+			runTimes[size] = tokenizer.runTime;
+			numProcs[size] = tokenizer.numProc;
+			size++;
+		}
+	}
+
+	/**
+	 * Parses the fields of a job from the bytes of a line. A line is a job if it does not start
+	 * with the comment, has exactly the max. number of fields separated by white space, and the
+	 * fields used are integers; the other lines are skipped.
+	 */
+	private static final class FieldTokenizer {
+
+		private final byte[] comment;
+
+		private final int maxField;
+
+		private final int jobNum, submitTime, reqRunTime, runTimeField, userId, groupId, reqNumProc,
+				numProcField;
+
+		private final int[] starts; // offset of each field of the line
+
+		private final int[] ends; // offset after each field of the line
+
+		private ByteBuffer line; // the buffer of the line being parsed
+
+		private long value; // the last field parsed
+
+		// the job of the last line parsed
+		private int id;
+
+		private int runTime;
+
+		private int numProc;
+
+		private FieldTokenizer(final byte[] comment, final int maxField, final int[] fields) {
+			this.comment = comment;
+			this.maxField = maxField;
+			jobNum = fields[0];
+			submitTime = fields[1];
+			reqRunTime = fields[2];
+			runTimeField = fields[3];
+			userId = fields[4];
+			groupId = fields[5];
+			reqNumProc = fields[6];
+			numProcField = fields[7];
+			starts = new int[maxField];
+			ends = new int[maxField];
+		}
+
+		/**
+		 * Parses a line.
+		 *
+		 * @param buffer a buffer holding the line
+		 * @param from the offset of the line in the buffer
+		 * @param to the offset of the end of the line, without the line terminator
+		 * @return <code>true</code> if the line is a job, whose fields are then set
+		 */
+		private boolean parse(final ByteBuffer buffer, final int from, final int to) {
+			// skip a comment line
+			if (to - from >= comment.length) {
+				int i = 0;
+				while (i < comment.length && buffer.get(from + i) == comment[i]) {
+					i++;
+				}
+				if (i == comment.length) {
+					return false;
+				}
+			}
+
+			// split the fields based on a space
+			int index = 0;
+			int i = from;
+			while (true) {
+				while (i < to && isSpace(buffer.get(i))) {
+					i++;
+				}
+				if (i == to) {
+					break;
+				}
+				if (index == maxField) {
+					return false;
+				}
+				starts[index] = i;
+				while (i < to && !isSpace(buffer.get(i))) {
+					i++;
+				}
+				ends[index] = i;
+				index++;
+			}
+			if (index != maxField) {
+				return false;
+			}
+			line = buffer;
+
+			// get the job number
+			if (jobNum == IRRELEVANT) {
+				id = 0;
+			} else if (parseInt(jobNum)) {
+				id = (int) value;
+			} else {
+				return false;
+			}
+
+			// the submit time, estimated run time, user and group are not used, but the job is
+			// skipped if they are not numbers
+			if (!parseField(submitTime, Long.MIN_VALUE, Long.MAX_VALUE) || !parseInt(reqRunTime)) {
+				return false;
+			}
+			if (!parseInt(runTimeField)) {
+				return false;
+			}
+			// according to the SWF manual, runtime of 0 is possible due
+			// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
+			runTime = value <= 0 ? 1 : (int) value;
+			if (!parseInt(userId) || !parseInt(groupId)) {
+				return false;
+			}
+
+			// get the number of allocated processors
+			if (!parseInt(reqNumProc)) {
+				return false;
+			}
+			// if the required num of allocated processors field is ignored
+			// or zero, then use the actual field
+			if (value == IRRELEVANT || value == 0) {
+				if (!parseInt(numProcField)) {
+					return false;
+				}
+			}
+			// finally, check if the num of PEs required is valid or not
+			numProc = value <= 0 ? 1 : (int) value;
+			return true;
+		}
+
+		private boolean parseInt(final int field) {
+			return parseField(field, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Parses a field of the line as a decimal integer with an optional sign, like
+		 * {@link Long#parseLong(String)} does after trimming the field.
+		 *
+		 * @param field the index of the field
+		 * @param min the least valid value
+		 * @param max the greatest valid value
+		 * @return <code>true</code> if the field is a valid integer, which is then set as the value
+		 */
+		private boolean parseField(final int field, final long min, final long max) {
+			if (field >= maxField) {
+				return false;
+			}
+			int i = starts[field];
+			int end = ends[field];
+			while (i < end && (line.get(i) & 0xFF) <= ' ') {
+				i++;
+			}
+			while (end > i && (line.get(end - 1) & 0xFF) <= ' ') {
+				end--;
+			}
+			if (i == end) {
+				return false;
+			}
+
+			boolean negative = false;
+			final byte sign = line.get(i);
+			if (sign == '-' || sign == '+') {
+				negative = sign == '-';
+				i++;
+				if (i == end) {
+					return false;
+				}
+			}
+
+			// accumulate negatively, as the least value has no positive counterpart
+			final long limit = negative ? min : -max;
+			final long multiplyLimit = limit / 10;
+			long result = 0;
+			for (; i < end; i++) {
+				final int digit = line.get(i) - '0';
+				if (digit < 0 || digit > 9 || result < multiplyLimit) {
+					return false;
+				}
+				result *= 10;
+				if (result < limit + digit) {
+					return false;
+				}
+				result -= digit;
+			}
+			value = negative ? result : -result;
+			return true;
+		}
+
+		private static boolean isSpace(final byte b) {
+			return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+		}
+	}
+
+	/**
+	 * Scans the lines of a file through a buffer holding a window of its bytes.
+	 */
+	private abstract static class LineScanner {
+
+		protected ByteBuffer buffer; // the bytes of the window left to scan
+
+		/**
+		 * Moves the window to start at the position of the buffer, and fills it with more bytes.
+		 *
+		 * @return <code>false</code> if there were no more bytes
+		 * @throws IOException if the there was any error reading the file
+		 */
+		protected abstract boolean fill() throws IOException;
+
+		/**
+		 * Scans the lines until one is a job.
+		 *
+		 * @param tokenizer the tokenizer parsing the lines
+		 * @return <code>true</code> if a job was found, <code>false</code> at the end of the file
+		 * @throws IOException if the there was any error reading the file
+		 */
+		private boolean next(final FieldTokenizer tokenizer) throws IOException {
+			while (true) {
+				int from = buffer.position();
+				int end = from;
+				while (end < buffer.limit() && !isLineEnd(buffer.get(end))) {
+					end++;
+				}
+				if (end == buffer.limit()) {
+					if (fill()) {
+						continue; // the line goes on past the window
+					}
+					// the last line of the file, left in the window
+					from = buffer.position();
+					end = buffer.limit();
+					if (from == end) {
+						return false;
+					}
+				}
+				buffer.position(end < buffer.limit() ? end + 1 : end);
+				if (tokenizer.parse(buffer, from, end)) {
+					return true;
+				}
+			}
+		}
+
+		private static boolean isLineEnd(final byte b) {
+			return b == '\n' || b == '\r';
+		}
+	}
+
+	/**
+	 * Scans the lines of a range of a file, memory-mapping {@link WorkloadFileReader#WINDOW_SIZE}
+	 * bytes at a time.
+	 */
+	private static final class MappedLineScanner extends LineScanner {
+
+		private final FileChannel channel;
+
+		private final long end;
+
+		private long start; // position of the window in the file
+
+		private MappedLineScanner(final FileChannel channel, final long start, final long end)
+				throws IOException {
+			this.channel = channel;
+			this.end = end;
+			this.start = start;
+			buffer = map(start, 0);
+		}
+
+		@Override
+		protected boolean fill() throws IOException {
+			if (start + buffer.limit() >= end) {
+				return false;
+			}
+			final int kept = buffer.remaining();
+			start += buffer.position();
+			buffer = map(start, kept);
+			return true;
+		}
+
+		private ByteBuffer map(final long position, final int kept) throws IOException {
+			// a window must hold more than the line left over from the last one
+			final long size = Math.min(end - position, Math.max(WINDOW_SIZE, kept * 2L));
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Line too long at position " + position);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		}
+	}
+
+	/**
+	 * Scans the lines of a stream, such as a decompressed one.
+	 */
+	private static final class StreamLineScanner extends LineScanner {
+
+		private final InputStream in;
+
+		private byte[] bytes = new byte[BUFFER_SIZE];
+
+		private StreamLineScanner(final InputStream in) {
+			this.in = in;
+			buffer = ByteBuffer.wrap(bytes, 0, 0);
+		}
+
+		@Override
+		protected boolean fill() throws IOException {
+			final int kept = buffer.remaining();
+			if (kept == bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			} else {
+				System.arraycopy(bytes, buffer.position(), bytes, 0, kept);
+			}
+			final int read = in.read(bytes, kept, bytes.length - kept);
+			buffer = ByteBuffer.wrap(bytes, 0, kept + Math.max(read, 0));
+			return read > 0;
+		}
+	}
 }
@@ -4,12 +4,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.application.selectivity.SelectivityModel;
 import org.fog.entities.Tuple;
 import org.fog.scheduler.TupleScheduler;
+import org.fog.utils.Config;
 import org.fog.utils.FogUtils;
 import org.fog.utils.GeoCoverage;
 
@@ -42,6 +45,11 @@ public class Application {
 
 	private Map<String, AppEdge> edgeMap;
 
+	/**
+	 * Compiled form of the modules, edges and loops, built on first use
+	 */
+	private ApplicationGraph graph;
+
 	/**
 	 * Creates a plain vanilla application with no modules and edges.
 	 * 
@@ -123,6 +131,7 @@ public class Application {
 			SelectivityModel selectivityModel) {
 		AppModule module = getModuleByName(moduleName);
 		module.getSelectivityMap().put(new Pair<String, String>(inputTupleType, outputTupleType), selectivityModel);
+		graph = null;
 	}
 
 	/**
@@ -132,12 +141,7 @@ public class Application {
 	 * @return
 	 */
 	public List<AppEdge> getPeriodicEdges(String srcModule) {
-		List<AppEdge> result = new ArrayList<AppEdge>();
-		for (AppEdge edge : edges) {
-			if (edge.isPeriodic() && edge.getSource().equals(srcModule))
-				result.add(edge);
-		}
-		return result;
+		return getGraph().getPeriodicEdges(srcModule);
 	}
 
 	public Application(String appId, int userId) {
@@ -170,6 +174,8 @@ public class Application {
 	 * @return
 	 */
 	public AppModule getModuleByName(String name) {
+		if (graph != null && graph.isCompiledFrom(modules, edges, loops))
+			return graph.getModule(name);
 		for (AppModule module : modules) {
 			if (module.getName().equals(name))
 				return module;
@@ -190,58 +196,81 @@ public class Application {
 	 */
 	public List<Tuple> getResultantTuples(String moduleName, Tuple inputTuple, int sourceDeviceId, int sourceModuleId) {
 		List<Tuple> tuples = new ArrayList<Tuple>();
-		AppModule module = getModuleByName(moduleName);
-		for (AppEdge edge : getEdges()) {
-			if (edge.getSource().equals(moduleName)) {
-				Pair<String, String> pair = new Pair<String, String>(inputTuple.getTupleType(), edge.getTupleType());
-
-				if (module.getSelectivityMap().get(pair) == null)
-					continue;
-				SelectivityModel selectivityModel = module.getSelectivityMap().get(pair);
-				if (selectivityModel.canSelect()) {
-					// TODO check if the edge is ACTUATOR, then create multiple tuples
-					if (edge.getEdgeType() == AppEdge.ACTUATOR) {
-						// for(Integer actuatorId :
-						// module.getActuatorSubscriptions().get(edge.getTupleType())){
-						Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),
-								(long) (edge.getTupleCpuLength()), inputTuple.getNumberOfPes(),
-								(long) (edge.getTupleNwLength()), inputTuple.getCloudletOutputSize(),
-								inputTuple.getUtilizationModelCpu(), inputTuple.getUtilizationModelRam(),
-								inputTuple.getUtilizationModelBw());
-						tuple.setActualTupleId(inputTuple.getActualTupleId());
-						tuple.setUserId(inputTuple.getUserId());
-						tuple.setAppId(inputTuple.getAppId());
-						tuple.setDestModuleName(edge.getDestination());
-						tuple.setSrcModuleName(edge.getSource());
-						tuple.setDirection(Tuple.ACTUATOR);
-						tuple.setTupleType(edge.getTupleType());
-						tuple.setSourceDeviceId(sourceDeviceId);
-						tuple.setSourceModuleId(sourceModuleId);
-						// tuple.setActuatorId(actuatorId);
-
-						tuples.add(tuple);
-						// }
-					} else {
-						Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),
-								(long) (edge.getTupleCpuLength()), inputTuple.getNumberOfPes(),
-								(long) (edge.getTupleNwLength()), inputTuple.getCloudletOutputSize(),
-								inputTuple.getUtilizationModelCpu(), inputTuple.getUtilizationModelRam(),
-								inputTuple.getUtilizationModelBw());
-						tuple.setActualTupleId(inputTuple.getActualTupleId());
-						tuple.setUserId(inputTuple.getUserId());
-						tuple.setAppId(inputTuple.getAppId());
-						tuple.setDestModuleName(edge.getDestination());
-						tuple.setSrcModuleName(edge.getSource());
-						tuple.setDirection(edge.getDirection());
-						tuple.setTupleType(edge.getTupleType());
-						tuple.setSourceModuleId(sourceModuleId);
-
-						tuples.add(tuple);
-					}
+		addResultantTuples(moduleName, inputTuple, sourceDeviceId, sourceModuleId, tuples);
+		return tuples;
+	}
+
+	/**
+	 * Appends the tuples generated upon execution of incoming tuple
+	 * <i>inputTuple</i> by module named <i>moduleName</i> to a list, walking the
+	 * outgoing edges of the module in the compiled graph.
+	 */
+	public void addResultantTuples(String moduleName, Tuple inputTuple, int sourceDeviceId, int sourceModuleId,
+			List<Tuple> tuples) {
+		ApplicationGraph graph = getGraph();
+		int moduleId, inputType;
+		int inputEdge = graph.getEdgeId(inputTuple);
+		if (inputEdge != -1 && graph.getEdge(inputEdge).getDestination().equals(moduleName)) {
+			moduleId = graph.getEdgeDestination(inputEdge);
+			inputType = graph.getEdgeTupleType(inputEdge);
+		} else {
+			moduleId = graph.getModuleId(moduleName);
+			inputType = graph.getTupleTypeId(inputTuple.getTupleType());
+		}
+		if (moduleId == -1 || inputType == -1)
+			return;
+		SplittableRandom random = Config.SELECTIVITY_STREAMS ? CloudSim.getContext().getRandomStream(sourceDeviceId)
+				: null;
+		for (int j = 0, n = graph.getOutEdgeCount(moduleId); j < n; j++) {
+			SelectivityModel selectivityModel = graph.getSelectivity(moduleId, inputType, j);
+			if (selectivityModel == null)
+				continue;
+			if (random == null ? selectivityModel.canSelect() : selectivityModel.canSelect(random)) {
+				int e = graph.getOutEdge(moduleId, j);
+				AppEdge edge = graph.getEdge(e);
+				// TODO check if the edge is ACTUATOR, then create multiple tuples
+				if (edge.getEdgeType() == AppEdge.ACTUATOR) {
+					// for(Integer actuatorId :
+					// module.getActuatorSubscriptions().get(edge.getTupleType())){
+					Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),
+							(long) (edge.getTupleCpuLength()), inputTuple.getNumberOfPes(),
+							(long) (edge.getTupleNwLength()), inputTuple.getCloudletOutputSize(),
+							inputTuple.getUtilizationModelCpu(), inputTuple.getUtilizationModelRam(),
+							inputTuple.getUtilizationModelBw());
+					tuple.setActualTupleId(inputTuple.getActualTupleId());
+					tuple.setUserId(inputTuple.getUserId());
+					tuple.setAppId(inputTuple.getAppId());
+					tuple.setDestModuleName(edge.getDestination());
+					tuple.setSrcModuleName(edge.getSource());
+					tuple.setDirection(Tuple.ACTUATOR);
+					tuple.setTupleType(edge.getTupleType());
+					tuple.setSourceDeviceId(sourceDeviceId);
+					tuple.setSourceModuleId(sourceModuleId);
+					tuple.setEdgeId(e);
+					// tuple.setActuatorId(actuatorId);
+
+					tuples.add(tuple);
+					// }
+				} else {
+					Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),
+							(long) (edge.getTupleCpuLength()), inputTuple.getNumberOfPes(),
+							(long) (edge.getTupleNwLength()), inputTuple.getCloudletOutputSize(),
+							inputTuple.getUtilizationModelCpu(), inputTuple.getUtilizationModelRam(),
+							inputTuple.getUtilizationModelBw());
+					tuple.setActualTupleId(inputTuple.getActualTupleId());
+					tuple.setUserId(inputTuple.getUserId());
+					tuple.setAppId(inputTuple.getAppId());
+					tuple.setDestModuleName(edge.getDestination());
+					tuple.setSrcModuleName(edge.getSource());
+					tuple.setDirection(edge.getDirection());
+					tuple.setTupleType(edge.getTupleType());
+					tuple.setSourceModuleId(sourceModuleId);
+					tuple.setEdgeId(e);
+
+					tuples.add(tuple);
 				}
 			}
 		}
-		return tuples;
 	}
 
 	/**
@@ -267,6 +296,7 @@ public class Application {
 				tuple.setSourceDeviceId(sourceDeviceId);
 				tuple.setActuatorId(actuatorId);
 				tuple.setSourceModuleId(sourceModuleId);
+				tuple.setEdgeId(getGraph().getEdgeId(edge));
 
 				return tuple;
 			}
@@ -282,12 +312,26 @@ public class Application {
 			tuple.setDirection(edge.getDirection());
 			tuple.setTupleType(edge.getTupleType());
 			tuple.setSourceModuleId(sourceModuleId);
+			tuple.setEdgeId(getGraph().getEdgeId(edge));
 
 			return tuple;
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the compiled form of the application, compiling it again if modules,
+	 * edges or loops were added or replaced, or a tuple mapping was added, since
+	 * the last call.
+	 * 
+	 * @return
+	 */
+	public ApplicationGraph getGraph() {
+		if (graph == null || !graph.isCompiledFrom(modules, edges, loops))
+			graph = new ApplicationGraph(modules, edges, loops);
+		return graph;
+	}
+
 	public String getAppId() {
 		return appId;
 	}
@@ -302,6 +346,7 @@ public class Application {
 
 	public void setModules(List<AppModule> modules) {
 		this.modules = modules;
+		graph = null;
 	}
 
 	public List<AppEdge> getEdges() {
@@ -310,6 +355,7 @@ public class Application {
 
 	public void setEdges(List<AppEdge> edges) {
 		this.edges = edges;
+		graph = null;
 	}
 
 	public GeoCoverage getGeoCoverage() {
@@ -326,6 +372,7 @@ public class Application {
 
 	public void setLoops(List<AppLoop> loops) {
 		this.loops = loops;
+		graph = null;
 	}
 
 	public int getUserId() {
@@ -0,0 +1,308 @@
+package org.fog.application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.selectivity.SelectivityModel;
+import org.fog.entities.Tuple;
+
+/**
+ * Immutable, integer-indexed form of the modules, edges and loops of an
+ * application. Modules, edges and tuple types are numbered in the order of the
+ * application lists; each module knows its outgoing edges and the selectivity
+ * of each of them for each input tuple type, and each edge knows the loops it
+ * belongs to. A tuple created from an edge carries the number of the edge, so
+ * the work done for it needs no name lookups. The arrays returned are shared
+ * and must not be modified.
+ *
+ * @see Application#getGraph()
+ */
+public final class ApplicationGraph {
+
+	private static final AppLoop[] NO_LOOPS = new AppLoop[0];
+
+	private final List<AppModule> moduleList;
+	private final List<AppEdge> edgeList;
+	private final List<AppLoop> loopList;
+	private final int moduleCount;
+	private final int edgeCount;
+	private final int loopCount;
+
+	private final AppModule[] modules;
+	private final Map<String, Integer> moduleIds;
+	private final Map<String, Integer> tupleTypeIds;
+
+	private final AppEdge[] edges;
+	private final int[] edgeDestinations;
+	private final int[] edgeTupleTypes;
+	private final Map<AppEdge, Integer> edgeIds;
+	private final Map<String, Integer> lastEdgeFrom;
+
+	/**
+	 * Outgoing edges of each module, in the order of the application edges.
+	 */
+	private final int[][] outEdges;
+
+	/**
+	 * Selectivity of the outgoing edge j of a module for the input tuple type t,
+	 * at index t * outEdges[module].length + j; null where there is no mapping.
+	 */
+	private final SelectivityModel[][] selectivities;
+
+	private final List<List<AppEdge>> periodicEdges;
+
+	private final AppLoop[][] loopsWithEdge;
+	private final AppLoop[][] loopsStartingWith;
+	private final AppLoop[][] loopsEndingWith;
+
+	ApplicationGraph(List<AppModule> moduleList, List<AppEdge> edgeList, List<AppLoop> loopList) {
+		this.moduleList = moduleList;
+		this.edgeList = edgeList;
+		this.loopList = loopList;
+		moduleCount = moduleList.size();
+		edgeCount = edgeList.size();
+		loopCount = loopList.size();
+
+		modules = moduleList.toArray(new AppModule[moduleCount]);
+		moduleIds = new HashMap<String, Integer>();
+		for (int i = moduleCount - 1; i >= 0; i--)
+			moduleIds.put(modules[i].getName(), i);
+
+		edges = edgeList.toArray(new AppEdge[edgeCount]);
+		edgeDestinations = new int[edgeCount];
+		edgeTupleTypes = new int[edgeCount];
+		tupleTypeIds = new HashMap<String, Integer>();
+		lastEdgeFrom = new HashMap<String, Integer>();
+		edgeIds = new IdentityHashMap<AppEdge, Integer>();
+		int[] outCounts = new int[moduleCount];
+		for (int e = 0; e < edgeCount; e++) {
+			AppEdge edge = edges[e];
+			edgeDestinations[e] = idOf(moduleIds, edge.getDestination());
+			edgeTupleTypes[e] = addTupleType(edge.getTupleType());
+			lastEdgeFrom.put(edge.getSource(), e);
+			if (!edgeIds.containsKey(edge))
+				edgeIds.put(edge, e);
+			int source = idOf(moduleIds, edge.getSource());
+			if (source != -1)
+				outCounts[source]++;
+		}
+
+		outEdges = new int[moduleCount][];
+		for (int m = 0; m < moduleCount; m++)
+			outEdges[m] = new int[outCounts[m]];
+		int[] filled = new int[moduleCount];
+		for (int e = 0; e < edgeCount; e++) {
+			int source = idOf(moduleIds, edges[e].getSource());
+			if (source != -1)
+				outEdges[source][filled[source]++] = e;
+		}
+
+		// input types mapped by a module but carried by no edge still get a number
+		for (AppModule module : modules) {
+			for (Pair<String, String> pair : module.getSelectivityMap().keySet())
+				addTupleType(pair.getFirst());
+		}
+		int typeCount = tupleTypeIds.size();
+		selectivities = new SelectivityModel[moduleCount][];
+		periodicEdges = new ArrayList<List<AppEdge>>(moduleCount);
+		for (int m = 0; m < moduleCount; m++) {
+			int[] out = outEdges[m];
+			Map<Pair<String, String>, SelectivityModel> map = modules[m].getSelectivityMap();
+			selectivities[m] = new SelectivityModel[typeCount * out.length];
+			List<AppEdge> periodic = new ArrayList<AppEdge>();
+			for (int j = 0; j < out.length; j++) {
+				AppEdge edge = edges[out[j]];
+				for (Map.Entry<String, Integer> type : tupleTypeIds.entrySet()) {
+					Pair<String, String> pair = new Pair<String, String>(type.getKey(), edge.getTupleType());
+					selectivities[m][type.getValue() * out.length + j] = map.get(pair);
+				}
+				if (edge.isPeriodic())
+					periodic.add(edge);
+			}
+			periodicEdges.add(Collections.unmodifiableList(periodic));
+		}
+
+		loopsWithEdge = new AppLoop[edgeCount][];
+		loopsStartingWith = new AppLoop[edgeCount][];
+		loopsEndingWith = new AppLoop[edgeCount][];
+		for (int e = 0; e < edgeCount; e++) {
+			loopsWithEdge[e] = findLoops(loopList, edges[e].getSource(), edges[e].getDestination(), 0);
+			loopsStartingWith[e] = findLoops(loopList, edges[e].getSource(), edges[e].getDestination(), 1);
+			loopsEndingWith[e] = findLoops(loopList, edges[e].getSource(), edges[e].getDestination(), 2);
+		}
+	}
+
+	/**
+	 * Checks whether this graph still describes the given lists, i.e. they are
+	 * the lists it was compiled from and no element was added or removed.
+	 */
+	boolean isCompiledFrom(List<AppModule> moduleList, List<AppEdge> edgeList, List<AppLoop> loopList) {
+		return moduleList == this.moduleList && edgeList == this.edgeList && loopList == this.loopList
+				&& moduleList.size() == moduleCount && edgeList.size() == edgeCount && loopList.size() == loopCount;
+	}
+
+	/**
+	 * Returns the module with the given name, or null if there is none.
+	 */
+	public AppModule getModule(String name) {
+		int id = idOf(moduleIds, name);
+		return id == -1 ? null : modules[id];
+	}
+
+	/**
+	 * Returns the periodic edges leaving a module.
+	 */
+	public List<AppEdge> getPeriodicEdges(String moduleName) {
+		int id = idOf(moduleIds, moduleName);
+		if (id == -1)
+			return Collections.emptyList();
+		return periodicEdges.get(id);
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	public AppEdge getEdge(int edgeId) {
+		return edges[edgeId];
+	}
+
+	/**
+	 * Returns the last edge leaving the given module or sensor, or -1 if there is
+	 * none.
+	 */
+	public int getLastEdgeFrom(String source) {
+		return idOf(lastEdgeFrom, source);
+	}
+
+	/**
+	 * Returns the number of an edge of the application, or -1 if it is not one.
+	 */
+	public int getEdgeId(AppEdge edge) {
+		Integer id = edgeIds.get(edge);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the edge a tuple was created from, or -1 if the tuple carries no edge
+	 * of this graph or does not match it.
+	 */
+	public int getEdgeId(Tuple tuple) {
+		int e = tuple.getEdgeId();
+		if (e < 0 || e >= edgeCount)
+			return -1;
+		AppEdge edge = edges[e];
+		if (!edge.getTupleType().equals(tuple.getTupleType()) || !edge.getSource().equals(tuple.getSrcModuleName())
+				|| !edge.getDestination().equals(tuple.getDestModuleName()))
+			return -1;
+		return e;
+	}
+
+	/**
+	 * Returns the loops having the edge between the source and destination
+	 * modules of a tuple.
+	 */
+	public AppLoop[] getLoopsWithEdge(Tuple tuple) {
+		int e = getEdgeId(tuple);
+		if (e != -1)
+			return loopsWithEdge[e];
+		return findLoops(loopList, tuple.getSrcModuleName(), tuple.getDestModuleName(), 0);
+	}
+
+	/**
+	 * Returns the loops having the edge of a tuple and starting at its source
+	 * module.
+	 */
+	public AppLoop[] getLoopsStartingWith(Tuple tuple) {
+		int e = getEdgeId(tuple);
+		if (e != -1)
+			return loopsStartingWith[e];
+		return findLoops(loopList, tuple.getSrcModuleName(), tuple.getDestModuleName(), 1);
+	}
+
+	/**
+	 * Returns the loops having the edge of a tuple and ending at its destination
+	 * module.
+	 */
+	public AppLoop[] getLoopsEndingWith(Tuple tuple) {
+		int e = getEdgeId(tuple);
+		if (e != -1)
+			return loopsEndingWith[e];
+		return findLoops(loopList, tuple.getSrcModuleName(), tuple.getDestModuleName(), 2);
+	}
+
+	int getModuleId(String name) {
+		return idOf(moduleIds, name);
+	}
+
+	int getTupleTypeId(String tupleType) {
+		return idOf(tupleTypeIds, tupleType);
+	}
+
+	int getEdgeDestination(int edgeId) {
+		return edgeDestinations[edgeId];
+	}
+
+	int getEdgeTupleType(int edgeId) {
+		return edgeTupleTypes[edgeId];
+	}
+
+	AppModule getModule(int moduleId) {
+		return modules[moduleId];
+	}
+
+	int getOutEdgeCount(int moduleId) {
+		return outEdges[moduleId].length;
+	}
+
+	int getOutEdge(int moduleId, int index) {
+		return outEdges[moduleId][index];
+	}
+
+	/**
+	 * Returns the selectivity of an outgoing edge of a module for an input tuple
+	 * type, or null if the module emits no tuple on that edge for that type.
+	 */
+	SelectivityModel getSelectivity(int moduleId, int inputTupleType, int index) {
+		int[] out = outEdges[moduleId];
+		return selectivities[moduleId][inputTupleType * out.length + index];
+	}
+
+	private int addTupleType(String tupleType) {
+		Integer type = tupleTypeIds.get(tupleType);
+		if (type == null) {
+			type = tupleTypeIds.size();
+			tupleTypeIds.put(tupleType, type);
+		}
+		return type;
+	}
+
+	private static int idOf(Map<String, Integer> ids, String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Lists the loops having the edge from src to dest: all of them (kind 0), the
+	 * ones starting at src (kind 1) or the ones ending at dest (kind 2).
+	 */
+	private static AppLoop[] findLoops(List<AppLoop> loops, String src, String dest, int kind) {
+		List<AppLoop> result = null;
+		for (AppLoop loop : loops) {
+			if (!loop.hasEdge(src, dest))
+				continue;
+			if ((kind == 1 && !loop.isStartModule(src)) || (kind == 2 && !loop.isEndModule(dest)))
+				continue;
+			if (result == null)
+				result = new ArrayList<AppLoop>();
+			result.add(loop);
+		}
+		return result == null ? NO_LOOPS : result.toArray(new AppLoop[result.size()]);
+	}
+
+}
@@ -1,5 +1,9 @@
 package org.fog.application.selectivity;
 
+import java.util.SplittableRandom;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
 /**
  * Generates an output tuple for an incoming input tuple with a fixed probability
  * @author Harshit Gupta
@@ -24,11 +28,16 @@ public class FractionalSelectivity implements SelectivityModel{
 	
 	@Override
 	public boolean canSelect() {
-		if(Math.random() < getSelectivity()) // if the probability condition is satisfied
+		if(CloudSim.getContext().getRandom().nextDouble() < getSelectivity()) // if the probability condition is satisfied
 			return true;
 		return false;
 	}
 	
+	@Override
+	public boolean canSelect(SplittableRandom random) {
+		return random.nextDouble() < getSelectivity();
+	}
+	
 	@Override
 	public double getMeanRate() {
 		return getSelectivity(); // the average rate of tuple generation is the fixed probability value
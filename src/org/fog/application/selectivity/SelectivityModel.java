@@ -1,5 +1,7 @@
 package org.fog.application.selectivity;
 
+import java.util.SplittableRandom;
+
 /**
  * Class representing the input-output relationships of application modules.
  * @author Harshit Gupta
@@ -13,6 +15,17 @@ public interface SelectivityModel {
 	 */
 	public boolean canSelect();
 	
+	/**
+	 * Function called to check whether incoming tuple can generate an output tuple,
+	 * drawing from the given random number stream (see Config.SELECTIVITY_STREAMS).
+	 * Models that draw no random numbers can keep this default.
+	 * @param random the random number stream of the device executing the module
+	 * @return true if a tuple can be emitted (selection possible)
+	 */
+	public default boolean canSelect(SplittableRandom random) {
+		return canSelect();
+	}
+	
 	/**
 	 * Average number of tuples generated per incoming input tuple.
 	 * @return avg tuple generation rate
@@ -2,19 +2,23 @@ package org.fog.entities;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
+import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
@@ -32,12 +36,15 @@ import org.fog.application.MyApplication;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.utils.Config;
+import org.fog.utils.EnergyLedger;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.RoutingTable;
 import org.fog.utils.TimeKeeper;
+import org.fog.utils.TraceRingBuffer;
 
 public class MyFogDevice extends PowerDatacenter {
 	protected Queue<Tuple> northTupleQueue;
@@ -80,6 +87,16 @@ public class MyFogDevice extends PowerDatacenter {
 	 */
 	protected boolean isNorthLinkBusy;
 	
+	/**
+	 * Time until which the link southwards is busy, with analytic links
+	 */
+	protected double southLinkBusyUntil;
+	
+	/**
+	 * Time until which the link northwards is busy, with analytic links
+	 */
+	protected double northLinkBusyUntil;
+	
 	protected double uplinkBandwidth;
 	protected double downlinkBandwidth;
 	protected double uplinkLatency;
@@ -88,6 +105,11 @@ public class MyFogDevice extends PowerDatacenter {
 	protected double energyConsumption;
 	protected double lastUtilizationUpdateTime;
 	protected double lastUtilization;
+
+	/**
+	 * Energy consumed by the host, recorded at each change of its utilization
+	 */
+	protected EnergyLedger energyLedger;
 	private int level;
 	
 	protected double ratePerMips;
@@ -147,6 +169,7 @@ public class MyFogDevice extends PowerDatacenter {
 		setTotalCost(0);
 		setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
 		setChildToLatencyMap(new HashMap<Integer, Double>());
+		createEnergyLedger();
 	}
 
 	public MyFogDevice(
@@ -231,6 +254,7 @@ public class MyFogDevice extends PowerDatacenter {
 		setTotalCost(0);
 		setChildToLatencyMap(new HashMap<Integer, Double>());
 		setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
+		createEnergyLedger();
 	}
 	
 	/**
@@ -250,6 +274,9 @@ public class MyFogDevice extends PowerDatacenter {
 		case FogEvents.TUPLE_ARRIVAL:
 			processTupleArrival(ev);
 			break;
+		case FogEvents.TUPLE_BATCH_ARRIVAL:
+			processTupleBatchArrival(ev);
+			break;
 		case FogEvents.LAUNCH_MODULE:
 			processModuleArrival(ev);
 			break;
@@ -293,7 +320,7 @@ public class MyFogDevice extends PowerDatacenter {
 	 */
 	private void manageResources(SimEvent ev) {
 		updateEnergyConsumption();
-		send(getId(), Config.RESOURCE_MGMT_INTERVAL, FogEvents.RESOURCE_MGMT);
+		sendTimer(Config.RESOURCE_MGMT_INTERVAL, FogEvents.RESOURCE_MGMT);
 	}
 
 	/**
@@ -342,13 +369,14 @@ public class MyFogDevice extends PowerDatacenter {
 			updateTimingsOnSending(tuple);
 			sendToSelf(tuple);			
 		}
-		send(getId(), edge.getPeriodicity(), FogEvents.SEND_PERIODIC_TUPLE, edge);
+		sendTimer(edge.getPeriodicity(), FogEvents.SEND_PERIODIC_TUPLE, edge);
 	}
 
 	protected void processMyActuatorJoined(SimEvent ev) {
 		int actuatorId = ev.getSource();
 		double delay = (double)ev.getData();
 		getAssociatedMyActuatorIds().add(new Pair<Integer, Double>(actuatorId, delay));
+		RoutingTable.getInstance().addActuator(getId(), ((MyActuator)CloudSim.getEntity(actuatorId)).getMyActuatorType());
 	}
 
 	
@@ -376,6 +404,16 @@ public class MyFogDevice extends PowerDatacenter {
 		double minTime = Double.MAX_VALUE;
 		double timeDiff = currentTime - getLastProcessTime();
 		double timeFrameDatacenterEnergy = 0.0;
+		boolean logging = !Log.isDisabled();
+
+		// the host gives every operator the MIPS requested by its tuple
+		// scheduler, none, so those with a share have to be reallocated
+		VmScheduler scheduler = getHost().getVmScheduler();
+		if(scheduler instanceof StreamOperatorScheduler){
+			List<Vm> vmsWithShare = ((StreamOperatorScheduler) scheduler).getVmsWithShare();
+			if(vmsWithShare != null)
+				changedOperators.addAll(vmsWithShare);
+		}
 
 		for (PowerHost host : this.<PowerHost> getHostList()) {
 			Log.printLine();
@@ -385,18 +423,24 @@ public class MyFogDevice extends PowerDatacenter {
 				minTime = time;
 			}
 
-			Log.formatLine(
-					"%.2f: [Host #%d] utilization is %.2f%%",
-					currentTime,
-					host.getId(),
-					host.getUtilizationOfCpu() * 100);
+			if (logging)
+				Log.formatLine(
+						"%.2f: [Host #%d] utilization is %.2f%%",
+						currentTime,
+						host.getId(),
+						host.getUtilizationOfCpu() * 100);
 		}
 
-		if (timeDiff > 0) {
-			Log.formatLine(
-					"\nEnergy consumption for the last time frame from %.2f to %.2f:",
-					getLastProcessTime(),
-					currentTime);
+		recordUtilization();
+
+		if (Config.ENERGY_LEDGER) {
+			timeFrameDatacenterEnergy = energyLedger.getEnergy(currentTime) - getPower();
+		} else if (timeDiff > 0) {
+			if (logging)
+				Log.formatLine(
+						"\nEnergy consumption for the last time frame from %.2f to %.2f:",
+						getLastProcessTime(),
+						currentTime);
 
 			for (PowerHost host : this.<PowerHost> getHostList()) {
 				double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
@@ -407,25 +451,28 @@ public class MyFogDevice extends PowerDatacenter {
 						timeDiff);
 				timeFrameDatacenterEnergy += timeFrameHostEnergy;
 
-				Log.printLine();
-				Log.formatLine(
-						"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
-						currentTime,
-						host.getId(),
-						getLastProcessTime(),
-						previousUtilizationOfCpu * 100,
-						utilizationOfCpu * 100);
-				Log.formatLine(
-						"%.2f: [Host #%d] energy is %.2f W*sec",
-						currentTime,
-						host.getId(),
-						timeFrameHostEnergy);
+				if (logging) {
+					Log.printLine();
+					Log.formatLine(
+							"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
+							currentTime,
+							host.getId(),
+							getLastProcessTime(),
+							previousUtilizationOfCpu * 100,
+							utilizationOfCpu * 100);
+					Log.formatLine(
+							"%.2f: [Host #%d] energy is %.2f W*sec",
+							currentTime,
+							host.getId(),
+							timeFrameHostEnergy);
+				}
 			}
 
-			Log.formatLine(
-					"\n%.2f: Data center's energy is %.2f W*sec\n",
-					currentTime,
-					timeFrameDatacenterEnergy);
+			if (logging)
+				Log.formatLine(
+						"\n%.2f: Data center's energy is %.2f W*sec\n",
+						currentTime,
+						timeFrameDatacenterEnergy);
 		}
 
 		setPower(getPower() + timeFrameDatacenterEnergy);
@@ -451,6 +498,36 @@ public class MyFogDevice extends PowerDatacenter {
 	}
 
 
+	/**
+	 * Scratch list receiving the tuples emitted on completion of a tuple
+	 */
+	private final List<Tuple> resultantTuples = new ArrayList<Tuple>();
+
+	/**
+	 * Scratch event handing the tuples of a batch over to processTupleArrival
+	 */
+	private final SimEvent tupleArrival = new SimEvent();
+
+	/**
+	 * Operators whose running tuples or MIPS request changed since the MIPS were
+	 * last updated. Only those are reallocated by a
+	 * {@link StreamOperatorScheduler}.
+	 */
+	private final Set<Vm> changedOperators = new LinkedHashSet<Vm>();
+
+	/**
+	 * Scratch list receiving the operators which finished tuples while
+	 * progressing in {@link #updateAllocatedMips}
+	 */
+	private final List<Vm> finishedOperators = new ArrayList<Vm>();
+
+	/**
+	 * Whether an operator of this device is also hosted by another device, which
+	 * submits tuples to it unnoticed here, so that all the operators have to be
+	 * reallocated
+	 */
+	private boolean sharedOperators;
+
 	protected void checkCloudletCompletion() {
 		boolean cloudletCompleted = false;
 		List<? extends Host> list = getVmAllocationPolicy().getHostList();
@@ -462,17 +539,21 @@ public class MyFogDevice extends PowerDatacenter {
 					if (cl != null) {
 						
 						cloudletCompleted = true;
+						changedOperators.add(vm);
 						Tuple tuple = (Tuple)cl;
-						TimeKeeper.getInstance().tupleEndedExecution(tuple);
+						TimeKeeper.getInstance().tupleEndedExecution(getId(), tuple);
 						MyApplication application = getMyApplicationMap().get(tuple.getAppId());
-						Logger.debug(getName(), "Completed execution of tuple "+tuple.getCloudletId()+"on "+tuple.getDestModuleName());
-						List<Tuple> resultantTuples = application.getResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId());
+						if(Logger.isDebugEnabled())
+							Logger.debug(getName(), "Completed execution of tuple "+tuple.getCloudletId()+"on "+tuple.getDestModuleName());
+						Logger.trace(getId(), TraceRingBuffer.TUPLE_RECEIVED, tuple.getCloudletId());
+						application.addResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId(), resultantTuples);
 						for(Tuple resTuple : resultantTuples){
 							resTuple.setModuleCopyMap(new HashMap<String, Integer>(tuple.getModuleCopyMap()));
 							resTuple.getModuleCopyMap().put(((AppModule)vm).getName(), vm.getId());
 							updateTimingsOnSending(resTuple);
 							sendToSelf(resTuple);
 						}
+						resultantTuples.clear();
 						sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
 					}
 				}
@@ -485,24 +566,21 @@ public class MyFogDevice extends PowerDatacenter {
 	protected void updateTimingsOnSending(Tuple resTuple) {
 		// TODO ADD CODE FOR UPDATING TIMINGS WHEN A TUPLE IS GENERATED FROM A PREVIOUSLY RECIEVED TUPLE. 
 		// WILL NEED TO CHECK IF A NEW LOOP STARTS AND INSERT A UNIQUE TUPLE ID TO IT.
-		String srcModule = resTuple.getSrcModuleName();
-		String destModule = resTuple.getDestModuleName();
-		for(AppLoop loop : getMyApplicationMap().get(resTuple.getAppId()).getLoops()){
-			if(loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)){
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				resTuple.setActualTupleId(tupleId);
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				
-				//Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
-				
-			}
+		MyApplication app = getMyApplicationMap().get(resTuple.getAppId());
+		for(AppLoop loop : app.getGraph().getLoopsStartingWith(resTuple)){
+			int tupleId = TimeKeeper.getInstance().getUniqueId();
+			resTuple.setActualTupleId(tupleId);
+			TimeKeeper.getInstance().tupleEmitted(loop.getLoopId(), tupleId);
+			
+			//Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
+			
 		}
 	}
 
 	protected int getChildIdWithRouteTo(int targetDeviceId){
+		RoutingTable routes = RoutingTable.getInstance();
+		if(routes.isRouted(getId()))
+			return routes.getNextHop(getId(), targetDeviceId);
 		for(Integer childId : getChildrenIds()){
 			if(targetDeviceId == childId)
 				return childId;
@@ -520,32 +598,123 @@ public class MyFogDevice extends PowerDatacenter {
 		return -1;
 	}
 	
+	/**
+	 * Gives the whole host to the operators with running tuples and to the
+	 * incoming operator, and nothing to the others. A
+	 * {@link StreamOperatorScheduler} only reallocates the operators which
+	 * changed, and only they and the operators sharing the host progress.
+	 */
 	protected void updateAllocatedMips(String incomingOperator){
-		getHost().getVmScheduler().deallocatePesForAllVms();
-		for(final Vm vm : getHost().getVmList()){
-			if(vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule)vm).getName().equals(incomingOperator)){
-				getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
-			}else{
-				getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add(0.0);}});
-			}
+		VmScheduler scheduler = getHost().getVmScheduler();
+		List<Vm> vmsWithShare = scheduler instanceof StreamOperatorScheduler ?
+				((StreamOperatorScheduler) scheduler).getVmsWithShare() : null;
+		if(vmsWithShare == null || sharedOperators){
+			if(!(scheduler instanceof StreamOperatorScheduler))
+				scheduler.deallocatePesForAllVms();
+			for(Vm vm : getHost().getVmList())
+				reallocatePesForRunningTuples(vm, incomingOperator);
+			changedOperators.clear();
+			recordUtilization();
+			
+			updateEnergyConsumption();
+			return;
 		}
+		Vm idleIncomingOperator = null;
+		for(Vm vm : changedOperators){
+			if(reallocatePesForRunningTuples(vm, incomingOperator) && vm.getCloudletScheduler().runningCloudlets() == 0)
+				idleIncomingOperator = vm;
+		}
+		for(Vm vm : changedOperators){
+			if(updateOperatorProcessing(vm))
+				finishedOperators.add(vm);
+		}
+		for(int i = 0; i < vmsWithShare.size(); i++){
+			Vm vm = vmsWithShare.get(i);
+			if(!changedOperators.contains(vm) && updateOperatorProcessing(vm))
+				finishedOperators.add(vm);
+		}
+		changedOperators.clear();
+		changedOperators.addAll(finishedOperators);
+		finishedOperators.clear();
+		// the incoming operator keeps its MIPS until it runs a tuple
+		if(idleIncomingOperator != null)
+			changedOperators.add(idleIncomingOperator);
 		
-		updateEnergyConsumption();
-		
+		updateEnergyConsumptionSinceLastUpdate();
+	}
+	
+	/**
+	 * Requests the whole host for an operator with running tuples or incoming,
+	 * and nothing otherwise.
+	 * 
+	 * @return whether the operator is the incoming one
+	 */
+	private boolean reallocatePesForRunningTuples(Vm vm, String incomingOperator){
+		boolean incoming = ((AppModule)vm).getName().equals(incomingOperator);
+		if(vm.getCloudletScheduler().runningCloudlets() > 0 || incoming){
+			reallocatePesForVm(vm, getHost().getTotalMips());
+		}else{
+			reallocatePesForVm(vm, 0);
+		}
+		return incoming;
+	}
+	
+	/**
+	 * Sets the MIPS requested by an operator. A {@link StreamOperatorScheduler}
+	 * only updates the shares the new request changes.
+	 */
+	protected void reallocatePesForVm(Vm vm, double mips){
+		VmScheduler scheduler = getHost().getVmScheduler();
+		if(scheduler instanceof StreamOperatorScheduler){
+			((StreamOperatorScheduler) scheduler).reallocatePesForVm(vm, mips);
+			return;
+		}
+		List<Double> mipsShare = new ArrayList<Double>(1);
+		mipsShare.add(mips);
+		scheduler.deallocatePesForVm(vm);
+		scheduler.allocatePesForVm(vm, mipsShare);
 	}
 	
 	private void updateEnergyConsumption() {
-		double totalMipsAllocated = 0;
 		for(final Vm vm : getHost().getVmList()){
-			AppModule operator = (AppModule)vm;
-			operator.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(operator).getVmScheduler()
-					.getAllocatedMipsForVm(operator));
-			totalMipsAllocated += getHost().getTotalAllocatedMipsForVm(vm);
+			if(updateOperatorProcessing(vm))
+				changedOperators.add(vm);
 		}
+		updateEnergyConsumptionSinceLastUpdate();
+	}
+	
+	/**
+	 * Makes the tuples of an operator progress up to now, at the MIPS it is
+	 * allocated from now on.
+	 * 
+	 * @return whether the operator has finished tuples, and so fewer running
+	 */
+	private boolean updateOperatorProcessing(Vm vm){
+		AppModule operator = (AppModule)vm;
+		operator.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(operator).getVmScheduler()
+				.getAllocatedMipsForVm(operator));
+		return operator.getCloudletScheduler().isFinishedCloudlets();
+	}
+	
+	/**
+	 * Returns the MIPS allocated to all the operators, kept by a
+	 * {@link StreamOperatorScheduler}.
+	 */
+	private double getTotalAllocatedMips(){
+		VmScheduler scheduler = getHost().getVmScheduler();
+		if(scheduler instanceof StreamOperatorScheduler)
+			return ((StreamOperatorScheduler) scheduler).getTotalAllocatedMips();
+		double totalMipsAllocated = 0;
+		for(Vm vm : getHost().getVmList())
+			totalMipsAllocated += getHost().getTotalAllocatedMipsForVm(vm);
+		return totalMipsAllocated;
+	}
+	
+	private void updateEnergyConsumptionSinceLastUpdate(){
+		if(Config.ENERGY_LEDGER)
+			return;
+		
+		double totalMipsAllocated = getTotalAllocatedMips();
 		
 		double timeNow = CloudSim.clock();
 		double currentEnergyConsumption = getEnergyConsumption();
@@ -609,9 +778,29 @@ public class MyFogDevice extends PowerDatacenter {
 				return;
 			}
 		}
+		RoutingTable routes = RoutingTable.getInstance();
+		if(!routes.isRouted(getId())){
+			sendDown(tuple, getChildrenIds());
+			return;
+		}
+		// a tuple for a given actuator goes down its route only
+		int actuatorId = tuple.getActuatorId();
+		if(actuatorId >= 0 && actuatorId < CloudSim.getNumEntities()
+				&& CloudSim.getEntity(actuatorId) instanceof MyActuator){
+			int childId = getChildIdForTuple(tuple);
+			if(childId != -1){
+				sendDown(tuple, childId);
+				return;
+			}
+		}
+		// otherwise, to the subtrees holding an actuator of its type
+		Set<Integer> children = routes.getChildrenTowardsActuators(getId(), tuple.getDestModuleName());
+		List<Integer> childIds = new ArrayList<Integer>(children.size());
 		for(int childId : getChildrenIds()){
-			sendDown(tuple, childId);
+			if(children.contains(childId))
+				childIds.add(childId);
 		}
+		sendDown(tuple, childIds);
 	}
 	int numClients=0;
 	protected void processTupleArrival(SimEvent ev){
@@ -624,9 +813,12 @@ public class MyFogDevice extends PowerDatacenter {
 		/*if(getName().equals("d-0") && tuple.getTupleType().equals("_SENSOR")){
 			System.out.println(++numClients);
 		}*/
-		Logger.debug(getName(), "Received tuple "+tuple.getCloudletId()+"with tupleType = "+tuple.getTupleType()+"\t| Source : "+
-		CloudSim.getEntityName(ev.getSource())+"|Dest : "+CloudSim.getEntityName(ev.getDestination()));
-		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
+		if(Logger.isDebugEnabled())
+			Logger.debug(getName(), "Received tuple "+tuple.getCloudletId()+"with tupleType = "+tuple.getTupleType()+"\t| Source : "+
+			CloudSim.getEntityName(ev.getSource())+"|Dest : "+CloudSim.getEntityName(ev.getDestination()));
+		Logger.trace(getId(), TraceRingBuffer.TUPLE_ARRIVAL, tuple.getCloudletId());
+		if(!Config.ANALYTIC_LINKS)
+			send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 		
 		if(FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())){
 		}
@@ -639,10 +831,9 @@ public class MyFogDevice extends PowerDatacenter {
 		if(getHost().getVmList().size() > 0){
 			final AppModule operator = (AppModule)getHost().getVmList().get(0);
 			if(CloudSim.clock() > 0){
-				getHost().getVmScheduler().deallocatePesForVm(operator);
-				getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
+				reallocatePesForVm(operator, getHost().getTotalMips());
+				changedOperators.add(operator);
+				recordUtilization();
 			}
 		}
 		
@@ -672,47 +863,42 @@ public class MyFogDevice extends PowerDatacenter {
 			}else if(tuple.getDestModuleName()!=null){
 				if(tuple.getDirection() == Tuple.UP)
 					sendUp(tuple);
-				else if(tuple.getDirection() == Tuple.DOWN){
-					for(int childId : getChildrenIds())
-						sendDown(tuple, childId);
-				}
+				else if(tuple.getDirection() == Tuple.DOWN)
+					sendDown(tuple, getChildrenIds());
 			}else{
 				sendUp(tuple);
 			}
 		}else{
 			if(tuple.getDirection() == Tuple.UP)
 				sendUp(tuple);
-			else if(tuple.getDirection() == Tuple.DOWN){
-				for(int childId : getChildrenIds())
-					sendDown(tuple, childId);
-			}
+			else if(tuple.getDirection() == Tuple.DOWN)
+				sendDown(tuple, getChildrenIds());
 		}
 	}
 
+	/**
+	 * Processes the tuples of a batch in the order they were sent, each as if it
+	 * had arrived with its own event, weighted like the batch event. The tuples
+	 * are handed over one after the other in the same event, which is not kept
+	 * by processTupleArrival.
+	 */
+	protected void processTupleBatchArrival(SimEvent ev){
+		TupleBatch batch = (TupleBatch)ev.getData();
+		TupleBatch.delivered(batch);
+		for(int i = 0; i < batch.size(); i++){
+			tupleArrival.reuse(SimEvent.SEND, ev.eventTime(), batch.getSource(i), getId(),
+					FogEvents.TUPLE_ARRIVAL, batch.getTuple(i));
+			tupleArrival.fuzzyScheduler = ev.fuzzyScheduler;
+			processTupleArrival(tupleArrival);
+		}
+		tupleArrival.reuse(SimEvent.ENULL, -1, -1, -1, -1, null);
+	}
+	
 	protected void updateTimingsOnReceipt(Tuple tuple) {
 		MyApplication app = getMyApplicationMap().get(tuple.getAppId());
-		String srcModule = tuple.getSrcModuleName();
-		String destModule = tuple.getDestModuleName();
-		List<AppLoop> loops = app.getLoops();
-		for(AppLoop loop : loops){
-			if(loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)){				
-				Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				if(startTime==null)
-					break;
-				if(!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())){
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-				double delay = CloudSim.clock()- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount+1);
-				break;
-			}
-		}
+		AppLoop[] loops = app.getGraph().getLoopsEndingWith(tuple);
+		if(loops.length > 0)
+			TimeKeeper.getInstance().loopCompleted(loops[0].getLoopId(), tuple.getActualTupleId());
 	}
 
 	protected void processMySensorJoining(SimEvent ev){
@@ -720,8 +906,10 @@ public class MyFogDevice extends PowerDatacenter {
 	}
 	
 	protected void executeTuple(SimEvent ev, String moduleName){
-		Logger.debug(getName(), "Executing tuple on module "+moduleName);
+		if(Logger.isDebugEnabled())
+			Logger.debug(getName(), "Executing tuple on module "+moduleName);
 		Tuple tuple = (Tuple)ev.getData();
+		Logger.trace(getId(), TraceRingBuffer.TUPLE_EXECUTION, tuple.getCloudletId());
 		
 		AppModule module = getModuleByName(moduleName);
 		
@@ -739,9 +927,11 @@ public class MyFogDevice extends PowerDatacenter {
 			module.setNumInstances(instances);
 		}
 		
-		TimeKeeper.getInstance().tupleStartedExecution(tuple);
+		TimeKeeper.getInstance().tupleStartedExecution(getId(), tuple);
+		changedOperators.add(module);
 		updateAllocatedMips(moduleName);
 		processCloudletSubmit(ev, false);
+		changedOperators.add(module);
 		updateAllocatedMips(moduleName);
 		/*for(Vm vm : getHost().getVmList()){
 			Logger.error(getName(), "MIPS allocated to "+((AppModule)vm).getName()+" = "+getHost().getTotalAllocatedMipsForVm(vm));
@@ -755,7 +945,13 @@ public class MyFogDevice extends PowerDatacenter {
 			appToModulesMap.put(appId, new ArrayList<String>());
 		}
 		appToModulesMap.get(appId).add(module.getName());
+		Host previousHost = module.getHost();
+		if(previousHost != null && previousHost != getHost() && previousHost.getDatacenter() instanceof MyFogDevice){
+			((MyFogDevice) previousHost.getDatacenter()).sharedOperators = true;
+			sharedOperators = true;
+		}
 		processVmCreate(ev, false);
+		changedOperators.add(module);
 		if (module.isBeingInstantiated()) {
 			module.setBeingInstantiated(false);
 		}
@@ -772,12 +968,13 @@ public class MyFogDevice extends PowerDatacenter {
 		MyApplication app = getMyApplicationMap().get(appId);
 		List<AppEdge> periodicEdges = app.getPeriodicEdges(module.getName());
 		for(AppEdge edge : periodicEdges){
-			send(getId(), edge.getPeriodicity(), FogEvents.SEND_PERIODIC_TUPLE, edge);
+			sendTimer(edge.getPeriodicity(), FogEvents.SEND_PERIODIC_TUPLE, edge);
 		}
 	}
 
 	protected void processOperatorRelease(SimEvent ev){
 		this.processVmMigrate(ev, false);
+		changedOperators.add((Vm)((Map<?, ?>)ev.getData()).get("vm"));
 	}
 	
 	
@@ -798,9 +995,24 @@ public class MyFogDevice extends PowerDatacenter {
 		NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
 	}
 	
+	/**
+	 * Sends a tuple up without link events: it leaves when the uplink is done
+	 * with the tuples sent before it, at the time the north tuple queue would
+	 * have been polled.
+	 */
+	protected void sendUpAnalytic(Tuple tuple){
+		double networkDelay = tuple.getCloudletFileSize()/getUplinkBandwidth();
+		double departure = Math.max(CloudSim.clock(), northLinkBusyUntil);
+		northLinkBusyUntil = departure+networkDelay;
+		sendTuple(parentId, departure, networkDelay+getUplinkLatency(), tuple);
+		NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
+	}
+	
 	protected void sendUp(Tuple tuple){
 		if(parentId > 0){
-			if(!isNorthLinkBusy()){
+			if(Config.ANALYTIC_LINKS){
+				sendUpAnalytic(tuple);
+			}else if(!isNorthLinkBusy()){
 				sendUpFreeLink(tuple);
 			}else{
 				northTupleQueue.add(tuple);
@@ -828,9 +1040,39 @@ public class MyFogDevice extends PowerDatacenter {
 		NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
 	}
 	
+	/**
+	 * Sends a tuple down without link events, like {@link #sendUpAnalytic(Tuple)}.
+	 */
+	protected void sendDownAnalytic(Tuple tuple, int childId){
+		double networkDelay = tuple.getCloudletFileSize()/getDownlinkBandwidth();
+		double departure = Math.max(CloudSim.clock(), southLinkBusyUntil);
+		southLinkBusyUntil = departure+networkDelay;
+		double latency = getChildToLatencyMap().get(childId);
+		sendTuple(childId, departure, networkDelay+latency, tuple);
+		NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
+	}
+	
+	/**
+	 * Sends a tuple leaving this device at the given time, in the batch of its
+	 * destination and arrival time if tuple arrivals are batched.
+	 */
+	protected void sendTuple(int destId, double departure, double delay, Tuple tuple){
+		// the arrival time of a batch must not depend on its sender
+		if(Config.BATCH_TUPLE_ARRIVALS && !NetworkTopology.isNetworkEnabled()){
+			TupleBatch batch = TupleBatch.getPending(destId, departure+delay);
+			if(batch.size() == 0)
+				sendLater(departure, destId, delay, FogEvents.TUPLE_BATCH_ARRIVAL, batch);
+			batch.add(getId(), tuple);
+		}else{
+			sendLater(departure, destId, delay, FogEvents.TUPLE_ARRIVAL, tuple);
+		}
+	}
+	
 	protected void sendDown(Tuple tuple, int childId){
 		if(getChildrenIds().contains(childId)){
-			if(!isSouthLinkBusy()){
+			if(Config.ANALYTIC_LINKS){
+				sendDownAnalytic(tuple, childId);
+			}else if(!isSouthLinkBusy()){
 				sendDownFreeLink(tuple, childId);
 			}else{
 				southTupleQueue.add(new Pair<Tuple, Integer>(tuple, childId));
@@ -838,6 +1080,15 @@ public class MyFogDevice extends PowerDatacenter {
 		}
 	}
 	
+	/**
+	 * Sends a tuple down to several children. With
+	 * {@link Config#BROADCAST_TUPLE_COPIES}, the first one gets the tuple and
+	 * each of the others a copy of it.
+	 */
+	protected void sendDown(Tuple tuple, List<Integer> childIds){
+		for(int i = 0; i < childIds.size(); i++)
+			sendDown(i > 0 && Config.BROADCAST_TUPLE_COPIES ? tuple.copy() : tuple, childIds.get(i));
+	}
 	
 	protected void sendToSelf(Tuple tuple){
 		send(getId(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ARRIVAL, tuple);
@@ -939,8 +1190,40 @@ public class MyFogDevice extends PowerDatacenter {
 	public void setAssociatedMyActuatorIds(List<Pair<Integer, Double>> associatedMyActuatorIds) {
 		this.associatedMyActuatorIds = associatedMyActuatorIds;
 	}
+
+	/**
+	 * Creates the energy ledger of the host. A {@link StreamOperatorScheduler}
+	 * records every change of the MIPS it allocates in it; the utilization given
+	 * by other schedulers is recorded by {@link #recordUtilization()}.
+	 */
+	private void createEnergyLedger(){
+		energyLedger = new EnergyLedger(getHost().getPowerModel(), CloudSim.clock());
+		if(getHost().getVmScheduler() instanceof StreamOperatorScheduler)
+			((StreamOperatorScheduler) getHost().getVmScheduler()).setEnergyLedger(energyLedger);
+	}
+	
+	/**
+	 * Records the current utilization of the host in the energy ledger, unless
+	 * its scheduler does it.
+	 */
+	protected void recordUtilization(){
+		if(getHost().getVmScheduler() instanceof StreamOperatorScheduler)
+			return;
+		energyLedger.recordUtilization(CloudSim.clock(), getTotalAllocatedMips()/getHost().getTotalMips());
+	}
+	
+	public EnergyLedger getEnergyLedger() {
+		return energyLedger;
+	}
 	
+	/**
+	 * Returns the energy consumed so far: with {@link Config#ENERGY_LEDGER}, the
+	 * exact energy up to the current time, otherwise the energy up to the last
+	 * update.
+	 */
 	public double getEnergyConsumption() {
+		if(Config.ENERGY_LEDGER)
+			return energyLedger.getEnergy(CloudSim.clock());
 		return energyConsumption;
 	}
 
@@ -970,7 +1253,13 @@ public class MyFogDevice extends PowerDatacenter {
 	public void setRatePerMips(double ratePerMips) {
 		this.ratePerMips = ratePerMips;
 	}
+	/**
+	 * Returns the cost of the MIPS used so far, exact up to the current time with
+	 * {@link Config#ENERGY_LEDGER}.
+	 */
 	public double getTotalCost() {
+		if(Config.ENERGY_LEDGER)
+			return getRatePerMips()*getHost().getTotalMips()*energyLedger.getUtilizationTime(CloudSim.clock());
 		return totalCost;
 	}
 
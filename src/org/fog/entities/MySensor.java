@@ -1,19 +1,19 @@
 package org.fog.entities;
 
-import java.util.ArrayList;
-
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
+import org.fog.application.ApplicationGraph;
 import org.fog.application.MyApplication;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.GeoLocation;
 import org.fog.utils.Logger;
 import org.fog.utils.TimeKeeper;
+import org.fog.utils.TraceRingBuffer;
 import org.fog.utils.distribution.Distribution;
 
 public class MySensor extends SimEntity{
@@ -30,6 +30,12 @@ public class MySensor extends SimEntity{
 	private int controllerId;
 	private MyApplication app;
 	private double latency;
+
+	/**
+	 * Edge carrying the tuples of the sensor, in the graph it was looked up in
+	 */
+	private ApplicationGraph edgeGraph;
+	private int edgeId;
 	
 	public MySensor(String name, int userId, String appId, int gatewayDeviceId, double latency, GeoLocation geoLocation, 
 			Distribution transmitDistribution, int cpuLength, int nwLength, String tupleType, String destModuleName) {
@@ -79,11 +85,12 @@ public class MySensor extends SimEntity{
 	}
 	
 	public void transmit(){
-		AppEdge _edge = null;
-		for(AppEdge edge : getApp().getEdges()){
-			if(edge.getSource().equals(getTupleType()))
-				_edge = edge;
+		ApplicationGraph graph = getApp().getGraph();
+		if(graph != edgeGraph){
+			edgeGraph = graph;
+			edgeId = graph.getLastEdgeFrom(getTupleType());
 		}
+		AppEdge _edge = edgeId == -1 ? null : graph.getEdge(edgeId);
 		long cpuLength = (long) _edge.getTupleCpuLength();
 		long nwLength = (long) _edge.getTupleNwLength();
 		
@@ -94,34 +101,34 @@ public class MySensor extends SimEntity{
 		
 		tuple.setDestModuleName(_edge.getDestination());
 		tuple.setSrcModuleName(getSensorName());
-		Logger.debug(getName(), "Sending tuple with tupleId = "+tuple.getCloudletId());
+		tuple.setEdgeId(edgeId);
+		if(Logger.isDebugEnabled())
+			Logger.debug(getName(), "Sending tuple with tupleId = "+tuple.getCloudletId());
+		Logger.trace(getId(), TraceRingBuffer.TUPLE_SENT, tuple.getCloudletId());
 
-		int actualTupleId = updateTimings(getSensorName(), tuple.getDestModuleName());
+		int actualTupleId = updateTimings(tuple);
 		tuple.setActualTupleId(actualTupleId);
 		
 		send(gatewayDeviceId, getLatency(), FogEvents.TUPLE_ARRIVAL,tuple);
 	}
 	
-	private int updateTimings(String src, String dest){
+	private int updateTimings(Tuple tuple){
 		MyApplication application = getApp();
-		for(AppLoop loop : application.getLoops()){
-			if(loop.hasEdge(src, dest)){
-				
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				return tupleId;
-			}
+		AppLoop[] loops = application.getGraph().getLoopsWithEdge(tuple);
+		if(loops.length > 0){
+			int tupleId = TimeKeeper.getInstance().getUniqueId();
+			TimeKeeper.getInstance().tupleEmitted(loops[0].getLoopId(), tupleId);
+			return tupleId;
 		}
 		return -1;
 	}
 	
 	@Override
 	public void startEntity() {
+		// the inter-arrival times are drawn from the stream of this sensor
+		getTransmitDistribution().setRandomStream(CloudSim.getContext().getRandomStream(getId()));
 		send(gatewayDeviceId, CloudSim.getMinTimeBetweenEvents(), FogEvents.SENSOR_JOINED, geoLocation);
-		send(getId(), getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
+		sendTimer(getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
 	}
 
 	@Override
@@ -132,7 +139,7 @@ public class MySensor extends SimEntity{
 			break;
 		case FogEvents.EMIT_TUPLE:
 			transmit();
-			send(getId(), getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
+			sendTimer(getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
 			break;
 		}
 			
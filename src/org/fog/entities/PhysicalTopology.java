@@ -2,6 +2,8 @@ package org.fog.entities;
 
 import java.util.List;
 
+import org.fog.utils.RoutingTable;
+
 public class PhysicalTopology {
 	
 	private List<FogDevice> fogDevices;
@@ -12,6 +14,7 @@ public class PhysicalTopology {
 	}
 	public void setFogDevices(List<FogDevice> fogDevices) {
 		this.fogDevices = fogDevices;
+		RoutingTable.getInstance().clear();
 	}
 	public List<Sensor> getSensors() {
 		return sensors;
@@ -24,6 +27,7 @@ public class PhysicalTopology {
 	}
 	public void setActuators(List<Actuator> actuators) {
 		this.actuators = actuators;
+		RoutingTable.getInstance().clear();
 	}
 
 }
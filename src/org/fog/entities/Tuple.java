@@ -22,6 +22,12 @@ public class Tuple extends Cloudlet{
 	private int actuatorId;
 	private int sourceDeviceId;
 	private int sourceModuleId;
+	/**
+	 * Number of the application edge the tuple was created from, -1 if unknown.
+	 * 
+	 * @see org.fog.application.ApplicationGraph
+	 */
+	private int edgeId;
 	/**
 	 * Map to keep track of which module instances has a tuple traversed.
 	 * 
@@ -40,6 +46,7 @@ public class Tuple extends Cloudlet{
 		setAppId(appId);
 		setDirection(direction);
 		setSourceDeviceId(-1);
+		setEdgeId(-1);
 		setModuleCopyMap(new HashMap<String, Integer>());
 	}
 
@@ -67,6 +74,14 @@ public class Tuple extends Cloudlet{
 		this.tupleType = tupleType;
 	}
 
+	public int getEdgeId() {
+		return edgeId;
+	}
+
+	public void setEdgeId(int edgeId) {
+		this.edgeId = edgeId;
+	}
+
 	public String getDestModuleName() {
 		return destModuleName;
 	}
@@ -123,4 +138,26 @@ public class Tuple extends Cloudlet{
 		this.sourceModuleId = sourceModuleId;
 	}
 
+	/**
+	 * Creates a tuple with the same ids and contents, in the state of a newly
+	 * created one. A device executing a tuple changes its state as a cloudlet,
+	 * so each device a tuple is sent to at once needs its own copy.
+	 */
+	public Tuple copy() {
+		Tuple tuple = new Tuple(getAppId(), getCloudletId(), getDirection(), getCloudletLength(), getNumberOfPes(),
+				getCloudletFileSize(), getCloudletOutputSize(), getUtilizationModelCpu(),
+				getUtilizationModelRam(), getUtilizationModelBw());
+		tuple.setUserId(getUserId());
+		tuple.setTupleType(getTupleType());
+		tuple.setDestModuleName(getDestModuleName());
+		tuple.setSrcModuleName(getSrcModuleName());
+		tuple.setActualTupleId(getActualTupleId());
+		tuple.setActuatorId(getActuatorId());
+		tuple.setSourceDeviceId(getSourceDeviceId());
+		tuple.setSourceModuleId(getSourceModuleId());
+		tuple.setEdgeId(getEdgeId());
+		tuple.setModuleCopyMap(new HashMap<String, Integer>(getModuleCopyMap()));
+		return tuple;
+	}
+
 }
@@ -0,0 +1,102 @@
+package org.fog.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * Tuples arriving at the same device at the same time, delivered by a single
+ * TUPLE_BATCH_ARRIVAL event when {@link org.fog.utils.Config#BATCH_TUPLE_ARRIVALS}
+ * is set. The batches not delivered yet are kept by destination and arrival
+ * time, so a tuple sent to a device joins the batch already scheduled for its
+ * arrival time, whichever device sends it. The senders of a batch may belong
+ * to different logical processes of the conservative engine, so batches are
+ * only available with the sequential engine.
+ */
+public class TupleBatch {
+
+	/**
+	 * The batches not delivered yet in a simulation context.
+	 */
+	private static class PendingBatches {
+		private final Map<Integer, Map<Double, TupleBatch>> batches = new HashMap<Integer, Map<Double, TupleBatch>>();
+	}
+
+	private final int destination;
+	private final double time;
+	private final List<Integer> sources = new ArrayList<Integer>();
+	private final List<Tuple> tuples = new ArrayList<Tuple>();
+
+	private TupleBatch(int destination, double time) {
+		this.destination = destination;
+		this.time = time;
+	}
+
+	private static Map<Integer, Map<Double, TupleBatch>> getPendingBatches(){
+		if(CloudSim.getSimEntityPartition() != null)
+			throw new IllegalStateException("Batched tuple arrivals need the sequential engine");
+		SimulationContext context = CloudSim.getContext();
+		PendingBatches instance = context.getAttribute(PendingBatches.class);
+		if(instance == null)
+			instance = context.putAttributeIfAbsent(PendingBatches.class, new PendingBatches());
+		return instance.batches;
+	}
+
+	/**
+	 * Returns the batch arriving at a device at the given time, creating it if
+	 * there is none. A new batch is empty: the caller schedules its delivery.
+	 */
+	public static TupleBatch getPending(int destination, double time){
+		Map<Double, TupleBatch> byTime = getPendingBatches().get(destination);
+		if(byTime == null){
+			byTime = new HashMap<Double, TupleBatch>();
+			getPendingBatches().put(destination, byTime);
+		}
+		TupleBatch batch = byTime.get(time);
+		if(batch == null){
+			batch = new TupleBatch(destination, time);
+			byTime.put(time, batch);
+		}
+		return batch;
+	}
+
+	/**
+	 * Forgets a batch that has been delivered, so that the tuples sent to the same
+	 * device and time from now on go to a new batch.
+	 */
+	public static void delivered(TupleBatch batch){
+		Map<Double, TupleBatch> byTime = getPendingBatches().get(batch.destination);
+		if(byTime != null && byTime.get(batch.time) == batch)
+			byTime.remove(batch.time);
+	}
+
+	public void add(int source, Tuple tuple){
+		sources.add(source);
+		tuples.add(tuple);
+	}
+
+	public int size(){
+		return tuples.size();
+	}
+
+	public int getSource(int index){
+		return sources.get(index);
+	}
+
+	public Tuple getTuple(int index){
+		return tuples.get(index);
+	}
+
+	public int getDestination() {
+		return destination;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.fog.placement;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
@@ -18,7 +20,10 @@ import org.fog.entities.Sensor;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
+import org.fog.utils.LatencyHistogram;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.RoutingTable;
+import org.fog.utils.SimulationTraceRecorder;
 import org.fog.utils.TimeKeeper;
 
 public class Controller extends SimEntity {
@@ -32,8 +37,12 @@ public class Controller extends SimEntity {
 	private Map<String, Application> applications;
 	private Map<String, Integer> appLaunchDelays;
 
+	private SimulationTraceRecorder traceRecorder;
+
 	private Map<String, ModulePlacement> appModulePlacementPolicy;
 
+	private boolean exitOnStop = true;
+
 	public Controller(String name, List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators) {
 		super(name);
 		this.applications = new HashMap<String, Application>();
@@ -57,6 +66,8 @@ public class Controller extends SimEntity {
 	}
 
 	private void connectWithLatencies() {
+		RoutingTable routes = RoutingTable.getInstance();
+		routes.clear();
 		for (FogDevice fogDevice : getFogDevices()) {
 			FogDevice parent = getFogDeviceById(fogDevice.getParentId());
 			if (parent == null)
@@ -64,11 +75,19 @@ public class Controller extends SimEntity {
 			double latency = fogDevice.getUplinkLatency();
 			parent.getChildToLatencyMap().put(fogDevice.getId(), latency);
 			parent.getChildrenIds().add(fogDevice.getId());
+			routes.addLink(parent.getId(), fogDevice.getId());
 		}
 	}
 
 	@Override
 	public void startEntity() {
+		if (Config.SIMULATION_TRACE_FILE != null) {
+			try {
+				traceRecorder = SimulationTraceRecorder.start(new File(Config.SIMULATION_TRACE_FILE));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 		for (String appId : applications.keySet()) {
 			if (getAppLaunchDelays().get(appId) == 0)
 				processAppSubmit(applications.get(appId));
@@ -80,8 +99,10 @@ public class Controller extends SimEntity {
 
 		send(getId(), Config.MAX_SIMULATION_TIME, FogEvents.STOP_SIMULATION);
 
-		for (FogDevice dev : getFogDevices())
-			sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		if (!Config.ENERGY_LEDGER) {
+			for (FogDevice dev : getFogDevices())
+				sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		}
 
 	}
 
@@ -98,6 +119,12 @@ public class Controller extends SimEntity {
 			manageResources();
 			break;
 		case FogEvents.STOP_SIMULATION:
+			closeTrace();
+			if (!isExitOnStop()) {
+				// the results are left to whoever runs the simulation
+				CloudSim.abruptallyTerminate();
+				break;
+			}
 			CloudSim.stopSimulation();
 			printTimeDetails();
 			printPowerDetails();
@@ -109,6 +136,17 @@ public class Controller extends SimEntity {
 		}
 	}
 
+	private void closeTrace() {
+		if (traceRecorder == null)
+			return;
+		try {
+			traceRecorder.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		traceRecorder = null;
+	}
+
 	private void printNetworkUsageDetails() {
 		System.out
 				.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage() / Config.MAX_SIMULATION_TIME);
@@ -148,18 +186,13 @@ public class Controller extends SimEntity {
 		System.out.println("=========================================");
 		System.out.println("EXECUTION TIME : "
 				+ (Calendar.getInstance().getTimeInMillis() - TimeKeeper.getInstance().getSimulationStartTime()));
+		System.out.println("EVENTS PROCESSED : " + CloudSim.getNumProcessedEvents());
+		System.out.println("EVENTS PER SECOND : " + String.format("%.1f", CloudSim.getEventsPerSecond()));
+		System.out.println("AVERAGE BATCH SIZE : " + String.format("%.2f", CloudSim.getAverageBatchSize()));
 		System.out.println("=========================================");
 		System.out.println("APPLICATION LOOP DELAYS");
 		System.out.println("=========================================");
-		for (Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()) {
-			/*
-			 * double average = 0, count = 0; for(int tupleId :
-			 * TimeKeeper.getInstance().getLoopIdToTupleIds().get(loopId)){ Double startTime
-			 * = TimeKeeper.getInstance().getEmitTimes().get(tupleId); Double endTime =
-			 * TimeKeeper.getInstance().getEndTimes().get(tupleId); if(startTime == null ||
-			 * endTime == null) break; average += endTime-startTime; count += 1; }
-			 * System.out.println(getStringForLoopId(loopId) + " ---> "+(average/count));
-			 */
+		for (Integer loopId : TimeKeeper.getInstance().getLoopIds()) {
 			System.out.println(getStringForLoopId(loopId) + " ---> "
 					+ TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
 		}
@@ -167,11 +200,25 @@ public class Controller extends SimEntity {
 		System.out.println("TUPLE CPU EXECUTION DELAY");
 		System.out.println("=========================================");
 
-		for (String tupleType : TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().keySet()) {
+		for (String tupleType : TimeKeeper.getInstance().getTupleTypes()) {
 			System.out.println(
 					tupleType + " ---> " + TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().get(tupleType));
 		}
 
+		System.out.println("=========================================");
+		System.out.println("APPLICATION LOOP DELAY PERCENTILES");
+		System.out.println("=========================================");
+		for (Integer loopId : TimeKeeper.getInstance().getLoopIds()) {
+			LatencyHistogram delays = TimeKeeper.getInstance().getLoopDelays(loopId);
+			if (delays.getCount() > 0)
+				System.out.println(getStringForLoopId(loopId) + " ---> " + delays);
+		}
+		System.out.println("=========================================");
+		System.out.println("TUPLE CPU EXECUTION DELAY PERCENTILES");
+		System.out.println("=========================================");
+		for (String tupleType : TimeKeeper.getInstance().getTupleTypes())
+			System.out.println(tupleType + " ---> " + TimeKeeper.getInstance().getCpuTimes(tupleType));
+
 		System.out.println("=========================================");
 	}
 
@@ -184,6 +231,8 @@ public class Controller extends SimEntity {
 
 	@Override
 	public void shutdownEntity() {
+		// the run may end before STOP_SIMULATION
+		closeTrace();
 	}
 
 	public void submitApplication(Application application, int delay, ModulePlacement modulePlacement) {
@@ -281,6 +330,19 @@ public class Controller extends SimEntity {
 		this.actuators = actuators;
 	}
 
+	public boolean isExitOnStop() {
+		return exitOnStop;
+	}
+
+	/**
+	 * Sets whether the controller prints the results and ends the JVM when the
+	 * simulation reaches {@link Config#MAX_SIMULATION_TIME}, or only stops the
+	 * simulation.
+	 */
+	public void setExitOnStop(boolean exitOnStop) {
+		this.exitOnStop = exitOnStop;
+	}
+
 	public Map<String, ModulePlacement> getAppModulePlacementPolicy() {
 		return appModulePlacementPolicy;
 	}
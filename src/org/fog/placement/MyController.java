@@ -1,5 +1,7 @@
 package org.fog.placement;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +21,8 @@ import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.RoutingTable;
+import org.fog.utils.SimulationTraceRecorder;
 import org.fog.utils.TimeKeeper;
 
 public class MyController extends SimEntity{
@@ -32,6 +36,8 @@ public class MyController extends SimEntity{
 	private Map<String, MyApplication> applications;
 	private Map<String, Integer> appLaunchDelays;
 
+	private SimulationTraceRecorder traceRecorder;
+
 	private Map<String, MyModulePlacement> appModulePlacementPolicy;
 	
 	public MyController(String name, List<MyFogDevice> fogDevices, List<MySensor> sensors, List<MyActuator> actuators) {
@@ -57,6 +63,8 @@ public class MyController extends SimEntity{
 	}
 	
 	private void connectWithLatencies(){
+		RoutingTable routes = RoutingTable.getInstance();
+		routes.clear();
 		for(MyFogDevice fogDevice : getMyFogDevices()){
 			MyFogDevice parent = getMyFogDeviceById(fogDevice.getParentId());
 			if(parent == null)
@@ -64,11 +72,19 @@ public class MyController extends SimEntity{
 			double latency = fogDevice.getUplinkLatency();
 			parent.getChildToLatencyMap().put(fogDevice.getId(), latency);
 			parent.getChildrenIds().add(fogDevice.getId());
+			routes.addLink(parent.getId(), fogDevice.getId());
 		}
 	}
 	
 	@Override
 	public void startEntity() {
+		if(Config.SIMULATION_TRACE_FILE != null){
+			try {
+				traceRecorder = SimulationTraceRecorder.start(new File(Config.SIMULATION_TRACE_FILE));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 		for(String appId : applications.keySet()){
 			if(getAppLaunchDelays().get(appId)==0)
 				processAppSubmit(applications.get(appId));
@@ -80,8 +96,10 @@ public class MyController extends SimEntity{
 		
 		send(getId(), Config.MAX_SIMULATION_TIME, FogEvents.STOP_SIMULATION);
 		
-		for(MyFogDevice dev : getMyFogDevices())
-			sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		if(!Config.ENERGY_LEDGER){
+			for(MyFogDevice dev : getMyFogDevices())
+				sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		}
 
 	}
 
@@ -98,6 +116,7 @@ public class MyController extends SimEntity{
 			manageResources();
 			break;
 		case FogEvents.STOP_SIMULATION:
+			closeTrace();
 			CloudSim.stopSimulation();
 			printTimeDetails();
 			printPowerDetails();
@@ -109,6 +128,17 @@ public class MyController extends SimEntity{
 		}
 	}
 	
+	private void closeTrace(){
+		if(traceRecorder == null)
+			return;
+		try {
+			traceRecorder.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		traceRecorder = null;
+	}
+	
 	private void printNetworkUsageDetails() {
 		System.out.println("Total network usage = "+NetworkUsageMonitor.getNetworkUsage()/Config.MAX_SIMULATION_TIME);		
 	}
@@ -148,7 +178,7 @@ public class MyController extends SimEntity{
 		System.out.println("=========================================");
 		System.out.println("APPLICATION LOOP DELAYS");
 		System.out.println("=========================================");
-		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()){
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIds()){
 		
 			System.out.println(getStringForLoopId(loopId) + " ---> "+TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
 		}
@@ -172,6 +202,8 @@ public class MyController extends SimEntity{
 	
 	@Override
 	public void shutdownEntity() {	
+		// the run may end before STOP_SIMULATION
+		closeTrace();
 	}
 	
 	public void submitApplication(MyApplication application, int delay, MyModulePlacement modulePlacement){
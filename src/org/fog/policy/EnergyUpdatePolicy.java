@@ -0,0 +1,52 @@
+package org.fog.policy;
+
+import java.util.SplittableRandom;
+
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.entities.FogDevice;
+
+/**
+ * Decides whether a fog device updates its energy consumption and the MIPS
+ * allocated to its modules when it processes an event, or skips the update to
+ * save simulation time. Each device has its own policy instance, which counts
+ * the updates performed and skipped, so the accuracy of the energy figures can
+ * be weighed against the time spent updating them.
+ */
+public abstract class EnergyUpdatePolicy {
+
+	private long updatesPerformed;
+	private long updatesSkipped;
+
+	/**
+	 * Decides whether the device updates its energy consumption or allocation
+	 * while processing the event, and counts the decision.
+	 * 
+	 * @param device the device processing the event
+	 * @param ev the event
+	 * @param random the random number stream of the device
+	 */
+	public boolean shouldUpdate(FogDevice device, SimEvent ev, SplittableRandom random){
+		if(decide(device, ev, random)){
+			updatesPerformed++;
+			return true;
+		}
+		updatesSkipped++;
+		return false;
+	}
+
+	protected abstract boolean decide(FogDevice device, SimEvent ev, SplittableRandom random);
+
+	public long getUpdatesPerformed() {
+		return updatesPerformed;
+	}
+
+	public long getUpdatesSkipped() {
+		return updatesSkipped;
+	}
+
+	public void resetCounters(){
+		updatesPerformed = 0;
+		updatesSkipped = 0;
+	}
+
+}
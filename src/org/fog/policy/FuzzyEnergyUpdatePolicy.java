@@ -0,0 +1,47 @@
+package org.fog.policy;
+
+import java.util.SplittableRandom;
+
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.entities.FogDevice;
+
+/**
+ * Updates with a fixed probability, and only for the events whose fuzzy
+ * scheduler weight is below a threshold. The default of one update in 8 for
+ * weights below 0.4 is the heuristic fog devices have always used; a
+ * probability of 1 and an infinite threshold update on every event.
+ */
+public class FuzzyEnergyUpdatePolicy extends EnergyUpdatePolicy{
+
+	private final int period;
+	private final float weightThreshold;
+
+	public FuzzyEnergyUpdatePolicy(){
+		this(8, 0.4f);
+	}
+
+	/**
+	 * @param period the policy updates once in <tt>period</tt> events on average
+	 * @param weightThreshold the fuzzy scheduler weight the events must be below
+	 */
+	public FuzzyEnergyUpdatePolicy(int period, float weightThreshold){
+		if(period < 1)
+			throw new IllegalArgumentException("The period must be positive: " + period);
+		this.period = period;
+		this.weightThreshold = weightThreshold;
+	}
+
+	@Override
+	protected boolean decide(FogDevice device, SimEvent ev, SplittableRandom random) {
+		return random.nextInt(period) == 0 && ev.fuzzyScheduler < weightThreshold;
+	}
+
+	public int getPeriod() {
+		return period;
+	}
+
+	public float getWeightThreshold() {
+		return weightThreshold;
+	}
+
+}
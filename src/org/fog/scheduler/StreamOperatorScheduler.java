@@ -1,16 +1,492 @@
 package org.fog.scheduler;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.Pe;
-import org.cloudbus.cloudsim.VmSchedulerTimeShared;
-import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.lists.PeList;
 import org.cloudbus.cloudsim.sdn.overbooking.VmSchedulerTimeSharedOverbookingEnergy;
+import org.fog.utils.EnergyLedger;
 
+/**
+ * Time-shared scheduler of the operators of a fog device. It allocates the same
+ * MIPS as {@link org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription}
+ * but keeps the total requested MIPS and the request of each VM in primitive
+ * arrays, so that a request change only touches the VM making it: the
+ * allocation of every VM is its capped request while the host is not
+ * oversubscribed, and its capped request scaled down to the host capacity
+ * otherwise. The shares are not stored but derived from the requests and the
+ * scaling factor when they are read, so that a change of the scaling factor
+ * costs nothing until then. The PEs are provisioned lazily, when the PE map is
+ * read.
+ * <p>
+ * The superclass algorithm, where a request is granted against the MIPS left by
+ * the requests before it, gives the same shares only when the requests are
+ * whole numbers of MIPS. Requests that are not, and VMs in migration, are
+ * handled by the superclass until the next full deallocation.
+ * <p>
+ * The total MIPS allocated is kept as well, from the number of PEs requesting
+ * each distinct amount of MIPS, and every change of it is recorded in the
+ * {@link EnergyLedger} of the host, if it has one.
+ */
 public class StreamOperatorScheduler extends VmSchedulerTimeSharedOverbookingEnergy{
 
+	/** The VMs with PEs allocated, whichever scheduler algorithm is in charge. */
+	private final Map<String, Vm> vms = new HashMap<String, Vm>();
+
+	private final Map<String, Integer> slots = new HashMap<String, Integer>();
+	private Vm[] slotVms = new Vm[4];
+	private double[] requestedMips = new double[4];
+	private int slotCount;
+	private int[] freeSlots = new int[4];
+	private int freeSlotCount;
+
+	/** The single PE request of each slot, reused by its next request. */
+	private List<Double>[] ownRequests = newListArray(4);
+
+	/** The share of each slot, and the scaling version it was derived at. */
+	private List<Double>[] shares = newListArray(4);
+	private long[] shareVersions = new long[4];
+
+	/** Slots with a positive request, and the position of each slot there. */
+	private int[] positiveSlots = new int[4];
+	private int[] positivePositions = new int[4];
+	private int positiveCount;
+	private final List<Vm> vmsWithShare = new AbstractList<Vm>(){
+		@Override
+		public Vm get(int index){
+			return slotVms[positiveSlots[index]];
+		}
+
+		@Override
+		public int size(){
+			return positiveCount;
+		}
+	};
+
+	/** Distinct capped PE requests, and the number of PEs requesting each. */
+	private double[] peRequests = new double[4];
+	private int[] peRequestCounts = new int[4];
+	private int peRequestCount;
+
+	private double totalRequestedMips;
+	private double totalAllocatedMips;
+	private boolean oversubscribed;
+	private double scalingFactor = 1;
+	private long scalingVersion;
+
+	/** Whether the arrays describe the allocation, or the superclass is in charge. */
+	private boolean incremental = true;
+
+	private boolean peProvisioningStale;
+
+	private EnergyLedger energyLedger;
+
 	public StreamOperatorScheduler(List<? extends Pe> pelist) {
 		super(pelist);
 	}
+
+	/**
+	 * Replaces the request of a VM with a single PE share, like deallocating its
+	 * PEs and allocating them again, without touching the other VMs. Nothing
+	 * happens if the request does not change.
+	 */
+	public void reallocatePesForVm(Vm vm, double mips){
+		List<Double> current = getMipsMapRequested().get(vm.getUid());
+		if(incremental && current != null && current.size() == 1 && current.get(0) == mips){
+			peProvisioningStale = true;
+			return;
+		}
+		if(incremental && current != null && isWholeMips(mips) && canAllocateIncrementally(vm)){
+			int slot = slots.get(vm.getUid());
+			countPeRequests(current, -1);
+			List<Double> request = ownRequests[slot];
+			if(request == null){
+				request = new ArrayList<Double>(1);
+				request.add(mips);
+				ownRequests[slot] = request;
+			}else{
+				request.set(0, mips);
+			}
+			setPesInUse(getPesInUse() - current.size() + 1);
+			getMipsMapRequested().put(vm.getUid(), request);
+			countPeRequests(request, 1);
+			setRequest(slot, cappedTotal(request));
+			allocationChanged();
+			return;
+		}
+		List<Double> share = new ArrayList<Double>(1);
+		share.add(mips);
+		deallocatePesForVm(vm);
+		allocatePesForVm(vm, share);
+	}
+
+	/**
+	 * Returns the MIPS allocated to all the VMs.
+	 */
+	public double getTotalAllocatedMips(){
+		if(incremental)
+			return totalAllocatedMips;
+		double total = 0;
+		for(List<Double> mipsShare : getMipsMap().values()){
+			for(Double mips : mipsShare)
+				total += mips;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the factor the capped requests are scaled by: 1 unless the host is
+	 * oversubscribed. The shares of the VMs with a positive request change only
+	 * when it does.
+	 */
+	public double getScalingFactor(){
+		return oversubscribed ? scalingFactor : 1;
+	}
+
+	/**
+	 * Returns the VMs with a positive request, which are those whose share
+	 * changes with the scaling factor, or null if the superclass is in charge.
+	 */
+	public List<Vm> getVmsWithShare(){
+		return incremental ? vmsWithShare : null;
+	}
+
+	public EnergyLedger getEnergyLedger() {
+		return energyLedger;
+	}
+
+	/**
+	 * Sets the ledger where the utilization of the host is recorded each time the
+	 * allocation changes.
+	 */
+	public void setEnergyLedger(EnergyLedger energyLedger) {
+		this.energyLedger = energyLedger;
+		allocationChanged();
+	}
+
+	@Override
+	public boolean allocatePesForVm(Vm vm, List<Double> mipsShareRequested) {
+		if(!incremental || slots.containsKey(vm.getUid()) || !canAllocateIncrementally(vm)
+				|| !isWholeMips(mipsShareRequested)){
+			leaveIncremental();
+			vms.put(vm.getUid(), vm);
+			boolean result = super.allocatePesForVm(vm, mipsShareRequested);
+			allocationChanged();
+			return result;
+		}
+		vms.put(vm.getUid(), vm);
+		getMipsMapRequested().put(vm.getUid(), mipsShareRequested);
+		setPesInUse(getPesInUse() + mipsShareRequested.size());
+		int slot = newSlot(vm);
+		countPeRequests(mipsShareRequested, 1);
+		setRequest(slot, cappedTotal(mipsShareRequested));
+		allocationChanged();
+		return true;
+	}
+
+	@Override
+	public void deallocatePesForVm(Vm vm) {
+		if(!incremental){
+			peProvisioningStale = false;
+			vms.remove(vm.getUid());
+			super.deallocatePesForVm(vm);
+			resumeIncremental();
+			allocationChanged();
+			return;
+		}
+		vms.remove(vm.getUid());
+		List<Double> removed = getMipsMapRequested().remove(vm.getUid());
+		Integer slot = slots.get(vm.getUid());
+		peProvisioningStale = true;
+		if(slot == null)
+			return;
+		setPesInUse(getPesInUse() - removed.size());
+		countPeRequests(removed, -1);
+		setRequest(slot, 0);
+		super.getMipsMap().remove(vm.getUid());
+		freeSlot(slot);
+		allocationChanged();
+	}
+
+	@Override
+	public void deallocatePesForAllVms() {
+		super.deallocatePesForAllVms();
+		vms.clear();
+		clearSlots();
+		incremental = true;
+		peProvisioningStale = false;
+		allocationChanged();
+	}
+
+	@Override
+	public List<Double> getAllocatedMipsForVm(Vm vm) {
+		if(!incremental)
+			return super.getAllocatedMipsForVm(vm);
+		Integer slot = slots.get(vm.getUid());
+		return slot == null ? null : share(slot);
+	}
+
+	@Override
+	public double getTotalAllocatedMipsForVm(Vm vm) {
+		if(!incremental)
+			return super.getTotalAllocatedMipsForVm(vm);
+		Integer slot = slots.get(vm.getUid());
+		if(slot == null)
+			return 0;
+		double total = 0;
+		for(Double mips : getMipsMapRequested().get(vm.getUid()))
+			total += share(mips);
+		return total;
+	}
+
+	/**
+	 * Returns the shares of all the VMs, deriving those whose scaling factor
+	 * changed since they were last read.
+	 */
+	@Override
+	protected Map<String, List<Double>> getMipsMap() {
+		Map<String, List<Double>> mipsMap = super.getMipsMap();
+		if(incremental){
+			for(Map.Entry<String, Integer> entry : slots.entrySet())
+				mipsMap.put(entry.getKey(), share(entry.getValue()));
+		}
+		return mipsMap;
+	}
+
+	@Override
+	public Map<String, List<Pe>> getPeMap() {
+		if(peProvisioningStale){
+			peProvisioningStale = false;
+			updatePeProvisioning();
+		}
+		return super.getPeMap();
+	}
+
+	/**
+	 * Sets the capped total request of a slot and updates the scaling factor and
+	 * the total allocated MIPS. The PE requests of the slot must already be
+	 * counted.
+	 */
+	private void setRequest(int slot, double mips){
+		double totalMips = PeList.getTotalMips(getPeList());
+		double previous = requestedMips[slot];
+		totalRequestedMips += mips - previous;
+		requestedMips[slot] = mips;
+		if(previous > 0 && mips <= 0)
+			removePositive(slot);
+		else if(previous <= 0 && mips > 0)
+			addPositive(slot);
+		// the share of the slot is derived again when read
+		shareVersions[slot] = -1;
+
+		boolean wasOversubscribed = oversubscribed;
+		double previousFactor = scalingFactor;
+		oversubscribed = totalRequestedMips > totalMips;
+		if(oversubscribed){
+			scalingFactor = totalMips / totalRequestedMips;
+			totalAllocatedMips = 0;
+			for(int i = 0; i < peRequestCount; i++)
+				totalAllocatedMips += peRequestCounts[i] * Math.floor(peRequests[i] * scalingFactor);
+		}else{
+			scalingFactor = 1;
+			totalAllocatedMips = totalRequestedMips;
+		}
+		if(oversubscribed != wasOversubscribed || scalingFactor != previousFactor)
+			scalingVersion++;
+		setAvailableMips(oversubscribed ? 0 : totalMips - totalRequestedMips);
+		peProvisioningStale = true;
+	}
+
+	/**
+	 * Returns the share of a slot, derived again if its request or the scaling
+	 * factor changed since it was last read.
+	 */
+	private List<Double> share(int slot){
+		if(shareVersions[slot] == scalingVersion)
+			return shares[slot];
+		List<Double> requested = getMipsMapRequested().get(slotVms[slot].getUid());
+		List<Double> share = new ArrayList<Double>(requested.size());
+		for(Double mips : requested)
+			share.add(share(mips));
+		shares[slot] = share;
+		shareVersions[slot] = scalingVersion;
+		return share;
+	}
+
+	private double share(double mips){
+		double peMips = getPeCapacity();
+		double capped = mips > peMips ? peMips : mips;
+		return oversubscribed ? Math.floor(capped * scalingFactor) : capped;
+	}
+
+	/**
+	 * Adds the capped PE requests of a VM to, or removes them from, the number
+	 * of PEs requesting each amount of MIPS.
+	 */
+	private void countPeRequests(List<Double> mipsShare, int delta){
+		double peMips = getPeCapacity();
+		for(Double mips : mipsShare){
+			double capped = mips > peMips ? peMips : mips;
+			if(capped <= 0)
+				continue;
+			int i = 0;
+			while(i < peRequestCount && peRequests[i] != capped)
+				i++;
+			if(i == peRequestCount){
+				if(i == peRequests.length){
+					peRequests = Arrays.copyOf(peRequests, i << 1);
+					peRequestCounts = Arrays.copyOf(peRequestCounts, i << 1);
+				}
+				peRequests[i] = capped;
+				peRequestCounts[i] = 0;
+				peRequestCount++;
+			}
+			peRequestCounts[i] += delta;
+			if(peRequestCounts[i] == 0){
+				peRequestCount--;
+				peRequests[i] = peRequests[peRequestCount];
+				peRequestCounts[i] = peRequestCounts[peRequestCount];
+			}
+		}
+	}
+
+	private void allocationChanged(){
+		if(energyLedger != null)
+			energyLedger.recordUtilization(CloudSim.clock(), getTotalAllocatedMips() / PeList.getTotalMips(getPeList()));
+	}
+
+	private double cappedTotal(List<Double> mipsShare){
+		double peMips = getPeCapacity();
+		double total = 0;
+		for(Double mips : mipsShare)
+			total += mips > peMips ? peMips : mips;
+		return total;
+	}
+
+	/**
+	 * Checks whether the requests of a VM give the same shares whatever the
+	 * order of the requests, i.e. no VM is migrating. The requests must also be
+	 * in whole MIPS.
+	 */
+	private boolean canAllocateIncrementally(Vm vm){
+		return !vm.isInMigration() && getVmsMigratingIn().isEmpty() && getVmsMigratingOut().isEmpty();
+	}
+
+	private boolean isWholeMips(List<Double> mipsShare){
+		for(Double mips : mipsShare){
+			if(!isWholeMips(mips))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean isWholeMips(double mips){
+		return mips >= 0 && mips == Math.rint(mips) && mips < 1L << 52;
+	}
+
+	/**
+	 * Hands the allocation over to the superclass, with the shares derived so
+	 * far in its MIPS map.
+	 */
+	private void leaveIncremental(){
+		if(incremental)
+			getMipsMap();
+		incremental = false;
+		peProvisioningStale = false;
+	}
+
+	/**
+	 * Takes over again from the superclass once its allocation has been rebuilt
+	 * from the requests, if they can all be handled incrementally.
+	 */
+	private void resumeIncremental(){
+		if(!getVmsMigratingIn().isEmpty() || !getVmsMigratingOut().isEmpty())
+			return;
+		for(Map.Entry<String, List<Double>> entry : getMipsMapRequested().entrySet()){
+			if(!vms.containsKey(entry.getKey()) || !isWholeMips(entry.getValue()))
+				return;
+		}
+		clearSlots();
+		for(Map.Entry<String, List<Double>> entry : getMipsMapRequested().entrySet()){
+			int slot = newSlot(vms.get(entry.getKey()));
+			countPeRequests(entry.getValue(), 1);
+			setRequest(slot, cappedTotal(entry.getValue()));
+		}
+		incremental = true;
+	}
+
+	private void clearSlots(){
+		slots.clear();
+		Arrays.fill(slotVms, null);
+		Arrays.fill(ownRequests, null);
+		Arrays.fill(shares, null);
+		slotCount = 0;
+		freeSlotCount = 0;
+		positiveCount = 0;
+		peRequestCount = 0;
+		totalRequestedMips = 0;
+		totalAllocatedMips = 0;
+		oversubscribed = false;
+		scalingFactor = 1;
+		scalingVersion++;
+	}
+
+	private int newSlot(Vm vm){
+		int slot;
+		if(freeSlotCount > 0){
+			slot = freeSlots[--freeSlotCount];
+		}else{
+			slot = slotCount++;
+			if(slot == slotVms.length){
+				int length = slot << 1;
+				slotVms = Arrays.copyOf(slotVms, length);
+				requestedMips = Arrays.copyOf(requestedMips, length);
+				ownRequests = Arrays.copyOf(ownRequests, length);
+				shares = Arrays.copyOf(shares, length);
+				shareVersions = Arrays.copyOf(shareVersions, length);
+				positiveSlots = Arrays.copyOf(positiveSlots, length);
+				positivePositions = Arrays.copyOf(positivePositions, length);
+				freeSlots = Arrays.copyOf(freeSlots, length);
+			}
+		}
+		slotVms[slot] = vm;
+		requestedMips[slot] = 0;
+		ownRequests[slot] = null;
+		shares[slot] = null;
+		shareVersions[slot] = -1;
+		slots.put(vm.getUid(), slot);
+		return slot;
+	}
+
+	private void freeSlot(int slot){
+		slots.remove(slotVms[slot].getUid());
+		slotVms[slot] = null;
+		ownRequests[slot] = null;
+		shares[slot] = null;
+		freeSlots[freeSlotCount++] = slot;
+	}
+
+	private void addPositive(int slot){
+		positivePositions[slot] = positiveCount;
+		positiveSlots[positiveCount++] = slot;
+	}
+
+	private void removePositive(int slot){
+		int position = positivePositions[slot];
+		int last = positiveSlots[--positiveCount];
+		positiveSlots[position] = last;
+		positivePositions[last] = position;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static List<Double>[] newListArray(int length){
+		return new List[length];
+	}
 }
@@ -0,0 +1,319 @@
+package org.fog.test.perfeval;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEntityPartition;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimEventObserver;
+import org.fog.utils.Config;
+import org.fog.utils.LogicalProcessPartition;
+
+/**
+ * Compares the conservative parallel engine with the sequential one.
+ * <p>
+ * Case studies 1 (VRGameFog) and 2 (DCNSFog) share mutable state between their
+ * entities (TimeKeeper, FogUtils, NetworkUsageMonitor), so they are run with
+ * the conservative engine on a single thread, partitioned along the device tree.
+ * Both engines run them with the same seed, batch fuzzy weights, selectivity
+ * streams and broadcast tuple copies, and each entity must get the same events
+ * at the same times and in the same order. The parallel speedup is measured on
+ * a synthetic workload whose cells only interact through events: each cell is
+ * a ring of entities passing tokens around, and every few hops a token jumps
+ * to the next cell with a delay no shorter than the lookahead. Every entity
+ * keeps an order-insensitive checksum of the events it received, which must be
+ * the same with both engines.
+ *
+ * Usage: ConservativeEngineBenchmark [threads] [simulated time in ms]
+ *
+ */
+public class ConservativeEngineBenchmark {
+
+	private static final int CELLS = 16;
+
+	private static final int ENTITIES_PER_CELL = 8;
+
+	private static final int TOKENS_PER_ENTITY = 4;
+
+	private static final double LOCAL_DELAY = 0.1;
+
+	private static final double LOOKAHEAD = 2.0;
+
+	private static final int WORK_PER_EVENT = 2000;
+
+	private static final int TOKEN = 1;
+
+	private static final long SEED = 42;
+
+	public static void main(String[] args) {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int simulationTime = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+		fogCaseStudies(simulationTime);
+
+		// warm up
+		runCells(null, 1, 200);
+		runCells(new CellPartition(), threads, 200);
+
+		long start = System.nanoTime();
+		long expected = runCells(null, 1, 2000);
+		double sequential = (System.nanoTime() - start) / 1e6;
+		System.out.println("=========================================");
+		System.out.println("Synthetic cells : " + CELLS + " x " + ENTITIES_PER_CELL + " entities, lookahead "
+				+ LOOKAHEAD);
+		System.out.println("=========================================");
+		System.out.println(String.format("sequential            %8.1f ms  %d events", sequential,
+				CloudSim.getNumProcessedEvents()));
+		for (int parallelism = 1; parallelism <= threads; parallelism *= 2) {
+			start = System.nanoTime();
+			long checksum = runCells(new CellPartition(), parallelism, 2000);
+			double elapsed = (System.nanoTime() - start) / 1e6;
+			System.out.println(String.format("conservative, %2d thr  %8.1f ms  %d events  speedup %.2f %s",
+					parallelism, elapsed, CloudSim.getNumProcessedEvents(), sequential / elapsed,
+					checksum == expected ? "" : "(CHECKSUM DIFFERS FROM SEQUENTIAL)"));
+			if (parallelism < threads && parallelism * 2 > threads) {
+				parallelism = threads / 2;
+			}
+		}
+	}
+
+	private static void fogCaseStudies(int simulationTime) {
+		// stop the kernel before the controller ends the JVM
+		Config.MAX_SIMULATION_TIME = Integer.MAX_VALUE;
+		CloudSim.terminateSimulation(simulationTime);
+		// the default fuzzy weights depend on the pending events of all the
+		// logical processes, the shared generator on the order the devices draw
+		// from it, and a broadcast tuple on the order the devices execute it
+		CloudSim.setBatchFuzzyWeights(true);
+		Config.SELECTIVITY_STREAMS = true;
+		Config.BROADCAST_TUPLE_COPIES = true;
+		EventTrace vrGameSequential = new EventTrace();
+		EventTrace dcnsSequential = new EventTrace();
+		EventTrace vrGameConservative = new EventTrace();
+		EventTrace dcnsConservative = new EventTrace();
+		runFog(true, null, vrGameSequential);
+		runFog(false, null, dcnsSequential);
+		runFog(true, new LogicalProcessPartition(2), vrGameConservative);
+		runFog(false, new LogicalProcessPartition(2), dcnsConservative);
+		CloudSim.setBatchFuzzyWeights(false);
+		Config.SELECTIVITY_STREAMS = false;
+		Config.BROADCAST_TUPLE_COPIES = false;
+		System.out.println("=========================================");
+		System.out.println("Case studies, " + simulationTime + " ms of simulated time");
+		System.out.println("=========================================");
+		System.out.println("VRGameFog sequential   : " + vrGameSequential);
+		System.out.println("VRGameFog conservative : " + vrGameConservative + " "
+				+ vrGameConservative.compareWith(vrGameSequential));
+		System.out.println("DCNSFog sequential     : " + dcnsSequential);
+		System.out.println("DCNSFog conservative   : " + dcnsConservative + " "
+				+ dcnsConservative.compareWith(dcnsSequential));
+	}
+
+	private static void runFog(boolean vrGame, SimEntityPartition partition, EventTrace trace) {
+		CloudSim.setConservativeEngine(partition, 1);
+		CloudSim.getContext().setSeed(SEED);
+		CloudSim.addEventObserver(trace);
+		long start = System.nanoTime();
+		if (vrGame) {
+			VRGameFog.main(new String[0]);
+		} else {
+			DCNSFog.main(new String[0]);
+		}
+		trace.elapsed = System.nanoTime() - start;
+		CloudSim.removeEventObserver(trace);
+		CloudSim.setConservativeEngine(null, 1);
+	}
+
+	/**
+	 * Records the time, source and tag of the events dispatched to each entity.
+	 * The logical processes interleave the events of different entities in
+	 * another order than the sequential engine, so the traces are compared per
+	 * entity, in dispatch order.
+	 */
+	private static class EventTrace implements SimEventObserver {
+
+		private final Map<Integer, List<String>> events = new HashMap<Integer, List<String>>();
+
+		private int size;
+
+		private long elapsed;
+
+		@Override
+		public void eventScheduled(SimEvent event) {
+		}
+
+		@Override
+		public void eventDispatched(SimEvent event) {
+			List<String> received = events.get(event.getDestination());
+			if (received == null) {
+				received = new ArrayList<String>();
+				events.put(event.getDestination(), received);
+			}
+			received.add(event.eventTime() + " " + event.getSource() + " " + event.getTag());
+			size++;
+		}
+
+		/**
+		 * Returns whether this trace holds the same events as another one, or the
+		 * first event they differ on.
+		 */
+		String compareWith(EventTrace other) {
+			List<Integer> entities = new ArrayList<Integer>(other.events.keySet());
+			Collections.sort(entities);
+			for (int entity : entities) {
+				List<String> received = events.get(entity);
+				List<String> expected = other.events.get(entity);
+				int n = received == null ? 0 : received.size();
+				for (int i = 0; i < Math.min(n, expected.size()); i++) {
+					if (!received.get(i).equals(expected.get(i))) {
+						return "(TRACE DIFFERS: " + received.get(i) + " instead of " + expected.get(i) + " at entity "
+								+ entity + ")";
+					}
+				}
+				if (n != expected.size()) {
+					return "(TRACE DIFFERS: " + n + " events instead of " + expected.size() + " at entity "
+							+ entity + ")";
+				}
+			}
+			if (size != other.size) {
+				return "(TRACE DIFFERS: " + size + " events instead of " + other.size + ")";
+			}
+			return "(same trace)";
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d ms, %d events", elapsed / 1000000, size);
+		}
+
+	}
+
+	/**
+	 * Runs the synthetic workload and returns the checksum of all the entities.
+	 */
+	private static long runCells(SimEntityPartition partition, int parallelism, double simulationTime) {
+		boolean disabled = Log.isDisabled();
+		Log.disable();
+		CloudSim.init(0, null, false, partition, parallelism);
+		List<CellEntity> entities = new ArrayList<CellEntity>();
+		for (int cell = 0; cell < CELLS; cell++) {
+			for (int i = 0; i < ENTITIES_PER_CELL; i++) {
+				entities.add(new CellEntity("cell" + cell + "-" + i, cell, i, simulationTime));
+			}
+		}
+		for (CellEntity entity : entities) {
+			entity.next = entities.get(entity.cell * ENTITIES_PER_CELL + (entity.index + 1) % ENTITIES_PER_CELL)
+					.getId();
+			entity.neighbour = entities.get(((entity.cell + 1) % CELLS) * ENTITIES_PER_CELL + entity.index).getId();
+		}
+		CloudSim.terminateSimulation(simulationTime);
+		CloudSim.startSimulation();
+		CloudSim.setConservativeEngine(null, 1);
+		if (!disabled) {
+			Log.enable();
+		}
+		long checksum = 0;
+		for (CellEntity entity : entities) {
+			checksum = 31 * checksum + entity.checksum;
+		}
+		return checksum;
+	}
+
+	private static class CellEntity extends SimEntity {
+
+		private final int cell;
+
+		private final int index;
+
+		private int next;
+
+		private int neighbour;
+
+		/** The events at or after this time are not counted. */
+		private final double horizon;
+
+		private long checksum;
+
+		CellEntity(String name, int cell, int index, double horizon) {
+			super(name);
+			this.cell = cell;
+			this.index = index;
+			this.horizon = horizon;
+		}
+
+		@Override
+		public void startEntity() {
+			for (int token = 0; token < TOKENS_PER_ENTITY; token++) {
+				send(getId(), LOCAL_DELAY * (token + 1), TOKEN, Long.valueOf(getId() * 1000L + token));
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			// the engines may stop at different events past the termination time
+			if (ev.getTag() != TOKEN || CloudSim.clock() >= horizon) {
+				return;
+			}
+			long token = (Long) ev.getData();
+			long hash = token * 0x9E3779B97F4A7C15L ^ Double.doubleToLongBits(CloudSim.clock());
+			for (int i = 0; i < WORK_PER_EVENT; i++) {
+				hash = hash * 6364136223846793005L + 1442695040888963407L;
+			}
+			// a sum does not depend on the order of the events of the same time
+			checksum += hash;
+			long hop = token + 1;
+			if (hop % 7 == 0) {
+				send(neighbour, LOOKAHEAD + (hash >>> 60) * LOCAL_DELAY, TOKEN, Long.valueOf(hop));
+			} else {
+				send(next, LOCAL_DELAY * (1 + (hash >>> 62)), TOKEN, Long.valueOf(hop));
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	/**
+	 * Puts every cell in its own logical process and the system entities in
+	 * logical process 0.
+	 */
+	private static class CellPartition implements SimEntityPartition {
+
+		private final Map<Integer, Integer> processOfEntity = new HashMap<Integer, Integer>();
+
+		@Override
+		public void partition(List<? extends SimEntity> entities) {
+			for (SimEntity entity : entities) {
+				if (entity instanceof CellEntity) {
+					processOfEntity.put(entity.getId(), ((CellEntity) entity).cell + 1);
+				}
+			}
+		}
+
+		@Override
+		public int getNumPartitions() {
+			return CELLS + 1;
+		}
+
+		@Override
+		public int getPartition(int entityId) {
+			Integer process = processOfEntity.get(entityId);
+			return process == null ? 0 : process;
+		}
+
+		@Override
+		public double getLookahead() {
+			return LOOKAHEAD;
+		}
+
+	}
+
+}
@@ -57,58 +57,74 @@ public class DCNSFog {
 
 		try {
 			Log.disable();
-			int num_user = 1; // number of cloud users
-			Calendar calendar = Calendar.getInstance();
-			boolean trace_flag = false; // mean trace events
+			createSimulation();
 
-			CloudSim.init(num_user, calendar, trace_flag);
+			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
-			String appId = "dcns"; // identifier of the application
+			CloudSim.startSimulation();
 
-			FogBroker broker = new FogBroker("broker");
+			CloudSim.stopSimulation();
 
-			Application application = createApplication(appId, broker.getId());
-			application.setUserId(broker.getId());
+			Log.printLine("VRGame finished!");
+		} catch (Exception e) {
+			e.printStackTrace();
+			Log.printLine("Unwanted errors happen");
+		}
+	}
 
-			createFogDevices(broker.getId(), appId);
+	/**
+	 * Creates the entities of the simulation in the simulation context of the
+	 * calling thread, so that several replications can run concurrently.
+	 * 
+	 * @return the controller of the simulation
+	 */
+	public static synchronized Controller createSimulation() throws Exception {
+		fogDevices = new ArrayList<FogDevice>();
+		sensors = new ArrayList<Sensor>();
+		actuators = new ArrayList<Actuator>();
 
-			Controller controller = null;
+		int num_user = 1; // number of cloud users
+		Calendar calendar = Calendar.getInstance();
+		boolean trace_flag = false; // mean trace events
 
-			ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
-			for (FogDevice device : fogDevices) {
-				if (device.getName().startsWith("m")) { // names of all Smart Cameras start with 'm'
-					moduleMapping.addModuleToDevice("motion_detector", device.getName()); // fixing 1 instance of the
-																							// Motion Detector module to
-																							// each Smart Camera
-				}
-			}
-			moduleMapping.addModuleToDevice("user_interface", "cloud"); // fixing instances of User Interface module in
-																		// the Cloud
-			if (CLOUD) {
-				// if the mode of deployment is cloud-based
-				moduleMapping.addModuleToDevice("object_detector", "cloud"); // placing all instances of Object Detector
-																				// module in the Cloud
-				moduleMapping.addModuleToDevice("object_tracker", "cloud"); // placing all instances of Object Tracker
-																			// module in the Cloud
-			}
+		CloudSim.init(num_user, calendar, trace_flag);
 
-			controller = new Controller("master-controller", fogDevices, sensors, actuators);
+		String appId = "dcns"; // identifier of the application
 
-			controller.submitApplication(application, (CLOUD)
-					? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
-					: (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+		FogBroker broker = new FogBroker("broker");
 
-			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+		Application application = createApplication(appId, broker.getId());
+		application.setUserId(broker.getId());
 
-			CloudSim.startSimulation();
+		createFogDevices(broker.getId(), appId);
 
-			CloudSim.stopSimulation();
+		Controller controller = null;
 
-			Log.printLine("VRGame finished!");
-		} catch (Exception e) {
-			e.printStackTrace();
-			Log.printLine("Unwanted errors happen");
+		ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+		for (FogDevice device : fogDevices) {
+			if (device.getName().startsWith("m")) { // names of all Smart Cameras start with 'm'
+				moduleMapping.addModuleToDevice("motion_detector", device.getName()); // fixing 1 instance of the
+																						// Motion Detector module to
+																						// each Smart Camera
+			}
+		}
+		moduleMapping.addModuleToDevice("user_interface", "cloud"); // fixing instances of User Interface module in
+																	// the Cloud
+		if (CLOUD) {
+			// if the mode of deployment is cloud-based
+			moduleMapping.addModuleToDevice("object_detector", "cloud"); // placing all instances of Object Detector
+																			// module in the Cloud
+			moduleMapping.addModuleToDevice("object_tracker", "cloud"); // placing all instances of Object Tracker
+																		// module in the Cloud
 		}
+
+		controller = new Controller("master-controller", fogDevices, sensors, actuators);
+
+		controller.submitApplication(application, (CLOUD)
+				? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
+				: (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+
+		return controller;
 	}
 
 	/**
@@ -0,0 +1,79 @@
+package org.fog.test.perfeval;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.utils.Config;
+
+/**
+ * Compares the memory allocated by case study 1 (VRGameFog) with and without
+ * event pooling. The bytes allocated by the simulation thread and the garbage
+ * collections during each run are printed.
+ *
+ * Usage: EventPoolBenchmark [simulated time in ms]
+ *
+ */
+public class EventPoolBenchmark {
+
+	public static void main(String[] args) {
+		int simulationTime = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+
+		// stop the kernel before the controller ends the JVM
+		Config.MAX_SIMULATION_TIME = Integer.MAX_VALUE;
+		CloudSim.terminateSimulation(simulationTime);
+
+		// warm up
+		run(false);
+		run(true);
+
+		String plain = run(false);
+		String pooled = run(true);
+		System.out.println("=========================================");
+		System.out.println("VRGameFog, " + simulationTime + " ms of simulated time");
+		System.out.println("=========================================");
+		System.out.println("new events    : " + plain);
+		System.out.println("pooled events : " + pooled + ", " + CloudSim.getNumReusedEvents() + " of "
+				+ (CloudSim.getNumReusedEvents() + CloudSim.getNumPooledEventsCreated()) + " events reused");
+	}
+
+	private static String run(boolean pooling) {
+		CloudSim.setEventPooling(pooling);
+		System.gc();
+		long collections = collections();
+		long collectionTime = collectionTime();
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		VRGameFog.main(new String[0]);
+		long elapsed = System.nanoTime() - start;
+		CloudSim.setEventPooling(false);
+		return String.format("%d ms, %.1f MB allocated, %d GCs taking %d ms", elapsed / 1000000,
+				(allocatedBytes() - allocated) / 1048576.0, collections() - collections,
+				collectionTime() - collectionTime);
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static long collections() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long collectionTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, bean.getCollectionTime());
+		}
+		return time;
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.fog.test.perfeval;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.FutureQueueTrace;
+import org.fog.utils.Config;
+
+/**
+ * Compares the future queue engines on the event traces of case studies 1
+ * (VRGameFog) and 2 (DCNSFog). The operations performed on the future queue
+ * during each simulation are recorded and then replayed against every engine.
+ * <p>
+ * TreeSet stays the default engine. The other engines only pay off on large
+ * queues such as the one of VRGameFog; on the small queue of DCNSFog the
+ * calendar and ladder queues have measured slower than TreeSet (70 and 53
+ * ns/op against 43 ns/op), and the differences between runs are larger than
+ * the differences between the engines.
+ *
+ * Usage: FutureQueueBenchmark [simulated time in ms] [measured iterations]
+ *
+ */
+public class FutureQueueBenchmark {
+
+	private static final int[] ENGINES = { FutureQueue.TREE_SET, FutureQueue.CALENDAR, FutureQueue.LADDER,
+			FutureQueue.QUATERNARY_HEAP };
+
+	private static final String[] ENGINE_NAMES = { "TreeSet", "Calendar", "Ladder", "4-ary heap" };
+
+	private static final int WARMUP_ITERATIONS = 5;
+
+	public static void main(String[] args) {
+		int simulationTime = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		// stop the kernel before the controller ends the JVM
+		Config.MAX_SIMULATION_TIME = Integer.MAX_VALUE;
+		CloudSim.terminateSimulation(simulationTime);
+
+		FutureQueueTrace vrGameTrace = new FutureQueueTrace();
+		CloudSim.setFutureQueueTrace(vrGameTrace);
+		VRGameFog.main(new String[0]);
+
+		FutureQueueTrace dcnsTrace = new FutureQueueTrace();
+		CloudSim.setFutureQueueTrace(dcnsTrace);
+		DCNSFog.main(new String[0]);
+		CloudSim.setFutureQueueTrace(null);
+
+		benchmark("VRGameFog", vrGameTrace, iterations);
+		benchmark("DCNSFog", dcnsTrace, iterations);
+	}
+
+	private static void benchmark(String name, FutureQueueTrace trace, int iterations) {
+		System.out.println("=========================================");
+		System.out.println(name + " : " + trace.size() + " queue operations on " + trace.getNumEvents() + " events");
+		System.out.println("=========================================");
+		long expected = trace.replay(FutureQueue.create(FutureQueue.TREE_SET));
+		for (int i = 0; i < ENGINES.length; i++) {
+			for (int j = 0; j < WARMUP_ITERATIONS; j++) {
+				trace.replay(FutureQueue.create(ENGINES[i]));
+			}
+			long checksum = 0;
+			long start = System.nanoTime();
+			for (int j = 0; j < iterations; j++) {
+				checksum = trace.replay(FutureQueue.create(ENGINES[i]));
+			}
+			double nanosPerOperation = (double) (System.nanoTime() - start) / iterations / trace.size();
+			System.out.println(String.format("%-12s %8.1f ns/op %s", ENGINE_NAMES[i], nanosPerOperation,
+					checksum == expected ? "" : "(ORDER DIFFERS FROM TreeSet)"));
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+package org.fog.test.perfeval;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.FutureQueueTrace;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.application.selectivity.SelectivityModel;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Tuple;
+import org.fog.placement.Controller;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.scheduler.TupleScheduler;
+import org.fog.utils.Config;
+import org.fog.utils.FogUtils;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * Measures the hot paths of the kernel and of the tuple processing, on
+ * generated topologies of 10 fog devices up to the given number (1000 by
+ * default, up to 100000 for the largest runs), by factors of 10:
+ * <ul>
+ * <li>the future queue engines under the hold model, with as many events in the
+ * queue as fog devices;</li>
+ * <li>{@link Application#getResultantTuples} on case study 2;</li>
+ * <li>the reallocation of the MIPS of a module by the
+ * {@link StreamOperatorScheduler}, done on every tuple arrival, and the
+ * {@link TupleScheduler} update of up to 1000 tuples in execution;</li>
+ * <li>on {@link SyntheticTopology} simulations, the module placement
+ * (ModulePlacementEdgewards.mapModules), CloudSim.runClockTick per event and
+ * FogDevice.processTupleArrival, with the energy updates performed out of those
+ * considered by the {@link org.fog.policy.EnergyUpdatePolicy} of the devices.</li>
+ * </ul>
+ * Every measurement is warmed up before being repeated, and printed as the mean
+ * and standard deviation of the time per operation. The topologies are
+ * simulated once each.
+ *
+ * Usage: KernelBenchmark [largest topology, in fog devices] [simulated time in
+ * ms] [measured iterations]
+ *
+ */
+public class KernelBenchmark {
+
+	/**
+	 * An operation repeated by a measurement. The returned checksum keeps the JIT
+	 * from removing the work.
+	 */
+	private interface Operation {
+		long run() throws Exception;
+	}
+
+	private static final int[] ENGINES = { FutureQueue.TREE_SET, FutureQueue.CALENDAR, FutureQueue.LADDER,
+			FutureQueue.QUATERNARY_HEAP };
+
+	private static final String[] ENGINE_NAMES = { "TreeSet", "Calendar", "Ladder", "4-ary heap" };
+
+	private static final int WARMUP_ITERATIONS = 5;
+
+	private static int iterations;
+
+	private static long blackhole;
+
+	public static void main(String[] args) throws Exception {
+		int largest = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int simulationTime = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		List<Integer> scales = new ArrayList<Integer>();
+		for (int scale = 10; scale <= largest; scale *= 10)
+			scales.add(scale);
+
+		Log.disable();
+		CloudSim.getContext().setSeed(42);
+
+		futureQueue(scales);
+		resultantTuples();
+		schedulers(scales);
+		simulations(scales, simulationTime);
+		if (blackhole == 42)
+			System.out.println();
+	}
+
+	private static void futureQueue(List<Integer> scales) {
+		header("FutureQueue hold model (poll + add)");
+		for (int size : scales) {
+			final FutureQueueTrace trace = FutureQueueTrace.holdModel(size, Math.max(100000, 4 * size), 42);
+			for (int i = 0; i < ENGINES.length; i++) {
+				final int engine = ENGINES[i];
+				measure(ENGINE_NAMES[i] + ", " + size + " events", trace.size(), new Operation() {
+					@Override
+					public long run() {
+						return trace.replay(FutureQueue.create(engine));
+					}
+				});
+			}
+		}
+	}
+
+	private static void resultantTuples() throws Exception {
+		header("Application.getResultantTuples");
+		CloudSim.init(1, null, false);
+		final Application application = SyntheticTopology.createApplication("dcns", 1);
+		final Tuple tuple = new Tuple("dcns", FogUtils.generateTupleId(), Tuple.UP, 2000, 1, 2000, 100,
+				new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+		tuple.setTupleType("MOTION_VIDEO_STREAM");
+		tuple.setSrcModuleName("motion_detector");
+		tuple.setDestModuleName("object_detector");
+		final int calls = 10000;
+		measure("object_detector, MOTION_VIDEO_STREAM", calls, new Operation() {
+			@Override
+			public long run() {
+				long emitted = 0;
+				for (int i = 0; i < calls; i++)
+					emitted += application.getResultantTuples("object_detector", tuple, 1, 1).size();
+				return emitted;
+			}
+		});
+	}
+
+	private static void schedulers(List<Integer> scales) throws Exception {
+		header("StreamOperatorScheduler reallocation of a module");
+		for (int modules = 1; modules <= 100; modules *= 10) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerOverbooking(44800)));
+			final StreamOperatorScheduler scheduler = new StreamOperatorScheduler(peList);
+			final List<AppModule> operators = new ArrayList<AppModule>();
+			final List<Double> mips = new ArrayList<Double>();
+			mips.add(100.0);
+			for (int i = 0; i < modules; i++) {
+				AppModule operator = createModule(i);
+				scheduler.allocatePesForVm(operator, mips);
+				operators.add(operator);
+			}
+			final int calls = 10000;
+			measure(modules + " modules on the host", calls, new Operation() {
+				@Override
+				public long run() {
+					AppModule operator = operators.get(0);
+					for (int i = 0; i < calls; i++) {
+						scheduler.deallocatePesForVm(operator);
+						scheduler.allocatePesForVm(operator, mips);
+					}
+					return (long) scheduler.getAvailableMips();
+				}
+			});
+		}
+
+		header("TupleScheduler.updateVmProcessing");
+		for (int size : scales) {
+			if (size > 1000)
+				break;
+			final List<Double> mips = new ArrayList<Double>();
+			mips.add(1000.0);
+			final TupleScheduler scheduler = new TupleScheduler(1000, 1);
+			scheduler.updateVmProcessing(0, mips);
+			for (int i = 0; i < size; i++) {
+				Tuple tuple = new Tuple("dcns", FogUtils.generateTupleId(), Tuple.UP, 1000000000L, 1, 2000, 100,
+						new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+				tuple.setResourceParameter(0, 0);
+				scheduler.cloudletSubmit(tuple, 0);
+			}
+			final int calls = Math.max(10, 100000 / size);
+			measure(size + " tuples in execution", calls, new Operation() {
+				private double time;
+
+				@Override
+				public long run() {
+					double next = 0;
+					for (int i = 0; i < calls; i++) {
+						time += 0.001;
+						next += scheduler.updateVmProcessing(time, mips);
+					}
+					return (long) next;
+				}
+			});
+		}
+	}
+
+	private static AppModule createModule(int id) {
+		return new AppModule(id, "operator-" + id, "bench", 1, 100, 10, 100, 100, "Xen", new TupleScheduler(100, 1),
+				new HashMap<Pair<String, String>, SelectivityModel>());
+	}
+
+	private static void simulations(List<Integer> scales, int simulationTime) throws Exception {
+		header("Simulations of " + simulationTime + " ms on generated topologies");
+		Config.MAX_SIMULATION_TIME = simulationTime;
+		// warm up
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			simulate(new SyntheticTopology(100, 4));
+
+		System.out.println(String.format("%8s %8s %12s %10s %14s %10s %18s %16s", "devices", "sensors", "mapModules ms",
+				"events", "runClockTick", "arrivals", "processTupleArrival", "energy updates"));
+		for (int size : scales) {
+			SyntheticTopology topology = new SyntheticTopology(size, 4);
+			long nanos = simulate(topology);
+			long events = CloudSim.getNumProcessedEvents();
+			long updates = 0;
+			long skipped = 0;
+			for (FogDevice device : topology.getFogDevices()) {
+				updates += device.getEnergyUpdatePolicy().getUpdatesPerformed();
+				skipped += device.getEnergyUpdatePolicy().getUpdatesSkipped();
+			}
+			System.out.println(String.format("%8d %8d %12.1f %10d %11.1f ns %10d %15.1f ns %7d/%-8d",
+					topology.getFogDevices().size(), topology.getSensors().size(), topology.getPlacementNanos() / 1e6,
+					events, events > 0 ? (double) nanos / events : 0, topology.getTupleArrivals(),
+					topology.getTupleArrivals() > 0
+							? (double) topology.getTupleArrivalNanos() / topology.getTupleArrivals()
+							: 0,
+					updates, updates + skipped));
+		}
+	}
+
+	/**
+	 * Runs a simulation of a topology.
+	 *
+	 * @return the time taken by the simulation, in ns
+	 */
+	private static long simulate(SyntheticTopology topology) throws Exception {
+		Controller controller = topology.createSimulation();
+		controller.setExitOnStop(false);
+		TimeKeeper.getInstance().setSimulationStartTime(System.currentTimeMillis());
+		long start = System.nanoTime();
+		CloudSim.startSimulation();
+		return System.nanoTime() - start;
+	}
+
+	private static void header(String title) {
+		System.out.println("=========================================");
+		System.out.println(title);
+		System.out.println("=========================================");
+	}
+
+	private static void measure(String name, long operations, Operation operation) {
+		try {
+			for (int i = 0; i < WARMUP_ITERATIONS; i++)
+				blackhole += operation.run();
+			SummaryStatistics nanosPerOperation = new SummaryStatistics();
+			for (int i = 0; i < iterations; i++) {
+				long start = System.nanoTime();
+				blackhole += operation.run();
+				nanosPerOperation.addValue((double) (System.nanoTime() - start) / operations);
+			}
+			System.out.println(String.format("%-40s %10.1f ns/op +- %.1f", name, nanosPerOperation.getMean(),
+					nanosPerOperation.getStandardDeviation()));
+		} catch (Exception e) {
+			System.out.println(String.format("%-40s failed: %s", name, e));
+		}
+	}
+
+}
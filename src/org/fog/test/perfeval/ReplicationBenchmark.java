@@ -0,0 +1,67 @@
+package org.fog.test.perfeval;
+
+import org.cloudbus.cloudsim.Log;
+import org.fog.placement.Controller;
+import org.fog.utils.Config;
+import org.fog.utils.ReplicationResults;
+import org.fog.utils.ReplicationRunner;
+
+/**
+ * Runs replications of case studies 1 (VRGameFog) and 2 (DCNSFog) in one JVM,
+ * first one after the other and then concurrently, and prints their statistics.
+ *
+ * Usage: ReplicationBenchmark [replications] [simulated time in ms] [seed]
+ *
+ */
+public class ReplicationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int replications = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int simulationTime = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+		Log.disable();
+		Config.MAX_SIMULATION_TIME = simulationTime;
+
+		ReplicationRunner.Scenario dcns = new ReplicationRunner.Scenario() {
+			@Override
+			public Controller createSimulation(int replication) throws Exception {
+				return DCNSFog.createSimulation();
+			}
+		};
+		ReplicationRunner.Scenario vrGame = new ReplicationRunner.Scenario() {
+			@Override
+			public Controller createSimulation(int replication) throws Exception {
+				return VRGameFog.createSimulation();
+			}
+		};
+
+		benchmark("DCNSFog", dcns, replications, seed);
+		benchmark("VRGameFog", vrGame, replications, seed);
+	}
+
+	private static void benchmark(String name, ReplicationRunner.Scenario scenario, int replications, long seed)
+			throws Exception {
+		ReplicationRunner runner = new ReplicationRunner(replications, seed);
+
+		runner.setThreads(1);
+		long start = System.nanoTime();
+		ReplicationResults serial = runner.run(scenario);
+		double serialTime = (System.nanoTime() - start) / 1e6;
+
+		runner.setThreads(Runtime.getRuntime().availableProcessors());
+		start = System.nanoTime();
+		ReplicationResults concurrent = runner.run(scenario);
+		double concurrentTime = (System.nanoTime() - start) / 1e6;
+
+		System.out.println("=========================================");
+		System.out.println(name + " : " + replications + " replications");
+		System.out.println(String.format("one after the other : %8.1f ms", serialTime));
+		System.out.println(String.format("%2d at a time        : %8.1f ms", runner.getThreads(), concurrentTime));
+		System.out.println("same seeds, same results : "
+				+ (serial.getLoopDelays().toString().equals(concurrent.getLoopDelays().toString())
+						&& serial.getEnergy().getMean() == concurrent.getEnergy().getMean()));
+		concurrent.print(System.out);
+	}
+
+}
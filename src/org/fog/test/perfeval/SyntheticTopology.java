@@ -0,0 +1,269 @@
+package org.fog.test.perfeval;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.application.selectivity.FractionalSelectivity;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogBroker;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.placement.Controller;
+import org.fog.placement.ModuleMapping;
+import org.fog.placement.ModulePlacementEdgewards;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+import org.fog.utils.distribution.DeterministicDistribution;
+
+/**
+ * Generates the topology of case study 2 (DCNSFog) scaled to a given number of
+ * fog devices: a cloud, a proxy server, and areas made of a router and smart
+ * cameras, each camera with its sensor and PTZ actuator. The application and
+ * the placement are those of the case study.
+ * <p>
+ * The time spent in the module placement and in
+ * {@link FogDevice#processTupleArrival(SimEvent)} is measured, for the
+ * benchmarks.
+ */
+public class SyntheticTopology {
+
+	/**
+	 * A fog device timing its tuple arrivals.
+	 */
+	private class TimedFogDevice extends FogDevice {
+
+		TimedFogDevice(String name, FogDeviceCharacteristics characteristics, List<Host> hostList, long upBw,
+				long downBw, double ratePerMips) throws Exception {
+			super(name, characteristics, new AppModuleAllocationPolicy(hostList), new LinkedList<Storage>(), 10, upBw,
+					downBw, 0, ratePerMips);
+		}
+
+		@Override
+		protected void processTupleArrival(SimEvent ev) {
+			long start = System.nanoTime();
+			super.processTupleArrival(ev);
+			tupleArrivalNanos += System.nanoTime() - start;
+			tupleArrivals++;
+		}
+	}
+
+	private final int numOfAreas;
+
+	private final int numOfCamerasPerArea;
+
+	private List<FogDevice> fogDevices;
+
+	private List<Sensor> sensors;
+
+	private List<Actuator> actuators;
+
+	private Application application;
+
+	private long placementNanos;
+
+	private long tupleArrivals;
+
+	private long tupleArrivalNanos;
+
+	/**
+	 * Creates a generator of about the given number of fog devices.
+	 *
+	 * @param numOfDevices        the number of fog devices, at least 2 +
+	 *                            (1 + numOfCamerasPerArea)
+	 * @param numOfCamerasPerArea the number of smart cameras under each router
+	 */
+	public SyntheticTopology(int numOfDevices, int numOfCamerasPerArea) {
+		this.numOfCamerasPerArea = numOfCamerasPerArea;
+		this.numOfAreas = Math.max(1, (numOfDevices - 2) / (numOfCamerasPerArea + 1));
+	}
+
+	/**
+	 * Initialises CloudSim and creates the entities of the simulation.
+	 *
+	 * @return the controller of the simulation
+	 */
+	public Controller createSimulation() throws Exception {
+		fogDevices = new ArrayList<FogDevice>();
+		sensors = new ArrayList<Sensor>();
+		actuators = new ArrayList<Actuator>();
+		tupleArrivals = 0;
+		tupleArrivalNanos = 0;
+
+		CloudSim.init(1, Calendar.getInstance(), false);
+
+		String appId = "dcns";
+		FogBroker broker = new FogBroker("broker");
+		application = createApplication(appId, broker.getId());
+		application.setUserId(broker.getId());
+
+		FogDevice cloud = createFogDevice("cloud", 44800, 40000, 10, 10, 0, 0.01, 16 * 103, 16 * 83.25);
+		cloud.setParentId(-1);
+		fogDevices.add(cloud);
+		FogDevice proxy = createFogDevice("proxy-server", 2800, 4000, 10000, 10000, 1, 0.0, 10.339, 83.4333);
+		proxy.setParentId(cloud.getId());
+		proxy.setUplinkLatency(100);
+		fogDevices.add(proxy);
+		for (int i = 0; i < numOfAreas; i++)
+			addArea(i + "", broker.getId(), appId, proxy.getId());
+
+		ModuleMapping moduleMapping = ModuleMapping.createModuleMapping();
+		for (FogDevice device : fogDevices) {
+			if (device.getName().startsWith("m"))
+				moduleMapping.addModuleToDevice("motion_detector", device.getName());
+		}
+		moduleMapping.addModuleToDevice("user_interface", "cloud");
+
+		Controller controller = new Controller("master-controller", fogDevices, sensors, actuators);
+		long start = System.nanoTime();
+		ModulePlacementEdgewards placement = new ModulePlacementEdgewards(fogDevices, sensors, actuators, application,
+				moduleMapping);
+		placementNanos = System.nanoTime() - start;
+		controller.submitApplication(application, placement);
+		return controller;
+	}
+
+	private void addArea(String id, int userId, String appId, int parentId) {
+		FogDevice router = createFogDevice("d-" + id, 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333);
+		fogDevices.add(router);
+		router.setUplinkLatency(2);
+		for (int i = 0; i < numOfCamerasPerArea; i++) {
+			String mobileId = id + "-" + i;
+			FogDevice camera = createFogDevice("m-" + mobileId, 500, 1000, 10000, 10000, 3, 0, 87.53, 82.44);
+			camera.setParentId(router.getId());
+			camera.setUplinkLatency(2);
+			fogDevices.add(camera);
+			Sensor sensor = new Sensor("s-" + mobileId, "CAMERA", userId, appId, new DeterministicDistribution(5));
+			sensor.setGatewayDeviceId(camera.getId());
+			sensor.setLatency(1.0);
+			sensors.add(sensor);
+			Actuator ptz = new Actuator("ptz-" + mobileId, userId, appId, "PTZ_CONTROL");
+			ptz.setGatewayDeviceId(camera.getId());
+			ptz.setLatency(1.0);
+			actuators.add(ptz);
+		}
+		router.setParentId(parentId);
+	}
+
+	private FogDevice createFogDevice(String nodeName, long mips, int ram, long upBw, long downBw, int level,
+			double ratePerMips, double busyPower, double idlePower) {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+
+		PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(ram),
+				new BwProvisionerOverbooking(10000), 1000000, peList, new StreamOperatorScheduler(peList),
+				new FogLinearPowerModel(busyPower, idlePower));
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics("x86", "Linux", "Xen", host, 10.0,
+				3.0, 0.05, 0.001, 0.0);
+		try {
+			FogDevice fogDevice = new TimedFogDevice(nodeName, characteristics, hostList, upBw, downBw, ratePerMips);
+			fogDevice.setLevel(level);
+			return fogDevice;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Creates the Intelligent Surveillance application of case study 2.
+	 */
+	@SuppressWarnings({ "serial" })
+	static Application createApplication(String appId, int userId) {
+		Application application = Application.createApplication(appId, userId);
+		application.addAppModule("object_detector", 10);
+		application.addAppModule("motion_detector", 10);
+		application.addAppModule("object_tracker", 10);
+		application.addAppModule("user_interface", 10);
+
+		application.addAppEdge("CAMERA", "motion_detector", 1000, 20000, "CAMERA", Tuple.UP, AppEdge.SENSOR);
+		application.addAppEdge("motion_detector", "object_detector", 2000, 2000, "MOTION_VIDEO_STREAM", Tuple.UP,
+				AppEdge.MODULE);
+		application.addAppEdge("object_detector", "user_interface", 500, 2000, "DETECTED_OBJECT", Tuple.UP,
+				AppEdge.MODULE);
+		application.addAppEdge("object_detector", "object_tracker", 1000, 100, "OBJECT_LOCATION", Tuple.UP,
+				AppEdge.MODULE);
+		application.addAppEdge("object_tracker", "PTZ_CONTROL", 100, 28, 100, "PTZ_PARAMS", Tuple.DOWN,
+				AppEdge.ACTUATOR);
+
+		application.addTupleMapping("motion_detector", "CAMERA", "MOTION_VIDEO_STREAM", new FractionalSelectivity(1.0));
+		application.addTupleMapping("object_detector", "MOTION_VIDEO_STREAM", "OBJECT_LOCATION",
+				new FractionalSelectivity(1.0));
+		application.addTupleMapping("object_detector", "MOTION_VIDEO_STREAM", "DETECTED_OBJECT",
+				new FractionalSelectivity(0.05));
+
+		final AppLoop loop1 = new AppLoop(new ArrayList<String>() {
+			{
+				add("motion_detector");
+				add("object_detector");
+				add("object_tracker");
+			}
+		});
+		final AppLoop loop2 = new AppLoop(new ArrayList<String>() {
+			{
+				add("object_tracker");
+				add("PTZ_CONTROL");
+			}
+		});
+		List<AppLoop> loops = new ArrayList<AppLoop>();
+		loops.add(loop1);
+		loops.add(loop2);
+		application.setLoops(loops);
+		return application;
+	}
+
+	public List<FogDevice> getFogDevices() {
+		return fogDevices;
+	}
+
+	public List<Sensor> getSensors() {
+		return sensors;
+	}
+
+	public List<Actuator> getActuators() {
+		return actuators;
+	}
+
+	public Application getApplication() {
+		return application;
+	}
+
+	/**
+	 * Returns the time taken by the module placement (ModulePlacementEdgewards,
+	 * whose constructor maps the modules), in ns.
+	 */
+	public long getPlacementNanos() {
+		return placementNanos;
+	}
+
+	public long getTupleArrivals() {
+		return tupleArrivals;
+	}
+
+	/**
+	 * Returns the time spent in processTupleArrival by all the fog devices, in ns.
+	 */
+	public long getTupleArrivalNanos() {
+		return tupleArrivalNanos;
+	}
+
+}
@@ -59,61 +59,7 @@ public class VRGameFog {
 
 		try {
 			Log.disable();
-			int num_user = 1; // number of cloud users
-			Calendar calendar = Calendar.getInstance();
-			boolean trace_flag = false; // mean trace events
-
-			CloudSim.init(num_user, calendar, trace_flag);
-
-			String appId = "vr_game"; // identifier of the application
-
-			FogBroker broker = new FogBroker("broker");
-
-			Application application = createApplication(appId, broker.getId());
-			application.setUserId(broker.getId());
-
-			createFogDevices(broker.getId(), appId);
-
-			ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
-
-			if (CLOUD) {
-				// if the mode of deployment is cloud-based
-				/*
-				 * moduleMapping.addModuleToDevice("connector", "cloud",
-				 * numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector
-				 * module to the Cloud
-				 * moduleMapping.addModuleToDevice("concentration_calculator", "cloud",
-				 * numOfDepts*numOfMobilesPerDept); // fixing all instances of the Concentration
-				 * Calculator module to the Cloud
-				 */ moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector
-																			// module to the Cloud
-				moduleMapping.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the
-																						// Concentration Calculator
-																						// module to the Cloud
-				for (FogDevice device : fogDevices) {
-					if (device.getName().startsWith("m")) {
-						// moduleMapping.addModuleToDevice("client", device.getName(), 1); // fixing all
-						// instances of the Client module to the Smartphones
-						moduleMapping.addModuleToDevice("client", device.getName()); // fixing all instances of the
-																						// Client module to the
-																						// Smartphones
-					}
-				}
-			} else {
-				// if the mode of deployment is cloud-based
-				// moduleMapping.addModuleToDevice("connector", "cloud",
-				// numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector
-				// module to the Cloud
-				moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module
-																		// to the Cloud
-				// rest of the modules will be placed by the Edge-ward placement policy
-			}
-
-			Controller controller = new Controller("master-controller", fogDevices, sensors, actuators);
-
-			controller.submitApplication(application, 0, (CLOUD)
-					? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
-					: (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+			createSimulation();
 
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
@@ -128,6 +74,76 @@ public class VRGameFog {
 		}
 	}
 
+	/**
+	 * Creates the entities of the simulation in the simulation context of the
+	 * calling thread, so that several replications can run concurrently.
+	 * 
+	 * @return the controller of the simulation
+	 */
+	public static synchronized Controller createSimulation() throws Exception {
+		fogDevices = new ArrayList<FogDevice>();
+		sensors = new ArrayList<Sensor>();
+		actuators = new ArrayList<Actuator>();
+
+		int num_user = 1; // number of cloud users
+		Calendar calendar = Calendar.getInstance();
+		boolean trace_flag = false; // mean trace events
+
+		CloudSim.init(num_user, calendar, trace_flag);
+
+		String appId = "vr_game"; // identifier of the application
+
+		FogBroker broker = new FogBroker("broker");
+
+		Application application = createApplication(appId, broker.getId());
+		application.setUserId(broker.getId());
+
+		createFogDevices(broker.getId(), appId);
+
+		ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+
+		if (CLOUD) {
+			// if the mode of deployment is cloud-based
+			/*
+			 * moduleMapping.addModuleToDevice("connector", "cloud",
+			 * numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector
+			 * module to the Cloud
+			 * moduleMapping.addModuleToDevice("concentration_calculator", "cloud",
+			 * numOfDepts*numOfMobilesPerDept); // fixing all instances of the Concentration
+			 * Calculator module to the Cloud
+			 */ moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector
+																		// module to the Cloud
+			moduleMapping.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the
+																					// Concentration Calculator
+																					// module to the Cloud
+			for (FogDevice device : fogDevices) {
+				if (device.getName().startsWith("m")) {
+					// moduleMapping.addModuleToDevice("client", device.getName(), 1); // fixing all
+					// instances of the Client module to the Smartphones
+					moduleMapping.addModuleToDevice("client", device.getName()); // fixing all instances of the
+																					// Client module to the
+																					// Smartphones
+				}
+			}
+		} else {
+			// if the mode of deployment is cloud-based
+			// moduleMapping.addModuleToDevice("connector", "cloud",
+			// numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector
+			// module to the Cloud
+			moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module
+																	// to the Cloud
+			// rest of the modules will be placed by the Edge-ward placement policy
+		}
+
+		Controller controller = new Controller("master-controller", fogDevices, sensors, actuators);
+
+		controller.submitApplication(application, 0, (CLOUD)
+				? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
+				: (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+
+		return controller;
+	}
+
 	/**
 	 * Creates the fog devices in the physical topology of the simulation.
 	 * 
@@ -13,4 +13,43 @@ public class Config {
 	public static double FOG_DEVICE_COST_PER_MEMORY = 0.05;
 	public static double FOG_DEVICE_COST_PER_STORAGE = 0.001;
 	public static double FOG_DEVICE_COST_PER_BW = 0.0;
+	/**
+	 * Computes the departure of each tuple from the time its link gets free,
+	 * instead of polling the north and south tuple queues with self events. The
+	 * delivery times are the same, and tuple acknowledgements are not sent.
+	 */
+	public static boolean ANALYTIC_LINKS = false;
+	/**
+	 * With ANALYTIC_LINKS, delivers the tuples reaching a device at the same time
+	 * with a single event. Sequential engine only: the conservative engine
+	 * rejects it.
+	 */
+	public static boolean BATCH_TUPLE_ARRIVALS = false;
+	/**
+	 * Reports the energy consumption and cost of the fog devices from the
+	 * {@link EnergyLedger} of their host, integrated exactly between the changes
+	 * of utilization, instead of sampling the utilization when the energy is
+	 * updated. The periodic resource management events are not sent.
+	 */
+	public static boolean ENERGY_LEDGER = false;
+	/**
+	 * Draws the selectivity of the application modules from the random number
+	 * stream of the device executing them instead of the shared generator, so the
+	 * draws of a device do not depend on the order in which the devices run, as
+	 * the conservative engine needs. The draws differ from the default ones.
+	 */
+	public static boolean SELECTIVITY_STREAMS = false;
+	/**
+	 * Sends each child but the first a copy of a tuple broadcast down the device
+	 * tree, instead of the same tuple. A device executing a tuple changes its
+	 * state as a cloudlet, so with the same tuple the devices see each other's
+	 * changes, in an order the conservative engine does not reproduce.
+	 */
+	public static boolean BROADCAST_TUPLE_COPIES = false;
+	/**
+	 * File where the controller records the events of the simulation with a
+	 * {@link SimulationTraceRecorder}, for {@link SimulationTraceAnalyzer}; no
+	 * trace is recorded if null.
+	 */
+	public static String SIMULATION_TRACE_FILE = null;
 }
@@ -0,0 +1,102 @@
+package org.fog.utils;
+
+import org.cloudbus.cloudsim.power.models.PowerModel;
+
+/**
+ * Energy consumed by a power host, integrated exactly from the points in time
+ * where its CPU utilization changes. Between two change points the utilization,
+ * hence the power, is constant, so the energy up to any time is the energy up
+ * to the last change point plus the power since then times the time elapsed:
+ * nothing needs to be sampled periodically.
+ * <p>
+ * The ledger also integrates the utilization itself, from which the cost of the
+ * MIPS used over time follows.
+ */
+public class EnergyLedger {
+
+	private final PowerModel powerModel;
+
+	private double lastChangeTime;
+	private double utilization;
+	private double power;
+
+	/** Energy consumed up to the last change point, in W*sec */
+	private double energy;
+
+	/** Integral of the utilization up to the last change point, in sec */
+	private double utilizationTime;
+
+	private long changePoints;
+
+	/**
+	 * Creates the ledger of a host idle from the given time on.
+	 */
+	public EnergyLedger(PowerModel powerModel, double startTime){
+		this.powerModel = powerModel;
+		this.lastChangeTime = startTime;
+		this.utilization = 0;
+		this.power = powerModel.getPower(0);
+	}
+
+	/**
+	 * Records the utilization of the host from the given time on. Utilizations
+	 * above 1 count as 1.
+	 * 
+	 * @throws IllegalArgumentException if the time is before the last change point
+	 */
+	public void recordUtilization(double time, double utilization){
+		if(utilization > 1)
+			utilization = 1;
+		if(utilization == this.utilization)
+			return;
+		close(time);
+		this.utilization = utilization;
+		this.power = powerModel.getPower(utilization);
+		changePoints++;
+	}
+
+	/**
+	 * Returns the energy consumed by the host up to the given time, in W*sec.
+	 */
+	public double getEnergy(double time){
+		checkTime(time);
+		return energy + (time - lastChangeTime) * power;
+	}
+
+	/**
+	 * Returns the integral of the utilization of the host up to the given time,
+	 * i.e. the time it would have taken at full utilization, in sec.
+	 */
+	public double getUtilizationTime(double time){
+		checkTime(time);
+		return utilizationTime + (time - lastChangeTime) * utilization;
+	}
+
+	public double getUtilization() {
+		return utilization;
+	}
+
+	public double getLastChangeTime() {
+		return lastChangeTime;
+	}
+
+	/**
+	 * Returns the number of changes of the utilization recorded.
+	 */
+	public long getChangePoints() {
+		return changePoints;
+	}
+
+	private void close(double time){
+		checkTime(time);
+		energy += (time - lastChangeTime) * power;
+		utilizationTime += (time - lastChangeTime) * utilization;
+		lastChangeTime = time;
+	}
+
+	private void checkTime(double time){
+		if(time < lastChangeTime)
+			throw new IllegalArgumentException("Time " + time + " is before the last change point " + lastChangeTime);
+	}
+
+}
@@ -1,15 +1,37 @@
 package org.fog.utils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
+	/**
+	 * The id counters of a simulation context, so that the ids of a simulation do
+	 * not depend on the simulations running concurrently in other contexts.
+	 */
+	private static class IdCounters {
+		private final AtomicInteger tupleId = new AtomicInteger(1);
+		private final AtomicInteger entityId = new AtomicInteger(1);
+		private final AtomicInteger actualTupleId = new AtomicInteger(1);
+	}
+	
+	/**
+	 * Returns the id counters of the simulation context of the calling thread.
+	 */
+	private static IdCounters getIdCounters(){
+		SimulationContext context = CloudSim.getContext();
+		IdCounters counters = context.getAttribute(IdCounters.class);
+		if(counters == null)
+			counters = context.putAttributeIfAbsent(IdCounters.class, new IdCounters());
+		return counters;
+	}
 	
 	public static int generateTupleId(){
-		return TUPLE_ID++;
+		return getIdCounters().tupleId.getAndIncrement();
 	}
 	
 	public static String getSensorTypeFromSensorName(String sensorName){
@@ -17,11 +39,11 @@ public class FogUtils {
 	}
 	
 	public static int generateEntityId(){
-		return ENTITY_ID++;
+		return getIdCounters().entityId.getAndIncrement();
 	}
 	
 	public static int generateActualTupleId(){
-		return ACTUAL_TUPLE_ID++;
+		return getIdCounters().actualTupleId.getAndIncrement();
 	}
 	
 	public static int USER_ID = 1;
@@ -29,5 +51,5 @@ public class FogUtils {
 	//public static int MAX = 10000000;
 	public static int MAX = 10000000;
 	
-	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = Collections.synchronizedMap(new HashMap<String, GeoCoverage>());
 }
@@ -0,0 +1,142 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys to double values with open addressing and linear
+ * probing, without boxing. Removed slots are refilled by shifting the
+ * following entries back, so the table never fills up with tombstones and its
+ * size only depends on the number of entries present at the same time.
+ */
+public class IntDoubleMap {
+
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private int[] keys;
+
+	private double[] values;
+
+	private int size;
+
+	/** keys.length - 1, the table length being a power of two. */
+	private int mask;
+
+	public IntDoubleMap() {
+		this(16);
+	}
+
+	public IntDoubleMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, FREE);
+		values = new double[capacity];
+		mask = capacity - 1;
+	}
+
+	private int slot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private int indexOf(int key) {
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			if (keys[i] == key)
+				return i;
+			if (keys[i] == FREE)
+				return -1;
+		}
+	}
+
+	public boolean containsKey(int key) {
+		checkKey(key);
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns the value of a key, or the given default value if the key is
+	 * absent.
+	 */
+	public double get(int key, double defaultValue) {
+		checkKey(key);
+		int index = indexOf(key);
+		return index < 0 ? defaultValue : values[index];
+	}
+
+	public void put(int key, double value) {
+		checkKey(key);
+		int i = slot(key);
+		for (; keys[i] != FREE; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 2 > keys.length)
+			rehash(keys.length << 1);
+	}
+
+	/**
+	 * Removes a key and returns its value, or the given default value if the key
+	 * is absent.
+	 */
+	public double remove(int key, double defaultValue) {
+		checkKey(key);
+		int index = indexOf(key);
+		if (index < 0)
+			return defaultValue;
+		double value = values[index];
+		// shift back the entries of the probe sequence that follow the hole
+		int hole = index;
+		for (int i = (hole + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+			int home = slot(keys[i]);
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				keys[hole] = keys[i];
+				values[hole] = values[i];
+				hole = i;
+			}
+		}
+		keys[hole] = FREE;
+		size--;
+		return value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(capacity);
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] == FREE)
+				continue;
+			int i = slot(oldKeys[j]);
+			while (keys[i] != FREE)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	private static void checkKey(int key) {
+		if (key == FREE)
+			throw new IllegalArgumentException("Key " + key + " is reserved.");
+	}
+
+}
@@ -86,7 +86,7 @@ public class JsonToTopology {
 		return null;
 	}
 	
-	public static PhysicalTopology getPhysicalTopology(int userId, String appId, String physicalTopologyFile) throws Exception{
+	public static synchronized PhysicalTopology getPhysicalTopology(int userId, String appId, String physicalTopologyFile) throws Exception{
 				
 		fogDevices = new ArrayList<FogDevice>();
 		sensors = new ArrayList<Sensor>();
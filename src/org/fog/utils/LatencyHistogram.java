@@ -0,0 +1,114 @@
+package org.fog.utils;
+
+/**
+ * A histogram of latencies with a fixed memory footprint, in the manner of
+ * HdrHistogram: values are counted in buckets of a width proportional to the
+ * value (128 buckets per power of two), so the percentiles have a relative
+ * error under 0.4% whatever the number of recorded values. The count, sum,
+ * minimum and maximum are exact.
+ * <p>
+ * Values from 2^-16 to 2^32 are bucketed; smaller values are counted in the
+ * first bucket and larger ones in the last.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int MIN_EXPONENT = -16;
+
+	private static final int MAX_EXPONENT = 32;
+
+	private static final int BUCKETS = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+
+	private long count;
+
+	private double sum;
+
+	private double min = Double.NaN;
+
+	private double max = Double.NaN;
+
+	public void recordValue(double value) {
+		counts[bucketOf(value)]++;
+		count++;
+		sum += value;
+		if (count == 1) {
+			min = value;
+			max = value;
+		} else if (value < min) {
+			min = value;
+		} else if (value > max) {
+			max = value;
+		}
+	}
+
+	private static int bucketOf(double value) {
+		int exponent = Math.getExponent(value);
+		if (exponent < MIN_EXPONENT || value <= 0)
+			return 0;
+		if (exponent > MAX_EXPONENT)
+			return BUCKETS - 1;
+		int subBucket = (int) (Double.doubleToRawLongBits(value) >>> (52 - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the value in the middle of a bucket.
+	 */
+	private static double valueOf(int bucket) {
+		int exponent = bucket / SUB_BUCKETS + MIN_EXPONENT;
+		int subBucket = bucket % SUB_BUCKETS;
+		return Math.scalb(1.0 + (subBucket + 0.5) / SUB_BUCKETS, exponent);
+	}
+
+	/**
+	 * Returns the value under which the given percentage of the recorded values
+	 * fall, or NaN if no value was recorded.
+	 *
+	 * @param percentile the percentage, from 0 to 100
+	 */
+	public double getValueAtPercentile(double percentile) {
+		if (count == 0)
+			return Double.NaN;
+		if (percentile >= 100)
+			return max;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank)
+				return Math.min(max, Math.max(min, valueOf(bucket)));
+		}
+		return max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the 50th, 95th and 99th percentiles and the maximum.
+	 */
+	@Override
+	public String toString() {
+		return String.format("p50 %.3f, p95 %.3f, p99 %.3f, max %.3f", getValueAtPercentile(50),
+				getValueAtPercentile(95), getValueAtPercentile(99), getMax());
+	}
+
+}
@@ -4,6 +4,14 @@ import java.text.DecimalFormat;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 
+/**
+ * Level-gated messages of the fog entities, and trace records kept in the
+ * {@link TraceRingBuffer} of the simulation context. Code building a message on
+ * a hot path checks {@link #isDebugEnabled()} or {@link #isErrorEnabled()}
+ * first, so that a disabled logger costs a static field read; trace records
+ * take only primitives and are dropped as cheaply unless {@link #TRACE_ENABLED}
+ * is set.
+ */
 public class Logger {
 	
 	public static final int ERROR = 1;
@@ -14,21 +22,41 @@ public class Logger {
 
 	public static boolean ENABLED = false;;
 	
+	public static boolean TRACE_ENABLED = false;
+	
 	public static void setLogLevel(int level){
 		Logger.LOG_LEVEL = level;
 	}
 	
+	public static boolean isDebugEnabled(){
+		return ENABLED && Logger.LOG_LEVEL <= Logger.DEBUG;
+	}
+	
+	public static boolean isErrorEnabled(){
+		return ENABLED && Logger.LOG_LEVEL <= Logger.ERROR;
+	}
+	
 	public static void debug(String name, String message){
-		if(!ENABLED)
-			return;
-		if(Logger.LOG_LEVEL <= Logger.DEBUG)
+		if(isDebugEnabled())
 			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
 	}
 	public static void error(String name, String message){
-		if(!ENABLED)
-			return;
-		if(Logger.LOG_LEVEL <= Logger.ERROR)
+		if(isErrorEnabled())
 			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
 	}
 	
+	/**
+	 * Records that something happened to a tuple on an entity at the current
+	 * time, if tracing is enabled.
+	 * 
+	 * @param entityId the entity
+	 * @param kind the kind of record, e.g. {@link TraceRingBuffer#TUPLE_ARRIVAL}
+	 * @param tupleId the tuple
+	 */
+	public static void trace(int entityId, int kind, int tupleId){
+		if(!TRACE_ENABLED)
+			return;
+		TraceRingBuffer.getInstance().record(CloudSim.clock(), entityId, kind, tupleId);
+	}
+	
 }
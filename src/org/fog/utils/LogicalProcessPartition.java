@@ -0,0 +1,191 @@
+package org.fog.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEntityPartition;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+
+/**
+ * Partitions the entities of a fog topology into logical processes along the
+ * device tree. Every device at the given depth (1 being the children of the
+ * cloud) roots a logical process holding its whole subtree together with the
+ * sensors and actuators attached to it; the devices above that depth and the
+ * remaining entities (controller, brokers) make up logical process 0.
+ * <p>
+ * Tuples only cross between logical processes through the uplink of a subtree
+ * root, so the uplink latency of the root is the lookahead of its logical
+ * process, unless the links are not analytic: the device receiving a tuple then
+ * acknowledges it to the sender after {@link CloudSim#getMinTimeBetweenEvents()}.
+ * The other events crossing logical processes, the tuples returned by the
+ * devices to the broker, have no delay and go to logical process 0.
+ */
+public class LogicalProcessPartition implements SimEntityPartition {
+
+	/** The depth of the devices rooting the logical processes. */
+	private final int depth;
+
+	/** The logical process of each entity, by entity id. */
+	private final Map<Integer, Integer> processOfEntity = new HashMap<Integer, Integer>();
+
+	/** The root device of each logical process, null for logical process 0. */
+	private final List<FogDevice> roots = new ArrayList<FogDevice>();
+
+	/** The number of entities of each logical process. */
+	private final List<Integer> sizes = new ArrayList<Integer>();
+
+	/**
+	 * Creates a partition that is computed when the simulation starts.
+	 */
+	public LogicalProcessPartition(int depth) {
+		this.depth = depth;
+	}
+
+	public LogicalProcessPartition(List<? extends SimEntity> entities, int depth) {
+		this(depth);
+		partition(entities);
+	}
+
+	@Override
+	public void partition(List<? extends SimEntity> entities) {
+		if (Config.ANALYTIC_LINKS && Config.BATCH_TUPLE_ARRIVALS)
+			throw new IllegalStateException("Batched tuple arrivals need the sequential engine");
+		processOfEntity.clear();
+		roots.clear();
+		sizes.clear();
+		Map<Integer, FogDevice> devices = new HashMap<Integer, FogDevice>();
+		for (SimEntity entity : entities) {
+			if (entity instanceof FogDevice)
+				devices.put(entity.getId(), (FogDevice) entity);
+		}
+		roots.add(null);
+		sizes.add(0);
+		Map<Integer, Integer> processOfRoot = new HashMap<Integer, Integer>();
+		for (FogDevice device : devices.values()) {
+			FogDevice root = ancestorAtDepth(device, devices, depth);
+			int process = 0;
+			if (root != null) {
+				Integer known = processOfRoot.get(root.getId());
+				if (known == null) {
+					known = roots.size();
+					processOfRoot.put(root.getId(), known);
+					roots.add(root);
+					sizes.add(0);
+				}
+				process = known;
+			}
+			assign(device.getId(), process);
+		}
+		for (SimEntity entity : entities) {
+			if (processOfEntity.containsKey(entity.getId()))
+				continue;
+			int gatewayId = -1;
+			if (entity instanceof Sensor)
+				gatewayId = ((Sensor) entity).getGatewayDeviceId();
+			else if (entity instanceof Actuator)
+				gatewayId = ((Actuator) entity).getGatewayDeviceId();
+			assign(entity.getId(), getLogicalProcess(gatewayId));
+		}
+	}
+
+	/**
+	 * Returns the ancestor of a device at the given depth, or null if the device
+	 * is above that depth.
+	 */
+	private static FogDevice ancestorAtDepth(FogDevice device, Map<Integer, FogDevice> devices, int depth) {
+		List<FogDevice> path = new ArrayList<FogDevice>();
+		for (FogDevice d = device; d != null; d = devices.get(d.getParentId()))
+			path.add(d);
+		// path ends with the root of the tree, at depth 0
+		int index = path.size() - 1 - depth;
+		return index >= 0 ? path.get(index) : null;
+	}
+
+	private void assign(int entityId, int process) {
+		processOfEntity.put(entityId, process);
+		sizes.set(process, sizes.get(process) + 1);
+	}
+
+	public int getNumLogicalProcesses() {
+		return roots.size();
+	}
+
+	@Override
+	public int getNumPartitions() {
+		return getNumLogicalProcesses();
+	}
+
+	@Override
+	public int getPartition(int entityId) {
+		return getLogicalProcess(entityId);
+	}
+
+	/**
+	 * Returns the smallest uplink latency of the roots, or 0 when there is no
+	 * device at the depth of the partition.
+	 */
+	@Override
+	public double getLookahead() {
+		return roots.size() > 1 ? getMinLookahead() : 0;
+	}
+
+	/**
+	 * Returns the logical process of an entity; unknown entities belong to
+	 * logical process 0.
+	 */
+	public int getLogicalProcess(int entityId) {
+		Integer process = processOfEntity.get(entityId);
+		return process == null ? 0 : process;
+	}
+
+	/**
+	 * Returns the root device of a logical process, or null for logical process 0.
+	 */
+	public FogDevice getRoot(int process) {
+		return roots.get(process);
+	}
+
+	public int getNumEntities(int process) {
+		return sizes.get(process);
+	}
+
+	/**
+	 * Returns the minimum delay of a tuple or of its acknowledgement entering or
+	 * leaving a logical process, which is the uplink latency of its root at most.
+	 * Logical process 0 borders all the others, so its lookahead is the smallest
+	 * of theirs.
+	 */
+	public double getLookahead(int process) {
+		if (process == 0)
+			return getMinLookahead();
+		double lookahead = roots.get(process).getUplinkLatency();
+		if (!Config.ANALYTIC_LINKS)
+			lookahead = Math.min(lookahead, CloudSim.getMinTimeBetweenEvents());
+		return lookahead;
+	}
+
+	/**
+	 * Returns the lookahead between two logical processes.
+	 */
+	public double getLookahead(int from, int to) {
+		if (from == 0)
+			return getLookahead(to);
+		if (to == 0)
+			return getLookahead(from);
+		return Math.min(getLookahead(from), getLookahead(to));
+	}
+
+	public double getMinLookahead() {
+		double min = Double.POSITIVE_INFINITY;
+		for (int process = 1; process < roots.size(); process++)
+			min = Math.min(min, getLookahead(process));
+		return min;
+	}
+
+}
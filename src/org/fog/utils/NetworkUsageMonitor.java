@@ -1,14 +1,28 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class NetworkUsageMonitor {
 
-	private static double networkUsage = 0.0;
+	private double networkUsage = 0.0;
+	
+	/**
+	 * Returns the monitor of the simulation context of the calling thread.
+	 */
+	private static NetworkUsageMonitor getInstance(){
+		SimulationContext context = CloudSim.getContext();
+		NetworkUsageMonitor instance = context.getAttribute(NetworkUsageMonitor.class);
+		if(instance == null)
+			instance = context.putAttributeIfAbsent(NetworkUsageMonitor.class, new NetworkUsageMonitor());
+		return instance;
+	}
 	
 	public static void sendingTuple(double latency, double tupleNwSize){
-		networkUsage += latency*tupleNwSize;
+		getInstance().networkUsage += latency*tupleNwSize;
 	}
 	
 	public static double getNetworkUsage(){
-		return networkUsage;
+		return getInstance().networkUsage;
 	}
 }
@@ -0,0 +1,154 @@
+package org.fog.utils;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+
+/**
+ * The results of the replications run by a {@link ReplicationRunner}, in the
+ * order of the replications, and their statistics.
+ */
+public class ReplicationResults {
+
+	/**
+	 * The results of one replication.
+	 */
+	public static class Replication {
+
+		private final int index;
+
+		private final double wallTime;
+
+		private final double simulatedTime;
+
+		private final long events;
+
+		double energy;
+
+		double networkUsage;
+
+		final Map<String, Double> loopDelays = new LinkedHashMap<String, Double>();
+
+		Replication(int index, double wallTime, double simulatedTime, long events) {
+			this.index = index;
+			this.wallTime = wallTime;
+			this.simulatedTime = simulatedTime;
+			this.events = events;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Returns the time taken by the simulation, in ms.
+		 */
+		public double getWallTime() {
+			return wallTime;
+		}
+
+		public double getSimulatedTime() {
+			return simulatedTime;
+		}
+
+		public long getEvents() {
+			return events;
+		}
+
+		/**
+		 * Returns the energy consumed by all the fog devices.
+		 */
+		public double getEnergy() {
+			return energy;
+		}
+
+		/**
+		 * Returns the network usage per unit of simulated time, as printed by the
+		 * controller.
+		 */
+		public double getNetworkUsage() {
+			return networkUsage;
+		}
+
+		/**
+		 * Returns the average delay of each application loop, by the modules of the
+		 * loop.
+		 */
+		public Map<String, Double> getLoopDelays() {
+			return Collections.unmodifiableMap(loopDelays);
+		}
+	}
+
+	private final List<Replication> replications = new ArrayList<Replication>();
+
+	private final SummaryStatistics energy = new SummaryStatistics();
+
+	private final SummaryStatistics networkUsage = new SummaryStatistics();
+
+	private final SummaryStatistics wallTime = new SummaryStatistics();
+
+	private final Map<String, SummaryStatistics> loopDelays = new LinkedHashMap<String, SummaryStatistics>();
+
+	void add(Replication replication) {
+		replications.add(replication);
+		energy.addValue(replication.getEnergy());
+		networkUsage.addValue(replication.getNetworkUsage());
+		wallTime.addValue(replication.getWallTime());
+		for (Map.Entry<String, Double> entry : replication.loopDelays.entrySet()) {
+			SummaryStatistics statistics = loopDelays.get(entry.getKey());
+			if (statistics == null) {
+				statistics = new SummaryStatistics();
+				loopDelays.put(entry.getKey(), statistics);
+			}
+			statistics.addValue(entry.getValue());
+		}
+	}
+
+	public List<Replication> getReplications() {
+		return Collections.unmodifiableList(replications);
+	}
+
+	public SummaryStatistics getEnergy() {
+		return energy;
+	}
+
+	public SummaryStatistics getNetworkUsage() {
+		return networkUsage;
+	}
+
+	public SummaryStatistics getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * Returns the statistics of the average delay of each application loop, by the
+	 * modules of the loop.
+	 */
+	public Map<String, SummaryStatistics> getLoopDelays() {
+		return Collections.unmodifiableMap(loopDelays);
+	}
+
+	public void print(PrintStream out) {
+		out.println("=========================================");
+		out.println("RESULTS OF " + replications.size() + " REPLICATIONS (mean, std dev, min, max)");
+		out.println("=========================================");
+		out.println("APPLICATION LOOP DELAYS");
+		for (Map.Entry<String, SummaryStatistics> entry : loopDelays.entrySet())
+			out.println(entry.getKey() + " ---> " + format(entry.getValue()));
+		out.println("TOTAL ENERGY CONSUMED ---> " + format(energy));
+		out.println("NETWORK USAGE ---> " + format(networkUsage));
+		out.println("EXECUTION TIME (ms) ---> " + format(wallTime));
+		out.println("=========================================");
+	}
+
+	private static String format(SummaryStatistics statistics) {
+		return String.format("%.3f, %.3f, %.3f, %.3f", statistics.getMean(), statistics.getStandardDeviation(),
+				statistics.getMin(), statistics.getMax());
+	}
+
+}
@@ -0,0 +1,167 @@
+package org.fog.utils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.placement.Controller;
+
+/**
+ * Runs replications of a simulation concurrently in one JVM. Every replication
+ * runs on its own thread with its own {@link SimulationContext}, seeded from the
+ * seed of the runner, and with the settings of the context of the caller
+ * (termination time, future queue type, priority scheduling, event pooling).
+ * The replications run on virtual threads when the JVM has them (Java 21 and
+ * later) and on a pool of platform threads otherwise.
+ */
+public class ReplicationRunner {
+
+	/**
+	 * Creates the entities of a replication. It is called on the thread of the
+	 * replication, so the entities go to the simulation context of that
+	 * replication.
+	 */
+	public interface Scenario {
+
+		/**
+		 * Initialises CloudSim and creates the entities of a replication.
+		 *
+		 * @param replication the index of the replication
+		 * @return the controller of the simulation
+		 */
+		Controller createSimulation(int replication) throws Exception;
+	}
+
+	private final int replications;
+
+	private final long seed;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private boolean virtualThreads = true;
+
+	public ReplicationRunner(int replications, long seed) {
+		if (replications < 1)
+			throw new IllegalArgumentException("The number of replications should be positive, but is:" + replications);
+		this.replications = replications;
+		this.seed = seed;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of replications running at the same time.
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be positive, but is:" + threads);
+		this.threads = threads;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Runs the replications and waits for all of them.
+	 *
+	 * @param scenario creates the entities of each replication
+	 * @return the statistics of the replications
+	 * @throws ExecutionException if a replication failed
+	 */
+	public ReplicationResults run(final Scenario scenario) throws InterruptedException, ExecutionException {
+		final SimulationContext settings = CloudSim.getContext();
+		final Semaphore running = new Semaphore(threads);
+		SplittableRandom seeds = new SplittableRandom(seed);
+
+		ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+		if (executor == null)
+			executor = Executors.newFixedThreadPool(threads);
+		List<Future<ReplicationResults.Replication>> futures = new ArrayList<Future<ReplicationResults.Replication>>();
+		try {
+			for (int i = 0; i < replications; i++) {
+				final int replication = i;
+				final long replicationSeed = seeds.nextLong();
+				futures.add(executor.submit(new Callable<ReplicationResults.Replication>() {
+					@Override
+					public ReplicationResults.Replication call() throws Exception {
+						running.acquire();
+						try {
+							return runReplication(scenario, replication,
+									new SimulationContext(settings, replicationSeed));
+						} finally {
+							running.release();
+						}
+					}
+				}));
+			}
+			ReplicationResults results = new ReplicationResults();
+			for (Future<ReplicationResults.Replication> future : futures)
+				results.add(future.get());
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static ReplicationResults.Replication runReplication(Scenario scenario, int replication,
+			SimulationContext context) throws Exception {
+		CloudSim.setContext(context);
+		try {
+			Controller controller = scenario.createSimulation(replication);
+			controller.setExitOnStop(false);
+			TimeKeeper.getInstance().setSimulationStartTime(System.currentTimeMillis());
+			long start = System.nanoTime();
+			double simulatedTime = CloudSim.startSimulation();
+			long elapsed = System.nanoTime() - start;
+
+			ReplicationResults.Replication result = new ReplicationResults.Replication(replication, elapsed / 1e6,
+					simulatedTime, CloudSim.getNumProcessedEvents());
+			for (FogDevice fogDevice : controller.getFogDevices())
+				result.energy += fogDevice.getEnergyConsumption();
+			result.networkUsage = simulatedTime > 0 ? NetworkUsageMonitor.getNetworkUsage() / simulatedTime : 0;
+			for (Application application : controller.getApplications().values()) {
+				for (AppLoop loop : application.getLoops()) {
+					LatencyHistogram delays = TimeKeeper.getInstance().getLoopDelays(loop.getLoopId());
+					if (delays != null && delays.getCount() > 0)
+						result.loopDelays.put(loop.getModules().toString(), delays.getMean());
+				}
+			}
+			return result;
+		} finally {
+			CloudSim.setContext(null);
+		}
+	}
+
+	/**
+	 * Returns an executor starting a virtual thread per task, or null before Java
+	 * 21.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+package org.fog.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * Routes of the fog device tree: for each device, the child leading to each of
+ * its descendants, and the children leading to the gateways of the actuators of
+ * each type. The table is filled by the controller as it links the devices and
+ * kept up to date link by link, so a route is a lookup instead of a search of
+ * the subtrees.
+ * <p>
+ * A device the table knows nothing about, e.g. after the topology was changed
+ * through {@link org.fog.entities.PhysicalTopology}, is routed by searching its
+ * subtrees as before.
+ */
+public class RoutingTable {
+
+	private Map<Integer, Integer> parents;
+	private Map<Integer, Map<Integer, Integer>> nextHops;
+	private Map<String, List<Integer>> actuatorGateways;
+	private Map<Integer, Map<String, Set<Integer>>> actuatorChildren;
+
+	/**
+	 * Returns the routing table of the simulation context of the calling thread.
+	 */
+	public static RoutingTable getInstance(){
+		SimulationContext context = CloudSim.getContext();
+		RoutingTable instance = context.getAttribute(RoutingTable.class);
+		if(instance == null)
+			instance = context.putAttributeIfAbsent(RoutingTable.class, new RoutingTable());
+		return instance;
+	}
+
+	private RoutingTable(){
+		parents = new HashMap<Integer, Integer>();
+		nextHops = new HashMap<Integer, Map<Integer, Integer>>();
+		actuatorGateways = new HashMap<String, List<Integer>>();
+		actuatorChildren = new HashMap<Integer, Map<String, Set<Integer>>>();
+	}
+
+	/**
+	 * Links a device to its parent: the device and its descendants become
+	 * reachable from the parent and from every ancestor of the parent.
+	 */
+	public void addLink(int parentId, int childId){
+		if(parents.containsKey(childId))
+			removeLink(childId);
+		parents.put(childId, parentId);
+		Set<Integer> subtree = subtreeOf(childId);
+		int hop = childId;
+		for(Integer device = parentId; device != null; device = parents.get(device)){
+			Map<Integer, Integer> routes = routesOf(device);
+			for(int descendant : subtree)
+				routes.put(descendant, hop);
+			hop = device;
+		}
+		actuatorChildren.clear();
+	}
+
+	/**
+	 * Unlinks a device from its parent, with all its descendants.
+	 */
+	public void removeLink(int childId){
+		Integer parentId = parents.remove(childId);
+		if(parentId == null)
+			return;
+		Set<Integer> subtree = subtreeOf(childId);
+		for(Integer device = parentId; device != null; device = parents.get(device))
+			routesOf(device).keySet().removeAll(subtree);
+		actuatorChildren.clear();
+	}
+
+	/**
+	 * Records an actuator of the given type attached to a gateway device.
+	 */
+	public void addActuator(int gatewayId, String actuatorType){
+		List<Integer> gateways = actuatorGateways.get(actuatorType);
+		if(gateways == null){
+			gateways = new ArrayList<Integer>();
+			actuatorGateways.put(actuatorType, gateways);
+		}
+		gateways.add(gatewayId);
+		actuatorChildren.clear();
+	}
+
+	/**
+	 * Checks whether the routes of a device are known.
+	 */
+	public boolean isRouted(int deviceId){
+		return nextHops.containsKey(deviceId) || parents.containsKey(deviceId);
+	}
+
+	/**
+	 * Returns the child of a device leading to one of its descendants.
+	 *
+	 * @return the child, or -1 if the target is not a descendant of the device
+	 */
+	public int getNextHop(int deviceId, int descendantId){
+		Map<Integer, Integer> routes = nextHops.get(deviceId);
+		if(routes == null)
+			return -1;
+		Integer hop = routes.get(descendantId);
+		return hop == null ? -1 : hop;
+	}
+
+	/**
+	 * Returns the children of a device whose subtree holds the gateway of an
+	 * actuator of the given type.
+	 */
+	public Set<Integer> getChildrenTowardsActuators(int deviceId, String actuatorType){
+		Map<String, Set<Integer>> byType = actuatorChildren.get(deviceId);
+		if(byType == null){
+			byType = new HashMap<String, Set<Integer>>();
+			actuatorChildren.put(deviceId, byType);
+		}
+		Set<Integer> children = byType.get(actuatorType);
+		if(children == null){
+			children = new HashSet<Integer>();
+			List<Integer> gateways = actuatorGateways.get(actuatorType);
+			if(gateways != null){
+				for(int gatewayId : gateways){
+					int hop = getNextHop(deviceId, gatewayId);
+					if(hop != -1)
+						children.add(hop);
+				}
+			}
+			children = Collections.unmodifiableSet(children);
+			byType.put(actuatorType, children);
+		}
+		return children;
+	}
+
+	/**
+	 * Forgets all the routes, e.g. when the topology is replaced.
+	 */
+	public void clear(){
+		parents.clear();
+		nextHops.clear();
+		actuatorGateways.clear();
+		actuatorChildren.clear();
+	}
+
+	private Map<Integer, Integer> routesOf(int deviceId){
+		Map<Integer, Integer> routes = nextHops.get(deviceId);
+		if(routes == null){
+			routes = new HashMap<Integer, Integer>();
+			nextHops.put(deviceId, routes);
+		}
+		return routes;
+	}
+
+	private Set<Integer> subtreeOf(int deviceId){
+		Set<Integer> subtree = new HashSet<Integer>();
+		subtree.add(deviceId);
+		Map<Integer, Integer> routes = nextHops.get(deviceId);
+		if(routes != null)
+			subtree.addAll(routes.keySet());
+		return subtree;
+	}
+
+}
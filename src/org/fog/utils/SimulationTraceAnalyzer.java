@@ -0,0 +1,326 @@
+package org.fog.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rebuilds results from a trace written by {@link SimulationTraceRecorder},
+ * without simulating again:
+ * <ul>
+ * <li>the delay from the emission of each sensor tuple to the arrival at an
+ * actuator of the tuples it caused, by sensor and actuator tuple type; the
+ * tuples sent by periodic edges are caused by no sensor tuple and are left
+ * out;</li>
+ * <li>for each link between two entities, the tuples and bytes sent over it,
+ * the mean transit time, and the mean queueing time, i.e. the transit time in
+ * excess of the fastest transit of a tuple of the same size on that link.</li>
+ * </ul>
+ * The trace is read through memory-mapped windows, once per result.
+ *
+ * Usage: SimulationTraceAnalyzer [trace file]
+ */
+public class SimulationTraceAnalyzer {
+
+	/** Records per mapped window */
+	private static final int WINDOW_RECORDS = 1 << 20;
+
+	/**
+	 * Tuples sent over a link.
+	 */
+	public static class LinkLoad {
+		private final int source;
+		private final int destination;
+		private long tuples;
+		private long bytes;
+		private double transitTime;
+		private double queueingTime;
+		private double firstSendTime = Double.NaN;
+		private double lastArrivalTime;
+
+		private LinkLoad(int source, int destination) {
+			this.source = source;
+			this.destination = destination;
+		}
+
+		public int getSource() {
+			return source;
+		}
+
+		public int getDestination() {
+			return destination;
+		}
+
+		public long getTuples() {
+			return tuples;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public double getMeanTransitTime() {
+			return tuples == 0 ? 0 : transitTime / tuples;
+		}
+
+		public double getMeanQueueingTime() {
+			return tuples == 0 ? 0 : queueingTime / tuples;
+		}
+
+		/**
+		 * Returns the bytes sent per unit of simulated time, from the first tuple
+		 * sent to the last one arrived.
+		 */
+		public double getThroughput() {
+			double span = lastArrivalTime - firstSendTime;
+			return span > 0 ? bytes / span : 0;
+		}
+	}
+
+	/**
+	 * Receives the records of the trace, in order.
+	 */
+	private interface RecordVisitor {
+		void visit(double time, double sendTime, int source, int destination, int tag, int tupleId,
+				int actualTupleId, int tupleType, int nwLength);
+	}
+
+	private final File traceFile;
+	private final long records;
+	private final Map<Integer, String> entityNames = new HashMap<Integer, String>();
+	private final Map<Integer, Byte> entityKinds = new HashMap<Integer, Byte>();
+	private final List<String> tupleTypes = new ArrayList<String>();
+
+	public SimulationTraceAnalyzer(File traceFile) throws IOException {
+		this.traceFile = traceFile;
+		RandomAccessFile file = new RandomAccessFile(traceFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(SimulationTraceRecorder.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			header.flip();
+			if (header.remaining() < SimulationTraceRecorder.HEADER_SIZE
+					|| header.getInt() != SimulationTraceRecorder.MAGIC)
+				throw new IOException(traceFile + " is not a simulation trace");
+			int version = header.getInt();
+			int recordSize = header.getInt();
+			if (version != SimulationTraceRecorder.VERSION || recordSize != SimulationTraceRecorder.RECORD_SIZE)
+				throw new IOException("Unsupported simulation trace version " + version);
+			header.getInt();
+			records = header.getLong();
+			long tablesPosition = header.getLong();
+			if (tablesPosition == 0)
+				throw new IOException(traceFile + " was not closed by its recorder");
+
+			ByteBuffer tables = channel.map(FileChannel.MapMode.READ_ONLY, tablesPosition,
+					channel.size() - tablesPosition);
+			tables.order(ByteOrder.LITTLE_ENDIAN);
+			int entities = tables.getInt();
+			for (int i = 0; i < entities; i++) {
+				int id = tables.getInt();
+				byte kind = tables.get();
+				entityNames.put(id, readString(tables));
+				entityKinds.put(id, kind);
+			}
+			int types = tables.getInt();
+			for (int i = 0; i < types; i++)
+				tupleTypes.add(readString(tables));
+		} finally {
+			file.close();
+		}
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Returns the name of an entity of the trace.
+	 */
+	public String getEntityName(int id) {
+		String name = entityNames.get(id);
+		return name == null ? "#" + id : name;
+	}
+
+	/**
+	 * Returns the delays from the emission of sensor tuples to the arrival at
+	 * actuators of the tuples they caused, by "sensor tuple type -> actuator tuple
+	 * type".
+	 */
+	public Map<String, LatencyHistogram> getLoopDelays() throws IOException {
+		final IntDoubleMap emissionTimes = new IntDoubleMap();
+		final IntDoubleMap emissionTypes = new IntDoubleMap();
+		final Map<String, LatencyHistogram> delays = new TreeMap<String, LatencyHistogram>();
+		scan(new RecordVisitor() {
+			@Override
+			public void visit(double time, double sendTime, int source, int destination, int tag, int tupleId,
+					int actualTupleId, int tupleType, int nwLength) {
+				if (tag != FogEvents.TUPLE_ARRIVAL && tag != FogEvents.TUPLE_BATCH_ARRIVAL || tupleId < 0)
+					return;
+				if (kindOf(source) == SimulationTraceRecorder.SENSOR) {
+					emissionTimes.put(actualTupleId, sendTime);
+					emissionTypes.put(actualTupleId, tupleType);
+				} else if (kindOf(destination) == SimulationTraceRecorder.ACTUATOR) {
+					double emission = emissionTimes.get(actualTupleId, Double.NaN);
+					if (Double.isNaN(emission))
+						return;
+					String loop = typeName((int) emissionTypes.get(actualTupleId, -1)) + " -> " + typeName(tupleType);
+					LatencyHistogram histogram = delays.get(loop);
+					if (histogram == null) {
+						histogram = new LatencyHistogram();
+						delays.put(loop, histogram);
+					}
+					histogram.recordValue(time - emission);
+				}
+			}
+		});
+		return delays;
+	}
+
+	/**
+	 * Returns the load of each link the tuples went over, in the order of their
+	 * first tuple.
+	 */
+	public List<LinkLoad> getLinkLoads() throws IOException {
+		// fastest transit of a tuple of each size on each link
+		final Map<Long, IntDoubleMap> fastestTransits = new HashMap<Long, IntDoubleMap>();
+		scan(new RecordVisitor() {
+			@Override
+			public void visit(double time, double sendTime, int source, int destination, int tag, int tupleId,
+					int actualTupleId, int tupleType, int nwLength) {
+				if (!isTupleTransfer(tag, tupleId, source, destination, sendTime))
+					return;
+				Long link = linkOf(source, destination);
+				IntDoubleMap transits = fastestTransits.get(link);
+				if (transits == null) {
+					transits = new IntDoubleMap();
+					fastestTransits.put(link, transits);
+				}
+				double transit = time - sendTime;
+				if (transit < transits.get(nwLength, Double.POSITIVE_INFINITY))
+					transits.put(nwLength, transit);
+			}
+		});
+		final Map<Long, LinkLoad> loads = new LinkedHashMap<Long, LinkLoad>();
+		scan(new RecordVisitor() {
+			@Override
+			public void visit(double time, double sendTime, int source, int destination, int tag, int tupleId,
+					int actualTupleId, int tupleType, int nwLength) {
+				if (!isTupleTransfer(tag, tupleId, source, destination, sendTime))
+					return;
+				Long link = linkOf(source, destination);
+				LinkLoad load = loads.get(link);
+				if (load == null) {
+					load = new LinkLoad(source, destination);
+					loads.put(link, load);
+				}
+				double transit = time - sendTime;
+				load.tuples++;
+				load.bytes += nwLength;
+				load.transitTime += transit;
+				load.queueingTime += transit - fastestTransits.get(link).get(nwLength, transit);
+				if (Double.isNaN(load.firstSendTime) || sendTime < load.firstSendTime)
+					load.firstSendTime = sendTime;
+				load.lastArrivalTime = Math.max(load.lastArrivalTime, time);
+			}
+		});
+		return new ArrayList<LinkLoad>(loads.values());
+	}
+
+	public void printReport(PrintStream out) throws IOException {
+		out.println("=========================================");
+		out.println("TRACE " + traceFile + " : " + records + " records");
+		out.println("=========================================");
+		out.println("LOOP DELAYS (sensor tuple -> actuator tuple)");
+		out.println("=========================================");
+		for (Map.Entry<String, LatencyHistogram> loop : getLoopDelays().entrySet())
+			out.println(loop.getKey() + " ---> mean " + String.format("%.3f", loop.getValue().getMean()) + ", "
+					+ loop.getValue() + " (" + loop.getValue().getCount() + " tuples)");
+		out.println("=========================================");
+		out.println("LINKS");
+		out.println("=========================================");
+		for (LinkLoad load : getLinkLoads())
+			out.println(String.format("%s -> %s : %d tuples, %d bytes, %.1f bytes per time unit, "
+					+ "transit %.3f, queueing %.3f", getEntityName(load.getSource()),
+					getEntityName(load.getDestination()), load.getTuples(), load.getBytes(), load.getThroughput(),
+					load.getMeanTransitTime(), load.getMeanQueueingTime()));
+	}
+
+	private void scan(RecordVisitor visitor) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(traceFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long position = SimulationTraceRecorder.HEADER_SIZE;
+			long remaining = records;
+			while (remaining > 0) {
+				int count = (int) Math.min(remaining, WINDOW_RECORDS);
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						(long) count * SimulationTraceRecorder.RECORD_SIZE);
+				window.order(ByteOrder.LITTLE_ENDIAN);
+				for (int i = 0; i < count; i++) {
+					double time = window.getDouble();
+					double sendTime = window.getDouble();
+					int source = window.getInt();
+					int destination = window.getInt();
+					int tag = window.getInt();
+					int tupleId = window.getInt();
+					int actualTupleId = window.getInt();
+					int tupleType = window.getInt();
+					int nwLength = window.getInt();
+					window.getInt(); // direction
+					visitor.visit(time, sendTime, source, destination, tag, tupleId, actualTupleId, tupleType,
+							nwLength);
+				}
+				position += (long) count * SimulationTraceRecorder.RECORD_SIZE;
+				remaining -= count;
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	private boolean isTupleTransfer(int tag, int tupleId, int source, int destination, double sendTime) {
+		return (tag == FogEvents.TUPLE_ARRIVAL || tag == FogEvents.TUPLE_BATCH_ARRIVAL) && tupleId >= 0
+				&& source != destination && sendTime >= 0;
+	}
+
+	private byte kindOf(int entityId) {
+		Byte kind = entityKinds.get(entityId);
+		return kind == null ? SimulationTraceRecorder.OTHER : kind;
+	}
+
+	private String typeName(int tupleType) {
+		return tupleType >= 0 && tupleType < tupleTypes.size() ? tupleTypes.get(tupleType) : "?";
+	}
+
+	private static Long linkOf(int source, int destination) {
+		return ((long) source << 32) | (destination & 0xFFFFFFFFL);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: SimulationTraceAnalyzer <trace file>");
+			System.exit(1);
+		}
+		new SimulationTraceAnalyzer(new File(args[0])).printReport(System.out);
+	}
+
+}
@@ -0,0 +1,253 @@
+package org.fog.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimEventObserver;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.MyActuator;
+import org.fog.entities.MyFogDevice;
+import org.fog.entities.MySensor;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.entities.TupleBatch;
+
+/**
+ * Writes a record of every event dispatched by the kernel to a binary file,
+ * for {@link SimulationTraceAnalyzer} to study the run afterwards. The file is
+ * written through memory-mapped windows, so a record costs a few stores and no
+ * system call or allocation.
+ * <p>
+ * The file starts with a header, followed by fixed-size records: the time of
+ * the event, the time it was sent, its source, destination and tag, and for the
+ * events carrying a tuple the tuple id, actual tuple id, tuple type, network
+ * length and direction (-1 otherwise). A batch of tuples gives one record per
+ * tuple. Closing the recorder appends the names and kinds of the entities and
+ * the names of the tuple types, and fills in the header. The file is not
+ * truncated, as a file with mapped windows cannot be shrunk on every platform,
+ * so it may end with unused space after the tables.
+ * <p>
+ * Only the sequential engine reports the events it dispatches.
+ */
+public class SimulationTraceRecorder implements SimEventObserver {
+
+	static final int MAGIC = 0x46545243;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int RECORD_SIZE = 48;
+
+	static final byte OTHER = 0;
+	static final byte DEVICE = 1;
+	static final byte SENSOR = 2;
+	static final byte ACTUATOR = 3;
+
+	/** Records per mapped window */
+	private static final int WINDOW_RECORDS = 1 << 17;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private MappedByteBuffer window;
+	private long windowPosition;
+	private long records;
+
+	private boolean[] seenEntities = new boolean[64];
+	private final List<Integer> entityIds = new ArrayList<Integer>();
+	private final List<String> entityNames = new ArrayList<String>();
+	private final List<Byte> entityKinds = new ArrayList<Byte>();
+	private final Map<String, Integer> tupleTypes = new HashMap<String, Integer>();
+	private final List<String> tupleTypeNames = new ArrayList<String>();
+
+	private boolean closed;
+
+	/**
+	 * Creates a trace file, replacing any existing one, and records the events
+	 * dispatched from now on in the simulation context of the calling thread.
+	 */
+	public static SimulationTraceRecorder start(File traceFile) throws IOException{
+		SimulationTraceRecorder recorder = new SimulationTraceRecorder(traceFile);
+		CloudSim.addEventObserver(recorder);
+		return recorder;
+	}
+
+	private SimulationTraceRecorder(File traceFile) throws IOException{
+		file = new RandomAccessFile(traceFile, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		windowPosition = HEADER_SIZE;
+		mapWindow();
+	}
+
+	@Override
+	public void eventScheduled(SimEvent event) {
+	}
+
+	@Override
+	public void eventDispatched(SimEvent event) {
+		Object data = event.getData();
+		if(data instanceof TupleBatch){
+			TupleBatch batch = (TupleBatch) data;
+			for(int i = 0; i < batch.size(); i++)
+				record(event, batch.getSource(i), batch.getTuple(i));
+		}else{
+			record(event, event.getSource(), data instanceof Tuple ? (Tuple) data : null);
+		}
+	}
+
+	private void record(SimEvent event, int source, Tuple tuple){
+		if(closed)
+			return;
+		if(window.remaining() < RECORD_SIZE){
+			windowPosition += window.position();
+			nextWindow();
+		}
+		int destination = event.getDestination();
+		noteEntity(source);
+		noteEntity(destination);
+		window.putDouble(event.eventTime());
+		window.putDouble(event.sendTime());
+		window.putInt(source);
+		window.putInt(destination);
+		window.putInt(event.getTag());
+		if(tuple != null){
+			window.putInt(tuple.getCloudletId());
+			window.putInt(tuple.getActualTupleId());
+			window.putInt(tupleTypeOf(tuple.getTupleType()));
+			window.putInt((int) Math.min(Integer.MAX_VALUE, tuple.getCloudletFileSize()));
+			window.putInt(tuple.getDirection());
+		}else{
+			window.putInt(-1);
+			window.putInt(-1);
+			window.putInt(-1);
+			window.putInt(-1);
+			window.putInt(-1);
+		}
+		records++;
+	}
+
+	/**
+	 * Returns the number of records written.
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Stops recording, writes the entity and tuple type tables and the header,
+	 * and closes the file.
+	 */
+	public void close() throws IOException{
+		if(closed)
+			return;
+		closed = true;
+		CloudSim.removeEventObserver(this);
+		long tablesPosition = HEADER_SIZE + records * RECORD_SIZE;
+		window.force();
+		window = null;
+
+		// written through the channel right after the records, within or past the
+		// last window, without changing the length of the mapped file
+		ByteBuffer tables = encodeTables();
+		channel.write(tables, tablesPosition);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0);
+		header.putLong(records).putLong(tablesPosition);
+		header.flip();
+		channel.write(header, 0);
+		channel.force(false);
+		file.close();
+	}
+
+	private void mapWindow() throws IOException{
+		window = channel.map(FileChannel.MapMode.READ_WRITE, windowPosition, (long) WINDOW_RECORDS * RECORD_SIZE);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void nextWindow(){
+		try{
+			mapWindow();
+		}catch(IOException e){
+			throw new IllegalStateException("Cannot extend the simulation trace", e);
+		}
+	}
+
+	private void noteEntity(int id){
+		if(id < 0)
+			return;
+		if(id >= seenEntities.length)
+			seenEntities = Arrays.copyOf(seenEntities, Math.max(id + 1, seenEntities.length * 2));
+		if(seenEntities[id])
+			return;
+		seenEntities[id] = true;
+		SimEntity entity = CloudSim.getEntity(id);
+		entityIds.add(id);
+		entityNames.add(entity == null ? "#" + id : entity.getName());
+		entityKinds.add(kindOf(entity));
+	}
+
+	private static byte kindOf(SimEntity entity){
+		if(entity instanceof FogDevice || entity instanceof MyFogDevice)
+			return DEVICE;
+		if(entity instanceof Sensor || entity instanceof MySensor)
+			return SENSOR;
+		if(entity instanceof Actuator || entity instanceof MyActuator)
+			return ACTUATOR;
+		return OTHER;
+	}
+
+	private int tupleTypeOf(String tupleType){
+		if(tupleType == null)
+			return -1;
+		Integer type = tupleTypes.get(tupleType);
+		if(type == null){
+			type = tupleTypeNames.size();
+			tupleTypes.put(tupleType, type);
+			tupleTypeNames.add(tupleType);
+		}
+		return type;
+	}
+
+	private ByteBuffer encodeTables(){
+		List<byte[]> names = new ArrayList<byte[]>();
+		int size = 8;
+		for(String name : entityNames){
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			names.add(bytes);
+			size += 4 + 1 + 4 + bytes.length;
+		}
+		for(String name : tupleTypeNames){
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			names.add(bytes);
+			size += 4 + bytes.length;
+		}
+		ByteBuffer tables = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		tables.putInt(entityIds.size());
+		for(int i = 0; i < entityIds.size(); i++){
+			byte[] name = names.get(i);
+			tables.putInt(entityIds.get(i)).put(entityKinds.get(i)).putInt(name.length).put(name);
+		}
+		tables.putInt(tupleTypeNames.size());
+		for(int i = 0; i < tupleTypeNames.size(); i++){
+			byte[] name = names.get(entityIds.size() + i);
+			tables.putInt(name.length).put(name);
+		}
+		tables.flip();
+		return tables;
+	}
+
+}
@@ -1,72 +1,112 @@
 package org.fog.utils;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.Tuple;
 
+/**
+ * Measures the delays of the application loops and the CPU times of the tuples.
+ * Only the tuples in flight are remembered, by device and id; the delays go to
+ * a {@link LatencyHistogram} per loop and per tuple type, so the memory used
+ * does not grow with the length of the simulation.
+ */
 public class TimeKeeper {
 
-	private static TimeKeeper instance;
-	
 	private long simulationStartTime;
-	private int count; 
-	private Map<Integer, Double> emitTimes;
-	private Map<Integer, Double> endTimes;
-	private Map<Integer, List<Integer>> loopIdToTupleIds;
-	private Map<Integer, Double> tupleIdToCpuStartTime;
-	private Map<String, Double> tupleTypeToAverageCpuTime;
-	private Map<String, Integer> tupleTypeToExecutedTupleCount;
-	
-	private Map<Integer, Double> loopIdToCurrentAverage;
-	private Map<Integer, Integer> loopIdToCurrentNum;
-	
+	private int count;
+	private IntDoubleMap emitTimes;
+	private Map<Integer, IntDoubleMap> deviceIdToCpuStartTimes;
+	private Map<Integer, LatencyHistogram> loopIdToDelays;
+	private Map<String, LatencyHistogram> tupleTypeToCpuTimes;
+
+	/**
+	 * Returns the time keeper of the simulation context of the calling thread.
+	 */
 	public static TimeKeeper getInstance(){
+		SimulationContext context = CloudSim.getContext();
+		TimeKeeper instance = context.getAttribute(TimeKeeper.class);
 		if(instance == null)
-			instance = new TimeKeeper();
+			instance = context.putAttributeIfAbsent(TimeKeeper.class, new TimeKeeper());
 		return instance;
 	}
-	
+
 	public int getUniqueId(){
 		return count++;
 	}
-	
-	public void tupleStartedExecution(Tuple tuple){
-		tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+
+	/**
+	 * Records that a device started executing a tuple now. A tuple sent to
+	 * several devices keeps its id, so the start times are kept per device.
+	 */
+	public void tupleStartedExecution(int deviceId, Tuple tuple){
+		IntDoubleMap startTimes = deviceIdToCpuStartTimes.get(deviceId);
+		if(startTimes == null){
+			startTimes = new IntDoubleMap();
+			deviceIdToCpuStartTimes.put(deviceId, startTimes);
+		}
+		startTimes.put(tuple.getCloudletId(), CloudSim.clock());
 	}
-	
-	public void tupleEndedExecution(Tuple tuple){
-		if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
+
+	/**
+	 * Records that a device finished executing a tuple now, and forgets the
+	 * start time it recorded for the tuple.
+	 */
+	public void tupleEndedExecution(int deviceId, Tuple tuple){
+		IntDoubleMap startTimes = deviceIdToCpuStartTimes.get(deviceId);
+		if(startTimes == null)
 			return;
-		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
-		if(!tupleTypeToAverageCpuTime.containsKey(tuple.getTupleType())){
-			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), executionTime);
-			tupleTypeToExecutedTupleCount.put(tuple.getTupleType(), 1);
-		} else{
-			double currentAverage = tupleTypeToAverageCpuTime.get(tuple.getTupleType());
-			int currentCount = tupleTypeToExecutedTupleCount.get(tuple.getTupleType());
-			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), (currentAverage*currentCount+executionTime)/(currentCount+1));
+		double startTime = startTimes.remove(tuple.getCloudletId(), Double.NaN);
+		if(Double.isNaN(startTime))
+			return;
+		LatencyHistogram cpuTimes = tupleTypeToCpuTimes.get(tuple.getTupleType());
+		if(cpuTimes == null){
+			cpuTimes = new LatencyHistogram();
+			tupleTypeToCpuTimes.put(tuple.getTupleType(), cpuTimes);
 		}
+		cpuTimes.recordValue(CloudSim.clock() - startTime);
+	}
+
+	/**
+	 * Records that a tuple starting an application loop was emitted now.
+	 */
+	public void tupleEmitted(int loopId, int tupleId){
+		if(!loopIdToDelays.containsKey(loopId))
+			loopIdToDelays.put(loopId, new LatencyHistogram());
+		emitTimes.put(tupleId, CloudSim.clock());
+	}
+
+	/**
+	 * Records that a tuple reached the end of an application loop now, and
+	 * forgets the tuple.
+	 *
+	 * @return false if the tuple was not emitted at the start of a loop
+	 */
+	public boolean loopCompleted(int loopId, int tupleId){
+		double startTime = emitTimes.remove(tupleId, Double.NaN);
+		if(Double.isNaN(startTime))
+			return false;
+		LatencyHistogram delays = loopIdToDelays.get(loopId);
+		if(delays == null){
+			delays = new LatencyHistogram();
+			loopIdToDelays.put(loopId, delays);
+		}
+		delays.recordValue(CloudSim.clock() - startTime);
+		return true;
 	}
-	
-	public Map<Integer, List<Integer>> loopIdToTupleIds(){
-		return getInstance().getLoopIdToTupleIds();
-	}
-	
+
 	private TimeKeeper(){
 		count = 1;
-		setEmitTimes(new HashMap<Integer, Double>());
-		setEndTimes(new HashMap<Integer, Double>());
-		setLoopIdToTupleIds(new HashMap<Integer, List<Integer>>());
-		setTupleTypeToAverageCpuTime(new HashMap<String, Double>());
-		setTupleTypeToExecutedTupleCount(new HashMap<String, Integer>());
-		setTupleIdToCpuStartTime(new HashMap<Integer, Double>());
-		setLoopIdToCurrentAverage(new HashMap<Integer, Double>());
-		setLoopIdToCurrentNum(new HashMap<Integer, Integer>());
-	}
-	
+		emitTimes = new IntDoubleMap();
+		deviceIdToCpuStartTimes = new HashMap<Integer, IntDoubleMap>();
+		loopIdToDelays = new HashMap<Integer, LatencyHistogram>();
+		tupleTypeToCpuTimes = new HashMap<String, LatencyHistogram>();
+	}
+
 	public int getCount() {
 		return count;
 	}
@@ -75,54 +115,31 @@ public class TimeKeeper {
 		this.count = count;
 	}
 
-	public Map<Integer, Double> getEmitTimes() {
-		return emitTimes;
-	}
-
-	public void setEmitTimes(Map<Integer, Double> emitTimes) {
-		this.emitTimes = emitTimes;
+	/**
+	 * Returns the ids of the loops a tuple was emitted for.
+	 */
+	public Set<Integer> getLoopIds() {
+		return Collections.unmodifiableSet(loopIdToDelays.keySet());
 	}
 
-	public Map<Integer, Double> getEndTimes() {
-		return endTimes;
+	public LatencyHistogram getLoopDelays(int loopId) {
+		return loopIdToDelays.get(loopId);
 	}
 
-	public void setEndTimes(Map<Integer, Double> endTimes) {
-		this.endTimes = endTimes;
+	public Set<String> getTupleTypes() {
+		return Collections.unmodifiableSet(tupleTypeToCpuTimes.keySet());
 	}
 
-	public Map<Integer, List<Integer>> getLoopIdToTupleIds() {
-		return loopIdToTupleIds;
+	public LatencyHistogram getCpuTimes(String tupleType) {
+		return tupleTypeToCpuTimes.get(tupleType);
 	}
 
-	public void setLoopIdToTupleIds(Map<Integer, List<Integer>> loopIdToTupleIds) {
-		this.loopIdToTupleIds = loopIdToTupleIds;
-	}
-
-	public Map<String, Double> getTupleTypeToAverageCpuTime() {
-		return tupleTypeToAverageCpuTime;
-	}
-
-	public void setTupleTypeToAverageCpuTime(
-			Map<String, Double> tupleTypeToAverageCpuTime) {
-		this.tupleTypeToAverageCpuTime = tupleTypeToAverageCpuTime;
-	}
-
-	public Map<String, Integer> getTupleTypeToExecutedTupleCount() {
-		return tupleTypeToExecutedTupleCount;
-	}
-
-	public void setTupleTypeToExecutedTupleCount(
-			Map<String, Integer> tupleTypeToExecutedTupleCount) {
-		this.tupleTypeToExecutedTupleCount = tupleTypeToExecutedTupleCount;
-	}
-
-	public Map<Integer, Double> getTupleIdToCpuStartTime() {
-		return tupleIdToCpuStartTime;
-	}
-
-	public void setTupleIdToCpuStartTime(Map<Integer, Double> tupleIdToCpuStartTime) {
-		this.tupleIdToCpuStartTime = tupleIdToCpuStartTime;
+	/**
+	 * Returns the number of tuples emitted at the start of a loop that did not
+	 * reach its end yet.
+	 */
+	public int getTuplesInFlight() {
+		return emitTimes.size();
 	}
 
 	public long getSimulationStartTime() {
@@ -133,21 +150,25 @@ public class TimeKeeper {
 		this.simulationStartTime = simulationStartTime;
 	}
 
+	/**
+	 * Returns the average delay of each loop completed at least once.
+	 */
 	public Map<Integer, Double> getLoopIdToCurrentAverage() {
-		return loopIdToCurrentAverage;
+		Map<Integer, Double> averages = new HashMap<Integer, Double>();
+		for(Map.Entry<Integer, LatencyHistogram> entry : loopIdToDelays.entrySet())
+			if(entry.getValue().getCount() > 0)
+				averages.put(entry.getKey(), entry.getValue().getMean());
+		return averages;
 	}
 
-	public void setLoopIdToCurrentAverage(Map<Integer, Double> loopIdToCurrentAverage) {
-		this.loopIdToCurrentAverage = loopIdToCurrentAverage;
-	}
-
-	public Map<Integer, Integer> getLoopIdToCurrentNum() {
-		return loopIdToCurrentNum;
+	/**
+	 * Returns the average CPU time of each tuple type.
+	 */
+	public Map<String, Double> getTupleTypeToAverageCpuTime() {
+		Map<String, Double> averages = new HashMap<String, Double>();
+		for(Map.Entry<String, LatencyHistogram> entry : tupleTypeToCpuTimes.entrySet())
+			averages.put(entry.getKey(), entry.getValue().getMean());
+		return averages;
 	}
 
-	public void setLoopIdToCurrentNum(Map<Integer, Integer> loopIdToCurrentNum) {
-		this.loopIdToCurrentNum = loopIdToCurrentNum;
-	}
-	
-	
 }
@@ -0,0 +1,144 @@
+package org.fog.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * The last trace records of a simulation, kept in primitive arrays used as a
+ * ring: once it is full, each record overwrites the oldest one, so tracing a
+ * long run takes a fixed amount of memory and allocates nothing. A record is
+ * the time, the entity, the kind of record and the tuple it is about.
+ *
+ * @see Logger#trace(int, int, int)
+ */
+public class TraceRingBuffer {
+
+	public static final int TUPLE_SENT = 1;
+	public static final int TUPLE_ARRIVAL = 2;
+	public static final int TUPLE_EXECUTION = 3;
+	public static final int TUPLE_COMPLETION = 4;
+	public static final int TUPLE_RECEIVED = 5;
+
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final double[] times;
+	private final int[] entityIds;
+	private final int[] kinds;
+	private final int[] tupleIds;
+	private final int mask;
+
+	/** Number of records since the buffer was created, overwritten ones included */
+	private long recorded;
+
+	/**
+	 * Returns the trace buffer of the simulation context of the calling thread,
+	 * with the default capacity if it has none yet.
+	 */
+	public static TraceRingBuffer getInstance(){
+		SimulationContext context = CloudSim.getContext();
+		TraceRingBuffer instance = context.getAttribute(TraceRingBuffer.class);
+		if(instance == null)
+			instance = context.putAttributeIfAbsent(TraceRingBuffer.class, new TraceRingBuffer(DEFAULT_CAPACITY));
+		return instance;
+	}
+
+	/**
+	 * Replaces the trace buffer of the simulation context of the calling thread
+	 * with an empty one.
+	 * 
+	 * @param capacity the number of records kept, rounded up to a power of 2
+	 */
+	public static TraceRingBuffer reset(int capacity){
+		SimulationContext context = CloudSim.getContext();
+		context.removeAttribute(TraceRingBuffer.class);
+		return context.putAttributeIfAbsent(TraceRingBuffer.class, new TraceRingBuffer(capacity));
+	}
+
+	private TraceRingBuffer(int capacity){
+		if(capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Invalid trace capacity: " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity)
+			size <<= 1;
+		times = new double[size];
+		entityIds = new int[size];
+		kinds = new int[size];
+		tupleIds = new int[size];
+		mask = size - 1;
+	}
+
+	public void record(double time, int entityId, int kind, int tupleId){
+		int slot = (int) (recorded++ & mask);
+		times[slot] = time;
+		entityIds[slot] = entityId;
+		kinds[slot] = kind;
+		tupleIds[slot] = tupleId;
+	}
+
+	/**
+	 * Returns the number of records kept, at most the capacity.
+	 */
+	public int size(){
+		return (int) Math.min(recorded, times.length);
+	}
+
+	public int getCapacity(){
+		return times.length;
+	}
+
+	/**
+	 * Returns the number of records made, the overwritten ones included.
+	 */
+	public long getRecorded(){
+		return recorded;
+	}
+
+	public double getTime(int index){
+		return times[slotOf(index)];
+	}
+
+	public int getEntityId(int index){
+		return entityIds[slotOf(index)];
+	}
+
+	public int getKind(int index){
+		return kinds[slotOf(index)];
+	}
+
+	public int getTupleId(int index){
+		return tupleIds[slotOf(index)];
+	}
+
+	/**
+	 * Writes the records kept, oldest first, preceded by their number: a record
+	 * is its time as a double and its entity, kind and tuple as ints.
+	 */
+	public void writeTo(DataOutput out) throws IOException{
+		int size = size();
+		out.writeInt(size);
+		for(int i = 0; i < size; i++){
+			int slot = slotOf(i);
+			out.writeDouble(times[slot]);
+			out.writeInt(entityIds[slot]);
+			out.writeInt(kinds[slot]);
+			out.writeInt(tupleIds[slot]);
+		}
+	}
+
+	public void clear(){
+		recorded = 0;
+	}
+
+	/**
+	 * Maps the index of a record, 0 being the oldest kept, to its slot.
+	 */
+	private int slotOf(int index){
+		if(index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Record " + index + " of " + size());
+		return (int) ((recorded - size() + index) & mask);
+	}
+
+}
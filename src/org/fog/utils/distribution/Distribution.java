@@ -1,6 +1,7 @@
 package org.fog.utils.distribution;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 public abstract class Distribution {
 
@@ -19,6 +20,17 @@ public abstract class Distribution {
 		this.random = random;
 	}
 
+	/**
+	 * Draws the next values from a generator seeded by the random number stream
+	 * of an entity, so that they no longer depend on the order in which the
+	 * distributions were created. A distribution without a random number
+	 * generator is left as it is.
+	 */
+	public void setRandomStream(SplittableRandom stream) {
+		if(random != null)
+			setRandom(new Random(stream.nextLong()));
+	}
+
 	public abstract int getDistributionType();
 	public abstract double getMeanInterTransmitTime();
 }